@@ -17,23 +17,42 @@
 package org.fusesource.camel.component.salesforce;
 
 import org.apache.camel.Endpoint;
+import org.apache.camel.ThreadPoolRejectedPolicy;
+import org.apache.camel.builder.ThreadPoolProfileBuilder;
 import org.apache.camel.impl.DefaultComponent;
+import org.apache.camel.spi.ManagementStrategy;
+import org.apache.camel.spi.ThreadPoolProfile;
 import org.apache.camel.util.ObjectHelper;
 import org.apache.camel.util.ServiceHelper;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.RedirectListener;
+import org.fusesource.camel.component.salesforce.api.CircuitBreakerEvent;
 import org.fusesource.camel.component.salesforce.api.SalesforceException;
 import org.fusesource.camel.component.salesforce.api.dto.AbstractSObjectBase;
 import org.fusesource.camel.component.salesforce.internal.OperationName;
 import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.fusesource.camel.component.salesforce.internal.client.ApiLimits;
+import org.fusesource.camel.component.salesforce.internal.client.CallbackExecutor;
+import org.fusesource.camel.component.salesforce.internal.client.CircuitBreaker;
+import org.fusesource.camel.component.salesforce.internal.client.ClientRegistry;
+import org.fusesource.camel.component.salesforce.internal.client.Compression;
+import org.fusesource.camel.component.salesforce.internal.client.ConnectionWarmer;
+import org.fusesource.camel.component.salesforce.internal.client.RequestLimiter;
+import org.fusesource.camel.component.salesforce.internal.client.RetryPolicy;
+import org.fusesource.camel.component.salesforce.internal.client.TrafficLane;
+import org.fusesource.camel.component.salesforce.internal.processor.ResponseCache;
 import org.fusesource.camel.component.salesforce.internal.streaming.SubscriptionHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.ObjectName;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Represents the component that manages {@link SalesforceEndpoint}.
@@ -42,18 +61,100 @@ public class SalesforceComponent extends DefaultComponent {
 
     private static final Logger LOG = LoggerFactory.getLogger(SalesforceComponent.class);
 
-    private static final int MAX_CONNECTIONS_PER_ADDRESS = 20;
-    private static final int CONNECTION_TIMEOUT = 60000;
-    private static final int RESPONSE_TIMEOUT = 60000;
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ADDRESS = 20;
+    private static final int DEFAULT_CONNECTION_TIMEOUT = 60000;
+    private static final long DEFAULT_RESPONSE_TIMEOUT = 60000;
+    // same as Jetty HttpClient
+    private static final long DEFAULT_IDLE_TIMEOUT = 20000;
+    private static final int DEFAULT_CALLBACK_MAX_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_METADATA_CACHE_SIZE = 100;
+    private static final int DEFAULT_RECORD_CACHE_SIZE = 1000;
+    private static final long DEFAULT_API_USAGE_MAX_DELAY = 1000;
+    private static final int DEFAULT_MAX_QUEUED_REQUESTS = 10000;
+    private static final long DEFAULT_RETRY_INITIAL_DELAY = 100;
+    private static final long DEFAULT_RETRY_MAX_DELAY = 10000;
+    private static final double DEFAULT_RETRY_BUDGET_RATIO = 0.1;
+    private static final long DEFAULT_CIRCUIT_BREAKER_WINDOW = 10000;
+    private static final int DEFAULT_CIRCUIT_BREAKER_MIN_REQUESTS = 20;
+    private static final long DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION = 30000;
+    private static final int DEFAULT_COMPRESS_REQUEST_MIN_SIZE = 1024;
+    // case sensitive Id, 18 character Ids add a case insensitive checksum
+    private static final int SOBJECT_ID_LENGTH = 15;
 
     private SalesforceLoginConfig loginConfig;
     private SalesforceEndpointConfig config;
     private String[] packages;
+    // connection pool of the component's HttpClient, ignored if an HttpClient is set in the endpoint config
+    private int maxConnectionsPerAddress = DEFAULT_MAX_CONNECTIONS_PER_ADDRESS;
+    private int connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
+    private long responseTimeout = DEFAULT_RESPONSE_TIMEOUT;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    // max connections per address of separate HttpClients for Bulk API requests and Streaming API long polls,
+    // 0 to share the component's HttpClient
+    private int bulkMaxConnections;
+    private int streamingMaxConnections;
+    // connections opened to the Salesforce instance after login, and kept open with pings, disabled if not positive
+    private int warmUpConnections;
+    private long keepAliveInterval;
+    // stream successful responses to processors instead of buffering them in memory
+    private boolean streamResponses;
+    // process responses on a separate thread pool, instead of HTTP client threads
+    private int callbackPoolSize;
+    private int callbackMaxQueueSize = DEFAULT_CALLBACK_MAX_QUEUE_SIZE;
+    // identical concurrent GET requests through the same client share a single HTTP request
+    private boolean shareInFlightRequests;
+    // cache metadata responses for this many millis, disabled if not positive
+    private long metadataCacheTtl;
+    private int metadataCacheSize = DEFAULT_METADATA_CACHE_SIZE;
+    // cache getSObject and getSObjectWithId records for this many millis, disabled if not positive
+    private long recordCacheTtl;
+    private int recordCacheSize = DEFAULT_RECORD_CACHE_SIZE;
+    // throttle requests as API usage reported by Salesforce approaches the limit, disabled if not positive
+    private double apiUsageSlowdownThreshold;
+    private double apiUsageStopThreshold;
+    private long apiUsageMaxDelay = DEFAULT_API_USAGE_MAX_DELAY;
+
+    private double orgRateLimit;
+    private int orgMaxInFlight;
+    private int maxQueuedRequests = DEFAULT_MAX_QUEUED_REQUESTS;
+
+    private int maxRetries;
+    private long retryInitialDelay = DEFAULT_RETRY_INITIAL_DELAY;
+    private long retryMaxDelay = DEFAULT_RETRY_MAX_DELAY;
+    private double retryBudgetRatio = DEFAULT_RETRY_BUDGET_RATIO;
+
+    private double circuitBreakerFailureRate;
+    private long circuitBreakerSlowCallDuration;
+    private long circuitBreakerWindow = DEFAULT_CIRCUIT_BREAKER_WINDOW;
+    private int circuitBreakerMinRequests = DEFAULT_CIRCUIT_BREAKER_MIN_REQUESTS;
+    private long circuitBreakerOpenDuration = DEFAULT_CIRCUIT_BREAKER_OPEN_DURATION;
+
+    // gzip compression of REST and Bulk API bodies
+    private boolean compressResponses;
+    private boolean compressRequests;
+    private int compressRequestMinSize = DEFAULT_COMPRESS_REQUEST_MIN_SIZE;
 
     // component state
     private HttpClient httpClient;
+    private HttpClient bulkHttpClient;
+    private HttpClient streamingHttpClient;
     private SalesforceSession session;
     private Map<String, Class<?>> classMap;
+    private CallbackExecutor callbackExecutor;
+    private ClientRegistry clientRegistry;
+    private ResponseCache metadataCache;
+    private ResponseCache recordCache;
+    private ApiLimits apiLimits;
+    private ScheduledExecutorService apiLimitsScheduler;
+    private RequestLimiter requestLimiter;
+    private ScheduledExecutorService requestLimiterScheduler;
+    private RetryPolicy retryPolicy;
+    private ScheduledExecutorService retryScheduler;
+    private CircuitBreaker circuitBreaker;
+    private Compression compression;
+    private ConnectionWarmer connectionWarmer;
+    private ScheduledExecutorService keepAliveScheduler;
+    private final List<ObjectName> managedNames = new ArrayList<ObjectName>();
 
     // Lazily created helper for consumer endpoints
     private SubscriptionHelper subscriptionHelper;
@@ -83,6 +184,12 @@ public class SalesforceComponent extends DefaultComponent {
         final SalesforceEndpointConfig copy = config.copy();
         setProperties(copy, parameters);
 
+        // Bulk API endpoints use the Bulk API lane, unless they set their own HttpClient
+        if (bulkHttpClient != null && operationName != null &&
+            SalesforceProducer.isBulkOperation(operationName) && copy.getHttpClient() == httpClient) {
+            copy.setHttpClient(bulkHttpClient);
+        }
+
         final SalesforceEndpoint endpoint = new SalesforceEndpoint(uri, this, copy,
             operationName, topicName);
 
@@ -98,38 +205,62 @@ public class SalesforceComponent extends DefaultComponent {
 
         // validate properties
         ObjectHelper.notNull(loginConfig, "loginConfig");
+        // a long poll holds a connection, and the handshake or a subscription needs another
+        if (streamingMaxConnections > 0 && streamingMaxConnections < 2) {
+            throw new IllegalArgumentException(
+                "streamingMaxConnections must be at least 2, found " + streamingMaxConnections);
+        }
 
         // create a Jetty HttpClient if not already set
         if (null == httpClient) {
             if (config != null && config.getHttpClient() != null) {
                 httpClient = config.getHttpClient();
             } else {
-                httpClient = new HttpClient();
-                httpClient.setConnectorType(HttpClient.CONNECTOR_SELECT_CHANNEL);
-                httpClient.setMaxConnectionsPerAddress(MAX_CONNECTIONS_PER_ADDRESS);
-                httpClient.setConnectTimeout(CONNECTION_TIMEOUT);
-                httpClient.setTimeout(RESPONSE_TIMEOUT);
+                httpClient = createHttpClient(maxConnectionsPerAddress);
             }
         }
+        startHttpClient(httpClient);
 
-        // add redirect listener to handle Salesforce redirects
-        // this is ok to do since the RedirectListener is in the same classloader as Jetty client
-        String listenerClass = RedirectListener.class.getName();
-        if (httpClient.getRegisteredListeners() == null ||
-            !httpClient.getRegisteredListeners().contains(listenerClass)) {
-            httpClient.registerListener(listenerClass);
+        // Bulk API requests and Streaming API long polls get their own connections and threads if configured,
+        // so that they can't hold up interactive requests
+        if (bulkMaxConnections > 0 && bulkHttpClient == null) {
+            bulkHttpClient = createHttpClient(bulkMaxConnections);
+        }
+        if (bulkHttpClient != null) {
+            startHttpClient(bulkHttpClient);
+        }
+        if (streamingMaxConnections > 0 && streamingHttpClient == null) {
+            streamingHttpClient = createHttpClient(streamingMaxConnections);
+        }
+        if (streamingHttpClient != null) {
+            startHttpClient(streamingHttpClient);
         }
-        // SalesforceSecurityListener can't be registered the same way
-        // since Jetty HttpClient's Class.forName() can't see it
-
-        // start the Jetty client to initialize thread pool, etc.
-        httpClient.start();
 
         // support restarts
         if (null == this.session) {
             this.session = new SalesforceSession(httpClient, loginConfig);
         }
 
+        manageObject(new TrafficLane("rest", httpClient, session), "restLane");
+        if (bulkHttpClient != null) {
+            manageObject(new TrafficLane("bulk", bulkHttpClient, session), "bulkLane");
+        }
+        if (streamingHttpClient != null) {
+            manageObject(new TrafficLane("streaming", streamingHttpClient, session), "streamingLane");
+        }
+
+        // open connections to the instance as soon as the session logs in
+        if (warmUpConnections > 0 && connectionWarmer == null) {
+            if (keepAliveInterval > 0) {
+                keepAliveScheduler = getCamelContext().getExecutorServiceManager()
+                    .newSingleThreadScheduledExecutor(this, "SalesforceKeepAlive");
+            }
+            connectionWarmer = new ConnectionWarmer(httpClient, session, warmUpConnections, keepAliveInterval,
+                keepAliveScheduler);
+            ServiceHelper.startService(connectionWarmer);
+            manageObject(connectionWarmer, "connectionWarmer");
+        }
+
         // login at startup if lazyLogin is disabled
         if (!loginConfig.isLazyLogin()) {
             ServiceHelper.startService(session);
@@ -144,11 +275,115 @@ public class SalesforceComponent extends DefaultComponent {
             classMap = Collections.unmodifiableMap(new HashMap<String, Class<?>>());
         }
 
+        if ((callbackPoolSize > 0 || streamResponses) && callbackExecutor == null) {
+            // streamed response parsers block waiting for content, so they always need their own threads,
+            // use a thread per connection by default
+            final int poolSize = callbackPoolSize > 0 ? callbackPoolSize : httpClient.getMaxConnectionsPerAddress();
+            final ThreadPoolProfile profile = new ThreadPoolProfileBuilder("SalesforceCallback")
+                .poolSize(poolSize).maxPoolSize(poolSize)
+                .maxQueueSize(callbackMaxQueueSize)
+                .rejectedPolicy(ThreadPoolRejectedPolicy.Abort)
+                .build();
+            callbackExecutor = new CallbackExecutor(
+                getCamelContext().getExecutorServiceManager().newThreadPool(this, "SalesforceCallback", profile));
+            manageObject(callbackExecutor, "callbackExecutor");
+        }
+
+        if (metadataCacheTtl > 0 && metadataCache == null) {
+            metadataCache = new ResponseCache(metadataCacheTtl, metadataCacheSize);
+            manageObject(metadataCache, "metadataCache");
+        }
+        if (recordCacheTtl > 0 && recordCache == null) {
+            recordCache = new ResponseCache(recordCacheTtl, recordCacheSize);
+            manageObject(recordCache, "recordCache");
+        }
+
+        if (apiLimits == null) {
+            if (apiUsageSlowdownThreshold > 0) {
+                apiLimitsScheduler = getCamelContext().getExecutorServiceManager()
+                    .newSingleThreadScheduledExecutor(this, "SalesforceApiLimits");
+            }
+            apiLimits = new ApiLimits(apiUsageSlowdownThreshold, apiUsageStopThreshold, apiUsageMaxDelay,
+                apiLimitsScheduler);
+            manageObject(apiLimits, "apiLimits");
+        }
+
+        if (requestLimiter == null && (orgRateLimit > 0 || orgMaxInFlight > 0)) {
+            if (orgRateLimit > 0) {
+                requestLimiterScheduler = getCamelContext().getExecutorServiceManager()
+                    .newSingleThreadScheduledExecutor(this, "SalesforceRequestLimiter");
+            }
+            requestLimiter = new RequestLimiter(orgRateLimit, orgMaxInFlight, maxQueuedRequests,
+                requestLimiterScheduler);
+            manageObject(requestLimiter, "requestLimiter");
+        }
+
+        if (retryPolicy == null && maxRetries > 0) {
+            retryScheduler = getCamelContext().getExecutorServiceManager()
+                .newSingleThreadScheduledExecutor(this, "SalesforceRetry");
+            retryPolicy = new RetryPolicy(maxRetries, retryInitialDelay, retryMaxDelay, retryBudgetRatio,
+                retryScheduler);
+            manageObject(retryPolicy, "retryPolicy");
+        }
+
+        if (circuitBreaker == null && circuitBreakerFailureRate > 0) {
+            circuitBreaker = new CircuitBreaker(circuitBreakerFailureRate, circuitBreakerSlowCallDuration,
+                circuitBreakerWindow, circuitBreakerMinRequests, circuitBreakerOpenDuration);
+            // publish state changes to Camel event notifiers
+            circuitBreaker.setStateListener(new CircuitBreaker.StateListener() {
+                @Override
+                public void onStateChange(CircuitBreakerEvent.State previousState, CircuitBreakerEvent.State state) {
+                    try {
+                        getCamelContext().getManagementStrategy().notify(
+                            new CircuitBreakerEvent(SalesforceComponent.this, previousState, state));
+                    } catch (Exception e) {
+                        LOG.warn("Error notifying circuit breaker event: " + e.getMessage(), e);
+                    }
+                }
+            });
+            manageObject(circuitBreaker, "circuitBreaker");
+        }
+
+        if (compression == null && (compressResponses || compressRequests)) {
+            compression = new Compression(compressResponses, compressRequests, compressRequestMinSize);
+            manageObject(compression, "compression");
+        }
+
+        // REST and Bulk API clients shared by endpoints
+        clientRegistry = new ClientRegistry(session, callbackExecutor, streamResponses, shareInFlightRequests,
+            apiLimits, retryPolicy, circuitBreaker, compression);
+        ServiceHelper.startService(clientRegistry);
+
         if (subscriptionHelper != null) {
             ServiceHelper.startService(subscriptionHelper);
         }
     }
 
+    private HttpClient createHttpClient(int maxConnections) {
+        final HttpClient client = new HttpClient();
+        client.setConnectorType(HttpClient.CONNECTOR_SELECT_CHANNEL);
+        client.setMaxConnectionsPerAddress(maxConnections);
+        client.setConnectTimeout(connectionTimeout);
+        client.setTimeout(responseTimeout);
+        client.setIdleTimeout(idleTimeout);
+        return client;
+    }
+
+    private void startHttpClient(HttpClient client) throws Exception {
+        // add redirect listener to handle Salesforce redirects
+        // this is ok to do since the RedirectListener is in the same classloader as Jetty client
+        String listenerClass = RedirectListener.class.getName();
+        if (client.getRegisteredListeners() == null ||
+            !client.getRegisteredListeners().contains(listenerClass)) {
+            client.registerListener(listenerClass);
+        }
+        // SalesforceSecurityListener can't be registered the same way
+        // since Jetty HttpClient's Class.forName() can't see it
+
+        // start the Jetty client to initialize thread pool, etc.
+        client.start();
+    }
+
     private Map<String, Class<?>> parsePackages() {
         Map<String, Class<?>> result = new HashMap<String, Class<?>>();
         Set<Class<?>> classes = getCamelContext().getPackageScanClassResolver().findImplementations(AbstractSObjectBase.class, packages);
@@ -172,21 +407,90 @@ public class SalesforceComponent extends DefaultComponent {
                 // note that this is done in the component, and not in consumer
                 ServiceHelper.stopService(subscriptionHelper);
             }
-            if (session != null && session.getAccessToken() != null) {
+            if (clientRegistry != null) {
+                // stop clients that haven't been released by endpoints
+                ServiceHelper.stopService(clientRegistry);
+                clientRegistry = null;
+            }
+            if (session != null) {
                 try {
-                    // logout of Salesforce
+                    // logout of Salesforce, also closes the session if a login is still in flight
                     ServiceHelper.stopService(session);
                 } catch (SalesforceException ignored) {
                 }
             }
         } finally {
+            if (connectionWarmer != null) {
+                ServiceHelper.stopService(connectionWarmer);
+                connectionWarmer = null;
+            }
+            if (keepAliveScheduler != null) {
+                getCamelContext().getExecutorServiceManager().shutdown(keepAliveScheduler);
+                keepAliveScheduler = null;
+            }
             if (httpClient != null) {
                 // shutdown http client connections
                 httpClient.stop();
             }
+            if (bulkHttpClient != null) {
+                bulkHttpClient.stop();
+            }
+            if (streamingHttpClient != null) {
+                streamingHttpClient.stop();
+            }
+            if (callbackExecutor != null) {
+                getCamelContext().getExecutorServiceManager().shutdown(callbackExecutor.getExecutorService());
+                callbackExecutor = null;
+            }
+            if (apiLimitsScheduler != null) {
+                getCamelContext().getExecutorServiceManager().shutdown(apiLimitsScheduler);
+                apiLimitsScheduler = null;
+            }
+            apiLimits = null;
+            if (requestLimiterScheduler != null) {
+                getCamelContext().getExecutorServiceManager().shutdown(requestLimiterScheduler);
+                requestLimiterScheduler = null;
+            }
+            requestLimiter = null;
+            if (retryScheduler != null) {
+                getCamelContext().getExecutorServiceManager().shutdown(retryScheduler);
+                retryScheduler = null;
+            }
+            retryPolicy = null;
+            circuitBreaker = null;
+            compression = null;
+            metadataCache = null;
+            recordCache = null;
+            unmanageObjects();
         }
     }
 
+    // registers component internals in JMX along with the component, if management is enabled
+    private void manageObject(Object object, String name) throws Exception {
+        final ManagementStrategy strategy = getCamelContext().getManagementStrategy();
+        if (strategy.getManagementAgent() != null) {
+            final ObjectName componentName = strategy.getManagementNamingStrategy()
+                .getObjectNameForComponent(this, "salesforce");
+            final ObjectName objectName = new ObjectName(componentName.getDomain() +
+                ":context=" + componentName.getKeyProperty("context") +
+                ",type=salesforce,name=" + ObjectName.quote(name));
+            strategy.manageNamedObject(object, objectName);
+            managedNames.add(objectName);
+        }
+    }
+
+    private void unmanageObjects() {
+        final ManagementStrategy strategy = getCamelContext().getManagementStrategy();
+        for (ObjectName objectName : managedNames) {
+            try {
+                strategy.unmanageNamedObject(objectName);
+            } catch (Exception e) {
+                LOG.warn("Error unregistering " + objectName + ": " + e.getMessage(), e);
+            }
+        }
+        managedNames.clear();
+    }
+
     public SubscriptionHelper getSubscriptionHelper() throws Exception {
         if (subscriptionHelper == null) {
             // lazily create subscription helper
@@ -222,6 +526,32 @@ public class SalesforceComponent extends DefaultComponent {
         this.packages = packages;
     }
 
+    public boolean isStreamResponses() {
+        return streamResponses;
+    }
+
+    public void setStreamResponses(boolean streamResponses) {
+        this.streamResponses = streamResponses;
+    }
+
+    /**
+     * Gets the HttpClient for Bulk API requests.
+     *
+     * @return HttpClient of the Bulk API lane, or null if Bulk API requests use the endpoint's HttpClient
+     */
+    public HttpClient getBulkHttpClient() {
+        return bulkHttpClient;
+    }
+
+    /**
+     * Gets the HttpClient for Streaming API long polls.
+     *
+     * @return HttpClient of the Streaming API lane, or the default endpoint HttpClient if there is no lane
+     */
+    public HttpClient getStreamingHttpClient() {
+        return streamingHttpClient != null ? streamingHttpClient : config.getHttpClient();
+    }
+
     public SalesforceSession getSession() {
         return session;
     }
@@ -230,4 +560,345 @@ public class SalesforceComponent extends DefaultComponent {
         return classMap;
     }
 
+    public int getCallbackPoolSize() {
+        return callbackPoolSize;
+    }
+
+    public void setCallbackPoolSize(int callbackPoolSize) {
+        this.callbackPoolSize = callbackPoolSize;
+    }
+
+    public int getCallbackMaxQueueSize() {
+        return callbackMaxQueueSize;
+    }
+
+    public void setCallbackMaxQueueSize(int callbackMaxQueueSize) {
+        this.callbackMaxQueueSize = callbackMaxQueueSize;
+    }
+
+    public boolean isShareInFlightRequests() {
+        return shareInFlightRequests;
+    }
+
+    public void setShareInFlightRequests(boolean shareInFlightRequests) {
+        this.shareInFlightRequests = shareInFlightRequests;
+    }
+
+    public long getMetadataCacheTtl() {
+        return metadataCacheTtl;
+    }
+
+    public void setMetadataCacheTtl(long metadataCacheTtl) {
+        this.metadataCacheTtl = metadataCacheTtl;
+    }
+
+    public int getMetadataCacheSize() {
+        return metadataCacheSize;
+    }
+
+    public void setMetadataCacheSize(int metadataCacheSize) {
+        this.metadataCacheSize = metadataCacheSize;
+    }
+
+    public long getRecordCacheTtl() {
+        return recordCacheTtl;
+    }
+
+    public void setRecordCacheTtl(long recordCacheTtl) {
+        this.recordCacheTtl = recordCacheTtl;
+    }
+
+    public int getRecordCacheSize() {
+        return recordCacheSize;
+    }
+
+    public void setRecordCacheSize(int recordCacheSize) {
+        this.recordCacheSize = recordCacheSize;
+    }
+
+    public double getApiUsageSlowdownThreshold() {
+        return apiUsageSlowdownThreshold;
+    }
+
+    public void setApiUsageSlowdownThreshold(double apiUsageSlowdownThreshold) {
+        this.apiUsageSlowdownThreshold = apiUsageSlowdownThreshold;
+    }
+
+    public double getApiUsageStopThreshold() {
+        return apiUsageStopThreshold;
+    }
+
+    public void setApiUsageStopThreshold(double apiUsageStopThreshold) {
+        this.apiUsageStopThreshold = apiUsageStopThreshold;
+    }
+
+    public long getApiUsageMaxDelay() {
+        return apiUsageMaxDelay;
+    }
+
+    public void setApiUsageMaxDelay(long apiUsageMaxDelay) {
+        this.apiUsageMaxDelay = apiUsageMaxDelay;
+    }
+
+    public double getOrgRateLimit() {
+        return orgRateLimit;
+    }
+
+    public void setOrgRateLimit(double orgRateLimit) {
+        this.orgRateLimit = orgRateLimit;
+    }
+
+    public int getOrgMaxInFlight() {
+        return orgMaxInFlight;
+    }
+
+    public void setOrgMaxInFlight(int orgMaxInFlight) {
+        this.orgMaxInFlight = orgMaxInFlight;
+    }
+
+    public int getMaxQueuedRequests() {
+        return maxQueuedRequests;
+    }
+
+    public void setMaxQueuedRequests(int maxQueuedRequests) {
+        this.maxQueuedRequests = maxQueuedRequests;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public long getRetryInitialDelay() {
+        return retryInitialDelay;
+    }
+
+    public void setRetryInitialDelay(long retryInitialDelay) {
+        this.retryInitialDelay = retryInitialDelay;
+    }
+
+    public long getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    public void setRetryMaxDelay(long retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    public void setRetryBudgetRatio(double retryBudgetRatio) {
+        this.retryBudgetRatio = retryBudgetRatio;
+    }
+
+    public double getCircuitBreakerFailureRate() {
+        return circuitBreakerFailureRate;
+    }
+
+    public void setCircuitBreakerFailureRate(double circuitBreakerFailureRate) {
+        this.circuitBreakerFailureRate = circuitBreakerFailureRate;
+    }
+
+    public long getCircuitBreakerSlowCallDuration() {
+        return circuitBreakerSlowCallDuration;
+    }
+
+    public void setCircuitBreakerSlowCallDuration(long circuitBreakerSlowCallDuration) {
+        this.circuitBreakerSlowCallDuration = circuitBreakerSlowCallDuration;
+    }
+
+    public long getCircuitBreakerWindow() {
+        return circuitBreakerWindow;
+    }
+
+    public void setCircuitBreakerWindow(long circuitBreakerWindow) {
+        this.circuitBreakerWindow = circuitBreakerWindow;
+    }
+
+    public int getCircuitBreakerMinRequests() {
+        return circuitBreakerMinRequests;
+    }
+
+    public void setCircuitBreakerMinRequests(int circuitBreakerMinRequests) {
+        this.circuitBreakerMinRequests = circuitBreakerMinRequests;
+    }
+
+    public long getCircuitBreakerOpenDuration() {
+        return circuitBreakerOpenDuration;
+    }
+
+    public void setCircuitBreakerOpenDuration(long circuitBreakerOpenDuration) {
+        this.circuitBreakerOpenDuration = circuitBreakerOpenDuration;
+    }
+
+    public int getMaxConnectionsPerAddress() {
+        return maxConnectionsPerAddress;
+    }
+
+    public void setMaxConnectionsPerAddress(int maxConnectionsPerAddress) {
+        this.maxConnectionsPerAddress = maxConnectionsPerAddress;
+    }
+
+    public int getConnectionTimeout() {
+        return connectionTimeout;
+    }
+
+    public void setConnectionTimeout(int connectionTimeout) {
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    public long getResponseTimeout() {
+        return responseTimeout;
+    }
+
+    public void setResponseTimeout(long responseTimeout) {
+        this.responseTimeout = responseTimeout;
+    }
+
+    public long getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public void setIdleTimeout(long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    public int getBulkMaxConnections() {
+        return bulkMaxConnections;
+    }
+
+    public void setBulkMaxConnections(int bulkMaxConnections) {
+        this.bulkMaxConnections = bulkMaxConnections;
+    }
+
+    public int getStreamingMaxConnections() {
+        return streamingMaxConnections;
+    }
+
+    public void setStreamingMaxConnections(int streamingMaxConnections) {
+        this.streamingMaxConnections = streamingMaxConnections;
+    }
+
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    public void setWarmUpConnections(int warmUpConnections) {
+        this.warmUpConnections = warmUpConnections;
+    }
+
+    public long getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+
+    public void setKeepAliveInterval(long keepAliveInterval) {
+        this.keepAliveInterval = keepAliveInterval;
+    }
+
+    public boolean isCompressResponses() {
+        return compressResponses;
+    }
+
+    public void setCompressResponses(boolean compressResponses) {
+        this.compressResponses = compressResponses;
+    }
+
+    public boolean isCompressRequests() {
+        return compressRequests;
+    }
+
+    public void setCompressRequests(boolean compressRequests) {
+        this.compressRequests = compressRequests;
+    }
+
+    public int getCompressRequestMinSize() {
+        return compressRequestMinSize;
+    }
+
+    public void setCompressRequestMinSize(int compressRequestMinSize) {
+        this.compressRequestMinSize = compressRequestMinSize;
+    }
+
+    public CallbackExecutor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    public ClientRegistry getClientRegistry() {
+        return clientRegistry;
+    }
+
+    public ApiLimits getApiLimits() {
+        return apiLimits;
+    }
+
+    public RequestLimiter getRequestLimiter() {
+        return requestLimiter;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public ConnectionWarmer getConnectionWarmer() {
+        return connectionWarmer;
+    }
+
+    public ResponseCache getMetadataCache() {
+        return metadataCache;
+    }
+
+    public ResponseCache getRecordCache() {
+        return recordCache;
+    }
+
+    /**
+     * Removes cached records for an SObject Id, e.g. when it is updated or deleted.
+     *
+     * @param sObjectId 15 or 18 character SObject Id
+     */
+    public void invalidateRecord(String sObjectId) {
+        final ResponseCache cache = recordCache;
+        if (cache != null && sObjectId != null) {
+            final int removed = cache.invalidateGroup(getRecordGroup(sObjectId));
+            LOG.debug("Invalidated {} cached records for {}", removed, sObjectId);
+        }
+    }
+
+    /**
+     * Removes all cached records of an SObject type,
+     * e.g. when a record is upserted or deleted by external Id, and its Id is not known.
+     *
+     * @param sObjectName SObject name
+     */
+    public void invalidateSObject(String sObjectName) {
+        final ResponseCache cache = recordCache;
+        if (cache != null && sObjectName != null) {
+            final int removed = cache.invalidateGroup(getSObjectGroup(sObjectName));
+            LOG.debug("Invalidated {} cached records of {}", removed, sObjectName);
+        }
+    }
+
+    // cached records are grouped by Id, Ids are unique across SObject types
+    public static String getRecordGroup(String sObjectId) {
+        return sObjectId.length() > SOBJECT_ID_LENGTH ? sObjectId.substring(0, SOBJECT_ID_LENGTH) : sObjectId;
+    }
+
+    // and by SObject name, which can't be mistaken for an alphanumeric Id
+    public static String getSObjectGroup(String sObjectName) {
+        return "sObject:" + sObjectName;
+    }
+
 }
@@ -21,11 +21,11 @@ import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 import org.apache.camel.RuntimeCamelException;
 import org.apache.camel.impl.DefaultConsumer;
-import org.apache.camel.util.ServiceHelper;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.cometd.bayeux.Message;
 import org.cometd.bayeux.client.ClientSessionChannel;
-import org.fusesource.camel.component.salesforce.internal.client.DefaultRestClient;
+import org.fusesource.camel.component.salesforce.internal.PayloadFormat;
+import org.fusesource.camel.component.salesforce.internal.client.ClientRegistry;
 import org.fusesource.camel.component.salesforce.internal.streaming.PushTopicHelper;
 import org.fusesource.camel.component.salesforce.internal.client.RestClient;
 import org.fusesource.camel.component.salesforce.internal.streaming.SubscriptionHelper;
@@ -45,6 +45,8 @@ public class SalesforceConsumer extends DefaultConsumer {
     private static final String TYPE_PROPERTY = "type";
     private static final String CREATED_DATE_PROPERTY = "createdDate";
     private static final String SOBJECT_PROPERTY = "sobject";
+    private static final String ID_PROPERTY = "Id";
+    private static final String CREATED_EVENT_TYPE = "created";
     private static final double MINIMUM_VERSION = 24.0;
 
     private final SalesforceEndpoint endpoint;
@@ -97,19 +99,17 @@ public class SalesforceConsumer extends DefaultConsumer {
         // is a query configured in the endpoint?
         if (config.getSObjectQuery() != null) {
             // Note that we don't lookup topic if the query is not specified
-            // create REST client for PushTopic operations
-            SalesforceComponent component = endpoint.getComponent();
-            RestClient restClient = new DefaultRestClient(component.getConfig().getHttpClient(),
-                endpoint.getConfiguration().getApiVersion(), "json", component.getSession());
-            // don't forget to start the client
-            ServiceHelper.startService(restClient);
+            // get shared REST client for PushTopic operations
+            final ClientRegistry clientRegistry = endpoint.getComponent().getClientRegistry();
+            RestClient restClient = clientRegistry.acquireRestClient(config.getHttpClient(),
+                config.getApiVersion(), PayloadFormat.JSON);
 
             try {
                 PushTopicHelper helper = new PushTopicHelper(config, topicName, restClient);
                 helper.createOrUpdateTopic();
             } finally {
-                // don't forget to stop the client
-                ServiceHelper.stopService(restClient);
+                // don't forget to release the client
+                clientRegistry.release(restClient);
             }
         }
 
@@ -153,6 +153,15 @@ public class SalesforceConsumer extends DefaultConsumer {
         // get SObject
         @SuppressWarnings("unchecked")
         final Map<String, Object> sObject = (Map<String, Object>) data.get(SOBJECT_PROPERTY);
+
+        // cached records of updated, deleted and undeleted SObjects are stale
+        if (!CREATED_EVENT_TYPE.equals(eventType) && sObject != null) {
+            final Object sObjectId = sObject.get(ID_PROPERTY);
+            if (sObjectId != null) {
+                endpoint.getComponent().invalidateRecord(sObjectId.toString());
+            }
+        }
+
         try {
 
             final String sObjectString = objectMapper.writeValueAsString(sObject);
@@ -16,9 +16,19 @@ public class SalesforceEndpointConfig implements Cloneable {
 
     // default API version
     static final String DEFAULT_VERSION = "27.0";
+    // default max number of requests in a composite batch
+    static final int DEFAULT_COMPOSITE_BATCH_SIZE = 25;
+    // default max number of getSObject requests in a lookup query
+    static final int DEFAULT_LOOKUP_BATCH_SIZE = 100;
+    static final long DEFAULT_HEDGE_MIN_DELAY = 10;
+    static final double DEFAULT_HEDGE_BUDGET_RATIO = 0.05;
+    // default number of concurrent queries for parallelQuery
+    static final int DEFAULT_PARALLEL_QUERY_SHARDS = 4;
 
     // general parameter
     public static final String API_VERSION = "apiVersion";
+    // header with an absolute deadline for the exchange, as a Date or millis since the epoch
+    public static final String DEADLINE = "CamelSalesforceDeadline";
 
     // parameters for Rest API
     public static final String FORMAT = "format";
@@ -31,6 +41,11 @@ public class SalesforceEndpointConfig implements Cloneable {
     public static final String SOBJECT_CLASS = "sObjectClass";
     public static final String SOBJECT_QUERY = "sObjectQuery";
     public static final String SOBJECT_SEARCH = "sObjectSearch";
+    public static final String ALL_OR_NONE = "allOrNone";
+    public static final String STREAM_QUERY_RESULT = "streamQueryResult";
+    public static final String PARALLEL_QUERY_FIELD = "parallelQueryField";
+    public static final String PARALLEL_QUERY_SHARDS = "parallelQueryShards";
+    public static final String PARALLEL_QUERY_ORDERED = "parallelQueryOrdered";
 
     // parameters for Bulk API
     public static final String BULK_OPERATION = "bulkOperation";
@@ -44,6 +59,8 @@ public class SalesforceEndpointConfig implements Cloneable {
 
     // general properties
     private String apiVersion = DEFAULT_VERSION;
+    // time in millis an exchange may take, including retries and re-login, 0 for no deadline
+    private long requestTimeout;
 
     // Rest API properties
     private PayloadFormat format = PayloadFormat.JSON;
@@ -56,6 +73,28 @@ public class SalesforceEndpointConfig implements Cloneable {
     private String sObjectClass;
     private String sObjectQuery;
     private String sObjectSearch;
+    // roll back all records in a SObject collection if any record fails
+    private boolean allOrNone;
+    // iterate over records of all query result pages, instead of returning a single page
+    private boolean streamQueryResult;
+    // parallelQuery splits queries into ranges of Id, CreatedDate or SystemModstamp
+    private String parallelQueryField = "Id";
+    private int parallelQueryShards = DEFAULT_PARALLEL_QUERY_SHARDS;
+    // return records of ranges in ascending order, instead of as they are received
+    private boolean parallelQueryOrdered;
+    // linger time in millis to collect create, update and delete requests in a composite batch, 0 disables batching
+    private long compositeBatchLinger;
+    private int compositeBatchSize = DEFAULT_COMPOSITE_BATCH_SIZE;
+    // linger time in millis to collect getSObject requests in a single query, 0 disables batching
+    private long lookupBatchLinger;
+    private int lookupBatchSize = DEFAULT_LOOKUP_BATCH_SIZE;
+    // producer flow control, 0 for no limit
+    private double rateLimit;
+    private int maxInFlight;
+    // hedging of slow reads, disabled without a percentile
+    private double hedgeDelayPercentile;
+    private long hedgeMinDelay = DEFAULT_HEDGE_MIN_DELAY;
+    private double hedgeBudgetRatio = DEFAULT_HEDGE_BUDGET_RATIO;
 
     // Bulk API properties
     private OperationEnum bulkOperation;
@@ -170,6 +209,126 @@ public class SalesforceEndpointConfig implements Cloneable {
         this.sObjectSearch = sObjectSearch;
     }
 
+    public boolean isAllOrNone() {
+        return allOrNone;
+    }
+
+    public void setAllOrNone(boolean allOrNone) {
+        this.allOrNone = allOrNone;
+    }
+
+    public boolean isStreamQueryResult() {
+        return streamQueryResult;
+    }
+
+    public void setStreamQueryResult(boolean streamQueryResult) {
+        this.streamQueryResult = streamQueryResult;
+    }
+
+    public String getParallelQueryField() {
+        return parallelQueryField;
+    }
+
+    public void setParallelQueryField(String parallelQueryField) {
+        this.parallelQueryField = parallelQueryField;
+    }
+
+    public int getParallelQueryShards() {
+        return parallelQueryShards;
+    }
+
+    public void setParallelQueryShards(int parallelQueryShards) {
+        this.parallelQueryShards = parallelQueryShards;
+    }
+
+    public boolean isParallelQueryOrdered() {
+        return parallelQueryOrdered;
+    }
+
+    public void setParallelQueryOrdered(boolean parallelQueryOrdered) {
+        this.parallelQueryOrdered = parallelQueryOrdered;
+    }
+
+    public long getCompositeBatchLinger() {
+        return compositeBatchLinger;
+    }
+
+    public void setCompositeBatchLinger(long compositeBatchLinger) {
+        this.compositeBatchLinger = compositeBatchLinger;
+    }
+
+    public int getCompositeBatchSize() {
+        return compositeBatchSize;
+    }
+
+    public void setCompositeBatchSize(int compositeBatchSize) {
+        this.compositeBatchSize = compositeBatchSize;
+    }
+
+    public long getLookupBatchLinger() {
+        return lookupBatchLinger;
+    }
+
+    public void setLookupBatchLinger(long lookupBatchLinger) {
+        this.lookupBatchLinger = lookupBatchLinger;
+    }
+
+    public int getLookupBatchSize() {
+        return lookupBatchSize;
+    }
+
+    public void setLookupBatchSize(int lookupBatchSize) {
+        this.lookupBatchSize = lookupBatchSize;
+    }
+
+    public long getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(long requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    public void setRateLimit(double rateLimit) {
+        this.rateLimit = rateLimit;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public double getHedgeDelayPercentile() {
+        return hedgeDelayPercentile;
+    }
+
+    public void setHedgeDelayPercentile(double hedgeDelayPercentile) {
+        this.hedgeDelayPercentile = hedgeDelayPercentile;
+    }
+
+    public long getHedgeMinDelay() {
+        return hedgeMinDelay;
+    }
+
+    public void setHedgeMinDelay(long hedgeMinDelay) {
+        this.hedgeMinDelay = hedgeMinDelay;
+    }
+
+    public double getHedgeBudgetRatio() {
+        return hedgeBudgetRatio;
+    }
+
+    public void setHedgeBudgetRatio(double hedgeBudgetRatio) {
+        this.hedgeBudgetRatio = hedgeBudgetRatio;
+    }
+
     public OperationEnum getBulkOperation() {
         return bulkOperation;
     }
@@ -257,6 +416,11 @@ public class SalesforceEndpointConfig implements Cloneable {
         valueMap.put(SOBJECT_CLASS, sObjectClass);
         valueMap.put(SOBJECT_QUERY, sObjectQuery);
         valueMap.put(SOBJECT_SEARCH, sObjectSearch);
+        valueMap.put(ALL_OR_NONE, String.valueOf(allOrNone));
+        valueMap.put(STREAM_QUERY_RESULT, String.valueOf(streamQueryResult));
+        valueMap.put(PARALLEL_QUERY_FIELD, parallelQueryField);
+        valueMap.put(PARALLEL_QUERY_SHARDS, String.valueOf(parallelQueryShards));
+        valueMap.put(PARALLEL_QUERY_ORDERED, String.valueOf(parallelQueryOrdered));
 
         // add bulk API properties
         if (bulkOperation != null) {
@@ -22,6 +22,7 @@ package org.fusesource.camel.component.salesforce;
 public class SalesforceLoginConfig {
 
     public static final String DEFAULT_LOGIN_URL = "https://login.salesforce.com";
+    public static final long DEFAULT_SESSION_REFRESH_MARGIN = 300000;
 
     private String loginUrl;
     private String clientId;
@@ -31,10 +32,15 @@ public class SalesforceLoginConfig {
     // allow lazy login into Salesforce
     // note that login issues may not surface until a message needs to be processed
     private boolean lazyLogin;
+    // Salesforce session timeout in milliseconds, sessions are renewed in the background if set
+    private long sessionTimeout;
+    // how long before the session timeout to renew the session
+    private long sessionRefreshMargin;
 
     public SalesforceLoginConfig() {
         loginUrl = DEFAULT_LOGIN_URL;
         lazyLogin = false;
+        sessionRefreshMargin = DEFAULT_SESSION_REFRESH_MARGIN;
     }
 
     public SalesforceLoginConfig(String loginUrl,
@@ -46,6 +52,7 @@ public class SalesforceLoginConfig {
         this.userName = userName;
         this.password = password;
         this.lazyLogin = lazyLogin;
+        this.sessionRefreshMargin = DEFAULT_SESSION_REFRESH_MARGIN;
     }
 
     public String getLoginUrl() {
@@ -96,4 +103,20 @@ public class SalesforceLoginConfig {
         this.lazyLogin = lazyLogin;
     }
 
+    public long getSessionTimeout() {
+        return sessionTimeout;
+    }
+
+    public void setSessionTimeout(long sessionTimeout) {
+        this.sessionTimeout = sessionTimeout;
+    }
+
+    public long getSessionRefreshMargin() {
+        return sessionRefreshMargin;
+    }
+
+    public void setSessionRefreshMargin(long sessionRefreshMargin) {
+        this.sessionRefreshMargin = sessionRefreshMargin;
+    }
+
 }
\ No newline at end of file
@@ -23,11 +23,19 @@ import org.apache.camel.util.ServiceHelper;
 import org.fusesource.camel.component.salesforce.api.SalesforceException;
 import org.fusesource.camel.component.salesforce.internal.OperationName;
 import org.fusesource.camel.component.salesforce.internal.PayloadFormat;
+import org.fusesource.camel.component.salesforce.internal.client.AbstractClientBase;
+import org.fusesource.camel.component.salesforce.internal.client.RequestLimiter;
 import org.fusesource.camel.component.salesforce.internal.processor.BulkApiProcessor;
 import org.fusesource.camel.component.salesforce.internal.processor.JsonRestProcessor;
 import org.fusesource.camel.component.salesforce.internal.processor.SalesforceProcessor;
 import org.fusesource.camel.component.salesforce.internal.processor.XmlRestProcessor;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
 /**
  * The Salesforce producer.
  */
@@ -35,6 +43,10 @@ public class SalesforceProducer extends DefaultAsyncProducer {
 
     private final SalesforceProcessor processor;
 
+    // endpoint and org wide request limiters, acquired in order
+    private RequestLimiter[] limiters = new RequestLimiter[0];
+    private ScheduledExecutorService limiterScheduler;
+
     public SalesforceProducer(SalesforceEndpoint endpoint) throws SalesforceException {
         super(endpoint);
 
@@ -55,7 +67,7 @@ public class SalesforceProducer extends DefaultAsyncProducer {
         }
     }
 
-    private boolean isBulkOperation(OperationName operationName) {
+    static boolean isBulkOperation(OperationName operationName) {
         switch (operationName) {
             case CREATE_JOB:
             case GET_JOB:
@@ -80,13 +92,72 @@ public class SalesforceProducer extends DefaultAsyncProducer {
     public boolean process(Exchange exchange, AsyncCallback callback) {
         log.debug("Processing {}",
             ((SalesforceEndpoint) getEndpoint()).getOperationName());
-        return processor.process(exchange, callback);
+        final long deadline = getDeadline(exchange);
+        if (limiters.length == 0) {
+            return process(exchange, callback, deadline);
+        }
+        return new LimitedExchange(exchange, callback, deadline).process();
+    }
+
+    // gets the earlier of the endpoint request timeout and the deadline header, 0 if there is neither
+    private long getDeadline(Exchange exchange) {
+        final long requestTimeout = ((SalesforceEndpoint) getEndpoint()).getConfiguration().getRequestTimeout();
+        long deadline = requestTimeout > 0 ? System.currentTimeMillis() + requestTimeout : 0;
+
+        final Object header = exchange.getIn().getHeader(SalesforceEndpointConfig.DEADLINE);
+        if (header != null) {
+            final Long value = header instanceof Date ? Long.valueOf(((Date) header).getTime()) :
+                exchange.getContext().getTypeConverter().convertTo(Long.class, exchange, header);
+            if (value != null && value > 0 && (deadline == 0 || value < deadline)) {
+                deadline = value;
+            }
+        }
+        return deadline;
+    }
+
+    // processes the exchange, with its deadline applied to requests made by the processor
+    private boolean process(Exchange exchange, AsyncCallback callback, long deadline) {
+        if (deadline == 0) {
+            return processor.process(exchange, callback);
+        }
+        if (System.currentTimeMillis() >= deadline) {
+            exchange.setException(new SalesforceException(
+                String.format("Deadline exceeded before processing %s",
+                    ((SalesforceEndpoint) getEndpoint()).getOperationName()), null));
+            callback.done(true);
+            return true;
+        }
+
+        final long previous = AbstractClientBase.setCurrentDeadline(deadline);
+        try {
+            return processor.process(exchange, callback);
+        } finally {
+            AbstractClientBase.setCurrentDeadline(previous);
+        }
     }
 
     @Override
     protected void doStart() throws Exception {
         super.doStart();
 
+        final SalesforceEndpoint endpoint = (SalesforceEndpoint) getEndpoint();
+        final SalesforceEndpointConfig config = endpoint.getConfiguration();
+        final SalesforceComponent component = endpoint.getComponent();
+
+        final List<RequestLimiter> limiterList = new ArrayList<RequestLimiter>();
+        if (config.getRateLimit() > 0 || config.getMaxInFlight() > 0) {
+            if (config.getRateLimit() > 0) {
+                limiterScheduler = endpoint.getCamelContext().getExecutorServiceManager()
+                    .newSingleThreadScheduledExecutor(this, "SalesforceRequestLimiter");
+            }
+            limiterList.add(new RequestLimiter(config.getRateLimit(), config.getMaxInFlight(),
+                component.getMaxQueuedRequests(), limiterScheduler));
+        }
+        if (component.getRequestLimiter() != null) {
+            limiterList.add(component.getRequestLimiter());
+        }
+        limiters = limiterList.toArray(new RequestLimiter[limiterList.size()]);
+
         // start Salesforce processor
         ServiceHelper.startService(processor);
     }
@@ -94,9 +165,87 @@ public class SalesforceProducer extends DefaultAsyncProducer {
     @Override
     protected void doStop() throws Exception {
         // stop Salesforce processor
+        // exchanges waiting for limiters are inflight, so graceful shutdown has already waited for them
         ServiceHelper.stopService(processor);
 
+        limiters = new RequestLimiter[0];
+        if (limiterScheduler != null) {
+            getEndpoint().getCamelContext().getExecutorServiceManager().shutdown(limiterScheduler);
+            limiterScheduler = null;
+        }
+
         super.doStop();
     }
 
+    /**
+     * Exchange that acquires every request limiter before it is processed, and releases them when it is done.
+     * Exchanges queued by a limiter are processed asynchronously by the thread that releases a limit.
+     */
+    private final class LimitedExchange implements AsyncCallback {
+
+        private final Exchange exchange;
+        private final AsyncCallback callback;
+        private final long deadline;
+        private final RequestLimiter[] limiters = SalesforceProducer.this.limiters;
+
+        // an exchange is processed synchronously only if all limiters run it on the calling thread
+        private final Thread caller = Thread.currentThread();
+        private volatile boolean returned;
+
+        private volatile int acquired;
+        private boolean processedSync;
+
+        private LimitedExchange(Exchange exchange, AsyncCallback callback, long deadline) {
+            this.exchange = exchange;
+            this.callback = callback;
+            this.deadline = deadline;
+        }
+
+        public boolean process() {
+            final boolean sync = acquire(0);
+            returned = true;
+            return sync;
+        }
+
+        // acquires limiters from index, and processes the exchange once all limiters are acquired,
+        // returns true if the exchange was processed synchronously
+        private boolean acquire(final int index) {
+            if (index == limiters.length) {
+                // time spent waiting for limiters counts towards the deadline
+                return SalesforceProducer.this.process(exchange, this, deadline);
+            }
+
+            try {
+                final boolean run = limiters[index].execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        acquired = index + 1;
+                        processedSync = acquire(index + 1);
+                    }
+                });
+                return run && processedSync;
+            } catch (RejectedExecutionException e) {
+                exchange.setException(new SalesforceException(
+                    String.format("Too many requests waiting for %s: %s",
+                        ((SalesforceEndpoint) getEndpoint()).getOperationName(), e.getMessage()), e));
+                done(true);
+                return isInline();
+            }
+        }
+
+        private boolean isInline() {
+            return Thread.currentThread() == caller && !returned;
+        }
+
+        @Override
+        public void done(boolean doneSync) {
+            // release limiters first, so that queued exchanges don't wait for routing of this exchange
+            for (int i = acquired - 1; i >= 0; i--) {
+                limiters[i].release();
+            }
+            acquired = 0;
+            callback.done(doneSync && isInline());
+        }
+    }
+
 }
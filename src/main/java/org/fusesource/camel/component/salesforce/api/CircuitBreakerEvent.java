@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.api;
+
+import java.util.EventObject;
+
+/**
+ * Event sent to Camel event notifiers when the component's circuit breaker changes state.
+ */
+public class CircuitBreakerEvent extends EventObject {
+
+    public static enum State {
+        // requests are sent
+        CLOSED,
+        // requests fail fast without being sent
+        OPEN,
+        // a single probe request is sent, that closes or opens the circuit again
+        HALF_OPEN
+    }
+
+    private final State previousState;
+    private final State state;
+
+    public CircuitBreakerEvent(Object source, State previousState, State state) {
+        super(source);
+        this.previousState = previousState;
+        this.state = state;
+    }
+
+    public State getPreviousState() {
+        return previousState;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        return "Salesforce circuit breaker changed from " + previousState + " to " + state;
+    }
+
+}
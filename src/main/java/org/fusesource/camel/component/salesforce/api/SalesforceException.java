@@ -49,7 +49,8 @@ public class SalesforceException extends CamelException {
     }
 
     public List<RestError> getErrors() {
-        return Collections.unmodifiableList(errors);
+        // errors are missing if the response couldn't be parsed
+        return errors != null ? Collections.unmodifiableList(errors) : null;
     }
 
     public void setErrors(List<RestError> errors) {
@@ -31,6 +31,9 @@ public class CreateSObjectResult extends AbstractDTOBase {
 
     private Boolean success;
 
+    // only set for upserts using SObject Collections
+    private Boolean created;
+
     public String getId() {
         return id;
     }
@@ -54,4 +57,12 @@ public class CreateSObjectResult extends AbstractDTOBase {
     public void setSuccess(Boolean success) {
         this.success = success;
     }
+
+    public Boolean getCreated() {
+        return created;
+    }
+
+    public void setCreated(Boolean created) {
+        this.created = created;
+    }
 }
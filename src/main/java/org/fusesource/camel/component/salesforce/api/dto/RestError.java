@@ -17,6 +17,7 @@
 package org.fusesource.camel.component.salesforce.api.dto;
 
 import com.thoughtworks.xstream.annotations.XStreamImplicit;
+import org.codehaus.jackson.annotate.JsonProperty;
 
 import java.util.List;
 
@@ -49,6 +50,12 @@ public class RestError extends AbstractDTOBase {
         this.errorCode = errorCode;
     }
 
+    // SObject Collections report the error code as statusCode
+    @JsonProperty("statusCode")
+    public void setStatusCode(String statusCode) {
+        this.errorCode = statusCode;
+    }
+
     public String getMessage() {
         return message;
     }
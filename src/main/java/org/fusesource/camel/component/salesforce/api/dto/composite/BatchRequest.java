@@ -0,0 +1,64 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.api.dto.composite;
+
+import org.fusesource.camel.component.salesforce.api.dto.AbstractDTOBase;
+
+/**
+ * DTO for a Salesforce Composite Batch subrequest.
+ */
+public class BatchRequest extends AbstractDTOBase {
+
+    private String method;
+    private String url;
+    private Object richInput;
+
+    // default ctor for unmarshalling
+    public BatchRequest() {
+        super();
+    }
+
+    public BatchRequest(String method, String url, Object richInput) {
+        this.method = method;
+        this.url = url;
+        this.richInput = richInput;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public void setMethod(String method) {
+        this.method = method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Object getRichInput() {
+        return richInput;
+    }
+
+    public void setRichInput(Object richInput) {
+        this.richInput = richInput;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.api.dto.composite;
+
+import org.codehaus.jackson.annotate.JsonIgnore;
+import org.fusesource.camel.component.salesforce.api.dto.AbstractDTOBase;
+import org.fusesource.camel.component.salesforce.api.dto.AbstractSObjectBase;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for Salesforce Composite Batch request, with up to {@link #MAX_BATCH} independent subrequests.
+ * <p>
+ * Subrequest URLs are relative to /services/data, so the batch needs the API version,
+ * which must be 34.0 or later.
+ * </p>
+ */
+public class SObjectBatch extends AbstractDTOBase {
+
+    public static final int MAX_BATCH = 25;
+
+    private final String apiVersion;
+    private final List<BatchRequest> batchRequests = new ArrayList<BatchRequest>();
+    private boolean haltOnError;
+
+    public SObjectBatch(String apiVersion) {
+        if (apiVersion == null) {
+            throw new IllegalArgumentException("NULL API version", new NullPointerException("apiVersion"));
+        }
+        this.apiVersion = apiVersion;
+    }
+
+    /**
+     * Adds a subrequest to create a record.
+     *
+     * @param sObject record to create
+     * @return this batch
+     */
+    public SObjectBatch addCreate(AbstractSObjectBase sObject) {
+        return addGeneric("POST", sobjectsUrl(sObject.getClass().getSimpleName()), sObject);
+    }
+
+    /**
+     * Adds a subrequest to update a record. Read only fields, including base fields like Id, must be cleared.
+     *
+     * @param sObjectName object name
+     * @param id          record id
+     * @param sObject     updated fields
+     * @return this batch
+     */
+    public SObjectBatch addUpdate(String sObjectName, String id, AbstractSObjectBase sObject) {
+        return addGeneric("PATCH", sobjectsUrl(sObjectName + "/" + id), sObject);
+    }
+
+    public SObjectBatch addDelete(String sObjectName, String id) {
+        return addGeneric("DELETE", sobjectsUrl(sObjectName + "/" + id), null);
+    }
+
+    public SObjectBatch addGet(String sObjectName, String id, String... fields) {
+        final StringBuilder url = new StringBuilder(sobjectsUrl(sObjectName + "/" + id));
+        if (fields != null && fields.length > 0) {
+            url.append("?fields=");
+            for (int i = 0; i < fields.length; i++) {
+                url.append(fields[i]);
+                if (i < (fields.length - 1)) {
+                    url.append(',');
+                }
+            }
+        }
+        return addGeneric("GET", url.toString(), null);
+    }
+
+    public SObjectBatch addQuery(String soqlQuery) {
+        try {
+            String encodedQuery = URLEncoder.encode(soqlQuery, "UTF-8");
+            // URLEncoder likes to use '+' for spaces
+            encodedQuery = encodedQuery.replace("+", "%20");
+            return addGeneric("GET", versionUrl() + "query/?q=" + encodedQuery, null);
+        } catch (UnsupportedEncodingException e) {
+            String msg = "Unexpected error: " + e.getMessage();
+            throw new IllegalArgumentException(msg, e);
+        }
+    }
+
+    /**
+     * Adds a subrequest for any REST resource.
+     *
+     * @param method    HTTP method
+     * @param url       resource URL relative to /services/data, starting with the API version, e.g. v34.0/sobjects
+     * @param richInput request body, may be null
+     * @return this batch
+     */
+    public SObjectBatch addGeneric(String method, String url, Object richInput) {
+        if (batchRequests.size() >= MAX_BATCH) {
+            throw new IllegalArgumentException("Composite batch cannot have more than " + MAX_BATCH + " subrequests");
+        }
+        batchRequests.add(new BatchRequest(method, url, richInput));
+        return this;
+    }
+
+    public List<BatchRequest> getBatchRequests() {
+        return batchRequests;
+    }
+
+    public boolean isHaltOnError() {
+        return haltOnError;
+    }
+
+    public void setHaltOnError(boolean haltOnError) {
+        this.haltOnError = haltOnError;
+    }
+
+    @JsonIgnore
+    public String getApiVersion() {
+        return apiVersion;
+    }
+
+    private String versionUrl() {
+        return "v" + apiVersion + "/";
+    }
+
+    private String sobjectsUrl(String path) {
+        return versionUrl() + "sobjects/" + path;
+    }
+}
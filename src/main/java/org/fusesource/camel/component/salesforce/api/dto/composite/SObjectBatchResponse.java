@@ -0,0 +1,46 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.api.dto.composite;
+
+import org.fusesource.camel.component.salesforce.api.dto.AbstractDTOBase;
+
+import java.util.List;
+
+/**
+ * DTO for Salesforce Composite Batch response, results are in the same order as the subrequests.
+ */
+public class SObjectBatchResponse extends AbstractDTOBase {
+
+    private boolean hasErrors;
+    private List<SObjectBatchResult> results;
+
+    public boolean isHasErrors() {
+        return hasErrors;
+    }
+
+    public void setHasErrors(boolean hasErrors) {
+        this.hasErrors = hasErrors;
+    }
+
+    public List<SObjectBatchResult> getResults() {
+        return results;
+    }
+
+    public void setResults(List<SObjectBatchResult> results) {
+        this.results = results;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.api.dto.composite;
+
+import org.fusesource.camel.component.salesforce.api.dto.AbstractDTOBase;
+import org.fusesource.camel.component.salesforce.api.dto.AbstractSObjectBase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for Salesforce SObject Collections create, update and upsert requests,
+ * with up to {@link #MAX_RECORDS} records.
+ * <p>
+ * Records must have attributes with the SObject type set, and the API version must be 42.0 or later,
+ * or 46.0 or later for upsert.
+ * </p>
+ */
+public class SObjectCollection extends AbstractDTOBase {
+
+    public static final int MAX_RECORDS = 200;
+
+    private boolean allOrNone;
+    private final List<AbstractSObjectBase> records = new ArrayList<AbstractSObjectBase>();
+
+    public SObjectCollection(boolean allOrNone) {
+        this.allOrNone = allOrNone;
+    }
+
+    public SObjectCollection addRecord(AbstractSObjectBase record) {
+        if (records.size() >= MAX_RECORDS) {
+            throw new IllegalArgumentException("SObject collection cannot have more than " + MAX_RECORDS + " records");
+        }
+        records.add(record);
+        return this;
+    }
+
+    public boolean isAllOrNone() {
+        return allOrNone;
+    }
+
+    public void setAllOrNone(boolean allOrNone) {
+        this.allOrNone = allOrNone;
+    }
+
+    public List<AbstractSObjectBase> getRecords() {
+        return records;
+    }
+}
@@ -34,7 +34,13 @@ public enum OperationName {
     GET_BLOB_FIELD("getBlobField"),
     QUERY("query"),
     QUERY_MORE("queryMore"),
+    PARALLEL_QUERY("parallelQuery"),
     SEARCH("search"),
+    COMPOSITE_BATCH("compositeBatch"),
+    CREATE_SOBJECT_COLLECTION("createSObjectCollection"),
+    UPDATE_SOBJECT_COLLECTION("updateSObjectCollection"),
+    UPSERT_SOBJECT_COLLECTION("upsertSObjectCollection"),
+    DELETE_SOBJECT_COLLECTION("deleteSObjectCollection"),
 
     // bulk API
     CREATE_JOB("createJob"),
@@ -27,6 +27,7 @@ import org.eclipse.jetty.io.Buffer;
 import org.eclipse.jetty.io.ByteArrayBuffer;
 import org.eclipse.jetty.util.StringUtil;
 import org.eclipse.jetty.util.UrlEncoded;
+import org.eclipse.jetty.util.thread.Timeout;
 import org.fusesource.camel.component.salesforce.SalesforceLoginConfig;
 import org.fusesource.camel.component.salesforce.api.SalesforceException;
 import org.fusesource.camel.component.salesforce.api.dto.RestError;
@@ -38,6 +39,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.CountDownLatch;
 
 public class SalesforceSession implements Service {
 
@@ -47,6 +49,10 @@ public class SalesforceSession implements Service {
     private static final Logger LOG = LoggerFactory.getLogger(SalesforceSession.class);
     private static final String FORM_CONTENT_TYPE = "application/x-www-form-urlencoded;charset=utf-8";
 
+    // backoff between attempts to renew the session after a failure
+    private static final long RENEWAL_RETRY_DELAY = 5000;
+    private static final long RENEWAL_MAX_RETRY_DELAY = 60000;
+
     private final HttpClient httpClient;
 
     private final SalesforceLoginConfig config;
@@ -54,8 +60,20 @@ public class SalesforceSession implements Service {
     private final ObjectMapper objectMapper;
     private final Set<SalesforceSessionListener> listeners;
 
-    private String accessToken;
-    private String instanceUrl;
+    private volatile String accessToken;
+    private volatile String instanceUrl;
+
+    // single flight login state
+    private final List<LoginCallback> pendingLogins = new ArrayList<LoginCallback>();
+    private boolean loginPending;
+
+    // background session renewal
+    private final Timeout.Task renewalTask;
+    private boolean renewing;
+    private int renewalFailures;
+
+    // set by logout, logins that were in flight then don't reopen the session
+    private boolean closed;
 
     public SalesforceSession(HttpClient httpClient, SalesforceLoginConfig config) {
         // validate parameters
@@ -76,6 +94,13 @@ public class SalesforceSession implements Service {
 
         this.objectMapper = new ObjectMapper();
         this.listeners = new CopyOnWriteArraySet<SalesforceSessionListener>();
+
+        this.renewalTask = new Timeout.Task() {
+            @Override
+            public void expired() {
+                renewSession();
+            }
+        };
     }
 
     private void assertNotNull(String s, Object o) {
@@ -84,126 +109,331 @@ public class SalesforceSession implements Service {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    public synchronized String login(String oldToken) throws SalesforceException {
-
-        // check if we need a new session
-        // this way there's always a single valid session
-        if ((accessToken == null) || accessToken.equals(oldToken)) {
+    /**
+     * Logs in to Salesforce and waits for the new access token.
+     *
+     * @param oldToken access token that is no longer valid, may be null
+     * @return new access token
+     * @throws SalesforceException on login error
+     */
+    public String login(String oldToken) throws SalesforceException {
+        final SyncLoginCallback callback = new SyncLoginCallback();
+        login(oldToken, callback);
+        return callback.await();
+    }
 
-            // try revoking the old access token before creating a new one
-            accessToken = oldToken;
-            if (accessToken != null) {
-                try {
-                    logout();
-                } catch (SalesforceException e) {
-                    LOG.warn("Error revoking old access token: " + e.getMessage(), e);
+    /**
+     * Logs in to Salesforce without blocking the calling thread.
+     * <p>
+     * Only a single login is in flight at any time, callers that ask for a new token while a login is pending
+     * are parked until it completes. If the session already has a token other than oldToken,
+     * the callback is invoked right away with the current token.
+     * </p>
+     *
+     * @param oldToken access token that is no longer valid, may be null
+     * @param callback invoked with the new token or error, on the calling thread or an HTTP client thread
+     */
+    public void login(String oldToken, LoginCallback callback) {
+        final String currentToken;
+        boolean startLogin = false;
+
+        synchronized (this) {
+            // check if we need a new session
+            // this way there's always a single valid session
+            if ((accessToken == null) || accessToken.equals(oldToken)) {
+                pendingLogins.add(callback);
+                if (loginPending) {
+                    LOG.debug("Waiting for pending login");
+                    return;
                 }
+                loginPending = true;
+                startLogin = true;
+                // a new login reopens a closed session
+                closed = false;
+
+                // the old token is revoked before creating a new one
+                oldToken = accessToken;
                 accessToken = null;
+                instanceUrl = null;
+            }
+            currentToken = accessToken;
+        }
+
+        if (startLogin) {
+            if (oldToken != null) {
+                // try revoking the old access token before creating a new one
+                revokeToken(oldToken, new Runnable() {
+                    @Override
+                    public void run() {
+                        sendLogin();
+                    }
+                });
+            } else {
+                sendLogin();
+            }
+        } else {
+            callback.onLoginComplete(currentToken, null);
+        }
+    }
+
+    // gets a new token ahead of session expiry, the current token remains valid until listeners switch over
+    private void renewSession() {
+        synchronized (this) {
+            if (loginPending || accessToken == null || closed) {
+                // a login is already in flight, or the session was closed
+                return;
             }
+            loginPending = true;
+            renewing = true;
+        }
 
-            // login to Salesforce and get session id
-            final StatusExceptionExchange loginPost = new StatusExceptionExchange(true);
-            loginPost.setURL(config.getLoginUrl() + OAUTH2_TOKEN_PATH);
-            loginPost.setMethod(HttpMethods.POST);
-            loginPost.setRequestContentType(FORM_CONTENT_TYPE);
+        LOG.debug("Renewing session before it expires");
+        sendLogin();
+    }
 
-            final UrlEncoded nvps = new UrlEncoded();
-            nvps.put("grant_type", "password");
-            nvps.put("client_id", config.getClientId());
-            nvps.put("client_secret", config.getClientSecret());
-            nvps.put("username", config.getUserName());
-            nvps.put("password", config.getPassword());
-            nvps.put("format", "json");
+    private void scheduleRenewal() {
+        final long sessionTimeout = config.getSessionTimeout();
+        if (sessionTimeout > 0) {
+            final long delay = Math.max(sessionTimeout - config.getSessionRefreshMargin(), 0);
+            httpClient.cancel(renewalTask);
+            httpClient.schedule(renewalTask, delay);
+        }
+    }
 
+    // tries renewing the session again after a failure, with exponential backoff
+    private long scheduleRenewalRetry(int failures) {
+        final long delay = Math.min(RENEWAL_RETRY_DELAY << Math.min(failures - 1, 10), RENEWAL_MAX_RETRY_DELAY);
+        httpClient.cancel(renewalTask);
+        httpClient.schedule(renewalTask, delay);
+        return delay;
+    }
+
+    private void revokeToken(String token, final Runnable next) {
+        final StatusExceptionExchange logoutGet = new StatusExceptionExchange(true) {
+            @Override
+            protected void onResponseComplete() throws IOException {
+                super.onResponseComplete();
+                if (getResponseStatus() != HttpStatus.OK_200) {
+                    LOG.warn("Error revoking old access token, code: [{}] reason: [{}]",
+                        getResponseStatus(), getReason());
+                }
+                next.run();
+            }
+
+            @Override
+            protected void onConnectionFailed(Throwable x) {
+                super.onConnectionFailed(x);
+                LOG.warn("Error revoking old access token: " + x.getMessage(), x);
+                next.run();
+            }
+
+            @Override
+            protected void onException(Throwable x) {
+                super.onException(x);
+                LOG.warn("Error revoking old access token: " + x.getMessage(), x);
+                next.run();
+            }
+
+            @Override
+            protected void onExpire() {
+                super.onExpire();
+                LOG.warn("Error revoking old access token: request TIMEOUT!");
+                next.run();
+            }
+        };
+        logoutGet.setURL(config.getLoginUrl() + OAUTH2_REVOKE_PATH + token);
+        logoutGet.setMethod(HttpMethods.GET);
+
+        try {
+            httpClient.send(logoutGet);
+        } catch (IOException e) {
+            LOG.warn("Error revoking old access token: " + e.getMessage(), e);
+            next.run();
+        }
+
+        // notify all session listeners
+        for (SalesforceSessionListener listener : listeners) {
             try {
+                listener.onLogout();
+            } catch (Throwable t) {
+                LOG.warn("Unexpected error from listener {}: {}", listener, t.getMessage());
+            }
+        }
+    }
 
-                // set form content
-                loginPost.setRequestContent(new ByteArrayBuffer(
-                    nvps.encode(StringUtil.__UTF8, true).getBytes(StringUtil.__UTF8)));
-                httpClient.send(loginPost);
-
-                // wait for the login to finish
-                final int exchangeState = loginPost.waitForDone();
-
-                switch (exchangeState) {
-                    case HttpExchange.STATUS_COMPLETED:
-                        final byte[] responseContent = loginPost.getResponseContentBytes();
-                        final int responseStatus = loginPost.getResponseStatus();
-                        switch (responseStatus) {
-
-                            case HttpStatus.OK_200:
-                                // parse the response to get token
-                                LoginToken token = objectMapper.readValue(responseContent,
-                                    LoginToken.class);
-
-                                // don't log token or instance URL for security reasons
-                                LOG.info("Login successful");
-                                accessToken = token.getAccessToken();
-                                instanceUrl = token.getInstanceUrl();
-
-                                // notify all listeners
-                                for (SalesforceSessionListener listener : listeners) {
-                                    try {
-                                        listener.onLogin(accessToken, instanceUrl);
-                                    } catch (Throwable t) {
-                                        LOG.warn("Unexpected error from listener {}: {}", listener, t.getMessage());
-                                    }
-                                }
-
-                                break;
-
-                            case HttpStatus.BAD_REQUEST_400:
-                                // parse the response to get error
-                                final LoginError error = objectMapper.readValue(responseContent,
-                                    LoginError.class);
-                                final String msg = String.format("Login error code:[%s] description:[%s]",
-                                    error.getError(), error.getErrorDescription());
-                                final List<RestError> errors = new ArrayList<RestError>();
-                                errors.add(new RestError(msg, error.getErrorDescription()));
-                                throw new SalesforceException(errors, HttpStatus.BAD_REQUEST_400);
-
-                            default:
-                                throw new SalesforceException(
-                                    String.format("Login error status:[%s] reason:[%s]",
-                                        responseStatus, loginPost.getReason()),
-                                    responseStatus);
-                        }
-                        break;
-
-                    case HttpExchange.STATUS_EXCEPTED:
-                        final Throwable ex = loginPost.getException();
-                        throw new SalesforceException(
-                            String.format("Unexpected login exception: %s", ex.getMessage()),
-                            ex);
+    private void sendLogin() {
+        // login to Salesforce and get session id
+        final StatusExceptionExchange loginPost = new StatusExceptionExchange(true) {
+            @Override
+            protected void onResponseComplete() throws IOException {
+                super.onResponseComplete();
+                try {
+                    final LoginToken token = parseLoginResponse(getResponseStatus(), getReason(),
+                        getResponseContentBytes());
+                    completeLogin(token, null);
+                } catch (SalesforceException e) {
+                    completeLogin(null, e);
+                }
+            }
+
+            @Override
+            protected void onConnectionFailed(Throwable x) {
+                super.onConnectionFailed(x);
+                completeLogin(null, new SalesforceException(
+                    String.format("Unexpected login exception: %s", x.getMessage()), x));
+            }
+
+            @Override
+            protected void onException(Throwable x) {
+                super.onException(x);
+                completeLogin(null, new SalesforceException(
+                    String.format("Unexpected login exception: %s", x.getMessage()), x));
+            }
 
-                    case HttpExchange.STATUS_CANCELLED:
-                        throw new SalesforceException("Login request CANCELLED!", null);
+            @Override
+            protected void onExpire() {
+                super.onExpire();
+                completeLogin(null, new SalesforceException("Login request TIMEOUT!", null));
+            }
+        };
+        loginPost.setURL(config.getLoginUrl() + OAUTH2_TOKEN_PATH);
+        loginPost.setMethod(HttpMethods.POST);
+        loginPost.setRequestContentType(FORM_CONTENT_TYPE);
+
+        final UrlEncoded nvps = new UrlEncoded();
+        nvps.put("grant_type", "password");
+        nvps.put("client_id", config.getClientId());
+        nvps.put("client_secret", config.getClientSecret());
+        nvps.put("username", config.getUserName());
+        nvps.put("password", config.getPassword());
+        nvps.put("format", "json");
 
-                    case HttpExchange.STATUS_EXPIRED:
-                        throw new SalesforceException("Login request TIMEOUT!", null);
+        try {
+            // set form content
+            loginPost.setRequestContent(new ByteArrayBuffer(
+                nvps.encode(StringUtil.__UTF8, true).getBytes(StringUtil.__UTF8)));
+            httpClient.send(loginPost);
+        } catch (IOException e) {
+            String msg = "Login error: unexpected exception " + e.getMessage();
+            completeLogin(null, new SalesforceException(msg, e));
+        }
+    }
 
+    private LoginToken parseLoginResponse(int responseStatus, String reason, byte[] responseContent)
+        throws SalesforceException {
+        try {
+            switch (responseStatus) {
+
+                case HttpStatus.OK_200:
+                    // parse the response to get token
+                    return objectMapper.readValue(responseContent, LoginToken.class);
+
+                case HttpStatus.BAD_REQUEST_400:
+                    // parse the response to get error
+                    final LoginError error = objectMapper.readValue(responseContent,
+                        LoginError.class);
+                    final String msg = String.format("Login error code:[%s] description:[%s]",
+                        error.getError(), error.getErrorDescription());
+                    final List<RestError> errors = new ArrayList<RestError>();
+                    errors.add(new RestError(msg, error.getErrorDescription()));
+                    throw new SalesforceException(errors, HttpStatus.BAD_REQUEST_400);
+
+                default:
+                    throw new SalesforceException(
+                        String.format("Login error status:[%s] reason:[%s]",
+                            responseStatus, reason),
+                        responseStatus);
+            }
+        } catch (IOException e) {
+            String msg = "Login error: unexpected exception " + e.getMessage();
+            throw new SalesforceException(msg, e);
+        }
+    }
+
+    private void completeLogin(LoginToken token, SalesforceException exception) {
+        final List<LoginCallback> callbacks;
+        // failed renewal of a session that is still open
+        int failedRenewals = 0;
+        final boolean wasClosed;
+        synchronized (this) {
+            // a session that was logged out while logging in stays closed
+            wasClosed = closed;
+            if (!wasClosed) {
+                if (token != null) {
+                    accessToken = token.getAccessToken();
+                    instanceUrl = token.getInstanceUrl();
+                    renewalFailures = 0;
+                } else if (renewing && accessToken != null) {
+                    failedRenewals = ++renewalFailures;
                 }
+            }
+            renewing = false;
+            loginPending = false;
+            callbacks = new ArrayList<LoginCallback>(pendingLogins);
+            pendingLogins.clear();
+        }
 
-            } catch (IOException e) {
-                String msg = "Login error: unexpected exception " + e.getMessage();
-                throw new SalesforceException(msg, e);
-            } catch (InterruptedException e) {
-                String msg = "Login error: unexpected exception " + e.getMessage();
-                throw new SalesforceException(msg, e);
+        if (wasClosed) {
+            // no renewal, and no listener notifications
+            LOG.debug("Ignoring login completed after logout");
+            token = null;
+            if (exception == null) {
+                exception = new SalesforceException("Session closed while logging in", null);
             }
         }
 
-        return accessToken;
+        final String newToken = token != null ? token.getAccessToken() : null;
+        if (token != null) {
+            // don't log token or instance URL for security reasons
+            LOG.info("Login successful");
+
+            // renew the session before it times out
+            scheduleRenewal();
+
+            // notify all listeners
+            for (SalesforceSessionListener listener : listeners) {
+                try {
+                    listener.onLogin(newToken, token.getInstanceUrl());
+                } catch (Throwable t) {
+                    LOG.warn("Unexpected error from listener {}: {}", listener, t.getMessage());
+                }
+            }
+        }
+
+        if (failedRenewals > 0) {
+            // requests still login again if the session expires before a retry succeeds
+            final long delay = scheduleRenewalRetry(failedRenewals);
+            LOG.warn(String.format("Error renewing session, retrying in %s msecs: %s", delay, exception.getMessage()),
+                exception);
+        }
+
+        // resume parked callers
+        for (LoginCallback callback : callbacks) {
+            try {
+                callback.onLoginComplete(newToken, exception);
+            } catch (Throwable t) {
+                LOG.warn("Unexpected error from login callback {}: {}", callback, t.getMessage());
+            }
+        }
     }
 
     public void logout() throws SalesforceException {
-        if (accessToken == null) {
+        final String token;
+        synchronized (this) {
+            // logins in flight must not reopen the session
+            closed = true;
+            token = accessToken;
+        }
+
+        // no need to renew the session anymore
+        httpClient.cancel(renewalTask);
+
+        if (token == null) {
             return;
         }
 
         StatusExceptionExchange logoutGet = new StatusExceptionExchange(true);
-        logoutGet.setURL(config.getLoginUrl() + OAUTH2_REVOKE_PATH + accessToken);
+        logoutGet.setURL(config.getLoginUrl() + OAUTH2_REVOKE_PATH + token);
         logoutGet.setMethod(HttpMethods.GET);
 
         try {
@@ -243,9 +473,13 @@ public class SalesforceSession implements Service {
             String msg = "Logout error: " + e.getMessage();
             throw new SalesforceException(msg, e);
         } finally {
-            // reset session
-            accessToken = null;
-            instanceUrl = null;
+            // reset session, unless it was reopened by another login
+            synchronized (this) {
+                if (closed) {
+                    accessToken = null;
+                    instanceUrl = null;
+                }
+            }
             // notify all session listeners of the new access token and instance url
             for (SalesforceSessionListener listener : listeners) {
                 try {
@@ -275,6 +509,9 @@ public class SalesforceSession implements Service {
 
     @Override
     public void start() throws Exception {
+        synchronized (this) {
+            closed = false;
+        }
         // auto-login at start if needed
         login(accessToken);
     }
@@ -328,9 +565,44 @@ public class SalesforceSession implements Service {
 
     }
 
+    /**
+     * Waits for an asynchronous login.
+     */
+    private static class SyncLoginCallback implements LoginCallback {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private String accessToken;
+        private SalesforceException exception;
+
+        @Override
+        public void onLoginComplete(String accessToken, SalesforceException ex) {
+            this.accessToken = accessToken;
+            this.exception = ex;
+            latch.countDown();
+        }
+
+        public String await() throws SalesforceException {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                String msg = "Login error: unexpected exception " + e.getMessage();
+                throw new SalesforceException(msg, e);
+            }
+            if (exception != null) {
+                throw exception;
+            }
+            return accessToken;
+        }
+    }
+
     public static interface SalesforceSessionListener {
         void onLogin(String accessToken, String instanceUrl);
         void onLogout();
     }
 
+    public static interface LoginCallback {
+        void onLoginComplete(String accessToken, SalesforceException ex);
+    }
+
 }
@@ -19,8 +19,11 @@ package org.fusesource.camel.component.salesforce.internal.client;
 import org.apache.camel.Service;
 import org.eclipse.jetty.client.ContentExchange;
 import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpDestination;
 import org.eclipse.jetty.client.HttpEventListenerWrapper;
 import org.eclipse.jetty.client.HttpExchange;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeaders;
 import org.eclipse.jetty.http.HttpSchemes;
 import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.io.Buffer;
@@ -33,6 +36,9 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public abstract class AbstractClientBase implements SalesforceSession.SalesforceSessionListener, Service {
 
@@ -41,12 +47,29 @@ public abstract class AbstractClientBase implements SalesforceSession.Salesforce
     protected static final String APPLICATION_JSON_UTF8 = "application/json;charset=utf-8";
     protected static final String APPLICATION_XML_UTF8 = "application/xml;charset=utf-8";
 
+    // deadline of requests created by the current thread, set by producers while they process an exchange
+    private static final ThreadLocal<Long> CURRENT_DEADLINE = new ThreadLocal<Long>();
+
     protected final HttpClient httpClient;
     protected final SalesforceSession session;
     protected final String version;
 
-    protected String accessToken;
-    protected String instanceUrl;
+    // clients are shared between endpoints, and updated by session listener
+    protected volatile String accessToken;
+    protected volatile String instanceUrl;
+
+    // executor for response callbacks, callbacks run on HTTP client threads if not set
+    protected Executor callbackExecutor;
+    // stream successful responses to callbacks, requires callbackExecutor
+    protected boolean streamResponses;
+    // org wide API usage, shared by clients
+    protected ApiLimits apiLimits;
+    // retries of transient failures, not retried if not set
+    protected RetryPolicy retryPolicy;
+    // fails requests fast while the Salesforce instance is failing, shared by clients
+    protected CircuitBreaker circuitBreaker;
+    // gzip compression of request and response bodies, not compressed if not set
+    protected Compression compression;
 
     public AbstractClientBase(String version,
                               SalesforceSession session, HttpClient httpClient) throws SalesforceException {
@@ -94,52 +117,349 @@ public abstract class AbstractClientBase implements SalesforceSession.Salesforce
         get.setMethod(method);
         get.setURL(url);
         get.setClient(this);
+        get.setDeadline(getCurrentDeadline());
+        if (compression != null && compression.isCompressResponses()) {
+            get.setRequestHeader(HttpHeaders.ACCEPT_ENCODING, Compression.GZIP);
+        }
         return get;
     }
 
+    /**
+     * Sets the deadline of requests created by the current thread, until it is reset.
+     *
+     * @param deadline absolute deadline in millis since the epoch, 0 for no deadline
+     * @return previous deadline of the current thread, to restore when done
+     */
+    public static long setCurrentDeadline(long deadline) {
+        final long previous = getCurrentDeadline();
+        if (deadline > 0) {
+            CURRENT_DEADLINE.set(deadline);
+        } else {
+            CURRENT_DEADLINE.remove();
+        }
+        return previous;
+    }
+
+    public static long getCurrentDeadline() {
+        final Long deadline = CURRENT_DEADLINE.get();
+        return deadline != null ? deadline : 0;
+    }
+
+    protected void setRequestContent(ContentExchange request, InputStream content) {
+        if (content instanceof RequestContentStream) {
+            // already in memory, let Jetty write it without copying, this also allows resending it
+            setRequestContent(request, ((RequestContentStream) content).getContent());
+        } else if (compression != null && compression.isCompressRequests()) {
+            // compressed as Jetty reads it, its size isn't known so it's always compressed
+            request.setRequestContentSource(compression.encode(content));
+            request.setRequestHeader(HttpHeaders.CONTENT_ENCODING, Compression.GZIP);
+        } else {
+            request.setRequestContentSource(content);
+        }
+    }
+
+    protected void setRequestContent(ContentExchange request, Buffer content) {
+        if (compression != null && compression.isCompressRequests() &&
+            content.length() >= compression.getMinRequestSize()) {
+            try {
+                request.setRequestContent(compression.encode(content));
+                request.setRequestHeader(HttpHeaders.CONTENT_ENCODING, Compression.GZIP);
+                return;
+            } catch (IOException e) {
+                LOG.warn("Error compressing request content, sending it uncompressed: {}", e.getMessage());
+            }
+        }
+        request.setRequestContent(content);
+    }
+
+    /**
+     * Gets the content of a buffered response, decompressed as it is read if it is gzip encoded.
+     *
+     * @param request request with a buffered response
+     * @return response content, or null if there is none
+     */
+    protected InputStream getResponseContent(ContentExchange request) {
+        final byte[] bytes = request.getResponseContentBytes();
+        return bytes != null ? decodeResponse(request, new ByteArrayInputStream(bytes)) : null;
+    }
+
+    // decompresses gzip encoded response content as it is read
+    private InputStream decodeResponse(ContentExchange request, InputStream content) {
+        if (!isGzipEncoded(request)) {
+            return content;
+        }
+        return compression != null ? compression.decode(content) : Compression.gunzip(content);
+    }
+
+    private static boolean isGzipEncoded(ContentExchange request) {
+        final HttpFields fields;
+        try {
+            fields = request.getResponseFields();
+        } catch (IllegalStateException e) {
+            // response headers were not received
+            return false;
+        }
+        return fields != null && Compression.GZIP.equalsIgnoreCase(fields.getStringField(HttpHeaders.CONTENT_ENCODING));
+    }
+
     protected interface ClientResponseCallback {
         void onResponse(InputStream response, SalesforceException ex);
     }
 
+    // invoked on the HTTP client thread, never on the callback executor, must not block or read a streamed response
+    protected interface DirectClientResponseCallback extends ClientResponseCallback {
+    }
+
     protected void doHttpRequest(final ContentExchange request, final ClientResponseCallback callback) {
 
-        // use SalesforceSecurityListener for security login retries
+        if (isDeadlineExceeded(request)) {
+            callback.onResponse(null, deadlineExceeded(request));
+            return;
+        }
+
+        final long permit = circuitBreaker != null ? circuitBreaker.allowRequest() : CircuitBreaker.NO_PROBE;
+        if (permit == CircuitBreaker.REJECTED) {
+            callback.onResponse(null, new SalesforceException(
+                String.format("Circuit breaker is open, not sending {%s:%s}",
+                    request.getMethod(), request.getRequestURI()),
+                HttpStatus.SERVICE_UNAVAILABLE_503));
+            return;
+        }
+
+        if (retryPolicy != null) {
+            retryPolicy.onRequest();
+        }
+
+        // slow down or stop requests as the org's API usage approaches its limit
+        if (apiLimits != null) {
+            final long delay;
+            try {
+                delay = apiLimits.acquire();
+            } catch (SalesforceException e) {
+                releasePermit(permit);
+                callback.onResponse(null, e);
+                return;
+            }
+            if (delay > 0) {
+                try {
+                    apiLimits.getScheduler().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            send(request, callback, permit);
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    LOG.debug("API limits scheduler rejected delayed request: {}", e.getMessage());
+                }
+            }
+        }
+
+        send(request, callback, permit);
+    }
+
+    private void send(final ContentExchange request, final ClientResponseCallback callback, final long permit) {
+
+        // the request may have been delayed past its deadline
+        if (!applyDeadline(request)) {
+            releasePermit(permit);
+            callback.onResponse(null, deadlineExceeded(request));
+            return;
+        }
+
+        final HttpDestination destination;
         try {
             final boolean isHttps = HttpSchemes.HTTPS.equals(String.valueOf(request.getScheme()));
-            request.setEventListener(new SalesforceSecurityListener(
-                httpClient.getDestination(request.getAddress(), isHttps),
-                request, session, accessToken));
+            destination = httpClient.getDestination(request.getAddress(), isHttps);
         } catch (IOException e) {
+            releasePermit(permit);
             // propagate exception
             callback.onResponse(null, new SalesforceException(
-                String.format("Error registering security listener: %s", e.getMessage()),
+                String.format("Error getting destination: %s", e.getMessage()),
                 e));
+            return;
         }
 
         // use HttpEventListener for lifecycle events
+        // it stays registered when the exchange is retried, so it sees every attempt
         request.setEventListener(new HttpEventListenerWrapper(request.getEventListener(), true) {
 
             public String reason;
+            private int retries;
+            // start of the current attempt, and whether its outcome was recorded by the circuit breaker
+            private long attemptStart = System.nanoTime();
+            private boolean recorded;
+
+            @Override
+            public void onRetry() {
+                attemptStart = System.nanoTime();
+                recorded = false;
+                super.onRetry();
+            }
+
+            private void recordOutcome(boolean failed) {
+                if (circuitBreaker != null && !recorded) {
+                    recorded = true;
+                    circuitBreaker.record(permit,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - attemptStart), failed);
+                }
+            }
+
+            // the attempt ended without an outcome, e.g. it was cancelled or ran out of time
+            private void releaseOutcome() {
+                if (!recorded) {
+                    recorded = true;
+                    releasePermit(permit);
+                }
+            }
 
             @Override
             public void onConnectionFailed(Throwable ex) {
                 super.onConnectionFailed(ex);
-                callback.onResponse(null,
-                    new SalesforceException("Connection error: " + ex.getMessage(), ex));
+                if (isCancelled(request)) {
+                    releaseOutcome();
+                    return;
+                }
+                recordOutcome(true);
+                // a streamed response reports failures through the stream
+                // the request was not sent, so it can be retried regardless of method
+                if (!isStreaming(request) && !retry(true, ex.getMessage())) {
+                    dispatch(callback, null,
+                        new SalesforceException("Connection error: " + ex.getMessage(), ex));
+                }
             }
 
             @Override
             public void onException(Throwable ex) {
                 super.onException(ex);
-                callback.onResponse(null,
-                    new SalesforceException("Unexpected exception: " + ex.getMessage(), ex));
+                if (isCancelled(request)) {
+                    releaseOutcome();
+                    return;
+                }
+                // e.g. the deadline passed while logging in again
+                if (isDeadlineExceeded(request)) {
+                    releaseOutcome();
+                    if (!isStreaming(request)) {
+                        dispatch(callback, null, deadlineExceeded(request));
+                    }
+                    return;
+                }
+                recordOutcome(true);
+                if (!isStreaming(request) && !retry(false, ex.getMessage())) {
+                    dispatch(callback, null,
+                        new SalesforceException("Unexpected exception: " + ex.getMessage(), ex));
+                }
             }
 
             @Override
             public void onExpire() {
                 super.onExpire();
-                callback.onResponse(null,
-                    new SalesforceException("Request expired", null));
+                if (isCancelled(request)) {
+                    releaseOutcome();
+                    return;
+                }
+                // an exchange that runs out of time isn't a failure of the Salesforce instance
+                if (isDeadlineExceeded(request)) {
+                    releaseOutcome();
+                    if (!isStreaming(request)) {
+                        dispatch(callback, null, deadlineExceeded(request));
+                    }
+                    return;
+                }
+                recordOutcome(true);
+                if (!isStreaming(request) && !retry(false, "Request expired")) {
+                    dispatch(callback, null,
+                        new SalesforceException("Request expired", null));
+                }
+            }
+
+            // resends the exchange after a delay, if the retry policy allows it
+            private boolean retry(boolean rejected, String cause) {
+                // request content streams can't be sent again, and requests aren't retried while the circuit is open
+                if (retryPolicy == null || request.getRequestContentSource() != null ||
+                    (circuitBreaker != null && !circuitBreaker.isClosed())) {
+                    return false;
+                }
+                final long delay = retryPolicy.retryDelay(request.getMethod(), rejected, retries);
+                if (delay < 0) {
+                    return false;
+                }
+                // don't retry if the retry can't start before the deadline
+                if (request instanceof SalesforceExchange) {
+                    final long deadline = ((SalesforceExchange) request).getDeadline();
+                    if (deadline > 0 && System.currentTimeMillis() + delay >= deadline) {
+                        return false;
+                    }
+                }
+                retries++;
+                LOG.debug("Retrying {}:{} in {} msecs after {}",
+                    new Object[] {request.getMethod(), request.getRequestURI(), delay, cause});
+                try {
+                    retryPolicy.getScheduler().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (isCancelled(request)) {
+                                return;
+                            }
+                            if (!applyDeadline(request)) {
+                                dispatch(callback, null, deadlineExceeded(request));
+                                return;
+                            }
+                            try {
+                                destination.resend(request);
+                            } catch (IOException e) {
+                                dispatch(callback, null, new SalesforceException(
+                                    String.format("Error retrying request: %s", e.getMessage()), e));
+                            }
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                    return true;
+                } catch (RejectedExecutionException e) {
+                    LOG.debug("Retry scheduler rejected request: {}", e.getMessage());
+                    return false;
+                }
+            }
+
+            @Override
+            public void onResponseHeaderComplete() throws IOException {
+                super.onResponseHeaderComplete();
+
+                // server errors count as failures, the response time is measured up to the response headers
+                final int responseStatus = request.getResponseStatus();
+                recordOutcome(responseStatus >= HttpStatus.INTERNAL_SERVER_ERROR_500);
+
+                // stream successful responses straight to response parsers,
+                // they must run on a separate thread, since they block waiting for content
+                if (streamResponses && callbackExecutor != null && request instanceof SalesforceExchange &&
+                    responseStatus >= HttpStatus.OK_200 && responseStatus < HttpStatus.MULTIPLE_CHOICES_300) {
+
+                    final InputStream response = ((SalesforceExchange) request).streamResponseContent();
+                    // doesn't read the stream, which would block this thread
+                    final InputStream content = decodeResponse(request, response);
+                    if (callback instanceof DirectClientResponseCallback) {
+                        // hands off the stream to a reader on another thread
+                        callback.onResponse(content, null);
+                        return;
+                    }
+                    try {
+                        callbackExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                callback.onResponse(content, null);
+                            }
+                        });
+                    } catch (RejectedExecutionException e) {
+                        // can't parse on this thread, since the content is delivered by it
+                        try {
+                            response.close();
+                        } catch (IOException ignored) {
+                        }
+                        callback.onResponse(null, new SalesforceException(
+                            String.format("Error processing response for {%s:%s}: %s",
+                                request.getMethod(), request.getRequestURI(), e.getMessage()),
+                            e));
+                    }
+                }
             }
 
             @Override
@@ -147,21 +467,39 @@ public abstract class AbstractClientBase implements SalesforceSession.Salesforce
                 super.onResponseComplete();
 
                 final int responseStatus = request.getResponseStatus();
-                if (responseStatus < HttpStatus.OK_200 || responseStatus >= HttpStatus.MULTIPLE_CHOICES_300) {
+                if (retries > 0 && responseStatus >= HttpStatus.OK_200 &&
+                    responseStatus < HttpStatus.MULTIPLE_CHOICES_300) {
+                    retryPolicy.onRetrySuccess();
+                }
+                if (responseStatus == HttpStatus.NOT_MODIFIED_304) {
+                    // conditional request for a cached response, there is no content to parse
+                    dispatch(callback, null, new SalesforceException("Not modified", responseStatus));
+                } else if (responseStatus < HttpStatus.OK_200 || responseStatus >= HttpStatus.MULTIPLE_CHOICES_300) {
                     final String msg = String.format("Error {%s:%s} executing {%s:%s}",
                         responseStatus, reason, request.getMethod(), request.getRequestURI());
-                    final SalesforceException exception = new SalesforceException(msg, createRestException(request));
+                    final SalesforceException restException = createRestException(request);
+                    if (RetryPolicy.isRejected(responseStatus, restException) &&
+                        retry(true, String.format("error {%s:%s}", responseStatus, reason))) {
+                        return;
+                    }
+                    final SalesforceException exception = new SalesforceException(msg, restException);
                     exception.setStatusCode(responseStatus);
-                    callback.onResponse(null, exception);
-                } else {
-                    // TODO not memory efficient for large response messages,
-                    // doesn't seem to be possible in Jetty 7 to directly stream to response parsers
-                    final byte[] bytes = request.getResponseContentBytes();
-                    callback.onResponse(bytes != null ? new ByteArrayInputStream(bytes) : null, null);
+                    dispatch(callback, null, exception);
+                } else if (!isStreaming(request)) {
+                    // response was not streamed, so the content had to be buffered
+                    dispatch(callback, getResponseContent(request), null);
                 }
 
             }
 
+            @Override
+            public void onResponseHeader(Buffer name, Buffer value) throws IOException {
+                super.onResponseHeader(name, value);
+                if (apiLimits != null && ApiLimits.LIMIT_INFO_HEADER.equalsIgnoreCase(name.toString())) {
+                    apiLimits.update(value.toString());
+                }
+            }
+
             @Override
             public void onResponseStatus(Buffer version, int status, Buffer reason) throws IOException {
                 super.onResponseStatus(version, status, reason);
@@ -170,10 +508,15 @@ public abstract class AbstractClientBase implements SalesforceSession.Salesforce
             }
         });
 
+        // use SalesforceSecurityListener for security login retries
+        // it wraps the lifecycle listener, so that it doesn't see responses being retried
+        request.setEventListener(new SalesforceSecurityListener(destination, request, session, accessToken));
+
         // execute the request
         try {
             httpClient.send(request);
         } catch (IOException e) {
+            releasePermit(permit);
             String msg = "Unexpected Error: " + e.getMessage();
             // send error through callback
             callback.onResponse(null, new SalesforceException(msg, e));
@@ -181,6 +524,115 @@ public abstract class AbstractClientBase implements SalesforceSession.Salesforce
 
     }
 
+    // releases the circuit breaker permit of a request that has no outcome to record, e.g. it was not sent
+    private void releasePermit(long permit) {
+        if (circuitBreaker != null) {
+            circuitBreaker.release(permit);
+        }
+    }
+
+    // hands off the callback to the callback executor if set
+    protected void dispatch(final ClientResponseCallback callback,
+                          final InputStream response, final SalesforceException ex) {
+        if (callbackExecutor != null && !(callback instanceof DirectClientResponseCallback)) {
+            try {
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onResponse(response, ex);
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                // executor is saturated or shutting down, run the callback on this thread instead
+                LOG.debug("Callback executor rejected response callback: {}", e.getMessage());
+            }
+        }
+        callback.onResponse(response, ex);
+    }
+
+    // cancelled requests, e.g. hedged requests that lost, are not reported or retried
+    private static boolean isCancelled(ContentExchange request) {
+        return request.getStatus() == HttpExchange.STATUS_CANCELLED;
+    }
+
+    // limits the timeout of the next attempt to the request deadline, returns false if the deadline has passed
+    private boolean applyDeadline(ContentExchange request) {
+        return !(request instanceof SalesforceExchange) ||
+            ((SalesforceExchange) request).applyDeadline(httpClient.getTimeout());
+    }
+
+    private static boolean isDeadlineExceeded(ContentExchange request) {
+        return request instanceof SalesforceExchange && ((SalesforceExchange) request).isDeadlineExceeded();
+    }
+
+    private static SalesforceException deadlineExceeded(ContentExchange request) {
+        return new SalesforceException(
+            String.format("Deadline exceeded for {%s:%s}", request.getMethod(), request.getRequestURI()), null);
+    }
+
+    private static boolean isStreaming(ContentExchange request) {
+        return request instanceof SalesforceExchange && ((SalesforceExchange) request).isStreamingResponse();
+    }
+
+    /**
+     * Sets the executor used to run response callbacks.
+     * Callbacks are run on Jetty threads if not set.
+     *
+     * @param callbackExecutor executor for response callbacks, may be null
+     */
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Streams successful responses to callbacks as they arrive, instead of buffering them in memory.
+     * Ignored unless a callback executor is set, since response parsers block waiting for content.
+     * Reading from a connection only pauses while a parser is reading its response,
+     * content of responses that are not being read is buffered.
+     *
+     * @param streamResponses true to stream responses
+     */
+    public void setStreamResponses(boolean streamResponses) {
+        this.streamResponses = streamResponses;
+    }
+
+    /**
+     * Sets the API limits updated by responses, and used to throttle requests.
+     *
+     * @param apiLimits org wide API limits, may be null
+     */
+    public void setApiLimits(ApiLimits apiLimits) {
+        this.apiLimits = apiLimits;
+    }
+
+    /**
+     * Sets the retry policy for transient failures.
+     *
+     * @param retryPolicy retry policy, failures are not retried if null
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Sets the circuit breaker that records request outcomes, and fails requests fast while it's open.
+     *
+     * @param circuitBreaker circuit breaker for the Salesforce instance, may be null
+     */
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Sets the compression of request and response bodies.
+     *
+     * @param compression gzip compression, bodies are not compressed if null
+     */
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
     public void setAccessToken(String accessToken) {
         this.accessToken = accessToken;
     }
@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedOperation;
+import org.apache.camel.api.management.ManagedResource;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the org's API usage reported in the Sforce-Limit-Info response header,
+ * and throttles requests as usage approaches the limit.
+ * <p>
+ * Requests are delayed once usage passes the slowdown threshold, by up to the max delay at the stop threshold.
+ * Past the stop threshold requests fail, except for one request per probe interval, that refreshes the usage.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce API Limits")
+public class ApiLimits {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ApiLimits.class);
+
+    public static final String LIMIT_INFO_HEADER = "Sforce-Limit-Info";
+    private static final String API_USAGE = "api-usage=";
+    // usage is only updated by responses, so some requests must still be sent when stopped
+    private static final long PROBE_INTERVAL = 60000;
+
+    private final double slowdownThreshold;
+    private final double stopThreshold;
+    private final long maxDelay;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile long used = -1;
+    private volatile long max = -1;
+    private volatile long lastUpdated;
+
+    private final AtomicLong lastProbe = new AtomicLong();
+    private final AtomicLong delayedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * Creates API limits that only track usage.
+     */
+    public ApiLimits() {
+        this(0, 0, 0, null);
+    }
+
+    /**
+     * @param slowdownThreshold usage ratio to start delaying requests at, 0 to disable
+     * @param stopThreshold usage ratio to stop sending requests at, 0 to disable
+     * @param maxDelay delay in millis at the stop threshold
+     * @param scheduler scheduler for delayed requests, required if slowdownThreshold is set
+     */
+    public ApiLimits(double slowdownThreshold, double stopThreshold, long maxDelay,
+                     ScheduledExecutorService scheduler) {
+        if (slowdownThreshold < 0 || slowdownThreshold > 1 || stopThreshold < 0 || stopThreshold > 1) {
+            throw new IllegalArgumentException(String.format(
+                "API usage thresholds must be between 0 and 1, found %s and %s", slowdownThreshold, stopThreshold));
+        }
+        if (slowdownThreshold > 0 && stopThreshold > 0 && slowdownThreshold >= stopThreshold) {
+            throw new IllegalArgumentException(String.format(
+                "API usage slowdown threshold %s must be less than stop threshold %s",
+                slowdownThreshold, stopThreshold));
+        }
+        if (slowdownThreshold > 0 && scheduler == null) {
+            throw new IllegalArgumentException("Scheduler is required to slow down requests");
+        }
+        this.slowdownThreshold = slowdownThreshold;
+        this.stopThreshold = stopThreshold;
+        this.maxDelay = maxDelay;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Updates usage from a Sforce-Limit-Info header value, e.g. api-usage=25/5000.
+     *
+     * @param limitInfo header value
+     */
+    public void update(String limitInfo) {
+        for (String info : limitInfo.split(",")) {
+            info = info.trim();
+            if (info.startsWith(API_USAGE)) {
+                final String usage = info.substring(API_USAGE.length());
+                final int slash = usage.indexOf('/');
+                try {
+                    final long newUsed = Long.parseLong(usage.substring(0, slash).trim());
+                    final long newMax = Long.parseLong(usage.substring(slash + 1).trim());
+                    // not strictly atomic, but a response is never more than a request off
+                    max = newMax;
+                    used = newUsed;
+                    lastUpdated = System.currentTimeMillis();
+                } catch (RuntimeException e) {
+                    LOG.debug("Ignoring invalid {} header {}", LIMIT_INFO_HEADER, limitInfo);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks usage before sending a request.
+     *
+     * @return delay in millis before the request should be sent
+     * @throws SalesforceException if usage has passed the stop threshold
+     */
+    public long acquire() throws SalesforceException {
+        final double ratio = getUsageRatio();
+
+        if (stopThreshold > 0 && ratio >= stopThreshold) {
+            final long now = System.currentTimeMillis();
+            final long last = lastProbe.get();
+            if (now - last >= PROBE_INTERVAL && lastProbe.compareAndSet(last, now)) {
+                return 0;
+            }
+            rejectedCount.incrementAndGet();
+            throw new SalesforceException(String.format(
+                "API usage %s/%s is past the stop threshold %s, try again later", used, max, stopThreshold), null);
+        }
+
+        if (slowdownThreshold > 0 && ratio >= slowdownThreshold) {
+            // grows linearly up to the max delay at the stop threshold, or the limit
+            final double stopAt = stopThreshold > 0 ? stopThreshold : 1.0;
+            final double fraction = Math.min(1.0, (ratio - slowdownThreshold) / (stopAt - slowdownThreshold));
+            delayedCount.incrementAndGet();
+            return Math.max(1, (long) (maxDelay * fraction));
+        }
+        return 0;
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    @ManagedAttribute(description = "API requests used in the last 24 hours, -1 if not known yet")
+    public long getUsed() {
+        return used;
+    }
+
+    @ManagedAttribute(description = "API request limit for 24 hours, -1 if not known yet")
+    public long getMax() {
+        return max;
+    }
+
+    @ManagedAttribute(description = "Ratio of API requests used to the limit")
+    public double getUsageRatio() {
+        final long currentMax = max;
+        return currentMax > 0 ? (double) used / currentMax : 0;
+    }
+
+    @ManagedAttribute(description = "Time in millis when usage was last updated")
+    public long getLastUpdated() {
+        return lastUpdated;
+    }
+
+    @ManagedAttribute(description = "Usage ratio to start delaying requests at")
+    public double getSlowdownThreshold() {
+        return slowdownThreshold;
+    }
+
+    @ManagedAttribute(description = "Usage ratio to stop sending requests at")
+    public double getStopThreshold() {
+        return stopThreshold;
+    }
+
+    @ManagedAttribute(description = "Requests delayed")
+    public long getDelayedCount() {
+        return delayedCount.get();
+    }
+
+    @ManagedAttribute(description = "Requests rejected")
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void resetStatistics() {
+        delayedCount.set(0);
+        rejectedCount.set(0);
+    }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedOperation;
+import org.apache.camel.api.management.ManagedResource;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for client response callbacks, so that response processing and routing doesn't run on HTTP client threads.
+ * <p>
+ * Records the number of handoffs, and the time callbacks spend waiting in the queue.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce Response Callback Executor")
+public class CallbackExecutor implements Executor {
+
+    private final ExecutorService executorService;
+
+    private final AtomicLong handoffCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalHandoffNanos = new AtomicLong();
+    private final AtomicLong maxHandoffNanos = new AtomicLong();
+
+    public CallbackExecutor(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        final long submitted = System.nanoTime();
+        try {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    recordHandoff(System.nanoTime() - submitted);
+                    command.run();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void recordHandoff(long nanos) {
+        handoffCount.incrementAndGet();
+        totalHandoffNanos.addAndGet(nanos);
+        long max = maxHandoffNanos.get();
+        while (nanos > max && !maxHandoffNanos.compareAndSet(max, nanos)) {
+            max = maxHandoffNanos.get();
+        }
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @ManagedAttribute(description = "Callbacks waiting for a thread")
+    public int getQueueSize() {
+        return executorService instanceof ThreadPoolExecutor ?
+            ((ThreadPoolExecutor) executorService).getQueue().size() : -1;
+    }
+
+    @ManagedAttribute(description = "Threads running callbacks")
+    public int getActiveCount() {
+        return executorService instanceof ThreadPoolExecutor ?
+            ((ThreadPoolExecutor) executorService).getActiveCount() : -1;
+    }
+
+    @ManagedAttribute(description = "Callbacks handed off to the executor")
+    public long getHandoffCount() {
+        return handoffCount.get();
+    }
+
+    @ManagedAttribute(description = "Callbacks rejected by the executor")
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @ManagedAttribute(description = "Mean time in millis between handoff and callback execution")
+    public double getMeanHandoffLatency() {
+        final long count = handoffCount.get();
+        return count == 0 ? 0 : (double) totalHandoffNanos.get() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @ManagedAttribute(description = "Max time in millis between handoff and callback execution")
+    public long getMaxHandoffLatency() {
+        return TimeUnit.NANOSECONDS.toMillis(maxHandoffNanos.get());
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void resetStatistics() {
+        handoffCount.set(0);
+        rejectedCount.set(0);
+        totalHandoffNanos.set(0);
+        maxHandoffNanos.set(0);
+    }
+
+}
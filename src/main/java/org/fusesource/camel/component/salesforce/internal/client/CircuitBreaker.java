@@ -0,0 +1,385 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedOperation;
+import org.apache.camel.api.management.ManagedResource;
+import org.fusesource.camel.component.salesforce.api.CircuitBreakerEvent.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stops sending requests to a Salesforce instance that is failing or responding slowly.
+ * <p>
+ * The circuit opens when the ratio of failed or slow requests in a rolling window reaches the failure rate.
+ * Requests then fail fast until the open duration has passed, after which a single probe request is sent.
+ * The circuit closes if the probe succeeds, and opens again if it fails,
+ * responses to other requests sent before or while the circuit was open don't change it.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce Circuit Breaker")
+public class CircuitBreaker {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    // the rolling window is split in buckets, that expire one at a time
+    private static final int WINDOW_BUCKETS = 10;
+
+    /**
+     * Permit for a request that isn't a probe.
+     */
+    public static final long NO_PROBE = 0;
+
+    /**
+     * Permit for a request that must fail fast.
+     */
+    public static final long REJECTED = -1;
+
+    /**
+     * Listener for circuit breaker state changes.
+     */
+    public static interface StateListener {
+        void onStateChange(State previousState, State state);
+    }
+
+    private final double failureRate;
+    private final long slowCallDuration;
+    private final long window;
+    private final int minRequests;
+    private final long openDuration;
+    private final long bucketMillis;
+
+    private final int[] requests = new int[WINDOW_BUCKETS];
+    private final int[] failures = new int[WINDOW_BUCKETS];
+    private long currentBucket;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private long probeStartedAt;
+    // permit of the last probe, only its outcome changes a half open circuit
+    private long probe;
+    // the last probe was released without being sent, another one may be sent right away
+    private boolean probeReleased;
+    private StateListener stateListener;
+
+    // state changes not yet passed to the listener, which is called without holding the lock
+    private final List<State[]> stateChanges = new ArrayList<State[]>();
+    // delivers state changes one thread at a time, in order
+    private final Object notifyLock = new Object();
+
+    private final AtomicLong openedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /**
+     * @param failureRate ratio of failed or slow requests in the window at which the circuit opens
+     * @param slowCallDuration response time in millis after which a request counts as failed, 0 to ignore latency
+     * @param window duration of the rolling window in millis
+     * @param minRequests min requests in the window before the failure rate is checked
+     * @param openDuration time in millis the circuit stays open before a probe request is sent
+     */
+    public CircuitBreaker(double failureRate, long slowCallDuration, long window, int minRequests,
+                          long openDuration) {
+        if (failureRate <= 0 || failureRate > 1) {
+            throw new IllegalArgumentException("Circuit breaker failure rate must be between 0 and 1, found " +
+                failureRate);
+        }
+        if (slowCallDuration < 0 || window < WINDOW_BUCKETS || minRequests < 1 || openDuration <= 0) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid circuit breaker with slow call duration %s, window %s, min requests %s and open duration %s",
+                slowCallDuration, window, minRequests, openDuration));
+        }
+        this.failureRate = failureRate;
+        this.slowCallDuration = slowCallDuration;
+        this.window = window;
+        this.minRequests = minRequests;
+        this.openDuration = openDuration;
+        this.bucketMillis = window / WINDOW_BUCKETS;
+        this.currentBucket = now() / bucketMillis;
+    }
+
+    public synchronized void setStateListener(StateListener stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    /**
+     * Checks whether a request may be sent.
+     *
+     * @return permit to record the outcome of the request with, {@link #REJECTED} if it must fail fast
+     */
+    public long allowRequest() {
+        final long permit;
+        synchronized (this) {
+            permit = acquirePermit();
+        }
+        notifyStateChanges();
+        return permit;
+    }
+
+    private long acquirePermit() {
+        final long now = now();
+        switch (state) {
+            case OPEN:
+                if (now - openedAt < openDuration) {
+                    break;
+                }
+                changeState(State.HALF_OPEN);
+                return startProbe(now);
+
+            case HALF_OPEN:
+                // another probe is allowed if the last one was not sent, or never completed
+                if (!probeReleased && now - probeStartedAt < openDuration) {
+                    break;
+                }
+                return startProbe(now);
+
+            default:
+                return NO_PROBE;
+        }
+        rejectedCount.incrementAndGet();
+        return REJECTED;
+    }
+
+    private long startProbe(long now) {
+        probeStartedAt = now;
+        probeReleased = false;
+        return ++probe;
+    }
+
+    /**
+     * Records the outcome of a request that was sent.
+     *
+     * @param permit permit returned by {@link #allowRequest()} for the request
+     * @param latency time in millis until the response was received
+     * @param failed true if the request failed
+     */
+    public void record(long permit, long latency, boolean failed) {
+        synchronized (this) {
+            recordOutcome(permit, latency, failed);
+        }
+        notifyStateChanges();
+    }
+
+    private void recordOutcome(long permit, long latency, boolean failed) {
+        failed |= slowCallDuration > 0 && latency > slowCallDuration;
+        switch (state) {
+            case HALF_OPEN:
+                // response to a request sent before the probe, or to a probe that was replaced
+                if (permit != probe) {
+                    break;
+                }
+                if (failed) {
+                    open();
+                } else {
+                    clearWindow();
+                    changeState(State.CLOSED);
+                }
+                break;
+
+            case OPEN:
+                // response to a request sent before the circuit opened
+                break;
+
+            default:
+                roll();
+                final int bucket = (int) (currentBucket % WINDOW_BUCKETS);
+                requests[bucket]++;
+                if (failed) {
+                    failures[bucket]++;
+                    final int total = sum(requests);
+                    if (total >= minRequests && (double) sum(failures) / total >= failureRate) {
+                        open();
+                    }
+                }
+        }
+    }
+
+    /**
+     * Releases the permit of a request that was not sent, so that it has no outcome to record.
+     * If it was the probe of a half open circuit, the next request is sent as a probe right away.
+     *
+     * @param permit permit returned by {@link #allowRequest()} for the request
+     */
+    public synchronized void release(long permit) {
+        if (state == State.HALF_OPEN && permit == probe) {
+            probeReleased = true;
+        }
+    }
+
+    public synchronized boolean isClosed() {
+        return state == State.CLOSED;
+    }
+
+    private void open() {
+        openedAt = now();
+        openedCount.incrementAndGet();
+        clearWindow();
+        changeState(State.OPEN);
+    }
+
+    private void changeState(State newState) {
+        final State previousState = state;
+        if (previousState == newState) {
+            return;
+        }
+        state = newState;
+        if (newState == State.OPEN) {
+            LOG.warn("Circuit breaker opened, requests will fail for {} msecs", openDuration);
+        } else {
+            LOG.info("Circuit breaker changed from {} to {}", previousState, newState);
+        }
+        if (stateListener != null) {
+            stateChanges.add(new State[]{previousState, newState});
+        }
+    }
+
+    // passes state changes to the listener after the lock is released,
+    // so that a slow listener doesn't hold up requests on other threads
+    private void notifyStateChanges() {
+        synchronized (this) {
+            if (stateChanges.isEmpty()) {
+                return;
+            }
+        }
+        synchronized (notifyLock) {
+            final List<State[]> changes;
+            final StateListener listener;
+            synchronized (this) {
+                changes = new ArrayList<State[]>(stateChanges);
+                stateChanges.clear();
+                listener = stateListener;
+            }
+            if (listener == null) {
+                return;
+            }
+            for (State[] change : changes) {
+                try {
+                    listener.onStateChange(change[0], change[1]);
+                } catch (RuntimeException e) {
+                    LOG.warn("Error notifying circuit breaker state change: " + e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    // expires buckets that have left the window
+    private void roll() {
+        final long bucket = now() / bucketMillis;
+        final long expired = Math.min(bucket - currentBucket, WINDOW_BUCKETS);
+        for (long i = 1; i <= expired; i++) {
+            final int index = (int) ((currentBucket + i) % WINDOW_BUCKETS);
+            requests[index] = 0;
+            failures[index] = 0;
+        }
+        if (bucket > currentBucket) {
+            currentBucket = bucket;
+        }
+    }
+
+    private void clearWindow() {
+        for (int i = 0; i < WINDOW_BUCKETS; i++) {
+            requests[i] = 0;
+            failures[i] = 0;
+        }
+    }
+
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    @ManagedAttribute(description = "Circuit state, CLOSED, OPEN or HALF_OPEN")
+    public synchronized String getState() {
+        return state.name();
+    }
+
+    @ManagedAttribute(description = "Ratio of failed or slow requests at which the circuit opens")
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    @ManagedAttribute(description = "Response time in millis after which a request counts as failed")
+    public long getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    @ManagedAttribute(description = "Rolling window in millis")
+    public long getWindow() {
+        return window;
+    }
+
+    @ManagedAttribute(description = "Min requests in the window before the circuit can open")
+    public int getMinRequests() {
+        return minRequests;
+    }
+
+    @ManagedAttribute(description = "Time in millis the circuit stays open")
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    @ManagedAttribute(description = "Requests in the rolling window")
+    public synchronized int getWindowRequests() {
+        roll();
+        return sum(requests);
+    }
+
+    @ManagedAttribute(description = "Ratio of failed or slow requests in the rolling window")
+    public synchronized double getWindowFailureRate() {
+        roll();
+        final int total = sum(requests);
+        return total == 0 ? 0 : (double) sum(failures) / total;
+    }
+
+    @ManagedAttribute(description = "Times the circuit opened")
+    public long getOpenedCount() {
+        return openedCount.get();
+    }
+
+    @ManagedAttribute(description = "Requests failed fast while the circuit was open")
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @ManagedOperation(description = "Close the circuit")
+    public void close() {
+        synchronized (this) {
+            clearWindow();
+            changeState(State.CLOSED);
+        }
+        notifyStateChanges();
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void resetStatistics() {
+        openedCount.set(0);
+        rejectedCount.set(0);
+    }
+
+}
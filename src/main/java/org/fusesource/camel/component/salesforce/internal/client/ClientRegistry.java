@@ -0,0 +1,225 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.Service;
+import org.apache.camel.util.ServiceHelper;
+import org.eclipse.jetty.client.HttpClient;
+import org.fusesource.camel.component.salesforce.internal.PayloadFormat;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Hands out shared REST and Bulk API clients, keyed by HttpClient, API version and payload format.
+ * <p>
+ * Clients are started when first acquired, and stopped when the last reference is released.
+ * </p>
+ */
+public class ClientRegistry implements Service {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClientRegistry.class);
+
+    private static final String REST_CLIENT = "rest";
+    private static final String BULK_CLIENT = "bulk";
+
+    private final SalesforceSession session;
+    private final Executor callbackExecutor;
+    private final boolean streamResponses;
+    private final boolean shareInFlightRequests;
+    private final ApiLimits apiLimits;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final Compression compression;
+
+    private final Map<ClientKey, ClientReference> clients;
+
+    public ClientRegistry(SalesforceSession session, Executor callbackExecutor, boolean streamResponses,
+                          boolean shareInFlightRequests, ApiLimits apiLimits, RetryPolicy retryPolicy,
+                          CircuitBreaker circuitBreaker, Compression compression) {
+        this.session = session;
+        this.callbackExecutor = callbackExecutor;
+        this.streamResponses = streamResponses;
+        this.shareInFlightRequests = shareInFlightRequests;
+        this.apiLimits = apiLimits;
+        this.retryPolicy = retryPolicy;
+        this.circuitBreaker = circuitBreaker;
+        this.compression = compression;
+        this.clients = new HashMap<ClientKey, ClientReference>();
+    }
+
+    public RestClient acquireRestClient(HttpClient httpClient, String apiVersion,
+                                        PayloadFormat payloadFormat) throws Exception {
+        final String format = payloadFormat.toString().toLowerCase();
+        final ClientKey key = new ClientKey(REST_CLIENT, httpClient, apiVersion, format);
+
+        AbstractClientBase client = acquire(key);
+        if (client == null) {
+            final DefaultRestClient restClient = new DefaultRestClient(httpClient, apiVersion, format, session);
+            restClient.setShareInFlightRequests(shareInFlightRequests);
+            client = register(key, restClient);
+        }
+        return (RestClient) client;
+    }
+
+    public BulkApiClient acquireBulkApiClient(HttpClient httpClient, String apiVersion) throws Exception {
+        // Bulk API payloads are always XML
+        final ClientKey key = new ClientKey(BULK_CLIENT, httpClient, apiVersion, "xml");
+
+        AbstractClientBase client = acquire(key);
+        if (client == null) {
+            client = register(key, new DefaultBulkApiClient(apiVersion, session, httpClient));
+        }
+        return (BulkApiClient) client;
+    }
+
+    /**
+     * Releases a client acquired from this registry, the client is stopped when it is no longer referenced.
+     *
+     * @param client REST or Bulk API client to release
+     * @throws Exception on error stopping the client
+     */
+    public void release(Object client) throws Exception {
+        synchronized (this) {
+            final ClientReference reference = getReference(client);
+            if (reference == null) {
+                LOG.warn("Ignoring release of unknown client {}", client);
+                return;
+            }
+            if (--reference.count > 0) {
+                return;
+            }
+            clients.values().remove(reference);
+        }
+        // no longer referenced, stopped without holding the registry lock
+        ServiceHelper.stopService(client);
+    }
+
+    private ClientReference getReference(Object client) {
+        for (ClientReference reference : clients.values()) {
+            if (reference.client == client) {
+                return reference;
+            }
+        }
+        return null;
+    }
+
+    // references a registered client, returns null if there is none for the key
+    private synchronized AbstractClientBase acquire(ClientKey key) {
+        final ClientReference reference = clients.get(key);
+        if (reference == null) {
+            return null;
+        }
+        reference.count++;
+        return reference.client;
+    }
+
+    // starts the client without holding the registry lock, since it may have to log in,
+    // and references it, or the client another thread registered for the key while it was starting
+    private AbstractClientBase register(ClientKey key, AbstractClientBase client) throws Exception {
+        client.setCallbackExecutor(callbackExecutor);
+        client.setStreamResponses(streamResponses);
+        client.setApiLimits(apiLimits);
+        client.setRetryPolicy(retryPolicy);
+        client.setCircuitBreaker(circuitBreaker);
+        client.setCompression(compression);
+        // also logs in if required
+        ServiceHelper.startService(client);
+
+        final AbstractClientBase registered;
+        synchronized (this) {
+            ClientReference reference = clients.get(key);
+            if (reference == null) {
+                reference = new ClientReference(client);
+                clients.put(key, reference);
+            }
+            reference.count++;
+            registered = reference.client;
+        }
+
+        if (registered != client) {
+            LOG.debug("Using client registered while starting another one for {}", key.apiVersion);
+            ServiceHelper.stopService(client);
+        }
+        return registered;
+    }
+
+    @Override
+    public void start() throws Exception {
+        // nothing to do, clients are started on demand
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        // stop any clients that were not released
+        for (ClientReference reference : clients.values()) {
+            ServiceHelper.stopService(reference.client);
+        }
+        clients.clear();
+    }
+
+    private static final class ClientReference {
+        private final AbstractClientBase client;
+        private int count;
+
+        private ClientReference(AbstractClientBase client) {
+            this.client = client;
+        }
+    }
+
+    private static final class ClientKey {
+        private final String type;
+        private final HttpClient httpClient;
+        private final String apiVersion;
+        private final String format;
+
+        private ClientKey(String type, HttpClient httpClient, String apiVersion, String format) {
+            this.type = type;
+            this.httpClient = httpClient;
+            this.apiVersion = apiVersion;
+            this.format = format;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClientKey)) {
+                return false;
+            }
+            final ClientKey other = (ClientKey) o;
+            // endpoints may reference their own HttpClient, which can't be shared
+            return type.equals(other.type) && httpClient == other.httpClient &&
+                apiVersion.equals(other.apiVersion) && format.equals(other.format);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = type.hashCode();
+            result = 31 * result + System.identityHashCode(httpClient);
+            result = 31 * result + apiVersion.hashCode();
+            result = 31 * result + format.hashCode();
+            return result;
+        }
+    }
+
+}
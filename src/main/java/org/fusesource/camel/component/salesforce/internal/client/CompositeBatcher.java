@@ -0,0 +1,369 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.io.JsonStringEncoder;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.eclipse.jetty.util.StringUtil;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.api.dto.RestError;
+import org.fusesource.camel.component.salesforce.api.dto.composite.SObjectBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects concurrent SObject create, update and delete requests for a short linger time,
+ * and sends them as a single Composite Batch request.
+ * <p>
+ * Results are demultiplexed back to the callback of every request, with the same response entity
+ * or exception as the individual REST call. Only supported for JSON.
+ * A batch is sent with the earliest deadline of its requests.
+ * Callbacks of the requests in a batch are handed to the callback executor, so that they run in parallel.
+ * </p>
+ */
+public class CompositeBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompositeBatcher.class);
+
+    private static final double MIN_API_VERSION = 34.0;
+
+    private final RestClient restClient;
+    private final String version;
+    private final long linger;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Executor callbackExecutor;
+    private final ObjectMapper objectMapper;
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private List<BatchEntry> pending;
+    private ScheduledFuture<?> scheduledFlush;
+
+    public CompositeBatcher(RestClient restClient, String version, long linger, int maxBatchSize,
+                            ScheduledExecutorService scheduler, Executor callbackExecutor) {
+        if (version == null || Double.parseDouble(version) < MIN_API_VERSION) {
+            throw new IllegalArgumentException("Composite batching requires API version "
+                + MIN_API_VERSION + " or later, found " + version);
+        }
+        if (maxBatchSize < 1 || maxBatchSize > SObjectBatch.MAX_BATCH) {
+            throw new IllegalArgumentException("Composite batch size must be between 1 and "
+                + SObjectBatch.MAX_BATCH + ", found " + maxBatchSize);
+        }
+        this.restClient = restClient;
+        this.version = version;
+        this.linger = linger;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+        this.callbackExecutor = callbackExecutor;
+        this.objectMapper = new ObjectMapper();
+
+        this.pending = new ArrayList<BatchEntry>(maxBatchSize);
+    }
+
+    public void createSObject(String sObjectName, InputStream sObject,
+                              RestClient.ResponseCallback callback) throws SalesforceException {
+        add(new BatchEntry(HttpMethods.POST, sobjectsUrl(sObjectName), readContent(sObject), callback));
+    }
+
+    public void updateSObject(String sObjectName, String id, InputStream sObject,
+                              RestClient.ResponseCallback callback) throws SalesforceException {
+        add(new BatchEntry("PATCH", sobjectsUrl(sObjectName + "/" + id), readContent(sObject), callback));
+    }
+
+    public void deleteSObject(String sObjectName, String id,
+                              RestClient.ResponseCallback callback) {
+        add(new BatchEntry(HttpMethods.DELETE, sobjectsUrl(sObjectName + "/" + id), null, callback));
+    }
+
+    private void add(BatchEntry entry) {
+        List<BatchEntry> batch = null;
+        synchronized (this) {
+            pending.add(entry);
+            if (pending.size() >= maxBatchSize) {
+                // batch is full, send it right away
+                batch = takePending();
+            } else if (scheduledFlush == null) {
+                // first entry in this batch, send it when the linger time is up
+                scheduledFlush = scheduler.schedule(flushTask, linger, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    /**
+     * Sends pending requests right away.
+     */
+    public void flush() {
+        final List<BatchEntry> batch;
+        synchronized (this) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    private List<BatchEntry> takePending() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        final List<BatchEntry> batch = pending;
+        pending = new ArrayList<BatchEntry>(maxBatchSize);
+        return batch;
+    }
+
+    private void send(final List<BatchEntry> batch) {
+        LOG.debug("Sending composite batch with {} requests", batch.size());
+
+        // the batch is bound by the earliest deadline of its requests
+        long deadline = 0;
+        for (BatchEntry entry : batch) {
+            if (entry.deadline > 0 && (deadline == 0 || entry.deadline < deadline)) {
+                deadline = entry.deadline;
+            }
+        }
+
+        final InputStream request;
+        try {
+            request = createBatchRequest(batch);
+        } catch (IOException e) {
+            failAll(batch, new SalesforceException("Error marshaling composite batch: " + e.getMessage(), e));
+            return;
+        }
+
+        // may be sent from the flush scheduler, or the thread of another exchange
+        final long previousDeadline = AbstractClientBase.setCurrentDeadline(deadline);
+        try {
+            restClient.compositeBatch(request, new RestClient.ResponseCallback() {
+                @Override
+                public void onResponse(InputStream response, SalesforceException exception) {
+                    if (exception != null) {
+                        failAll(batch, exception);
+                    } else {
+                        processBatchResponse(batch, response);
+                    }
+                }
+            });
+        } finally {
+            AbstractClientBase.setCurrentDeadline(previousDeadline);
+        }
+    }
+
+    private InputStream createBatchRequest(List<BatchEntry> batch) throws IOException {
+        // written by hand, so that request entities, which are already marshaled,
+        // are copied into the batch as bytes instead of being decoded and encoded again
+        final RequestContentStream.ContentOutputStream out = RequestContentStream.newOutputStream();
+        final JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+
+        writeAscii(out, "{\"batchRequests\":[");
+        for (int i = 0; i < batch.size(); i++) {
+            final BatchEntry entry = batch.get(i);
+            writeAscii(out, i == 0 ? "{\"method\":\"" : ",{\"method\":\"");
+            out.write(encoder.quoteAsUTF8(entry.method));
+            writeAscii(out, "\",\"url\":\"");
+            out.write(encoder.quoteAsUTF8(entry.url));
+            writeAscii(out, "\"");
+            if (entry.content != null) {
+                writeAscii(out, ",\"richInput\":");
+                write(out, entry.content);
+            }
+            writeAscii(out, "}");
+        }
+        // requests are independent
+        writeAscii(out, "],\"haltOnError\":false}");
+
+        return out.toInputStream();
+    }
+
+    private static void writeAscii(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StringUtil.__UTF8_CHARSET));
+    }
+
+    private static void write(OutputStream out, Buffer content) throws IOException {
+        final byte[] array = content.array();
+        if (array != null) {
+            out.write(array, content.getIndex(), content.length());
+        } else {
+            out.write(content.asArray());
+        }
+    }
+
+    private void processBatchResponse(List<BatchEntry> batch, InputStream response) {
+        final JsonNode results;
+        try {
+            try {
+                results = objectMapper.readTree(response).get("results");
+            } finally {
+                response.close();
+            }
+        } catch (IOException e) {
+            failAll(batch, new SalesforceException("Error parsing composite batch response: " + e.getMessage(), e));
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            final BatchEntry entry = batch.get(i);
+            final JsonNode result = results != null ? results.get(i) : null;
+            if (result == null) {
+                onResponse(entry, null, new SalesforceException("Missing result in composite batch response", null));
+                continue;
+            }
+
+            final int statusCode = result.path("statusCode").getIntValue();
+            final JsonNode body = result.get("result");
+            if (statusCode >= HttpStatus.OK_200 && statusCode < HttpStatus.MULTIPLE_CHOICES_300) {
+                // same response entity as the REST call, if any
+                InputStream entity = null;
+                SalesforceException exception = null;
+                try {
+                    entity = (body == null || body.isNull()) ? null :
+                        new ByteArrayInputStream(objectMapper.writeValueAsBytes(body));
+                } catch (IOException e) {
+                    exception = new SalesforceException(
+                        "Error writing composite batch result: " + e.getMessage(), e);
+                }
+                onResponse(entry, entity, exception);
+            } else {
+                onResponse(entry, null, createException(entry, statusCode, body));
+            }
+        }
+    }
+
+    // hands off the callback to the callback executor if set
+    private void onResponse(final BatchEntry entry, final InputStream response,
+                            final SalesforceException exception) {
+        if (callbackExecutor != null) {
+            try {
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        complete(entry, response, exception);
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                // executor is saturated or shutting down, run the callback on this thread instead
+                LOG.debug("Callback executor rejected composite batch result: {}", e.getMessage());
+            }
+        }
+        complete(entry, response, exception);
+    }
+
+    private static void complete(BatchEntry entry, InputStream response, SalesforceException exception) {
+        try {
+            entry.callback.onResponse(response, exception);
+        } catch (Throwable t) {
+            // don't let a failing callback affect the rest of the batch
+            LOG.warn(String.format("Unexpected error processing composite batch result for {%s:%s}: %s",
+                entry.method, entry.url, t.getMessage()), t);
+        }
+    }
+
+    private SalesforceException createException(BatchEntry entry, int statusCode, JsonNode body) {
+        try {
+            if (body != null && body.isArray()) {
+                final List<RestError> errors = objectMapper.readValue(body.traverse(),
+                    new TypeReference<List<RestError>>() {
+                    });
+                final String msg = String.format("Error {%s} executing {%s:%s}",
+                    statusCode, entry.method, entry.url);
+                final SalesforceException exception = new SalesforceException(msg,
+                    new SalesforceException(errors, statusCode));
+                exception.setStatusCode(statusCode);
+                return exception;
+            }
+        } catch (IOException e) {
+            LOG.warn("Unexpected Error parsing composite batch error result: " + e.getMessage(), e);
+        }
+        return new SalesforceException("Unexpected error", statusCode);
+    }
+
+    private void failAll(List<BatchEntry> batch, SalesforceException exception) {
+        for (BatchEntry entry : batch) {
+            onResponse(entry, null, exception);
+        }
+    }
+
+    private Buffer readContent(InputStream content) throws SalesforceException {
+        if (content instanceof RequestContentStream) {
+            // already in memory, use it without copying
+            return ((RequestContentStream) content).getContent();
+        }
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = content.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return new ByteArrayBuffer(out.toByteArray());
+        } catch (IOException e) {
+            String msg = "Error reading request entity: " + e.getMessage();
+            throw new SalesforceException(msg, e);
+        }
+    }
+
+    private String sobjectsUrl(String path) {
+        return "v" + version + "/sobjects/" + path;
+    }
+
+    private static final class BatchEntry {
+        private final String method;
+        private final String url;
+        private final Buffer content;
+        private final RestClient.ResponseCallback callback;
+        // deadline of the exchange that added the entry
+        private final long deadline;
+
+        private BatchEntry(String method, String url, Buffer content, RestClient.ResponseCallback callback) {
+            this.method = method;
+            this.url = url;
+            this.content = content;
+            this.callback = callback;
+            this.deadline = AbstractClientBase.getCurrentDeadline();
+        }
+    }
+
+}
@@ -0,0 +1,363 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedOperation;
+import org.apache.camel.api.management.ManagedResource;
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of request and response bodies.
+ * <p>
+ * Responses are decompressed as parsers read them, and streamed requests are compressed as Jetty reads them,
+ * so neither is held in memory uncompressed. Request bodies already in memory are compressed in memory,
+ * so that they can still be resent.
+ * </p>
+ * <p>
+ * Records bytes on the wire and uncompressed bytes of compressed bodies.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce Compression")
+public class Compression {
+
+    public static final String GZIP = "gzip";
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final boolean compressResponses;
+    private final boolean compressRequests;
+    private final int minRequestSize;
+
+    private final AtomicLong compressedResponses = new AtomicLong();
+    private final AtomicLong responseWireBytes = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLong compressedRequests = new AtomicLong();
+    private final AtomicLong requestWireBytes = new AtomicLong();
+    private final AtomicLong requestBytes = new AtomicLong();
+
+    /**
+     * @param compressResponses accept gzip encoded responses
+     * @param compressRequests gzip encode request bodies
+     * @param minRequestSize min size of request bodies in memory to compress, streamed bodies are always compressed
+     */
+    public Compression(boolean compressResponses, boolean compressRequests, int minRequestSize) {
+        if (minRequestSize < 0) {
+            throw new IllegalArgumentException("minRequestSize must not be negative");
+        }
+        this.compressResponses = compressResponses;
+        this.compressRequests = compressRequests;
+        this.minRequestSize = minRequestSize;
+    }
+
+    /**
+     * Decompresses gzip encoded response content as it is read, and records its size.
+     *
+     * @param content gzip encoded content
+     * @return uncompressed content
+     */
+    public InputStream decode(InputStream content) {
+        compressedResponses.incrementAndGet();
+        return new CountingInputStream(new GunzipInputStream(new CountingInputStream(content, responseWireBytes)),
+            responseBytes);
+    }
+
+    /**
+     * Decompresses gzip encoded content as it is read, without recording its size.
+     *
+     * @param content gzip encoded content
+     * @return uncompressed content
+     */
+    public static InputStream gunzip(InputStream content) {
+        return new GunzipInputStream(content);
+    }
+
+    /**
+     * Compresses request content as it is read.
+     *
+     * @param content request content
+     * @return gzip encoded content
+     */
+    public InputStream encode(InputStream content) {
+        compressedRequests.incrementAndGet();
+        return new CountingInputStream(new GzipInputStream(new CountingInputStream(content, requestBytes)),
+            requestWireBytes);
+    }
+
+    /**
+     * Compresses request content in memory.
+     *
+     * @param content request content
+     * @return gzip encoded content
+     * @throws IOException on compression error
+     */
+    public Buffer encode(Buffer content) throws IOException {
+        final int length = content.length();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(32, length / 4));
+        final GZIPOutputStream gzip = new GZIPOutputStream(bytes, BUFFER_SIZE);
+        final byte[] array = content.array();
+        if (array != null) {
+            gzip.write(array, content.getIndex(), length);
+        } else {
+            gzip.write(content.asArray());
+        }
+        gzip.close();
+
+        compressedRequests.incrementAndGet();
+        requestBytes.addAndGet(length);
+        requestWireBytes.addAndGet(bytes.size());
+        return new ByteArrayBuffer(bytes.toByteArray());
+    }
+
+    @ManagedAttribute(description = "Accept gzip encoded responses")
+    public boolean isCompressResponses() {
+        return compressResponses;
+    }
+
+    @ManagedAttribute(description = "Gzip encode request bodies")
+    public boolean isCompressRequests() {
+        return compressRequests;
+    }
+
+    @ManagedAttribute(description = "Min size of request bodies to compress")
+    public int getMinRequestSize() {
+        return minRequestSize;
+    }
+
+    @ManagedAttribute(description = "Gzip encoded responses")
+    public long getCompressedResponses() {
+        return compressedResponses.get();
+    }
+
+    @ManagedAttribute(description = "Bytes received of gzip encoded responses")
+    public long getResponseWireBytes() {
+        return responseWireBytes.get();
+    }
+
+    @ManagedAttribute(description = "Uncompressed bytes read from gzip encoded responses")
+    public long getResponseBytes() {
+        return responseBytes.get();
+    }
+
+    @ManagedAttribute(description = "Ratio of bytes received to uncompressed bytes of gzip encoded responses")
+    public double getResponseCompressionRatio() {
+        final long bytes = responseBytes.get();
+        return bytes == 0 ? 0 : (double) responseWireBytes.get() / bytes;
+    }
+
+    @ManagedAttribute(description = "Gzip encoded requests")
+    public long getCompressedRequests() {
+        return compressedRequests.get();
+    }
+
+    @ManagedAttribute(description = "Bytes sent of gzip encoded requests")
+    public long getRequestWireBytes() {
+        return requestWireBytes.get();
+    }
+
+    @ManagedAttribute(description = "Uncompressed bytes of gzip encoded requests")
+    public long getRequestBytes() {
+        return requestBytes.get();
+    }
+
+    @ManagedAttribute(description = "Ratio of bytes sent to uncompressed bytes of gzip encoded requests")
+    public double getRequestCompressionRatio() {
+        final long bytes = requestBytes.get();
+        return bytes == 0 ? 0 : (double) requestWireBytes.get() / bytes;
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void resetStatistics() {
+        compressedResponses.set(0);
+        responseWireBytes.set(0);
+        responseBytes.set(0);
+        compressedRequests.set(0);
+        requestWireBytes.set(0);
+        requestBytes.set(0);
+    }
+
+    // adds bytes read to a counter
+    private static final class CountingInputStream extends FilterInputStream {
+        private final AtomicLong counter;
+
+        private CountingInputStream(InputStream in, AtomicLong counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = super.read();
+            if (b != -1) {
+                counter.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int n = super.read(b, off, len);
+            if (n > 0) {
+                counter.addAndGet(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = super.skip(n);
+            counter.addAndGet(skipped);
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    // reads the gzip header on first read, so that it doesn't block the thread creating the stream,
+    // empty content, e.g. of a 204 response, is returned as is
+    private static final class GunzipInputStream extends InputStream {
+        private final InputStream content;
+        private InputStream delegate;
+
+        private GunzipInputStream(InputStream content) {
+            this.content = content;
+        }
+
+        private InputStream delegate() throws IOException {
+            if (delegate == null) {
+                final PushbackInputStream in = new PushbackInputStream(content);
+                final int first = in.read();
+                if (first == -1) {
+                    delegate = in;
+                } else {
+                    in.unread(first);
+                    delegate = new GZIPInputStream(in, BUFFER_SIZE);
+                }
+            }
+            return delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return delegate().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return delegate().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return delegate != null ? delegate.available() : 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (delegate != null) {
+                delegate.close();
+            } else {
+                content.close();
+            }
+        }
+    }
+
+    // compresses content a chunk at a time as it is read
+    private static final class GzipInputStream extends InputStream {
+        private final InputStream source;
+        private final byte[] chunk = new byte[BUFFER_SIZE];
+        private final ByteArrayOutputStream compressed = new ByteArrayOutputStream(BUFFER_SIZE);
+        private final GZIPOutputStream gzip;
+
+        private byte[] buffer = new byte[0];
+        private int position;
+        private boolean finished;
+
+        private GzipInputStream(InputStream source) {
+            this.source = source;
+            try {
+                this.gzip = new GZIPOutputStream(compressed, BUFFER_SIZE);
+            } catch (IOException e) {
+                // can't happen when writing to memory
+                throw new IllegalStateException(e);
+            }
+        }
+
+        // compresses the next chunk of content, returns false at the end of the compressed content
+        private boolean fill() throws IOException {
+            while (position == buffer.length) {
+                if (finished) {
+                    return false;
+                }
+                final int n = source.read(chunk);
+                if (n == -1) {
+                    gzip.finish();
+                    finished = true;
+                } else {
+                    gzip.write(chunk, 0, n);
+                }
+                // the deflater may hold on to small chunks
+                buffer = compressed.toByteArray();
+                compressed.reset();
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return fill() ? buffer[position++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            final int n = Math.min(len, buffer.length - position);
+            System.arraycopy(buffer, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                gzip.close();
+            } finally {
+                source.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.Service;
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedOperation;
+import org.apache.camel.api.management.ManagedResource;
+import org.eclipse.jetty.client.ContentExchange;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpDestination;
+import org.eclipse.jetty.http.HttpHeaders;
+import org.eclipse.jetty.http.HttpMethods;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps connections to the Salesforce instance open, so that requests don't wait for TCP and TLS handshakes.
+ * <p>
+ * Opens connections to the instance as soon as the session logs in, and sends a ping on idle connections
+ * every keep alive interval, so that they are not closed by the HTTP client's or the server's idle timeout.
+ * Pings get the list of API versions, which doesn't need an access token and doesn't count towards API limits.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce Connection Warmer")
+public class ConnectionWarmer implements SalesforceSession.SalesforceSessionListener, Service {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConnectionWarmer.class);
+
+    private static final String PING_PATH = "/services/data/";
+
+    private final HttpClient httpClient;
+    private final SalesforceSession session;
+    private final int connections;
+    private final long keepAliveInterval;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile String instanceUrl;
+    private ScheduledFuture<?> keepAlive;
+
+    private final AtomicLong pingCount = new AtomicLong();
+    private final AtomicLong failedPingCount = new AtomicLong();
+
+    /**
+     * @param httpClient HTTP client whose connections are kept open
+     * @param session session that reports the instance URL on login
+     * @param connections connections to open to the instance
+     * @param keepAliveInterval interval in millis between pings of idle connections, 0 to only open connections
+     * @param scheduler scheduler for pings, required if keepAliveInterval is positive
+     */
+    public ConnectionWarmer(HttpClient httpClient, SalesforceSession session, int connections,
+                            long keepAliveInterval, ScheduledExecutorService scheduler) {
+        if (connections <= 0) {
+            throw new IllegalArgumentException("connections must be positive");
+        }
+        if (keepAliveInterval > 0 && scheduler == null) {
+            throw new IllegalArgumentException("scheduler is required for keep alive pings");
+        }
+        this.httpClient = httpClient;
+        this.session = session;
+        this.connections = connections;
+        this.keepAliveInterval = keepAliveInterval;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public synchronized void start() throws Exception {
+        session.addListener(this);
+
+        // the session may have logged in already
+        final String currentUrl = session.getInstanceUrl();
+        if (currentUrl != null && session.getAccessToken() != null) {
+            onLogin(session.getAccessToken(), currentUrl);
+        }
+
+        if (keepAliveInterval > 0 && keepAlive == null) {
+            if (keepAliveInterval >= httpClient.getIdleTimeout()) {
+                LOG.warn("Keep alive interval {} is not less than HTTP client idle timeout {}, " +
+                    "idle connections will be closed between pings", keepAliveInterval, httpClient.getIdleTimeout());
+            }
+            keepAlive = scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    keepAlive();
+                }
+            }, keepAliveInterval, keepAliveInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() throws Exception {
+        session.removeListener(this);
+        if (keepAlive != null) {
+            keepAlive.cancel(false);
+            keepAlive = null;
+        }
+    }
+
+    @Override
+    public void onLogin(String accessToken, String instanceUrl) {
+        // session renewals report the same instance, whose connections are already open
+        if (!instanceUrl.equals(this.instanceUrl)) {
+            this.instanceUrl = instanceUrl;
+            warmUp();
+        }
+    }
+
+    @Override
+    public void onLogout() {
+        // connections to the instance stay useful after logout
+    }
+
+    @ManagedOperation(description = "Open connections to the Salesforce instance")
+    public void warmUp() {
+        final String url = instanceUrl;
+        if (url == null) {
+            LOG.debug("Not warming up connections before login");
+            return;
+        }
+        LOG.debug("Opening {} connections to the Salesforce instance", connections);
+        // concurrent pings make the HTTP client open a connection for each
+        for (int i = 0; i < connections; i++) {
+            ping(url);
+        }
+    }
+
+    // pings idle connections, and replaces connections that were closed
+    private void keepAlive() {
+        final String url = instanceUrl;
+        if (url == null) {
+            return;
+        }
+        try {
+            final HttpDestination destination = HttpDestinations.find(httpClient, url);
+            // connections in use are kept open by the requests they are sending
+            final int busy = destination != null ?
+                destination.getConnections() - destination.getIdleConnections() : 0;
+            final int pings = connections - busy;
+            LOG.debug("Pinging {} connections to the Salesforce instance", pings);
+            for (int i = 0; i < pings; i++) {
+                ping(url);
+            }
+        } catch (RuntimeException e) {
+            // don't cancel later pings
+            LOG.warn("Unexpected error pinging Salesforce instance: {}", e.getMessage());
+        }
+    }
+
+    private void ping(String url) {
+        final ContentExchange ping = new ContentExchange() {
+            @Override
+            protected void onConnectionFailed(Throwable x) {
+                super.onConnectionFailed(x);
+                onPingFailed(x.getMessage());
+            }
+
+            @Override
+            protected void onException(Throwable x) {
+                super.onException(x);
+                onPingFailed(x.getMessage());
+            }
+
+            @Override
+            protected void onExpire() {
+                super.onExpire();
+                onPingFailed("Ping expired");
+            }
+        };
+        ping.setMethod(HttpMethods.GET);
+        ping.setURL(url + PING_PATH);
+        ping.setRequestHeader(HttpHeaders.ACCEPT, AbstractClientBase.APPLICATION_JSON_UTF8);
+
+        pingCount.incrementAndGet();
+        try {
+            httpClient.send(ping);
+        } catch (IOException e) {
+            onPingFailed(e.getMessage());
+        }
+    }
+
+    private void onPingFailed(String message) {
+        failedPingCount.incrementAndGet();
+        LOG.debug("Ping failed: {}", message);
+    }
+
+    @ManagedAttribute(description = "Connections opened and kept open to the Salesforce instance")
+    public int getConnections() {
+        return connections;
+    }
+
+    @ManagedAttribute(description = "Interval in millis between pings of idle connections")
+    public long getKeepAliveInterval() {
+        return keepAliveInterval;
+    }
+
+    @ManagedAttribute(description = "Open connections to the Salesforce instance")
+    public int getOpenConnections() {
+        final HttpDestination destination = HttpDestinations.find(httpClient, instanceUrl);
+        return destination != null ? destination.getConnections() : 0;
+    }
+
+    @ManagedAttribute(description = "Idle connections to the Salesforce instance")
+    public int getIdleConnections() {
+        final HttpDestination destination = HttpDestinations.find(httpClient, instanceUrl);
+        return destination != null ? destination.getIdleConnections() : 0;
+    }
+
+    @ManagedAttribute(description = "Pings sent")
+    public long getPingCount() {
+        return pingCount.get();
+    }
+
+    @ManagedAttribute(description = "Pings that failed")
+    public long getFailedPingCount() {
+        return failedPingCount.get();
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void resetStatistics() {
+        pingCount.set(0);
+        failedPingCount.set(0);
+    }
+
+}
@@ -31,8 +31,6 @@ import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
 
 import javax.xml.bind.*;
 import javax.xml.transform.stream.StreamSource;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Collections;
@@ -41,7 +39,7 @@ public class DefaultBulkApiClient extends AbstractClientBase implements BulkApiC
 
     private static final String TOKEN_HEADER = "X-SFDC-Session";
 
-    private JAXBContext context;
+    private JAXBContextPool jaxbPool;
     private static final ContentType DEFAULT_ACCEPT_TYPE = ContentType.XML;
     private ObjectFactory objectFactory;
 
@@ -50,7 +48,8 @@ public class DefaultBulkApiClient extends AbstractClientBase implements BulkApiC
         super(version, session, httpClient);
 
         try {
-            context = JAXBContext.newInstance(JobInfo.class.getPackage().getName(), getClass().getClassLoader());
+            jaxbPool = JAXBContextPool.getInstance(JobInfo.class.getPackage().getName(),
+                getClass().getClassLoader());
         } catch (JAXBException e) {
             String msg = "Error loading Bulk API DTOs: " + e.getMessage();
             throw new IllegalArgumentException(msg, e);
@@ -196,7 +195,7 @@ public class DefaultBulkApiClient extends AbstractClientBase implements BulkApiC
                             final BatchInfoResponseCallback callback) {
 
         final ContentExchange post = getContentExchange(HttpMethods.POST, batchUrl(jobId, null));
-        post.setRequestContentSource(batchStream);
+        setRequestContent(post, batchStream);
         post.setRequestContentType(getContentType(contentTypeEnum) + ";charset=" + StringUtil.__UTF8);
 
         // make the call and parse the result
@@ -295,7 +294,7 @@ public class DefaultBulkApiClient extends AbstractClientBase implements BulkApiC
 
         final ContentExchange post = getContentExchange(HttpMethods.POST, batchUrl(jobId, null));
         byte[] queryBytes = soqlQuery.getBytes(StringUtil.__UTF8_CHARSET);
-        post.setRequestContent(new ByteArrayBuffer(queryBytes));
+        setRequestContent(post, new ByteArrayBuffer(queryBytes));
         post.setRequestContentType(getContentType(jobContentType) + ";charset=" + StringUtil.__UTF8);
 
         // make the call and parse the result
@@ -400,8 +399,7 @@ public class DefaultBulkApiClient extends AbstractClientBase implements BulkApiC
     protected SalesforceException createRestException(ContentExchange request) {
         // this must be of type Error
         try {
-            final Error error = unmarshalResponse(new ByteArrayInputStream(request.getResponseContentBytes()),
-                request, Error.class);
+            final Error error = unmarshalResponse(getResponseContent(request), request, Error.class);
 
             final RestError restError = new RestError();
             restError.setErrorCode(error.getExceptionCode());
@@ -417,9 +415,13 @@ public class DefaultBulkApiClient extends AbstractClientBase implements BulkApiC
     private <T> T unmarshalResponse(InputStream response, ContentExchange request, Class<T> resultClass)
         throws SalesforceException {
         try {
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            JAXBElement<T> result = unmarshaller.unmarshal(new StreamSource(response), resultClass);
-            return result.getValue();
+            Unmarshaller unmarshaller = jaxbPool.borrowUnmarshaller();
+            try {
+                JAXBElement<T> result = unmarshaller.unmarshal(new StreamSource(response), resultClass);
+                return result.getValue();
+            } finally {
+                jaxbPool.releaseUnmarshaller(unmarshaller);
+            }
         } catch (JAXBException e) {
             throw new SalesforceException(
                 String.format("Error unmarshaling response {%s:%s} : %s",
@@ -436,10 +438,14 @@ public class DefaultBulkApiClient extends AbstractClientBase implements BulkApiC
     private void marshalRequest(Object input, ContentExchange request, String contentType)
         throws SalesforceException {
         try {
-            Marshaller marshaller = context.createMarshaller();
-            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
-            marshaller.marshal(input, byteStream);
-            request.setRequestContent(new ByteArrayBuffer(byteStream.toByteArray()));
+            RequestContentStream.ContentOutputStream byteStream = RequestContentStream.newOutputStream();
+            Marshaller marshaller = jaxbPool.borrowMarshaller();
+            try {
+                marshaller.marshal(input, byteStream);
+            } finally {
+                jaxbPool.releaseMarshaller(marshaller);
+            }
+            setRequestContent(request, byteStream.toInputStream());
             request.setRequestContentType(contentType);
         } catch (JAXBException e) {
             throw new SalesforceException(
@@ -22,19 +22,28 @@ import org.codehaus.jackson.type.TypeReference;
 import org.eclipse.jetty.client.ContentExchange;
 import org.eclipse.jetty.client.HttpClient;
 import org.eclipse.jetty.client.HttpExchange;
+import org.eclipse.jetty.http.HttpFields;
 import org.eclipse.jetty.http.HttpHeaders;
 import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.HttpStatus;
 import org.eclipse.jetty.util.StringUtil;
 import org.fusesource.camel.component.salesforce.api.SalesforceException;
 import org.fusesource.camel.component.salesforce.api.dto.RestError;
 import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
 import org.fusesource.camel.component.salesforce.internal.dto.RestErrors;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 public class DefaultRestClient extends AbstractClientBase implements RestClient {
 
@@ -46,6 +55,10 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
     private XStream xStream;
     protected String format;
 
+    // identical GET requests attach to a request in flight, instead of being sent again
+    private boolean shareInFlightRequests;
+    private final Map<String, InFlightRequest> inFlightRequests = new HashMap<String, InFlightRequest>();
+
     public DefaultRestClient(HttpClient httpClient,
                              String version, String format, SalesforceSession session) throws SalesforceException {
         super(version, session, httpClient);
@@ -60,13 +73,68 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
 
     @Override
     protected void doHttpRequest(ContentExchange request, ClientResponseCallback callback) {
+        setStandardHeaders(request);
+
+        if (shareInFlightRequests) {
+            if (HttpMethods.GET.equals(request.getMethod())) {
+                // requests with a deadline aren't shared, since a shared request would fail with the deadline
+                // of its first caller, and direct callbacks aren't shared,
+                // since shared responses are completed on the callback executor
+                if (!hasDeadline(request) && !(callback instanceof DirectClientResponseCallback)) {
+                    final String key = getInFlightKey(request);
+                    final InFlightRequest inFlightRequest;
+                    synchronized (inFlightRequests) {
+                        final InFlightRequest current = inFlightRequests.get(key);
+                        if (current != null) {
+                            LOG.debug("Attaching to request in flight {}", key);
+                            current.attach(request, callback);
+                            return;
+                        }
+                        inFlightRequest = new InFlightRequest(key, request, callback);
+                        inFlightRequests.put(key, inFlightRequest);
+                    }
+                    super.doHttpRequest(request, inFlightRequest);
+                    return;
+                }
+            } else {
+                // GETs after a write must not see responses from before it, whether or not the write has a deadline
+                synchronized (inFlightRequests) {
+                    inFlightRequests.clear();
+                }
+            }
+        }
+
+        super.doHttpRequest(request, callback);
+    }
+
+    private void setStandardHeaders(ContentExchange request) {
         // set standard headers for all requests
         final String contentType = "json".equals(format) ? APPLICATION_JSON_UTF8 : APPLICATION_XML_UTF8;
         request.setRequestHeader(HttpHeaders.ACCEPT, contentType);
         request.setRequestHeader(HttpHeaders.ACCEPT_CHARSET, StringUtil.__UTF8);
         // request content type and charset is set by the request entity
+    }
 
-        super.doHttpRequest(request, callback);
+    // idempotent reads are hedged if the callback has a hedge policy, otherwise they are sent as usual
+    private void doReadRequest(ContentExchange get, ResponseCallback callback) {
+        if (callback instanceof HedgedResponseCallback) {
+            final HedgePolicy hedgePolicy = ((HedgedResponseCallback) callback).getHedgePolicy();
+            if (hedgePolicy != null) {
+                setStandardHeaders(get);
+                new HedgedRequest(get, callback, hedgePolicy).send();
+                return;
+            }
+        }
+        doHttpRequest(get, callback instanceof DirectResponseCallback ?
+            new DirectDelegatingClientCallback(callback) : new DelegatingClientCallback(callback));
+    }
+
+    private static String getInFlightKey(ContentExchange request) {
+        // conditional requests may get different responses
+        final HttpFields fields = request.getRequestFields();
+        return String.format("%s %s://%s%s %s %s %s", request.getMethod(), request.getScheme(), request.getAddress(),
+            request.getRequestURI(), fields.getStringField(HttpHeaders.ACCEPT),
+            fields.getStringField(HttpHeaders.IF_NONE_MATCH), fields.getStringField(HttpHeaders.IF_MODIFIED_SINCE));
     }
 
     @Override
@@ -75,12 +143,12 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         try {
             if ("json".equals(format)) {
                 List<RestError> restErrors = objectMapper.readValue(
-                    httpExchange.getResponseContent(), new TypeReference<List<RestError>>() {
+                    getResponseContent(httpExchange), new TypeReference<List<RestError>>() {
                 });
                 return new SalesforceException(restErrors, httpExchange.getResponseStatus());
             } else {
                 RestErrors errors = new RestErrors();
-                xStream.fromXML(httpExchange.getResponseContent(), errors);
+                xStream.fromXML(getResponseContent(httpExchange), errors);
                 return new SalesforceException(errors.getErrors(), httpExchange.getResponseStatus());
             }
         } catch (IOException e) {
@@ -102,7 +170,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         ContentExchange get = getContentExchange(HttpMethods.GET, servicesDataUrl());
         // does not require authorization token
 
-        doHttpRequest(get, new DelegatingClientCallback(callback));
+        doMetadataRequest(get, callback);
     }
 
     @Override
@@ -111,7 +179,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         // requires authorization token
         setAccessToken(get);
 
-        doHttpRequest(get, new DelegatingClientCallback(callback));
+        doMetadataRequest(get, callback);
     }
 
     @Override
@@ -120,7 +188,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         // requires authorization token
         setAccessToken(get);
 
-        doHttpRequest(get, new DelegatingClientCallback(callback));
+        doMetadataRequest(get, callback);
     }
 
     @Override
@@ -130,7 +198,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         // requires authorization token
         setAccessToken(get);
 
-        doHttpRequest(get, new DelegatingClientCallback(callback));
+        doMetadataRequest(get, callback);
     }
 
     @Override
@@ -140,7 +208,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         // requires authorization token
         setAccessToken(get);
 
-        doHttpRequest(get, new DelegatingClientCallback(callback));
+        doMetadataRequest(get, callback);
     }
 
     @Override
@@ -163,7 +231,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         // requires authorization token
         setAccessToken(get);
 
-        doHttpRequest(get, new DelegatingClientCallback(callback));
+        doReadRequest(get, callback);
     }
 
     @Override
@@ -176,7 +244,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         setAccessToken(post);
 
         // input stream as entity content
-        post.setRequestContentSource(sObject);
+        setRequestContent(post, sObject);
         post.setRequestContentType("json".equals(format) ? APPLICATION_JSON_UTF8 : APPLICATION_XML_UTF8);
 
         doHttpRequest(post, new DelegatingClientCallback(callback));
@@ -190,7 +258,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         setAccessToken(patch);
 
         // input stream as entity content
-        patch.setRequestContentSource(sObject);
+        setRequestContent(patch, sObject);
         patch.setRequestContentType("json".equals(format) ? APPLICATION_JSON_UTF8 : APPLICATION_XML_UTF8);
 
         doHttpRequest(patch, new DelegatingClientCallback(callback));
@@ -216,7 +284,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         // requires authorization token
         setAccessToken(get);
 
-        doHttpRequest(get, new DelegatingClientCallback(callback));
+        doReadRequest(get, callback);
     }
 
     @Override
@@ -229,7 +297,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         setAccessToken(patch);
 
         // input stream as entity content
-        patch.setRequestContentSource(sObject);
+        setRequestContent(patch, sObject);
         // TODO will the encoding always be UTF-8??
         patch.setRequestContentType("json".equals(format) ? APPLICATION_JSON_UTF8 : APPLICATION_XML_UTF8);
 
@@ -273,7 +341,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
             // requires authorization token
             setAccessToken(get);
 
-            doHttpRequest(get, new DelegatingClientCallback(callback));
+            doReadRequest(get, callback);
 
         } catch (UnsupportedEncodingException e) {
             String msg = "Unexpected error: " + e.getMessage();
@@ -288,7 +356,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         // requires authorization token
         setAccessToken(get);
 
-        doHttpRequest(get, new DelegatingClientCallback(callback));
+        doReadRequest(get, callback);
     }
 
     @Override
@@ -303,7 +371,7 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
             // requires authorization token
             setAccessToken(get);
 
-            doHttpRequest(get, new DelegatingClientCallback(callback));
+            doReadRequest(get, callback);
 
         } catch (UnsupportedEncodingException e) {
             String msg = "Unexpected error: " + e.getMessage();
@@ -311,6 +379,85 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         }
     }
 
+    @Override
+    public void compositeBatch(InputStream batchRequest, ResponseCallback callback) {
+        final ContentExchange post = getContentExchange(HttpMethods.POST, versionUrl() + "composite/batch");
+
+        // requires authorization token
+        setAccessToken(post);
+
+        // input stream as entity content
+        setRequestContent(post, batchRequest);
+        post.setRequestContentType(APPLICATION_JSON_UTF8);
+
+        doHttpRequest(post, new DelegatingClientCallback(callback));
+    }
+
+    @Override
+    public void createSObjectCollection(InputStream collection, ResponseCallback callback) {
+        final ContentExchange post = getContentExchange(HttpMethods.POST, compositeSObjectsUrl(""));
+
+        // requires authorization token
+        setAccessToken(post);
+
+        // input stream as entity content
+        setRequestContent(post, collection);
+        post.setRequestContentType(APPLICATION_JSON_UTF8);
+
+        doHttpRequest(post, new DelegatingClientCallback(callback));
+    }
+
+    @Override
+    public void updateSObjectCollection(InputStream collection, ResponseCallback callback) {
+        final ContentExchange patch = getContentExchange("PATCH", compositeSObjectsUrl(""));
+
+        // requires authorization token
+        setAccessToken(patch);
+
+        // input stream as entity content
+        setRequestContent(patch, collection);
+        patch.setRequestContentType(APPLICATION_JSON_UTF8);
+
+        doHttpRequest(patch, new DelegatingClientCallback(callback));
+    }
+
+    @Override
+    public void upsertSObjectCollection(String sObjectName, String fieldName, InputStream collection,
+                                        ResponseCallback callback) {
+        if (sObjectName == null || fieldName == null) {
+            throw new IllegalArgumentException("SObject name and external field name cannot be NULL");
+        }
+        final ContentExchange patch = getContentExchange("PATCH",
+            compositeSObjectsUrl("/" + sObjectName + "/" + fieldName));
+
+        // requires authorization token
+        setAccessToken(patch);
+
+        // input stream as entity content
+        setRequestContent(patch, collection);
+        patch.setRequestContentType(APPLICATION_JSON_UTF8);
+
+        doHttpRequest(patch, new DelegatingClientCallback(callback));
+    }
+
+    @Override
+    public void deleteSObjectCollection(List<String> ids, boolean allOrNone, ResponseCallback callback) {
+        final StringBuilder params = new StringBuilder("?ids=");
+        for (int i = 0; i < ids.size(); i++) {
+            params.append(ids.get(i));
+            if (i < (ids.size() - 1)) {
+                params.append(',');
+            }
+        }
+        params.append("&allOrNone=").append(allOrNone);
+        final ContentExchange delete = getContentExchange(HttpMethods.DELETE, compositeSObjectsUrl(params.toString()));
+
+        // requires authorization token
+        setAccessToken(delete);
+
+        doHttpRequest(delete, new DelegatingClientCallback(callback));
+    }
+
     private String servicesDataUrl() {
         return instanceUrl + SERVICES_DATA;
     }
@@ -329,6 +476,10 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         return versionUrl() + "sobjects/" + sObjectName;
     }
 
+    private String compositeSObjectsUrl(String suffix) {
+        return versionUrl() + "composite/sobjects" + suffix;
+    }
+
     private String sobjectsExternalIdUrl(String sObjectName, String fieldName, String fieldValue) {
         if (fieldName == null || fieldValue == null) {
             throw new IllegalArgumentException("External field name and value cannot be NULL");
@@ -348,6 +499,221 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         httpExchange.setRequestHeader(TOKEN_HEADER, TOKEN_PREFIX + accessToken);
     }
 
+    // sends validators of a cached metadata response, to avoid downloading and parsing it again
+    private void doMetadataRequest(final ContentExchange request, ResponseCallback callback) {
+        if (callback instanceof ConditionalResponseCallback) {
+            final ConditionalResponseCallback conditionalCallback = (ConditionalResponseCallback) callback;
+            if (conditionalCallback.getETag() != null) {
+                request.setRequestHeader(HttpHeaders.IF_NONE_MATCH, conditionalCallback.getETag());
+            }
+            if (conditionalCallback.getLastModified() != null) {
+                request.setRequestHeader(HttpHeaders.IF_MODIFIED_SINCE, conditionalCallback.getLastModified());
+            }
+
+            doHttpRequest(request, new ClientResponseCallback() {
+                @Override
+                public void onResponse(InputStream response, SalesforceException ex) {
+                    if (ex != null && ex.getStatusCode() == HttpStatus.NOT_MODIFIED_304) {
+                        conditionalCallback.onNotModified();
+                    } else {
+                        if (ex == null) {
+                            final HttpFields fields = request.getResponseFields();
+                            conditionalCallback.onValidators(fields.getStringField(HttpHeaders.ETAG),
+                                fields.getStringField(HttpHeaders.LAST_MODIFIED));
+                        }
+                        conditionalCallback.onResponse(response, ex);
+                    }
+                }
+            });
+        } else {
+            doHttpRequest(request, new DelegatingClientCallback(callback));
+        }
+    }
+
+    public void setShareInFlightRequests(boolean shareInFlightRequests) {
+        this.shareInFlightRequests = shareInFlightRequests;
+    }
+
+    // a read request, that is sent again if there is no response by the hedge delay
+    // hedged requests don't attach to requests in flight, since the losing request is cancelled
+    private final class HedgedRequest {
+        private final ContentExchange request;
+        private final ResponseCallback callback;
+        private final HedgePolicy hedgePolicy;
+        private final long start = System.nanoTime();
+
+        private ContentExchange hedge;
+        private int pending;
+        private boolean done;
+
+        private HedgedRequest(ContentExchange request, ResponseCallback callback, HedgePolicy hedgePolicy) {
+            this.request = request;
+            this.callback = callback;
+            this.hedgePolicy = hedgePolicy;
+        }
+
+        private void send() {
+            final long delay = hedgePolicy.onRequest();
+            synchronized (this) {
+                pending = 1;
+            }
+            DefaultRestClient.super.doHttpRequest(request, new AttemptCallback(request));
+
+            if (delay >= 0) {
+                try {
+                    hedgePolicy.getScheduler().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            sendHedge();
+                        }
+                    }, delay, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    LOG.debug("Hedge scheduler rejected request: {}", e.getMessage());
+                }
+            }
+        }
+
+        private void sendHedge() {
+            final SalesforceExchange hedgeRequest;
+            synchronized (this) {
+                if (done || !hedgePolicy.tryHedge()) {
+                    return;
+                }
+                hedgeRequest = getContentExchange(request.getMethod(), request.getScheme() + "://" +
+                    request.getAddress() + request.getRequestURI());
+                // sent from the hedge scheduler, so the deadline has to be copied
+                if (request instanceof SalesforceExchange) {
+                    hedgeRequest.setDeadline(((SalesforceExchange) request).getDeadline());
+                }
+                final HttpFields fields = request.getRequestFields();
+                for (int i = 0; i < fields.size(); i++) {
+                    final HttpFields.Field field = fields.getField(i);
+                    if (field != null) {
+                        hedgeRequest.setRequestHeader(field.getName(), field.getValue());
+                    }
+                }
+                hedge = hedgeRequest;
+                pending++;
+            }
+            LOG.debug("Hedging slow request {}", request.getRequestURI());
+            DefaultRestClient.super.doHttpRequest(hedgeRequest, new AttemptCallback(hedgeRequest));
+        }
+
+        private final class AttemptCallback implements ClientResponseCallback {
+            private final ContentExchange attempt;
+
+            private AttemptCallback(ContentExchange attempt) {
+                this.attempt = attempt;
+            }
+
+            @Override
+            public void onResponse(InputStream response, SalesforceException ex) {
+                final ContentExchange loser;
+                synchronized (HedgedRequest.this) {
+                    pending--;
+                    // the first successful response wins, a failure waits for the other request if there is one
+                    if (done || (ex != null && pending > 0)) {
+                        if (response != null) {
+                            try {
+                                response.close();
+                            } catch (IOException ignored) {
+                            }
+                        }
+                        return;
+                    }
+                    done = true;
+                    loser = attempt == request ? hedge : request;
+                }
+                if (loser != null) {
+                    loser.cancel();
+                }
+                if (ex == null) {
+                    hedgePolicy.onResponse(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                        attempt != request);
+                }
+                callback.onResponse(response, ex);
+            }
+        }
+    }
+
+    // response callback of a GET request in flight, that also completes identical requests attached to it
+    private final class InFlightRequest implements ClientResponseCallback {
+        private final String key;
+        private final ContentExchange request;
+        private final ClientResponseCallback callback;
+        private final List<ContentExchange> attachedRequests = new ArrayList<ContentExchange>();
+        private final List<ClientResponseCallback> attachedCallbacks = new ArrayList<ClientResponseCallback>();
+
+        private InFlightRequest(String key, ContentExchange request, ClientResponseCallback callback) {
+            this.key = key;
+            this.request = request;
+            this.callback = callback;
+        }
+
+        // called with inFlightRequests lock held
+        private void attach(ContentExchange request, ClientResponseCallback attachedCallback) {
+            attachedRequests.add(request);
+            attachedCallbacks.add(attachedCallback);
+        }
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException ex) {
+            synchronized (inFlightRequests) {
+                // may have been cleared by a write
+                if (inFlightRequests.get(key) == this) {
+                    inFlightRequests.remove(key);
+                }
+            }
+            // nothing can be attached anymore
+            if (attachedCallbacks.isEmpty()) {
+                callback.onResponse(response, ex);
+                return;
+            }
+
+            // every callback needs its own copy of the response
+            byte[] content = null;
+            if (response != null) {
+                try {
+                    content = readResponse(response);
+                } catch (IOException e) {
+                    ex = new SalesforceException("Error reading shared response: " + e.getMessage(), e);
+                }
+            }
+            LOG.debug("Sharing response for {} with {} attached requests", key, attachedCallbacks.size());
+
+            // response headers are only complete for successful responses, e.g. validators of metadata
+            final HttpFields responseFields = ex == null ? request.getResponseFields() : null;
+
+            // attached callbacks run in parallel on the callback executor, this one on the current thread
+            for (int i = 0; i < attachedCallbacks.size(); i++) {
+                final ContentExchange attachedRequest = attachedRequests.get(i);
+                if (responseFields != null && attachedRequest instanceof SalesforceExchange) {
+                    ((SalesforceExchange) attachedRequest).setSharedResponseFields(responseFields);
+                }
+                dispatch(attachedCallbacks.get(i), content != null ? new ByteArrayInputStream(content) : null, ex);
+            }
+            callback.onResponse(content != null ? new ByteArrayInputStream(content) : null, ex);
+        }
+    }
+
+    private static boolean hasDeadline(ContentExchange request) {
+        return request instanceof SalesforceExchange && ((SalesforceExchange) request).getDeadline() > 0;
+    }
+
+    private static byte[] readResponse(InputStream response) throws IOException {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = response.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            response.close();
+        }
+    }
+
     private static class DelegatingClientCallback implements ClientResponseCallback {
         private final ResponseCallback callback;
 
@@ -361,4 +727,12 @@ public class DefaultRestClient extends AbstractClientBase implements RestClient
         }
     }
 
+    private static final class DirectDelegatingClientCallback extends DelegatingClientCallback
+        implements DirectClientResponseCallback {
+
+        public DirectDelegatingClientCallback(ResponseCallback callback) {
+            super(callback);
+        }
+    }
+
 }
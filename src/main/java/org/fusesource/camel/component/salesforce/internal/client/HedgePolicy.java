@@ -0,0 +1,191 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedOperation;
+import org.apache.camel.api.management.ManagedResource;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides when a slow read request is hedged with a duplicate request.
+ * <p>
+ * The hedge delay is a percentile of recent response times, so that only the slowest requests are hedged.
+ * Hedges are limited by a budget, which grows by the budget ratio for every request,
+ * so that hedging adds at most that fraction of requests to the load.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce Hedged Request Policy")
+public class HedgePolicy {
+
+    // response times used for the percentile, and min samples before requests are hedged
+    private static final int SAMPLES = 200;
+    private static final int MIN_SAMPLES = 20;
+    // the percentile is recomputed after this many samples
+    private static final int UPDATE_INTERVAL = 20;
+    // hedges allowed without any requests, and max balance of the budget
+    private static final double HEDGE_BUDGET_CAPACITY = 10;
+
+    private final double percentile;
+    private final long minDelay;
+    private final double budgetRatio;
+    private final ScheduledExecutorService scheduler;
+
+    private final long[] samples = new long[SAMPLES];
+    private int sampleCount;
+    private int nextSample;
+    private long delay = -1;
+    private double budget = HEDGE_BUDGET_CAPACITY;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong hedgeCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private final AtomicLong budgetExhaustedCount = new AtomicLong();
+
+    /**
+     * @param percentile percentile of response times after which a request is hedged, e.g. 95
+     * @param minDelay min delay in millis before a request is hedged
+     * @param budgetRatio hedges earned by every request, the budget holds up to 10 hedges
+     * @param scheduler scheduler for hedged requests
+     */
+    public HedgePolicy(double percentile, long minDelay, double budgetRatio, ScheduledExecutorService scheduler) {
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Hedge delay percentile must be between 0 and 100, found " + percentile);
+        }
+        if (minDelay < 0 || budgetRatio < 0) {
+            throw new IllegalArgumentException(String.format(
+                "Hedge min delay and budget ratio must not be negative, found %s and %s", minDelay, budgetRatio));
+        }
+        if (scheduler == null) {
+            throw new IllegalArgumentException("Scheduler is required for hedged requests");
+        }
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.budgetRatio = budgetRatio;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Records a new request, which adds to the hedge budget.
+     *
+     * @return delay in millis before the request is hedged, or -1 if there are too few response times yet
+     */
+    public synchronized long onRequest() {
+        requestCount.incrementAndGet();
+        budget = Math.min(HEDGE_BUDGET_CAPACITY, budget + budgetRatio);
+        return delay;
+    }
+
+    /**
+     * Takes a hedge from the budget.
+     *
+     * @return true if the request may be hedged
+     */
+    public synchronized boolean tryHedge() {
+        if (budget < 1.0) {
+            budgetExhaustedCount.incrementAndGet();
+            return false;
+        }
+        budget -= 1.0;
+        hedgeCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Records the response time of a successful request.
+     *
+     * @param latency response time in millis
+     * @param hedge true if the response was for a hedge, that beat the original request
+     */
+    public synchronized void onResponse(long latency, boolean hedge) {
+        if (hedge) {
+            hedgeWinCount.incrementAndGet();
+        }
+        samples[nextSample] = latency;
+        nextSample = (nextSample + 1) % SAMPLES;
+        if (sampleCount < SAMPLES) {
+            sampleCount++;
+        }
+        if (sampleCount >= MIN_SAMPLES && (delay < 0 || nextSample % UPDATE_INTERVAL == 0)) {
+            final long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            final int index = Math.min(sampleCount - 1, (int) Math.ceil(percentile / 100 * sampleCount) - 1);
+            delay = Math.max(minDelay, sorted[Math.max(0, index)]);
+        }
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    @ManagedAttribute(description = "Percentile of response times after which a request is hedged")
+    public double getPercentile() {
+        return percentile;
+    }
+
+    @ManagedAttribute(description = "Min delay in millis before a request is hedged")
+    public long getMinDelay() {
+        return minDelay;
+    }
+
+    @ManagedAttribute(description = "Hedges allowed per request")
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    @ManagedAttribute(description = "Current delay in millis before a request is hedged, -1 if not hedging yet")
+    public synchronized long getDelay() {
+        return delay;
+    }
+
+    @ManagedAttribute(description = "Hedges currently allowed by the budget")
+    public synchronized double getBudget() {
+        return budget;
+    }
+
+    @ManagedAttribute(description = "Requests that could be hedged")
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    @ManagedAttribute(description = "Hedges sent")
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    @ManagedAttribute(description = "Hedges that responded before the original request")
+    public long getHedgeWinCount() {
+        return hedgeWinCount.get();
+    }
+
+    @ManagedAttribute(description = "Requests not hedged for lack of budget")
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.get();
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void resetStatistics() {
+        requestCount.set(0);
+        hedgeCount.set(0);
+        hedgeWinCount.set(0);
+        budgetExhaustedCount.set(0);
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.eclipse.jetty.client.ContentExchange;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpDestination;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+
+/**
+ * Looks up existing HttpClient destinations, for connection statistics.
+ * <p>
+ * HttpClient only looks up destinations by creating missing ones, so this reads its map of destinations instead.
+ * </p>
+ */
+final class HttpDestinations {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpDestinations.class);
+
+    private static final Field DESTINATIONS = getDestinationsField();
+
+    private HttpDestinations() {
+    }
+
+    /**
+     * Gets the destination of a URL without creating it.
+     *
+     * @param httpClient HTTP client with the destination
+     * @param url URL of the destination, may be null
+     * @return existing destination, or null if there is none or the URL is null
+     */
+    public static HttpDestination find(HttpClient httpClient, String url) {
+        if (url == null || DESTINATIONS == null) {
+            return null;
+        }
+        final ContentExchange exchange = new ContentExchange();
+        exchange.setURL(url);
+        try {
+            final Map<?, ?> destinations = (Map<?, ?>) DESTINATIONS.get(httpClient);
+            return destinations != null ? (HttpDestination) destinations.get(exchange.getAddress()) : null;
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field getDestinationsField() {
+        try {
+            final Field field = HttpClient.class.getDeclaredField("_destinations");
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            // connection counts are reported as 0
+            LOG.debug("HttpClient destinations are not available: {}", e.getMessage());
+            return null;
+        }
+    }
+
+}
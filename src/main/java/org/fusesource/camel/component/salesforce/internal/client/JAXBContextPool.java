@@ -0,0 +1,116 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Process wide cache of {@link JAXBContext}s, with a bounded pool of Marshallers and Unmarshallers per context.
+ * <p>
+ * Creating a context is expensive, and so is creating marshallers for every request.
+ * Marshallers are not thread safe, so they are borrowed from the pool for a single call and then released.
+ * </p>
+ */
+public final class JAXBContextPool {
+
+    private static final int MAX_POOL_SIZE = 16;
+
+    // contexts are cached per classloader and context path, for as long as a client holds on to them,
+    // nothing here references a classloader strongly, so redeployed bundles and webapps can be unloaded
+    private static final Map<ClassLoader, Map<String, WeakReference<JAXBContextPool>>> POOLS =
+        new WeakHashMap<ClassLoader, Map<String, WeakReference<JAXBContextPool>>>();
+
+    private final JAXBContext context;
+    private final BlockingQueue<Marshaller> marshallers;
+    private final BlockingQueue<Unmarshaller> unmarshallers;
+
+    private JAXBContextPool(JAXBContext context) {
+        this.context = context;
+        this.marshallers = new ArrayBlockingQueue<Marshaller>(MAX_POOL_SIZE);
+        this.unmarshallers = new ArrayBlockingQueue<Unmarshaller>(MAX_POOL_SIZE);
+    }
+
+    /**
+     * Gets the pool for a JAXB context path, creating the context if necessary.
+     *
+     * @param contextPath JAXB context path, i.e. DTO package names
+     * @param classLoader classloader used to load DTOs
+     * @return shared pool for the context
+     * @throws JAXBException on error creating the context
+     */
+    public static JAXBContextPool getInstance(String contextPath, ClassLoader classLoader) throws JAXBException {
+        synchronized (POOLS) {
+            Map<String, WeakReference<JAXBContextPool>> pools = POOLS.get(classLoader);
+            if (pools == null) {
+                pools = new HashMap<String, WeakReference<JAXBContextPool>>();
+                POOLS.put(classLoader, pools);
+            }
+
+            // the context references the classloader through its classes,
+            // so it must only be weakly reachable from the cache too
+            final WeakReference<JAXBContextPool> reference = pools.get(contextPath);
+            JAXBContextPool pool = reference != null ? reference.get() : null;
+            if (pool == null) {
+                pool = new JAXBContextPool(JAXBContext.newInstance(contextPath, classLoader));
+                pools.put(contextPath, new WeakReference<JAXBContextPool>(pool));
+            }
+            return pool;
+        }
+    }
+
+    // cache entry for a classloader and context path, null if there is none
+    static WeakReference<JAXBContextPool> getCachedReference(String contextPath, ClassLoader classLoader) {
+        synchronized (POOLS) {
+            final Map<String, WeakReference<JAXBContextPool>> pools = POOLS.get(classLoader);
+            return pools != null ? pools.get(contextPath) : null;
+        }
+    }
+
+    public JAXBContext getContext() {
+        return context;
+    }
+
+    public Marshaller borrowMarshaller() throws JAXBException {
+        final Marshaller marshaller = marshallers.poll();
+        return marshaller != null ? marshaller : context.createMarshaller();
+    }
+
+    public void releaseMarshaller(Marshaller marshaller) {
+        // discarded if the pool is full
+        marshallers.offer(marshaller);
+    }
+
+    public Unmarshaller borrowUnmarshaller() throws JAXBException {
+        final Unmarshaller unmarshaller = unmarshallers.poll();
+        return unmarshaller != null ? unmarshaller : context.createUnmarshaller();
+    }
+
+    public void releaseUnmarshaller(Unmarshaller unmarshaller) {
+        // discarded if the pool is full
+        unmarshallers.offer(unmarshaller);
+    }
+
+}
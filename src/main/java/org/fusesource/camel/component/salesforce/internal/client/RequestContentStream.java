@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Request entity marshaled in memory.
+ * <p>
+ * Clients hand the marshaled bytes to Jetty as a {@link Buffer} using {@link #getContent()},
+ * instead of letting Jetty copy the stream chunk by chunk.
+ * </p>
+ */
+public class RequestContentStream extends ByteArrayInputStream {
+
+    private static final int DEFAULT_SIZE = 512;
+
+    public RequestContentStream(byte[] buf) {
+        super(buf);
+    }
+
+    public RequestContentStream(byte[] buf, int offset, int length) {
+        super(buf, offset, length);
+    }
+
+    /**
+     * Returns the unread content without copying it.
+     *
+     * @return Jetty buffer view of the content
+     */
+    public synchronized Buffer getContent() {
+        return new ByteArrayBuffer(buf, pos, count - pos, Buffer.READONLY);
+    }
+
+    /**
+     * Creates a stream for marshaling request entities.
+     *
+     * @return output stream to marshal into
+     */
+    public static ContentOutputStream newOutputStream() {
+        return new ContentOutputStream();
+    }
+
+    /**
+     * Marshaling target, that shares its buffer with the resulting {@link RequestContentStream}.
+     */
+    public static class ContentOutputStream extends ByteArrayOutputStream {
+
+        private ContentOutputStream() {
+            super(DEFAULT_SIZE);
+        }
+
+        public synchronized RequestContentStream toInputStream() {
+            return new RequestContentStream(buf, 0, count);
+        }
+
+    }
+
+}
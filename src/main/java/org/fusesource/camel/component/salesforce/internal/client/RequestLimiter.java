@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedOperation;
+import org.apache.camel.api.management.ManagedResource;
+
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the rate of requests with a token bucket, and the number of requests in flight.
+ * <p>
+ * Requests over either limit are queued, and run as tokens become available or requests complete.
+ * Every request that is run must be released when it completes.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce Request Limiter")
+public class RequestLimiter {
+
+    private final double rateLimit;
+    private final int maxInFlight;
+    private final int maxQueueSize;
+    private final ScheduledExecutorService scheduler;
+    // allows bursts of up to a second's worth of requests
+    private final double maxTokens;
+
+    private final Queue<Runnable> queue = new LinkedList<Runnable>();
+    private double tokens;
+    private long lastRefill;
+    private int inFlight;
+    private boolean draining;
+    private boolean drainScheduled;
+
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (RequestLimiter.this) {
+                drainScheduled = false;
+            }
+            drain();
+        }
+    };
+
+    /**
+     * @param rateLimit max requests per second, 0 for no limit
+     * @param maxInFlight max requests in flight, 0 for no limit
+     * @param maxQueueSize max requests waiting for the limits, further requests are rejected
+     * @param scheduler scheduler to run queued requests when tokens become available, required with a rate limit
+     */
+    public RequestLimiter(double rateLimit, int maxInFlight, int maxQueueSize, ScheduledExecutorService scheduler) {
+        if (rateLimit < 0 || maxInFlight < 0 || maxQueueSize < 0) {
+            throw new IllegalArgumentException(String.format(
+                "Request limits must not be negative, found rate %s, in flight %s and queue size %s",
+                rateLimit, maxInFlight, maxQueueSize));
+        }
+        if (rateLimit > 0 && scheduler == null) {
+            throw new IllegalArgumentException("Scheduler is required for a rate limit");
+        }
+        this.rateLimit = rateLimit;
+        this.maxInFlight = maxInFlight;
+        this.maxQueueSize = maxQueueSize;
+        this.scheduler = scheduler;
+        this.maxTokens = Math.max(1.0, rateLimit);
+        this.tokens = maxTokens;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Runs a request on the calling thread if it's within the limits, or queues it.
+     *
+     * @param request request to run, must call {@link #release()} when it completes
+     * @return true if the request was run, false if it was queued
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public boolean execute(Runnable request) {
+        synchronized (this) {
+            if (!queue.isEmpty() || !tryAcquire()) {
+                if (queue.size() >= maxQueueSize) {
+                    rejectedCount.incrementAndGet();
+                    throw new RejectedExecutionException(String.format(
+                        "Request limiter queue is full with %s requests", queue.size()));
+                }
+                queue.add(request);
+                queuedCount.incrementAndGet();
+                scheduleDrain();
+                return false;
+            }
+        }
+        request.run();
+        return true;
+    }
+
+    /**
+     * Releases a completed request, and runs queued requests that are now within the limits.
+     */
+    public void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        drain();
+    }
+
+    private void drain() {
+        synchronized (this) {
+            // a request run by drain may complete and release right away, the outer loop picks up the rest
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            while (true) {
+                final Runnable request;
+                synchronized (this) {
+                    if (queue.isEmpty() || !tryAcquire()) {
+                        scheduleDrain();
+                        draining = false;
+                        return;
+                    }
+                    request = queue.poll();
+                }
+                request.run();
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                draining = false;
+            }
+            throw e;
+        }
+    }
+
+    // called with lock held
+    private boolean tryAcquire() {
+        if (maxInFlight > 0 && inFlight >= maxInFlight) {
+            return false;
+        }
+        if (rateLimit > 0) {
+            refill();
+            if (tokens < 1.0) {
+                return false;
+            }
+            tokens -= 1.0;
+        }
+        inFlight++;
+        return true;
+    }
+
+    // called with lock held
+    private void refill() {
+        final long now = System.nanoTime();
+        tokens = Math.min(maxTokens, tokens + (now - lastRefill) * rateLimit / TimeUnit.SECONDS.toNanos(1));
+        lastRefill = now;
+    }
+
+    // called with lock held, queued requests waiting for tokens are run by the scheduler,
+    // requests waiting for requests in flight are run when those are released
+    private void scheduleDrain() {
+        if (rateLimit > 0 && !drainScheduled && !queue.isEmpty() &&
+            (maxInFlight == 0 || inFlight < maxInFlight)) {
+            refill();
+            final long delay = (long) Math.ceil((1.0 - tokens) * TimeUnit.SECONDS.toNanos(1) / rateLimit);
+            try {
+                scheduler.schedule(drainTask, Math.max(0, delay), TimeUnit.NANOSECONDS);
+                drainScheduled = true;
+            } catch (RejectedExecutionException e) {
+                // scheduler is shutting down, queued requests still run as other requests are released
+            }
+        }
+    }
+
+    @ManagedAttribute(description = "Max requests per second, 0 for no limit")
+    public double getRateLimit() {
+        return rateLimit;
+    }
+
+    @ManagedAttribute(description = "Max requests in flight, 0 for no limit")
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    @ManagedAttribute(description = "Requests in flight")
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    @ManagedAttribute(description = "Requests waiting for the limits")
+    public synchronized int getQueueSize() {
+        return queue.size();
+    }
+
+    @ManagedAttribute(description = "Requests queued so far")
+    public long getQueuedCount() {
+        return queuedCount.get();
+    }
+
+    @ManagedAttribute(description = "Requests rejected with a full queue")
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void resetStatistics() {
+        queuedCount.set(0);
+        rejectedCount.set(0);
+    }
+
+}
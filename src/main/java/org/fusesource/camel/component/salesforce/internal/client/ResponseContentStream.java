@@ -0,0 +1,173 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.eclipse.jetty.io.Buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.LinkedList;
+
+/**
+ * InputStream fed with response content chunks as they are received by Jetty.
+ * <p>
+ * Chunks are queued until the reader consumes them. Once more than {@link #MAX_BUFFERED} bytes are queued,
+ * the Jetty thread writing content blocks until the reader catches up, which stops reading from the connection,
+ * so a slow reader holds at most about that much of the response in memory.
+ * The reader MUST NOT be a Jetty client thread, since it blocks waiting for more content.
+ * </p>
+ * <p>
+ * The writer only waits for a reader that is reading, i.e. that read content within the last
+ * {@link #MAX_WRITER_WAIT} msecs. Responses that nobody has started reading, like prefetched query pages,
+ * and responses whose reader stopped, like the page of an abandoned query iterator, are buffered,
+ * so that they don't hold a Jetty thread and its connection until the exchange expires.
+ * </p>
+ */
+public class ResponseContentStream extends InputStream {
+
+    public static final int MAX_BUFFERED = 256 * 1024;
+    public static final long MAX_WRITER_WAIT = 2000;
+
+    private final LinkedList<byte[]> chunks = new LinkedList<byte[]>();
+    // bytes queued in chunks
+    private int buffered;
+
+    private byte[] current;
+    private int position;
+    // time the reader last took a chunk, 0 if it hasn't started reading
+    private long lastRead;
+
+    private boolean complete;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Queues a chunk of content, waiting while the queue is full and the reader is reading.
+     * The exchange must not be locked by the caller, so that it can still fail or expire.
+     *
+     * @param content received content
+     * @throws InterruptedIOException if interrupted while waiting for the reader
+     */
+    public synchronized void write(Buffer content) throws InterruptedIOException {
+        // stop reading from the connection until the reader catches up
+        while (buffered >= MAX_BUFFERED && !closed && failure == null) {
+            final long wait = lastRead > 0 ? lastRead + MAX_WRITER_WAIT - System.currentTimeMillis() : 0;
+            if (wait <= 0) {
+                // nobody is reading, buffer the content instead
+                break;
+            }
+            try {
+                wait(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for response reader");
+            }
+        }
+        if (!closed && failure == null && content.length() > 0) {
+            // Jetty reuses its buffers, so we have to copy the content
+            final byte[] chunk = content.asArray();
+            chunks.add(chunk);
+            buffered += chunk.length;
+            notifyAll();
+        }
+    }
+
+    public synchronized void complete() {
+        complete = true;
+        notifyAll();
+    }
+
+    public synchronized void fail(Throwable cause) {
+        if (!complete) {
+            failure = cause instanceof IOException ? (IOException) cause :
+                new IOException("Error receiving response content: " + cause.getMessage(), cause);
+            notifyAll();
+        }
+    }
+
+    @Override
+    public synchronized int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        final int count = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public synchronized int available() throws IOException {
+        int available = current != null ? current.length - position : 0;
+        for (byte[] chunk : chunks) {
+            available += chunk.length;
+        }
+        return available;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        // discard any remaining content, the exchange may still be writing
+        closed = true;
+        chunks.clear();
+        buffered = 0;
+        current = null;
+        notifyAll();
+    }
+
+    // waits for content, returns false on end of stream
+    private boolean nextChunk() throws IOException {
+        while (current == null || position == current.length) {
+            if (closed) {
+                throw new IOException("Response stream closed");
+            }
+            if (!chunks.isEmpty()) {
+                current = chunks.removeFirst();
+                position = 0;
+                lastRead = System.currentTimeMillis();
+                // wake up the writer if it's waiting for space
+                buffered -= current.length;
+                notifyAll();
+            } else if (failure != null) {
+                throw failure;
+            } else if (complete) {
+                return false;
+            } else {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for response content");
+                }
+            }
+        }
+        return true;
+    }
+
+}
@@ -19,6 +19,7 @@ package org.fusesource.camel.component.salesforce.internal.client;
 import org.fusesource.camel.component.salesforce.api.SalesforceException;
 
 import java.io.InputStream;
+import java.util.List;
 
 public interface RestClient {
 
@@ -26,6 +27,40 @@ public interface RestClient {
         void onResponse(InputStream response, SalesforceException exception);
     }
 
+    /**
+     * Callback for metadata requests, that revalidates a cached response using its validators.
+     * Validators of a successful response are reported before {@link #onResponse(InputStream, SalesforceException)}.
+     */
+    public static interface ConditionalResponseCallback extends ResponseCallback {
+
+        // ETag of the cached response sent as If-None-Match, may be null
+        String getETag();
+
+        // Last-Modified date of the cached response sent as If-Modified-Since, may be null
+        String getLastModified();
+
+        void onValidators(String eTag, String lastModified);
+
+        void onNotModified();
+    }
+
+    /**
+     * Callback for idempotent reads, that are hedged with a duplicate request according to a {@link HedgePolicy}.
+     * The first successful response wins, and the other request is cancelled.
+     */
+    public static interface HedgedResponseCallback extends ResponseCallback {
+
+        HedgePolicy getHedgePolicy();
+    }
+
+    /**
+     * Callback that only hands off the response, without reading it, and never blocks.
+     * It is invoked on the HTTP client thread instead of the callback executor,
+     * so that it can't queue behind callbacks that are waiting for its response.
+     */
+    public static interface DirectResponseCallback extends ResponseCallback {
+    }
+
     /**
      * Lists summary information about each API version currently available,
      * including the version, label, and a link to each version's root.
@@ -174,4 +209,53 @@ public interface RestClient {
     */
     void search(String soslQuery, ResponseCallback callback);
 
+    /**
+     * Executes up to 25 independent subrequests in a single Composite Batch request.
+     * Only supported for JSON, and API version 34.0 or later.
+     *
+     * @param batchRequest request entity with subrequests
+     * @param callback {@link ResponseCallback} to handle response or exception
+    */
+    void compositeBatch(InputStream batchRequest, ResponseCallback callback);
+
+    /**
+     * Creates up to 200 records in a single SObject Collections request.
+     * Only supported for JSON, and API version 42.0 or later.
+     *
+     * @param collection request entity with allOrNone flag and records
+     * @param callback {@link ResponseCallback} to handle response or exception
+    */
+    void createSObjectCollection(InputStream collection, ResponseCallback callback);
+
+    /**
+     * Updates up to 200 records in a single SObject Collections request.
+     * Only supported for JSON, and API version 42.0 or later.
+     *
+     * @param collection request entity with allOrNone flag and records, including record ids
+     * @param callback {@link ResponseCallback} to handle response or exception
+    */
+    void updateSObjectCollection(InputStream collection, ResponseCallback callback);
+
+    /**
+     * Creates or updates up to 200 records based on the value of a specified external ID field.
+     * Only supported for JSON, and API version 46.0 or later.
+     *
+     * @param sObjectName specified object name
+     * @param fieldName external field name
+     * @param collection request entity with allOrNone flag and records, including external ids
+     * @param callback {@link ResponseCallback} to handle response or exception
+    */
+    void upsertSObjectCollection(String sObjectName, String fieldName, InputStream collection,
+                                 ResponseCallback callback);
+
+    /**
+     * Deletes up to 200 records in a single SObject Collections request.
+     * Only supported for API version 42.0 or later.
+     *
+     * @param ids record ids
+     * @param allOrNone roll back all deletes if any delete fails
+     * @param callback {@link ResponseCallback} to handle response or exception
+    */
+    void deleteSObjectCollection(List<String> ids, boolean allOrNone, ResponseCallback callback);
+
 }
@@ -0,0 +1,224 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedOperation;
+import org.apache.camel.api.management.ManagedResource;
+import org.eclipse.jetty.http.HttpMethods;
+import org.eclipse.jetty.http.HttpStatus;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.api.dto.RestError;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which failed requests are retried, and how long to wait before every retry.
+ * <p>
+ * Delays grow exponentially from the initial delay up to the max delay, with random jitter so that
+ * requests that failed together are not retried together. Retries are also limited by a budget,
+ * which grows by the budget ratio for every request, so that an outage doesn't multiply the load.
+ * </p>
+ * <p>
+ * Requests that the server certainly didn't process, i.e. connection failures, 503 responses and
+ * SERVER_UNAVAILABLE or UNABLE_TO_LOCK_ROW errors, are retried for any method.
+ * Other transient failures, i.e. expired requests and I/O errors, are only retried for idempotent methods.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce Request Retry Policy")
+public class RetryPolicy {
+
+    private static final Set<String> RETRYABLE_ERROR_CODES = new HashSet<String>(Arrays.asList(
+        "SERVER_UNAVAILABLE", "UNABLE_TO_LOCK_ROW"));
+    private static final Set<String> IDEMPOTENT_METHODS = new HashSet<String>(Arrays.asList(
+        HttpMethods.GET, HttpMethods.HEAD, HttpMethods.PUT, HttpMethods.DELETE));
+
+    // retries allowed without any requests, and max balance of the budget
+    private static final double RETRY_BUDGET_CAPACITY = 10;
+
+    private final int maxRetries;
+    private final long initialDelay;
+    private final long maxDelay;
+    private final double budgetRatio;
+    private final ScheduledExecutorService scheduler;
+
+    private final Random random = new Random();
+    private double budget = RETRY_BUDGET_CAPACITY;
+
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong exhaustedCount = new AtomicLong();
+    private final AtomicLong budgetExhaustedCount = new AtomicLong();
+
+    /**
+     * @param maxRetries max retries of a request
+     * @param initialDelay delay in millis before the first retry
+     * @param maxDelay max delay in millis before a retry
+     * @param budgetRatio retries earned by every request, the budget holds up to 10 retries
+     * @param scheduler scheduler for retries
+     */
+    public RetryPolicy(int maxRetries, long initialDelay, long maxDelay, double budgetRatio,
+                       ScheduledExecutorService scheduler) {
+        if (maxRetries < 0 || initialDelay < 0 || maxDelay < initialDelay) {
+            throw new IllegalArgumentException(String.format(
+                "Invalid retry policy with max retries %s, initial delay %s and max delay %s",
+                maxRetries, initialDelay, maxDelay));
+        }
+        if (budgetRatio < 0) {
+            throw new IllegalArgumentException("Retry budget ratio must not be negative, found " + budgetRatio);
+        }
+        if (scheduler == null) {
+            throw new IllegalArgumentException("Scheduler is required for retries");
+        }
+        this.maxRetries = maxRetries;
+        this.initialDelay = initialDelay;
+        this.maxDelay = maxDelay;
+        this.budgetRatio = budgetRatio;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Records a new request, which adds to the retry budget.
+     */
+    public synchronized void onRequest() {
+        budget = Math.min(RETRY_BUDGET_CAPACITY, budget + budgetRatio);
+    }
+
+    /**
+     * Records a successful response to a retried request.
+     */
+    public void onRetrySuccess() {
+        successCount.incrementAndGet();
+    }
+
+    /**
+     * Returns whether a response error means that the server rejected the request without processing it.
+     *
+     * @param statusCode HTTP status of the response
+     * @param restException exception with Salesforce errors in the response, may be null
+     * @return true if the request can be retried regardless of its method
+     */
+    public static boolean isRejected(int statusCode, SalesforceException restException) {
+        if (statusCode == HttpStatus.SERVICE_UNAVAILABLE_503) {
+            return true;
+        }
+        if (restException != null && restException.getErrors() != null) {
+            for (RestError error : restException.getErrors()) {
+                if (RETRYABLE_ERROR_CODES.contains(error.getErrorCode())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decides whether to retry a failed request, and takes a retry from the budget if so.
+     *
+     * @param method HTTP method of the request
+     * @param rejected true if the server certainly didn't process the request
+     * @param retries number of times the request has already been retried
+     * @return delay in millis before retrying the request, or -1 if it must not be retried
+     */
+    public long retryDelay(String method, boolean rejected, int retries) {
+        if (!rejected && !IDEMPOTENT_METHODS.contains(method)) {
+            return -1;
+        }
+        if (retries >= maxRetries) {
+            exhaustedCount.incrementAndGet();
+            return -1;
+        }
+        synchronized (this) {
+            if (budget < 1.0) {
+                budgetExhaustedCount.incrementAndGet();
+                return -1;
+            }
+            budget -= 1.0;
+        }
+        retryCount.incrementAndGet();
+
+        // capped exponential backoff, with the upper half of the delay randomized
+        final long delay = Math.min(maxDelay, initialDelay << Math.min(retries, 30));
+        final long jitter = delay / 2;
+        synchronized (random) {
+            return delay - jitter + (jitter > 0 ? (long) (random.nextDouble() * (jitter + 1)) : 0);
+        }
+    }
+
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    @ManagedAttribute(description = "Max retries of a request")
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    @ManagedAttribute(description = "Delay in millis before the first retry")
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    @ManagedAttribute(description = "Max delay in millis before a retry")
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    @ManagedAttribute(description = "Retries allowed per request")
+    public double getBudgetRatio() {
+        return budgetRatio;
+    }
+
+    @ManagedAttribute(description = "Retries currently allowed by the budget")
+    public synchronized double getBudget() {
+        return budget;
+    }
+
+    @ManagedAttribute(description = "Requests retried")
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    @ManagedAttribute(description = "Retried requests that succeeded")
+    public long getSuccessCount() {
+        return successCount.get();
+    }
+
+    @ManagedAttribute(description = "Requests that failed after max retries")
+    public long getExhaustedCount() {
+        return exhaustedCount.get();
+    }
+
+    @ManagedAttribute(description = "Requests not retried for lack of budget")
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.get();
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void resetStatistics() {
+        retryCount.set(0);
+        successCount.set(0);
+        exhaustedCount.set(0);
+        budgetExhaustedCount.set(0);
+    }
+
+}
@@ -0,0 +1,339 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.eclipse.jetty.http.HttpStatus;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Collects concurrent getSObject requests for the same SObject and fields for a short linger time,
+ * and sends them as a single SOQL query with an Id IN clause.
+ * <p>
+ * Query records are demultiplexed back to the callback of every request, with the same response entity
+ * as the individual REST call, or a not found exception for missing records.
+ * Requests without fields are sent individually, since SOQL can't select all fields. Only supported for JSON.
+ * A batch is sent with the earliest deadline of its requests.
+ * Callbacks for every Id in a batch are handed to the callback executor, so that they run in parallel.
+ * </p>
+ */
+public class SObjectLookupBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SObjectLookupBatcher.class);
+
+    // keeps the query URL well within limits, and the result in a single page
+    public static final int MAX_BATCH = 200;
+
+    private static final Pattern SOBJECT_ID = Pattern.compile("[a-zA-Z0-9]{15}([a-zA-Z0-9]{3})?");
+    private static final Pattern FIELD_NAME = Pattern.compile("[a-zA-Z][a-zA-Z0-9_.]*");
+    // case sensitive Id, 18 character Ids add a case insensitive checksum
+    private static final int ID_LENGTH = 15;
+    private static final String ID_FIELD = "Id";
+
+    private final RestClient restClient;
+    private final long linger;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Executor callbackExecutor;
+    private final ObjectMapper objectMapper;
+
+    // pending batches by SObject name and fields
+    private final Map<String, Batch> pending = new HashMap<String, Batch>();
+
+    public SObjectLookupBatcher(RestClient restClient, long linger, int maxBatchSize,
+                                ScheduledExecutorService scheduler, Executor callbackExecutor) {
+        if (maxBatchSize < 1 || maxBatchSize > MAX_BATCH) {
+            throw new IllegalArgumentException("Lookup batch size must be between 1 and "
+                + MAX_BATCH + ", found " + maxBatchSize);
+        }
+        this.restClient = restClient;
+        this.linger = linger;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = scheduler;
+        this.callbackExecutor = callbackExecutor;
+        this.objectMapper = new ObjectMapper();
+    }
+
+    public void getSObject(String sObjectName, String id, String[] fields, RestClient.ResponseCallback callback) {
+        if (!isBatchable(sObjectName, id, fields)) {
+            restClient.getSObject(sObjectName, id, fields, callback);
+            return;
+        }
+
+        final String key = sObjectName + ":" + join(fields);
+        Batch batch = null;
+        synchronized (this) {
+            Batch current = pending.get(key);
+            if (current == null) {
+                current = new Batch(key, sObjectName, fields);
+                pending.put(key, current);
+                // first entry in this batch, send it when the linger time is up
+                final Batch scheduled = current;
+                current.scheduledFlush = scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(scheduled);
+                    }
+                }, linger, TimeUnit.MILLISECONDS);
+            }
+            current.add(id, callback, AbstractClientBase.getCurrentDeadline());
+            if (current.size() >= maxBatchSize) {
+                // batch is full, send it right away
+                batch = take(current);
+            }
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+
+    private static boolean isBatchable(String sObjectName, String id, String[] fields) {
+        if (fields == null || fields.length == 0 || id == null || !SOBJECT_ID.matcher(id).matches() ||
+            !FIELD_NAME.matcher(sObjectName).matches()) {
+            return false;
+        }
+        for (String field : fields) {
+            if (!FIELD_NAME.matcher(field.trim()).matches()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sends pending requests right away.
+     */
+    public void flush() {
+        final List<Batch> batches;
+        synchronized (this) {
+            batches = new ArrayList<Batch>(pending.values());
+            for (Batch batch : batches) {
+                take(batch);
+            }
+        }
+        for (Batch batch : batches) {
+            send(batch);
+        }
+    }
+
+    private void flush(Batch batch) {
+        synchronized (this) {
+            // may have been sent when it filled up
+            if (pending.get(batch.key) != batch) {
+                return;
+            }
+            take(batch);
+        }
+        send(batch);
+    }
+
+    private Batch take(Batch batch) {
+        batch.scheduledFlush.cancel(false);
+        pending.remove(batch.key);
+        return batch;
+    }
+
+    private void send(final Batch batch) {
+        LOG.debug("Sending lookup query for {} {} records", batch.size(), batch.sObjectName);
+
+        // may be sent from the flush scheduler, or the thread of another exchange
+        final long previousDeadline = AbstractClientBase.setCurrentDeadline(batch.deadline);
+        try {
+            restClient.query(batch.getQuery(), new RestClient.ResponseCallback() {
+                @Override
+                public void onResponse(InputStream response, SalesforceException exception) {
+                    if (exception != null) {
+                        failAll(batch, exception);
+                    } else {
+                        processQueryResponse(batch, response);
+                    }
+                }
+            });
+        } finally {
+            AbstractClientBase.setCurrentDeadline(previousDeadline);
+        }
+    }
+
+    private void processQueryResponse(Batch batch, InputStream response) {
+        final JsonNode records;
+        try {
+            try {
+                records = objectMapper.readTree(response).get("records");
+            } finally {
+                response.close();
+            }
+        } catch (IOException e) {
+            failAll(batch, new SalesforceException("Error parsing lookup query response: " + e.getMessage(), e));
+            return;
+        }
+
+        if (records != null) {
+            for (JsonNode record : records) {
+                final List<RestClient.ResponseCallback> callbacks =
+                    batch.callbacks.remove(normalize(record.path(ID_FIELD).getTextValue()));
+                if (callbacks == null) {
+                    continue;
+                }
+                try {
+                    // same response entity as the REST call
+                    onResponse(callbacks, objectMapper.writeValueAsBytes(record), null);
+                } catch (IOException e) {
+                    onResponse(callbacks, null, new SalesforceException(
+                        "Error writing lookup query record: " + e.getMessage(), e));
+                }
+            }
+        }
+
+        // anything left over was not found
+        for (Map.Entry<String, List<RestClient.ResponseCallback>> entry : batch.callbacks.entrySet()) {
+            onResponse(entry.getValue(), null, new SalesforceException(
+                String.format("%s not found with Id %s", batch.sObjectName, entry.getKey()),
+                HttpStatus.NOT_FOUND_404));
+        }
+    }
+
+    private void failAll(Batch batch, SalesforceException exception) {
+        for (List<RestClient.ResponseCallback> idCallbacks : batch.callbacks.values()) {
+            onResponse(idCallbacks, null, exception);
+        }
+    }
+
+    // hands off the callbacks for an Id to the callback executor if set
+    private void onResponse(final List<RestClient.ResponseCallback> callbacks, final byte[] entity,
+                            final SalesforceException exception) {
+        if (callbackExecutor != null) {
+            try {
+                callbackExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        complete(callbacks, entity, exception);
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                // executor is saturated or shutting down, run the callbacks on this thread instead
+                LOG.debug("Callback executor rejected lookup query result: {}", e.getMessage());
+            }
+        }
+        complete(callbacks, entity, exception);
+    }
+
+    private static void complete(List<RestClient.ResponseCallback> callbacks, byte[] entity,
+                                 SalesforceException exception) {
+        for (RestClient.ResponseCallback callback : callbacks) {
+            try {
+                callback.onResponse(entity != null ? new ByteArrayInputStream(entity) : null, exception);
+            } catch (Throwable t) {
+                // don't let a failing callback affect the rest of the batch
+                LOG.warn("Unexpected error processing lookup query result: " + t.getMessage(), t);
+            }
+        }
+    }
+
+    private static String normalize(String id) {
+        return id != null && id.length() > ID_LENGTH ? id.substring(0, ID_LENGTH) : id;
+    }
+
+    private static String join(String[] values) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(values[i].trim());
+        }
+        return builder.toString();
+    }
+
+    private static final class Batch {
+        private final String key;
+        private final String sObjectName;
+        private final String[] fields;
+        // callbacks by 15 character Id, in request order
+        private final Map<String, List<RestClient.ResponseCallback>> callbacks =
+            new LinkedHashMap<String, List<RestClient.ResponseCallback>>();
+        private int size;
+        // earliest deadline of the requests in the batch, 0 if none has one
+        private long deadline;
+        private ScheduledFuture<?> scheduledFlush;
+
+        private Batch(String key, String sObjectName, String[] fields) {
+            this.key = key;
+            this.sObjectName = sObjectName;
+            this.fields = fields;
+        }
+
+        private void add(String id, RestClient.ResponseCallback callback, long requestDeadline) {
+            final String normalizedId = normalize(id);
+            List<RestClient.ResponseCallback> idCallbacks = callbacks.get(normalizedId);
+            if (idCallbacks == null) {
+                idCallbacks = new ArrayList<RestClient.ResponseCallback>(1);
+                callbacks.put(normalizedId, idCallbacks);
+            }
+            idCallbacks.add(callback);
+            size++;
+            if (requestDeadline > 0 && (deadline == 0 || requestDeadline < deadline)) {
+                deadline = requestDeadline;
+            }
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private String getQuery() {
+            final StringBuilder query = new StringBuilder("SELECT ");
+            // records are matched to requests by Id
+            boolean hasId = false;
+            for (String field : fields) {
+                hasId |= ID_FIELD.equalsIgnoreCase(field.trim());
+            }
+            if (!hasId) {
+                query.append(ID_FIELD).append(',');
+            }
+            query.append(join(fields)).append(" FROM ").append(sObjectName).append(" WHERE Id IN (");
+            boolean first = true;
+            for (String id : callbacks.keySet()) {
+                if (!first) {
+                    query.append(',');
+                }
+                query.append('\'').append(id).append('\'');
+                first = false;
+            }
+            return query.append(')').toString();
+        }
+    }
+
+}
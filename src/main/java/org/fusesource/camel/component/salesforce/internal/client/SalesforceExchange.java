@@ -17,6 +17,11 @@
 package org.fusesource.camel.component.salesforce.internal.client;
 
 import org.eclipse.jetty.client.ContentExchange;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.io.Buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * Wraps a Salesforce Http Exchange
@@ -25,6 +30,20 @@ public class SalesforceExchange extends ContentExchange {
 
     private AbstractClientBase client;
 
+    // set once a successful response is being streamed to the response callback
+    private ResponseContentStream responseStream;
+
+    // response headers of an identical request in flight, when this exchange is not sent itself
+    private HttpFields sharedResponseFields;
+
+    // absolute deadline in millis since the epoch, 0 if the exchange has no deadline
+    private volatile long deadline;
+
+    public SalesforceExchange() {
+        // keep response headers, for validators of cached responses
+        super(true);
+    }
+
     public AbstractClientBase getClient() {
         return client;
     }
@@ -33,4 +52,116 @@ public class SalesforceExchange extends ContentExchange {
         this.client = client;
     }
 
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public boolean isDeadlineExceeded() {
+        return deadline > 0 && System.currentTimeMillis() >= deadline;
+    }
+
+    /**
+     * Limits the timeout of the next attempt to the time left until the deadline, if the exchange has one.
+     * Must be called before the exchange is sent or resent.
+     *
+     * @param timeout timeout of the HTTP client, 0 if it has none
+     * @return false if the deadline has passed
+     */
+    public boolean applyDeadline(long timeout) {
+        if (deadline <= 0) {
+            return true;
+        }
+        final long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return false;
+        }
+        setTimeout(timeout > 0 ? Math.min(remaining, timeout) : remaining);
+        return true;
+    }
+
+    /**
+     * Switches the rest of the response content from the internal buffer to a stream.
+     * Must be called before any response content is received, i.e. from onResponseHeaderComplete().
+     *
+     * @return stream that receives response content as it arrives
+     */
+    public synchronized InputStream streamResponseContent() {
+        responseStream = new ResponseContentStream();
+        return responseStream;
+    }
+
+    public synchronized boolean isStreamingResponse() {
+        return responseStream != null;
+    }
+
+    public synchronized void setSharedResponseFields(HttpFields sharedResponseFields) {
+        this.sharedResponseFields = sharedResponseFields;
+    }
+
+    @Override
+    public synchronized HttpFields getResponseFields() {
+        return sharedResponseFields != null ? sharedResponseFields : super.getResponseFields();
+    }
+
+    @Override
+    protected synchronized void onRetry() throws IOException {
+        // don't merge response headers of a failed attempt with those of the next response
+        try {
+            super.getResponseFields().clear();
+        } catch (IllegalStateException ignored) {
+            // no response headers were received
+        }
+        super.onRetry();
+    }
+
+    @Override
+    protected void onResponseContent(Buffer content) throws IOException {
+        final ResponseContentStream stream;
+        synchronized (this) {
+            stream = responseStream;
+        }
+        if (stream != null) {
+            // may block waiting for the reader, without locking the exchange, so that it can still expire
+            stream.write(content);
+        } else {
+            super.onResponseContent(content);
+        }
+    }
+
+    @Override
+    protected synchronized void onResponseComplete() throws IOException {
+        super.onResponseComplete();
+        if (responseStream != null) {
+            responseStream.complete();
+        }
+    }
+
+    @Override
+    protected synchronized void onConnectionFailed(Throwable x) {
+        super.onConnectionFailed(x);
+        if (responseStream != null) {
+            responseStream.fail(x);
+        }
+    }
+
+    @Override
+    protected synchronized void onException(Throwable x) {
+        super.onException(x);
+        if (responseStream != null) {
+            responseStream.fail(x);
+        }
+    }
+
+    @Override
+    protected synchronized void onExpire() {
+        super.onExpire();
+        if (responseStream != null) {
+            responseStream.fail(new IOException("Response expired"));
+        }
+    }
+
 }
@@ -69,7 +69,7 @@ public class SalesforceSecurityListener extends HttpEventListenerWrapper {
     @Override
     public void onRequestComplete() throws IOException {
         requestComplete = true;
-        if (checkExchangeComplete()) {
+        if (checkExchangeComplete(false)) {
             super.onRequestComplete();
         }
     }
@@ -77,12 +77,12 @@ public class SalesforceSecurityListener extends HttpEventListenerWrapper {
     @Override
     public void onResponseComplete() throws IOException {
         responseComplete = true;
-        if (checkExchangeComplete()) {
+        if (checkExchangeComplete(true)) {
             super.onResponseComplete();
         }
     }
 
-    private boolean checkExchangeComplete() throws IOException {
+    private boolean checkExchangeComplete(final boolean onResponse) throws IOException {
         if (retrying && requestComplete && responseComplete) {
             LOG.debug("Authentication Error, retrying: {}", exchange);
 
@@ -92,54 +92,83 @@ public class SalesforceSecurityListener extends HttpEventListenerWrapper {
             setDelegatingRequests(true);
             setDelegatingResponses(true);
 
-            try {
-                // get a new token and retry
-                currentToken = session.login(currentToken);
-
-                if (exchange instanceof SalesforceExchange) {
-                    final SalesforceExchange salesforceExchange = (SalesforceExchange) exchange;
-                    final AbstractClientBase client = salesforceExchange.getClient();
-
-                    // update client cache for this and future requests
-                    client.setAccessToken(currentToken);
-                    client.setInstanceUrl(session.getInstanceUrl());
-                    client.setAccessToken(exchange);
-                } else {
-                    exchange.addRequestHeader(HttpHeaders.AUTHORIZATION,
-                        "OAuth " + currentToken);
+            // get a new token and retry, without blocking this thread
+            // the exchange is parked in the session until the login completes
+            session.login(currentToken, new SalesforceSession.LoginCallback() {
+                @Override
+                public void onLoginComplete(String accessToken, SalesforceException ex) {
+                    if (ex == null) {
+                        retryExchange(accessToken);
+                    } else {
+                        // logging here, since login exception is not propagated!
+                        LOG.error(ex.getMessage(), ex);
+
+                        // the HTTP status and reason is pushed up
+                        setDelegationResult(false);
+                        try {
+                            if (onResponse) {
+                                SalesforceSecurityListener.super.onResponseComplete();
+                            } else {
+                                SalesforceSecurityListener.super.onRequestComplete();
+                            }
+                        } catch (IOException e) {
+                            onException(e);
+                        }
+                    }
                 }
+            });
 
-                // TODO handle a change in Salesforce instanceUrl, right now we retry with the same destination
-                destination.resend(exchange);
+            // resending, exchange is not done
+            return false;
+        }
+
+        return true;
+    }
 
-                // resending, exchange is not done
-                return false;
+    private void retryExchange(String accessToken) {
+        currentToken = accessToken;
 
-            } catch (SalesforceException e) {
-                // logging here, since login exception is not propagated!
-                LOG.error(e.getMessage(), e);
+        if (exchange instanceof SalesforceExchange) {
+            final SalesforceExchange salesforceExchange = (SalesforceExchange) exchange;
+            final AbstractClientBase client = salesforceExchange.getClient();
 
-                // the HTTP status and reason is pushed up
-                setDelegationResult(false);
-            }
+            // update client cache for this and future requests
+            client.setAccessToken(currentToken);
+            client.setInstanceUrl(session.getInstanceUrl());
+            client.setAccessToken(exchange);
+        } else {
+            exchange.addRequestHeader(HttpHeaders.AUTHORIZATION,
+                "OAuth " + currentToken);
         }
 
-        return true;
+        // the exchange may have run out of time while logging in
+        if (exchange instanceof SalesforceExchange &&
+            !((SalesforceExchange) exchange).applyDeadline(destination.getHttpClient().getTimeout())) {
+            onException(new IOException("Deadline exceeded while logging in"));
+            return;
+        }
+
+        // TODO handle a change in Salesforce instanceUrl, right now we retry with the same destination
+        try {
+            destination.resend(exchange);
+        } catch (IOException e) {
+            onException(e);
+        }
     }
 
     @Override
     public void onRetry() {
-        // ignore retries from other interceptors
+        // only count retries after authentication errors, other retries are not limited here
         if (retrying) {
             retrying = false;
             retries++;
 
             setDelegatingRequests(true);
             setDelegatingResponses(true);
-
-            requestComplete = false;
-            responseComplete = false;
         }
+        // every retry is a new attempt
+        requestComplete = false;
+        responseComplete = false;
         super.onRetry();
     }
 
@@ -0,0 +1,103 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedResource;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpDestination;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+/**
+ * A class of traffic, i.e. interactive REST requests, Bulk API requests or Streaming API long polls,
+ * and the HttpClient it is sent with.
+ * <p>
+ * Lanes with their own HttpClient have their own connections and threads, so that long polls and
+ * Bulk API uploads can't use up the connections of interactive requests.
+ * Connection counts are for the Salesforce instance, which all lanes send requests to.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce Traffic Lane")
+public class TrafficLane {
+
+    private final String name;
+    private final HttpClient httpClient;
+    private final SalesforceSession session;
+
+    public TrafficLane(String name, HttpClient httpClient, SalesforceSession session) {
+        this.name = name;
+        this.httpClient = httpClient;
+        this.session = session;
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @ManagedAttribute(description = "Lane name")
+    public String getName() {
+        return name;
+    }
+
+    @ManagedAttribute(description = "Max connections per address")
+    public int getMaxConnectionsPerAddress() {
+        return httpClient.getMaxConnectionsPerAddress();
+    }
+
+    @ManagedAttribute(description = "Open connections to the Salesforce instance")
+    public int getOpenConnections() {
+        final HttpDestination destination = getInstanceDestination();
+        return destination != null ? destination.getConnections() : 0;
+    }
+
+    @ManagedAttribute(description = "Idle connections to the Salesforce instance")
+    public int getIdleConnections() {
+        final HttpDestination destination = getInstanceDestination();
+        return destination != null ? destination.getIdleConnections() : 0;
+    }
+
+    @ManagedAttribute(description = "Connections to the Salesforce instance in use")
+    public int getActiveConnections() {
+        final HttpDestination destination = getInstanceDestination();
+        return destination != null ? destination.getConnections() - destination.getIdleConnections() : 0;
+    }
+
+    @ManagedAttribute(description = "HTTP client threads")
+    public int getThreads() {
+        final ThreadPool threadPool = httpClient.getThreadPool();
+        return threadPool != null ? threadPool.getThreads() : 0;
+    }
+
+    @ManagedAttribute(description = "Idle HTTP client threads")
+    public int getIdleThreads() {
+        final ThreadPool threadPool = httpClient.getThreadPool();
+        return threadPool != null ? threadPool.getIdleThreads() : 0;
+    }
+
+    @ManagedAttribute(description = "Max HTTP client threads")
+    public int getMaxThreads() {
+        final ThreadPool threadPool = httpClient.getThreadPool();
+        return threadPool instanceof QueuedThreadPool ? ((QueuedThreadPool) threadPool).getMaxThreads() : -1;
+    }
+
+    // existing destination for the instance, null before login or before the lane sent a request to it
+    private HttpDestination getInstanceDestination() {
+        return HttpDestinations.find(httpClient, session.getInstanceUrl());
+    }
+
+}
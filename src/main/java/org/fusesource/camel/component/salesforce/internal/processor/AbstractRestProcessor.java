@@ -18,18 +18,35 @@ package org.fusesource.camel.component.salesforce.internal.processor;
 
 import org.apache.camel.AsyncCallback;
 import org.apache.camel.Exchange;
-import org.apache.camel.util.ServiceHelper;
+import org.fusesource.camel.component.salesforce.SalesforceComponent;
 import org.fusesource.camel.component.salesforce.SalesforceEndpoint;
+import org.fusesource.camel.component.salesforce.SalesforceEndpointConfig;
 import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.api.dto.AbstractDTOBase;
+import org.fusesource.camel.component.salesforce.api.dto.AbstractQueryRecordsBase;
 import org.fusesource.camel.component.salesforce.api.dto.AbstractSObjectBase;
+import org.fusesource.camel.component.salesforce.api.dto.Attributes;
+import org.fusesource.camel.component.salesforce.api.dto.composite.SObjectCollection;
+import org.fusesource.camel.component.salesforce.internal.OperationName;
 import org.fusesource.camel.component.salesforce.internal.PayloadFormat;
-import org.fusesource.camel.component.salesforce.internal.client.DefaultRestClient;
+import org.fusesource.camel.component.salesforce.internal.client.AbstractClientBase;
+import org.fusesource.camel.component.salesforce.internal.client.CompositeBatcher;
+import org.fusesource.camel.component.salesforce.internal.client.HedgePolicy;
 import org.fusesource.camel.component.salesforce.internal.client.RestClient;
+import org.fusesource.camel.component.salesforce.internal.client.SObjectLookupBatcher;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.fusesource.camel.component.salesforce.SalesforceEndpointConfig.*;
 
@@ -37,28 +54,111 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
 
     protected static final String RESPONSE_CLASS = AbstractRestProcessor.class.getName() + ".responseClass";
 
+    private final PayloadFormat payloadFormat;
     private RestClient restClient;
     private Map<String, Class<?>> classMap;
 
+    // batches create, update and delete requests if enabled
+    private CompositeBatcher compositeBatcher;
+    // batches getSObject requests into queries if enabled
+    private SObjectLookupBatcher lookupBatcher;
+    private ScheduledExecutorService batchScheduler;
+    // hedges slow reads if enabled
+    private HedgePolicy hedgePolicy;
+    private ScheduledExecutorService hedgeScheduler;
+
     public AbstractRestProcessor(SalesforceEndpoint endpoint) throws SalesforceException {
         super(endpoint);
 
-        final PayloadFormat payloadFormat = endpoint.getConfiguration().getPayloadFormat();
-
-        this.restClient = new DefaultRestClient(httpClient, endpointConfigMap.get(API_VERSION),
-            payloadFormat.toString().toLowerCase() , session);
-
+        this.payloadFormat = endpoint.getConfiguration().getPayloadFormat();
         this.classMap = endpoint.getComponent().getClassMap();
     }
 
     @Override
     public void start() throws Exception {
-        ServiceHelper.startService(restClient);
+        // use a client shared with other endpoints with the same API version and format
+        restClient = endpoint.getComponent().getClientRegistry().acquireRestClient(httpClient,
+            endpointConfigMap.get(API_VERSION), payloadFormat);
+
+        final SalesforceEndpointConfig config = endpoint.getConfiguration();
+        if (config.getCompositeBatchLinger() > 0 && isBatchable(operationName)) {
+            if (payloadFormat != PayloadFormat.JSON) {
+                throw new IllegalArgumentException("Composite batching is only supported for JSON");
+            }
+            batchScheduler = endpoint.getCamelContext().getExecutorServiceManager()
+                .newSingleThreadScheduledExecutor(this, "SalesforceCompositeBatch");
+            compositeBatcher = new CompositeBatcher(restClient, endpointConfigMap.get(API_VERSION),
+                config.getCompositeBatchLinger(), config.getCompositeBatchSize(), batchScheduler,
+                endpoint.getComponent().getCallbackExecutor());
+        }
+        if (config.getLookupBatchLinger() > 0 && operationName == OperationName.GET_SOBJECT) {
+            if (payloadFormat != PayloadFormat.JSON) {
+                throw new IllegalArgumentException("Lookup batching is only supported for JSON");
+            }
+            batchScheduler = endpoint.getCamelContext().getExecutorServiceManager()
+                .newSingleThreadScheduledExecutor(this, "SalesforceLookupBatch");
+            lookupBatcher = new SObjectLookupBatcher(restClient,
+                config.getLookupBatchLinger(), config.getLookupBatchSize(), batchScheduler,
+                endpoint.getComponent().getCallbackExecutor());
+        }
+        if (config.getHedgeDelayPercentile() > 0 && isHedgeable(operationName)) {
+            hedgeScheduler = endpoint.getCamelContext().getExecutorServiceManager()
+                .newSingleThreadScheduledExecutor(this, "SalesforceHedge");
+            hedgePolicy = new HedgePolicy(config.getHedgeDelayPercentile(), config.getHedgeMinDelay(),
+                config.getHedgeBudgetRatio(), hedgeScheduler);
+        }
+    }
+
+    private static boolean isHedgeable(OperationName operationName) {
+        switch (operationName) {
+            case GET_SOBJECT:
+            case GET_SOBJECT_WITH_ID:
+            case QUERY:
+            case QUERY_MORE:
+            case SEARCH:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isBatchable(OperationName operationName) {
+        switch (operationName) {
+            case CREATE_SOBJECT:
+            case UPDATE_SOBJECT:
+            case DELETE_SOBJECT:
+                return true;
+
+            default:
+                return false;
+        }
     }
 
     @Override
     public void stop() throws Exception {
-        ServiceHelper.stopService(restClient);
+        if (compositeBatcher != null) {
+            // send pending requests
+            compositeBatcher.flush();
+            compositeBatcher = null;
+        }
+        if (lookupBatcher != null) {
+            lookupBatcher.flush();
+            lookupBatcher = null;
+        }
+        if (batchScheduler != null) {
+            endpoint.getCamelContext().getExecutorServiceManager().shutdown(batchScheduler);
+            batchScheduler = null;
+        }
+        if (hedgeScheduler != null) {
+            endpoint.getCamelContext().getExecutorServiceManager().shutdown(hedgeScheduler);
+            hedgeScheduler = null;
+            hedgePolicy = null;
+        }
+        if (restClient != null) {
+            endpoint.getComponent().getClientRegistry().release(restClient);
+            restClient = null;
+        }
     }
 
     @Override
@@ -83,51 +183,15 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
             // call Operation using REST client
             switch (operationName) {
                 case GET_VERSIONS:
-                    restClient.getVersions(new RestClient.ResponseCallback() {
-                        @Override
-                        public void onResponse(InputStream response, SalesforceException exception) {
-                            // process response entity and create out message
-                            processResponse(exchange, response, exception, callback);
-                        }
-                    });
-                    break;
-
                 case GET_RESOURCES:
-                    restClient.getResources(new RestClient.ResponseCallback() {
-                        @Override
-                        public void onResponse(InputStream response, SalesforceException exception) {
-                            processResponse(exchange, response, exception, callback);
-                        }
-                    });
-                    break;
-
                 case GET_GLOBAL_OBJECTS:
-                    restClient.getGlobalObjects(new RestClient.ResponseCallback() {
-                        @Override
-                        public void onResponse(InputStream response, SalesforceException exception) {
-                            processResponse(exchange, response, exception, callback);
-                        }
-                    });
+                    getMetadata(exchange, callback, null);
                     break;
 
                 case GET_BASIC_INFO:
-                    String sObjectName = getParameter(SOBJECT_NAME, exchange, USE_BODY, NOT_OPTIONAL);
-                    restClient.getBasicInfo(sObjectName, new RestClient.ResponseCallback() {
-                        @Override
-                        public void onResponse(InputStream response, SalesforceException exception) {
-                            processResponse(exchange, response, exception, callback);
-                        }
-                    });
-                    break;
-
                 case GET_DESCRIPTION:
-                    sObjectName = getParameter(SOBJECT_NAME, exchange, USE_BODY, NOT_OPTIONAL);
-                    restClient.getDescription(sObjectName, new RestClient.ResponseCallback() {
-                        @Override
-                        public void onResponse(InputStream response, SalesforceException exception) {
-                            processResponse(exchange, response, exception, callback);
-                        }
-                    });
+                    String sObjectName = getParameter(SOBJECT_NAME, exchange, USE_BODY, NOT_OPTIONAL);
+                    getMetadata(exchange, callback, sObjectName);
                     break;
 
                 case GET_SOBJECT:
@@ -154,13 +218,24 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                         fields = fieldsValue.split(",");
                     }
 
-                    restClient.getSObject(sObjectName, sObjectId, fields, new RestClient.ResponseCallback() {
+                    final String recordKey = getRecordKey(sObjectName, sObjectId, fieldsValue);
+                    if (processCachedRecord(exchange, recordKey, callback)) {
+                        break;
+                    }
+                    final RestClient.ResponseCallback recordCallback = getRecordCallback(exchange, recordKey,
+                        sObjectName, sObjectId, callback);
+                    final RestClient.ResponseCallback responseCallback = new RestClient.ResponseCallback() {
                         @Override
                         public void onResponse(InputStream response, SalesforceException exception) {
-                            processResponse(exchange, response, exception, callback);
+                            recordCallback.onResponse(response, exception);
                             restoreFields(exchange, sObjectBase, sObjectId, null, null);
                         }
-                    });
+                    };
+                    if (lookupBatcher != null) {
+                        lookupBatcher.getSObject(sObjectName, sObjectId, fields, responseCallback);
+                    } else {
+                        restClient.getSObject(sObjectName, sObjectId, fields, hedged(responseCallback));
+                    }
 
                     break;
                 }
@@ -175,13 +250,17 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                         sObjectName = getParameter(SOBJECT_NAME, exchange, IGNORE_BODY, NOT_OPTIONAL);
                     }
 
-                    restClient.createSObject(sObjectName, getRequestStream(exchange),
-                        new RestClient.ResponseCallback() {
+                    final RestClient.ResponseCallback responseCallback = new RestClient.ResponseCallback() {
                         @Override
                         public void onResponse(InputStream response, SalesforceException exception) {
                             processResponse(exchange, response, exception, callback);
                         }
-                    });
+                    };
+                    if (compositeBatcher != null) {
+                        compositeBatcher.createSObject(sObjectName, getRequestStream(exchange), responseCallback);
+                    } else {
+                        restClient.createSObject(sObjectName, getRequestStream(exchange), responseCallback);
+                    }
 
                     break;
                 }
@@ -203,14 +282,21 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                     }
 
                     final String finalsObjectId = sObjectId;
-                    restClient.updateSObject(sObjectName, sObjectId, getRequestStream(exchange),
-                        new RestClient.ResponseCallback() {
-                            @Override
-                            public void onResponse(InputStream response, SalesforceException exception) {
-                                processResponse(exchange, response, exception, callback);
-                                restoreFields(exchange, sObjectBase, finalsObjectId, null, null);
-                            }
-                        });
+                    final RestClient.ResponseCallback responseCallback = new RestClient.ResponseCallback() {
+                        @Override
+                        public void onResponse(InputStream response, SalesforceException exception) {
+                            endpoint.getComponent().invalidateRecord(finalsObjectId);
+                            processResponse(exchange, response, exception, callback);
+                            restoreFields(exchange, sObjectBase, finalsObjectId, null, null);
+                        }
+                    };
+                    if (compositeBatcher != null) {
+                        compositeBatcher.updateSObject(sObjectName, sObjectId, getRequestStream(exchange),
+                            responseCallback);
+                    } else {
+                        restClient.updateSObject(sObjectName, sObjectId, getRequestStream(exchange),
+                            responseCallback);
+                    }
 
                     break;
                 }
@@ -229,13 +315,19 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                     }
                     final String sObjectId = sObjectIdValue;
 
-                    restClient.deleteSObject(sObjectName, sObjectId, new RestClient.ResponseCallback() {
+                    final RestClient.ResponseCallback responseCallback = new RestClient.ResponseCallback() {
                         @Override
                         public void onResponse(InputStream response, SalesforceException exception) {
+                            endpoint.getComponent().invalidateRecord(sObjectId);
                             processResponse(exchange, response, exception, callback);
                             restoreFields(exchange, sObjectBase, sObjectId, null, null);
                         }
-                    });
+                    };
+                    if (compositeBatcher != null) {
+                        compositeBatcher.deleteSObject(sObjectName, sObjectId, responseCallback);
+                    } else {
+                        restClient.deleteSObject(sObjectName, sObjectId, responseCallback);
+                    }
                     break;
                 }
 
@@ -261,14 +353,22 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                     setResponseClass(exchange, sObjectName);
 
                     final Object finalOldValue = oldValue;
+                    final String recordKey = getRecordKey(sObjectName, sObjectExtIdName + "=" + sObjectExtIdValue,
+                        null);
+                    if (processCachedRecord(exchange, recordKey, callback)) {
+                        restoreFields(exchange, sObjectBase, null, sObjectExtIdName, finalOldValue);
+                        break;
+                    }
+                    final RestClient.ResponseCallback recordCallback = getRecordCallback(exchange, recordKey,
+                        sObjectName, null, callback);
                     restClient.getSObjectWithId(sObjectName, sObjectExtIdName, sObjectExtIdValue,
-                        new RestClient.ResponseCallback() {
+                        hedged(new RestClient.ResponseCallback() {
                             @Override
                             public void onResponse(InputStream response, SalesforceException exception) {
-                                processResponse(exchange, response, exception, callback);
+                                recordCallback.onResponse(response, exception);
                                 restoreFields(exchange, sObjectBase, null, sObjectExtIdName, finalOldValue);
                             }
-                        });
+                        }));
 
                     break;
                 }
@@ -294,10 +394,13 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                     }
 
                     final Object finalOldValue = oldValue;
+                    final String finalsObjectName = sObjectName;
                     restClient.upsertSObject(sObjectName, sObjectExtIdName, sObjectExtIdValue,
                         getRequestStream(exchange), new RestClient.ResponseCallback() {
                         @Override
                         public void onResponse(InputStream response, SalesforceException exception) {
+                            // an updated record's Id isn't returned
+                            endpoint.getComponent().invalidateSObject(finalsObjectName);
                             processResponse(exchange, response, exception, callback);
                             restoreFields(exchange, sObjectBase, null, sObjectExtIdName, finalOldValue);
                         }
@@ -324,10 +427,13 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                     }
 
                     final Object finalOldValue = oldValue;
+                    final String finalsObjectName = sObjectName;
                     restClient.deleteSObjectWithId(sObjectName, sObjectExtIdName, sObjectExtIdValue,
                         new RestClient.ResponseCallback() {
                             @Override
                             public void onResponse(InputStream response, SalesforceException exception) {
+                                // the deleted record's Id isn't returned
+                                endpoint.getComponent().invalidateSObject(finalsObjectName);
                                 processResponse(exchange, response, exception, callback);
                                 restoreFields(exchange, sObjectBase, null, sObjectExtIdName, finalOldValue);
                             }
@@ -358,6 +464,17 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                         new RestClient.ResponseCallback() {
                             @Override
                             public void onResponse(InputStream response, SalesforceException exception) {
+                                // the blob becomes the out body, which the route reads after the response is
+                                // processed and closed, if at all, so it's read here instead of streamed
+                                if (exception == null && response != null) {
+                                    try {
+                                        response = new ByteArrayInputStream(readResponse(response));
+                                    } catch (IOException e) {
+                                        response = null;
+                                        exception = new SalesforceException(
+                                            "Error reading blob field response: " + e.getMessage(), e);
+                                    }
+                                }
                                 processResponse(exchange, response, exception, callback);
                                 restoreFields(exchange, sObjectBase, sObjectId, null, null);
                             }
@@ -371,12 +488,7 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                     // use sObject name to load class
                     setResponseClass(exchange, null);
 
-                    restClient.query(sObjectQuery, new RestClient.ResponseCallback() {
-                        @Override
-                        public void onResponse(InputStream response, SalesforceException exception) {
-                            processResponse(exchange, response, exception, callback);
-                        }
-                    });
+                    restClient.query(sObjectQuery, hedged(getQueryCallback(exchange, callback)));
                     break;
 
                 case QUERY_MORE:
@@ -386,7 +498,46 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                     // use custom response class property
                     setResponseClass(exchange, null);
 
-                    restClient.queryMore(nextRecordsUrl, new RestClient.ResponseCallback() {
+                    restClient.queryMore(nextRecordsUrl, hedged(getQueryCallback(exchange, callback)));
+                    break;
+
+                case PARALLEL_QUERY:
+                {
+                    final QueryShards queryShards = new QueryShards(
+                        getParameter(SOBJECT_QUERY, exchange, USE_BODY, NOT_OPTIONAL),
+                        getParameter(PARALLEL_QUERY_FIELD, exchange, IGNORE_BODY, NOT_OPTIONAL));
+
+                    // use custom response class property
+                    setResponseClass(exchange, null);
+                    final Class<?> responseClass = getQueryRecordsClass(exchange);
+
+                    // concurrent queries are limited by connections to the Salesforce instance
+                    final int shards = Math.min(
+                        Integer.parseInt(getParameter(PARALLEL_QUERY_SHARDS, exchange, IGNORE_BODY, NOT_OPTIONAL)),
+                        httpClient.getMaxConnectionsPerAddress());
+                    if (shards < 1) {
+                        throw new IllegalArgumentException("Parallel query shards must be at least 1");
+                    }
+                    final boolean ordered = Boolean.valueOf(
+                        getParameter(PARALLEL_QUERY_ORDERED, exchange, IGNORE_BODY, IS_OPTIONAL));
+
+                    parallelQuery(exchange, callback, queryShards, responseClass, shards, ordered);
+                    break;
+                }
+
+                case SEARCH:
+                    final String sObjectSearch = getParameter(SOBJECT_SEARCH, exchange, USE_BODY, NOT_OPTIONAL);
+
+                    restClient.search(sObjectSearch, hedged(new RestClient.ResponseCallback() {
+                        @Override
+                        public void onResponse(InputStream response, SalesforceException exception) {
+                            processResponse(exchange, response, exception, callback);
+                        }
+                    }));
+                    break;
+
+                case COMPOSITE_BATCH:
+                    restClient.compositeBatch(getRequestStream(exchange), new RestClient.ResponseCallback() {
                         @Override
                         public void onResponse(InputStream response, SalesforceException exception) {
                             processResponse(exchange, response, exception, callback);
@@ -394,16 +545,118 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
                     });
                     break;
 
-                case SEARCH:
-                    final String sObjectSearch = getParameter(SOBJECT_SEARCH, exchange, USE_BODY, NOT_OPTIONAL);
+                case CREATE_SOBJECT_COLLECTION:
+                case UPDATE_SOBJECT_COLLECTION:
+                case UPSERT_SOBJECT_COLLECTION:
+                {
+                    final List<AbstractSObjectBase> records = getSObjectCollection(exchange);
+                    final boolean allOrNone = Boolean.valueOf(
+                        getParameter(ALL_OR_NONE, exchange, IGNORE_BODY, IS_OPTIONAL));
+
+                    // upserts need the external id field name, and records of a single SObject type
+                    String sObjectExtIdName = null;
+                    sObjectName = null;
+                    if (operationName == OperationName.UPSERT_SOBJECT_COLLECTION) {
+                        sObjectExtIdName = getParameter(SOBJECT_EXT_ID_NAME, exchange, IGNORE_BODY, NOT_OPTIONAL);
+                        sObjectName = records.get(0).getClass().getSimpleName();
+                        for (AbstractSObjectBase record : records) {
+                            if (!sObjectName.equals(record.getClass().getSimpleName())) {
+                                throw new SalesforceException(String.format(
+                                    "Cannot upsert SObjects of different types %s and %s in a single collection",
+                                    sObjectName, record.getClass().getSimpleName()), null);
+                            }
+                        }
+                    }
 
-                    restClient.search(sObjectSearch, new RestClient.ResponseCallback() {
+                    // remember the fields cleared in records
+                    final int size = records.size();
+                    final String[] sObjectIds = new String[size];
+                    final Attributes[] sObjectAttributes = new Attributes[size];
+                    final SObjectCollection collection = new SObjectCollection(allOrNone);
+                    for (int i = 0; i < size; i++) {
+                        final AbstractSObjectBase record = records.get(i);
+                        sObjectIds[i] = record.getId();
+                        sObjectAttributes[i] = record.getAttributes();
+                        if (operationName != OperationName.CREATE_SOBJECT_COLLECTION) {
+                            // clear base object fields, which cannot be updated
+                            record.clearBaseFields();
+                            if (operationName == OperationName.UPDATE_SOBJECT_COLLECTION) {
+                                // the Id identifies records to update
+                                record.setId(sObjectIds[i]);
+                            }
+                        }
+                        // SObject Collections need the type of every record
+                        final Attributes attributes = new Attributes();
+                        attributes.setType(record.getClass().getSimpleName());
+                        record.setAttributes(attributes);
+                        collection.addRecord(record);
+                    }
+
+                    final InputStream request;
+                    try {
+                        request = getRequestStream(collection);
+                    } finally {
+                        restoreCollectionFields(records, sObjectIds, sObjectAttributes);
+                    }
+
+                    final String finalsObjectName = sObjectName;
+                    final RestClient.ResponseCallback responseCallback = new RestClient.ResponseCallback() {
                         @Override
                         public void onResponse(InputStream response, SalesforceException exception) {
+                            if (operationName == OperationName.UPDATE_SOBJECT_COLLECTION) {
+                                for (String sObjectId : sObjectIds) {
+                                    endpoint.getComponent().invalidateRecord(sObjectId);
+                                }
+                            } else if (operationName == OperationName.UPSERT_SOBJECT_COLLECTION) {
+                                // updated records' Ids aren't returned
+                                endpoint.getComponent().invalidateSObject(finalsObjectName);
+                            }
+                            processResponse(exchange, response, exception, callback);
+                        }
+                    };
+                    switch (operationName) {
+                        case CREATE_SOBJECT_COLLECTION:
+                            restClient.createSObjectCollection(request, responseCallback);
+                            break;
+                        case UPDATE_SOBJECT_COLLECTION:
+                            restClient.updateSObjectCollection(request, responseCallback);
+                            break;
+                        default:
+                            restClient.upsertSObjectCollection(sObjectName, sObjectExtIdName, request,
+                                responseCallback);
+                    }
+                    break;
+                }
+
+                case DELETE_SOBJECT_COLLECTION:
+                {
+                    // body is a list of ids, or of SObjects with ids
+                    final List<?> body = exchange.getIn().getBody(List.class);
+                    checkCollectionSize(body);
+                    final List<String> sObjectIds = new ArrayList<String>(body.size());
+                    for (Object item : body) {
+                        final String sObjectId = item instanceof AbstractSObjectBase ?
+                            ((AbstractSObjectBase) item).getId() : (item instanceof String ? (String) item : null);
+                        if (sObjectId == null) {
+                            throw new SalesforceException(
+                                "Missing SObject id in collection for operation " + operationName.value(), null);
+                        }
+                        sObjectIds.add(sObjectId);
+                    }
+                    final boolean allOrNone = Boolean.valueOf(
+                        getParameter(ALL_OR_NONE, exchange, IGNORE_BODY, IS_OPTIONAL));
+
+                    restClient.deleteSObjectCollection(sObjectIds, allOrNone, new RestClient.ResponseCallback() {
+                        @Override
+                        public void onResponse(InputStream response, SalesforceException exception) {
+                            for (String sObjectId : sObjectIds) {
+                                endpoint.getComponent().invalidateRecord(sObjectId);
+                            }
                             processResponse(exchange, response, exception, callback);
                         }
                     });
                     break;
+                }
 
             }
 
@@ -427,6 +680,357 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
         return false;
     }
 
+    // hedges a read with a duplicate request if the response is slow, if enabled
+    private RestClient.ResponseCallback hedged(final RestClient.ResponseCallback callback) {
+        if (hedgePolicy == null) {
+            return callback;
+        }
+        final HedgePolicy policy = hedgePolicy;
+        return new RestClient.HedgedResponseCallback() {
+            @Override
+            public HedgePolicy getHedgePolicy() {
+                return policy;
+            }
+
+            @Override
+            public void onResponse(InputStream response, SalesforceException exception) {
+                callback.onResponse(response, exception);
+            }
+        };
+    }
+
+    // processes query results as an iterator over records of all pages, if enabled
+    private RestClient.ResponseCallback getQueryCallback(final Exchange exchange, final AsyncCallback callback)
+        throws SalesforceException {
+
+        if (!Boolean.valueOf(getParameter(STREAM_QUERY_RESULT, exchange, IGNORE_BODY, IS_OPTIONAL))) {
+            return new RestClient.ResponseCallback() {
+                @Override
+                public void onResponse(InputStream response, SalesforceException exception) {
+                    processResponse(exchange, response, exception, callback);
+                }
+            };
+        }
+
+        final Class<?> responseClass = getQueryRecordsClass(exchange);
+        final RestClient queryClient = restClient;
+        // the iterator is created and read on other threads
+        final long deadline = AbstractClientBase.getCurrentDeadline();
+        return new RestClient.ResponseCallback() {
+            @Override
+            public void onResponse(InputStream response, SalesforceException exception) {
+                if (exception == null && response != null) {
+                    final QueryRecordsIterator records;
+                    try {
+                        records = new QueryRecordsIterator(queryClient, AbstractRestProcessor.this,
+                            responseClass, response, deadline, httpClient.getTimeout());
+                    } catch (SalesforceException e) {
+                        processResponse(exchange, null, e, callback);
+                        return;
+                    }
+                    processQueryRecords(exchange, records, callback);
+                } else {
+                    processResponse(exchange, response, exception, callback);
+                }
+            }
+        };
+    }
+
+    // finds the lowest and highest values of the shard field, and then runs queries for ranges between them
+    private void parallelQuery(final Exchange exchange, final AsyncCallback callback,
+                               final QueryShards queryShards, final Class<?> responseClass,
+                               final int shards, final boolean ordered) {
+
+        final RestClient queryClient = restClient;
+        final long deadline = AbstractClientBase.getCurrentDeadline();
+        final Object[] boundaries = new Object[2];
+        final AtomicInteger pending = new AtomicInteger(boundaries.length);
+        final AtomicReference<SalesforceException> failure = new AtomicReference<SalesforceException>();
+
+        for (int i = 0; i < boundaries.length; i++) {
+            final int index = i;
+            queryClient.query(queryShards.getBoundaryQuery(index == 0), new RestClient.ResponseCallback() {
+                @Override
+                public void onResponse(InputStream response, SalesforceException exception) {
+                    if (exception == null && response != null) {
+                        try {
+                            boundaries[index] = readBoundary(queryShards, response, responseClass);
+                        } catch (SalesforceException e) {
+                            exception = e;
+                        }
+                    }
+                    if (exception != null) {
+                        failure.compareAndSet(null, exception);
+                    }
+
+                    // the last boundary query starts the range queries
+                    if (pending.decrementAndGet() == 0) {
+                        if (failure.get() != null) {
+                            processResponse(exchange, null, failure.get(), callback);
+                        } else {
+                            final List<String> queries = queryShards.getShardQueries(
+                                boundaries[0], boundaries[1], shards);
+                            LOG.debug("Running {} parallel queries on {}", queries.size(), queryShards.getField());
+                            processQueryRecords(exchange, new QueryRecordsIterator(queryClient,
+                                AbstractRestProcessor.this, responseClass, queries, ordered,
+                                deadline, httpClient.getTimeout()), callback);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private Object readBoundary(QueryShards queryShards, InputStream response, Class<?> responseClass)
+        throws SalesforceException {
+        final QueryRecordsPage page = readQueryRecords(response, responseClass);
+        try {
+            if (!page.hasNext()) {
+                // no records
+                return null;
+            }
+            final Object record = page.next();
+            if (!(record instanceof AbstractSObjectBase)) {
+                throw new SalesforceException(
+                    String.format("Parallel query records must extend AbstractSObjectBase, found %s",
+                        record == null ? null : record.getClass()),
+                    null);
+            }
+            return queryShards.getValue((AbstractSObjectBase) record);
+        } finally {
+            page.close();
+        }
+    }
+
+    private Class<?> getQueryRecordsClass(Exchange exchange) throws SalesforceException {
+        final Class<?> responseClass = exchange.getProperty(RESPONSE_CLASS, Class.class);
+        if (!AbstractQueryRecordsBase.class.isAssignableFrom(responseClass)) {
+            throw new SalesforceException(
+                String.format("Class %s must extend AbstractQueryRecordsBase to stream query results",
+                    responseClass.getName()),
+                null);
+        }
+        return responseClass;
+    }
+
+    // the iterator owns the query responses, so the exchange is processed without a response entity
+    private void processQueryRecords(Exchange exchange, QueryRecordsIterator records, AsyncCallback callback) {
+        processResponseBody(exchange, records, callback);
+    }
+
+    // completes the exchange with a body that doesn't need to be parsed
+    private void processResponseBody(final Exchange exchange, final Object body, final AsyncCallback callback) {
+        processResponse(exchange, null, null, new AsyncCallback() {
+            @Override
+            public void done(boolean doneSync) {
+                exchange.getOut().setBody(body);
+                callback.done(doneSync);
+            }
+        });
+    }
+
+    // serves metadata from the component's metadata cache if enabled, and revalidates expired entries
+    private void getMetadata(final Exchange exchange, final AsyncCallback callback, String sObjectName) {
+
+        final ResponseCache cache = endpoint.getComponent().getMetadataCache();
+        final RestClient.ResponseCallback responseCallback;
+        if (cache == null) {
+            responseCallback = new RestClient.ResponseCallback() {
+                @Override
+                public void onResponse(InputStream response, SalesforceException exception) {
+                    processResponse(exchange, response, exception, callback);
+                }
+            };
+        } else {
+            // clients and response DTOs depend on API version and payload format
+            final String key = String.format("%s:%s:%s:%s", payloadFormat, endpointConfigMap.get(API_VERSION),
+                operationName.value(), sObjectName);
+            final ResponseCache.Entry entry = cache.get(key);
+            if (entry != null && !entry.isExpired()) {
+                cache.hit();
+                processCachedResponse(exchange, entry, callback);
+                return;
+            }
+            cache.miss();
+            responseCallback = new MetadataCallback(exchange, callback, cache, key, entry);
+        }
+
+        switch (operationName) {
+            case GET_VERSIONS:
+                restClient.getVersions(responseCallback);
+                break;
+            case GET_RESOURCES:
+                restClient.getResources(responseCallback);
+                break;
+            case GET_GLOBAL_OBJECTS:
+                restClient.getGlobalObjects(responseCallback);
+                break;
+            case GET_BASIC_INFO:
+                restClient.getBasicInfo(sObjectName, responseCallback);
+                break;
+            case GET_DESCRIPTION:
+                restClient.getDescription(sObjectName, responseCallback);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported metadata operation " + operationName.value());
+        }
+    }
+
+    // cached responses are parsed again for every exchange, so that exchanges never share, or modify, cached objects
+    private void processCachedResponse(Exchange exchange, ResponseCache.Entry entry, AsyncCallback callback) {
+        processResponse(exchange, new ByteArrayInputStream((byte[]) entry.getValue()), null, callback);
+    }
+
+    private static byte[] readResponse(InputStream response) throws IOException {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = response.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            response.close();
+        }
+    }
+
+    private String getRecordKey(String sObjectName, String sObjectId, String fields) {
+        // records depend on API version and payload format, just like metadata
+        return String.format("%s:%s:%s:%s:%s:%s", payloadFormat, endpointConfigMap.get(API_VERSION),
+            operationName.value(), sObjectName, sObjectId, fields);
+    }
+
+    // serves a record from the component's record cache if enabled, returns false if it must be fetched
+    private boolean processCachedRecord(Exchange exchange, String key, AsyncCallback callback) {
+        final ResponseCache cache = endpoint.getComponent().getRecordCache();
+        if (cache == null) {
+            return false;
+        }
+        final ResponseCache.Entry entry = cache.get(key);
+        if (entry != null && !entry.isExpired()) {
+            cache.hit();
+            processCachedResponse(exchange, entry, callback);
+            return true;
+        }
+        cache.miss();
+        return false;
+    }
+
+    // caches the fetched record entity, grouped by its Id so it can be invalidated by streaming events,
+    // and by its SObject name so it can be invalidated by writes with external Ids
+    private RestClient.ResponseCallback getRecordCallback(final Exchange exchange, final String key,
+                                                          final String sObjectName, final String sObjectId,
+                                                          final AsyncCallback callback) {
+        final ResponseCache cache = endpoint.getComponent().getRecordCache();
+        // the record may be updated while it's being fetched
+        final long invalidations = cache != null ? cache.getInvalidations() : 0;
+        return new RestClient.ResponseCallback() {
+            @Override
+            public void onResponse(InputStream response, SalesforceException exception) {
+                if (cache == null || exception != null || response == null) {
+                    processResponse(exchange, response, exception, callback);
+                    return;
+                }
+
+                // the record entity is cached, and parsed for this exchange like for every cache hit
+                final byte[] entity;
+                try {
+                    entity = readResponse(response);
+                } catch (IOException e) {
+                    processResponse(exchange, null, new SalesforceException(
+                        "Error reading record response: " + e.getMessage(), e), callback);
+                    return;
+                }
+                processResponse(exchange, new ByteArrayInputStream(entity), null, new AsyncCallback() {
+                    @Override
+                    public void done(boolean doneSync) {
+                        final Object body = exchange.getOut().getBody();
+                        if (exchange.getException() == null && body != null) {
+                            String id = sObjectId;
+                            if (body instanceof AbstractSObjectBase && ((AbstractSObjectBase) body).getId() != null) {
+                                id = ((AbstractSObjectBase) body).getId();
+                            }
+                            if (id != null) {
+                                cache.put(key, entity, new String[] {SalesforceComponent.getRecordGroup(id),
+                                    SalesforceComponent.getSObjectGroup(sObjectName)}, invalidations);
+                            }
+                        }
+                        callback.done(doneSync);
+                    }
+                });
+            }
+        };
+    }
+
+    private final class MetadataCallback implements RestClient.ConditionalResponseCallback {
+        private final Exchange exchange;
+        private final AsyncCallback callback;
+        private final ResponseCache cache;
+        private final String key;
+        private final ResponseCache.Entry entry;
+
+        private String eTag;
+        private String lastModified;
+
+        private MetadataCallback(Exchange exchange, AsyncCallback callback,
+                                 ResponseCache cache, String key, ResponseCache.Entry entry) {
+            this.exchange = exchange;
+            this.callback = callback;
+            this.cache = cache;
+            this.key = key;
+            this.entry = entry;
+        }
+
+        @Override
+        public String getETag() {
+            return entry != null ? entry.getETag() : null;
+        }
+
+        @Override
+        public String getLastModified() {
+            return entry != null ? entry.getLastModified() : null;
+        }
+
+        @Override
+        public void onValidators(String eTag, String lastModified) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public void onNotModified() {
+            processCachedResponse(exchange, cache.revalidate(key, entry), callback);
+        }
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+            if (exception != null || response == null) {
+                processResponse(exchange, response, exception, callback);
+                return;
+            }
+
+            // the response entity is cached, and parsed for this exchange like for every cache hit
+            final byte[] entity;
+            try {
+                entity = readResponse(response);
+            } catch (IOException e) {
+                processResponse(exchange, null, new SalesforceException(
+                    "Error reading metadata response: " + e.getMessage(), e), callback);
+                return;
+            }
+            processResponse(exchange, new ByteArrayInputStream(entity), null, new AsyncCallback() {
+                @Override
+                public void done(boolean doneSync) {
+                    if (exchange.getException() == null) {
+                        cache.put(key, entity, eTag, lastModified);
+                    }
+                    callback.done(doneSync);
+                }
+            });
+        }
+    }
+
     private void restoreFields(Exchange exchange, AbstractSObjectBase sObjectBase,
                                String sObjectId, String sObjectExtIdName, Object oldValue) {
         // restore fields
@@ -447,6 +1051,44 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
         }
     }
 
+    private List<AbstractSObjectBase> getSObjectCollection(Exchange exchange) throws SalesforceException {
+        final List<?> body = exchange.getIn().getBody(List.class);
+        checkCollectionSize(body);
+        final List<AbstractSObjectBase> records = new ArrayList<AbstractSObjectBase>(body.size());
+        for (Object item : body) {
+            if (!(item instanceof AbstractSObjectBase)) {
+                throw new SalesforceException(
+                    String.format("Unsupported SObject collection element %s for operation %s",
+                        item == null ? null : item.getClass(), operationName.value()),
+                    null);
+            }
+            records.add((AbstractSObjectBase) item);
+        }
+        return records;
+    }
+
+    private void checkCollectionSize(List<?> body) throws SalesforceException {
+        if (body == null || body.isEmpty()) {
+            throw new SalesforceException("Missing SObject collection for operation " + operationName.value(), null);
+        }
+        if (body.size() > SObjectCollection.MAX_RECORDS) {
+            throw new SalesforceException(
+                String.format("SObject collection size %s exceeds maximum %s for operation %s",
+                    body.size(), SObjectCollection.MAX_RECORDS, operationName.value()),
+                null);
+        }
+    }
+
+    private void restoreCollectionFields(List<AbstractSObjectBase> records,
+                                         String[] sObjectIds, Attributes[] sObjectAttributes) {
+        // records are marshaled by now, so the caller gets them back as they were
+        for (int i = 0; i < records.size(); i++) {
+            final AbstractSObjectBase record = records.get(i);
+            record.setId(sObjectIds[i]);
+            record.setAttributes(sObjectAttributes[i]);
+        }
+    }
+
     private void setPropertyValue(AbstractSObjectBase sObjectBase, String name, Object value) throws SalesforceException {
         try {
             // set the value with the set method
@@ -505,6 +1147,13 @@ public abstract class AbstractRestProcessor extends AbstractSalesforceProcessor
     // get request stream from In message
     protected abstract InputStream getRequestStream(Exchange exchange) throws SalesforceException;
 
+    // get request stream for a request DTO
+    protected abstract InputStream getRequestStream(AbstractDTOBase dto) throws SalesforceException;
+
+    // read a page of query records when streaming query results, the page owns the response
+    protected abstract QueryRecordsPage readQueryRecords(InputStream response, Class<?> queryRecordsClass)
+        throws SalesforceException;
+
     private void setResponseClass(Exchange exchange, String sObjectName) throws SalesforceException {
         Class<?> sObjectClass;
 
@@ -0,0 +1,68 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.processor;
+
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.api.dto.AbstractQueryRecordsBase;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Query result page that has already been unmarshaled into an {@link AbstractQueryRecordsBase}.
+ */
+class BoundQueryRecordsPage implements QueryRecordsPage {
+
+    private final Iterator<?> records;
+    private final String nextRecordsUrl;
+
+    BoundQueryRecordsPage(AbstractQueryRecordsBase page) throws SalesforceException {
+        final List<?> pageRecords;
+        try {
+            pageRecords = (List<?>) QueryRecordsIterator.getRecordsMethod(page.getClass()).invoke(page);
+        } catch (IllegalAccessException e) {
+            throw new SalesforceException("Error accessing query records: " + e.getMessage(), e);
+        } catch (InvocationTargetException e) {
+            throw new SalesforceException("Error getting query records: " + e.getMessage(), e);
+        }
+        this.records = pageRecords != null ? pageRecords.iterator() : Collections.emptyList().iterator();
+        this.nextRecordsUrl = page.getNextRecordsUrl();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return records.hasNext();
+    }
+
+    @Override
+    public Object next() {
+        return records.next();
+    }
+
+    @Override
+    public String getNextRecordsUrl() {
+        return nextRecordsUrl;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release
+    }
+
+}
@@ -18,13 +18,11 @@ package org.fusesource.camel.component.salesforce.internal.processor;
 
 import org.apache.camel.*;
 import org.apache.camel.converter.stream.StreamCacheConverter;
-import org.apache.camel.util.ServiceHelper;
 import org.fusesource.camel.component.salesforce.SalesforceEndpoint;
 import org.fusesource.camel.component.salesforce.SalesforceEndpointConfig;
 import org.fusesource.camel.component.salesforce.api.SalesforceException;
 import org.fusesource.camel.component.salesforce.api.dto.bulk.*;
 import org.fusesource.camel.component.salesforce.internal.client.BulkApiClient;
-import org.fusesource.camel.component.salesforce.internal.client.DefaultBulkApiClient;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -38,9 +36,6 @@ public class BulkApiProcessor extends AbstractSalesforceProcessor {
 
     public BulkApiProcessor(SalesforceEndpoint endpoint) throws SalesforceException {
         super(endpoint);
-
-        this.bulkClient = new DefaultBulkApiClient(
-            endpointConfigMap.get(SalesforceEndpointConfig.API_VERSION), session, httpClient);
     }
 
     @Override
@@ -366,12 +361,17 @@ public class BulkApiProcessor extends AbstractSalesforceProcessor {
 
     @Override
     public void start() throws Exception {
-        ServiceHelper.startService(bulkClient);
+        // use a client shared with other endpoints with the same API version
+        bulkClient = endpoint.getComponent().getClientRegistry().acquireBulkApiClient(httpClient,
+            endpointConfigMap.get(SalesforceEndpointConfig.API_VERSION));
     }
 
     @Override
     public void stop() throws Exception {
-        // stop the client
-        ServiceHelper.stopService(bulkClient);
+        // release the client
+        if (bulkClient != null) {
+            endpoint.getComponent().getClientRegistry().release(bulkClient);
+            bulkClient = null;
+        }
     }
 }
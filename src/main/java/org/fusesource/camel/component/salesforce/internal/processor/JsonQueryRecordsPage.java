@@ -0,0 +1,146 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.processor;
+
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.JavaType;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.NoSuchElementException;
+
+/**
+ * Query result page that is parsed incrementally, binding one element of records at a time.
+ * <p>
+ * Page fields before records, i.e. nextRecordsUrl in Salesforce responses, are read when the page is created.
+ * </p>
+ */
+class JsonQueryRecordsPage implements QueryRecordsPage {
+
+    private static final String RECORDS_FIELD = "records";
+    private static final String NEXT_RECORDS_URL_FIELD = "nextRecordsUrl";
+
+    private final ObjectMapper objectMapper;
+    private final JavaType recordType;
+    private final JsonParser parser;
+
+    private String nextRecordsUrl;
+    private boolean inRecords;
+    private boolean done;
+    private Object nextRecord;
+
+    JsonQueryRecordsPage(ObjectMapper objectMapper, InputStream response, Class<?> queryRecordsClass)
+        throws SalesforceException {
+
+        this.objectMapper = objectMapper;
+        try {
+            // record type from List<RecordType> getRecords()
+            this.recordType = objectMapper.getTypeFactory().constructType(
+                QueryRecordsIterator.getRecordsMethod(queryRecordsClass).getGenericReturnType()).getContentType();
+            this.parser = objectMapper.getJsonFactory().createJsonParser(response);
+        } catch (IOException e) {
+            closeQuietly(response);
+            throw new SalesforceException("Error parsing JSON response: " + e.getMessage(), e);
+        } catch (SalesforceException e) {
+            closeQuietly(response);
+            throw e;
+        }
+
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("expected query result object, found " + parser.getCurrentToken());
+            }
+            readFields();
+        } catch (IOException e) {
+            close();
+            throw new SalesforceException("Error parsing JSON response: " + e.getMessage(), e);
+        }
+    }
+
+    // reads page fields up to the start of records, or the end of the page
+    private void readFields() throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if (RECORDS_FIELD.equals(name) && token == JsonToken.START_ARRAY) {
+                inRecords = true;
+                return;
+            } else if (NEXT_RECORDS_URL_FIELD.equals(name)) {
+                nextRecordsUrl = token == JsonToken.VALUE_NULL ? null : parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        done = true;
+    }
+
+    @Override
+    public boolean hasNext() throws SalesforceException {
+        try {
+            while (nextRecord == null && !done) {
+                if (inRecords) {
+                    final JsonToken token = parser.nextToken();
+                    if (token == JsonToken.END_ARRAY) {
+                        inRecords = false;
+                    } else if (token != JsonToken.VALUE_NULL) {
+                        nextRecord = objectMapper.readValue(parser, recordType);
+                    }
+                } else {
+                    readFields();
+                }
+            }
+            return nextRecord != null;
+        } catch (IOException e) {
+            throw new SalesforceException("Error parsing JSON response: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object next() throws SalesforceException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final Object record = nextRecord;
+        nextRecord = null;
+        return record;
+    }
+
+    @Override
+    public String getNextRecordsUrl() {
+        return nextRecordsUrl;
+    }
+
+    @Override
+    public void close() {
+        try {
+            // also closes the response
+            parser.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static void closeQuietly(InputStream response) {
+        try {
+            response.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+}
@@ -26,9 +26,9 @@ import org.eclipse.jetty.util.StringUtil;
 import org.fusesource.camel.component.salesforce.SalesforceEndpoint;
 import org.fusesource.camel.component.salesforce.api.SalesforceException;
 import org.fusesource.camel.component.salesforce.api.dto.*;
+import org.fusesource.camel.component.salesforce.api.dto.composite.SObjectBatchResponse;
+import org.fusesource.camel.component.salesforce.internal.client.RequestContentStream;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
@@ -91,43 +91,68 @@ public class JsonRestProcessor extends AbstractRestProcessor {
                 exchange.setProperty(RESPONSE_TYPE, new TypeReference<List<SearchResult>>() {});
                 break;
 
+            case COMPOSITE_BATCH:
+                // handle known response type
+                exchange.setProperty(RESPONSE_CLASS, SObjectBatchResponse.class);
+                break;
+
+            case CREATE_SOBJECT_COLLECTION:
+            case UPDATE_SOBJECT_COLLECTION:
+            case UPSERT_SOBJECT_COLLECTION:
+            case DELETE_SOBJECT_COLLECTION:
+                // handle known response type, results are in the same order as records
+                exchange.setProperty(RESPONSE_TYPE, new TypeReference<List<CreateSObjectResult>>() {});
+                break;
+
         }
     }
 
     @Override
     protected InputStream getRequestStream(Exchange exchange) throws SalesforceException {
-        try {
-            InputStream request;
-            Message in = exchange.getIn();
-            request = in.getBody(InputStream.class);
-            if (request == null) {
-                AbstractSObjectBase sObject = in.getBody(AbstractSObjectBase.class);
-                if (sObject != null) {
-                    // marshall the SObject
-                    ByteArrayOutputStream out = new ByteArrayOutputStream();
-                    objectMapper.writeValue(out, sObject);
-                    request = new ByteArrayInputStream(out.toByteArray());
+        InputStream request;
+        Message in = exchange.getIn();
+        request = in.getBody(InputStream.class);
+        if (request == null) {
+            // SObjects, or other request DTOs like SObjectBatch
+            AbstractDTOBase dto = in.getBody(AbstractDTOBase.class);
+            if (dto != null) {
+                request = getRequestStream(dto);
+            } else {
+                // if all else fails, get body as String
+                final String body = in.getBody(String.class);
+                if (null == body) {
+                    String msg = "Unsupported request message body " +
+                        (in.getBody() == null ? null : in.getBody().getClass());
+                    throw new SalesforceException(msg, null);
                 } else {
-                    // if all else fails, get body as String
-                    final String body = in.getBody(String.class);
-                    if (null == body) {
-                        String msg = "Unsupported request message body " +
-                            (in.getBody() == null ? null : in.getBody().getClass());
-                        throw new SalesforceException(msg, null);
-                    } else {
-                        request = new ByteArrayInputStream(body.getBytes(StringUtil.__UTF8_CHARSET));
-                    }
+                    request = new RequestContentStream(body.getBytes(StringUtil.__UTF8_CHARSET));
                 }
             }
+        }
 
-            return request;
+        return request;
+    }
 
+    @Override
+    protected InputStream getRequestStream(AbstractDTOBase dto) throws SalesforceException {
+        try {
+            // marshall the DTO, the client sends the marshaled buffer as is
+            RequestContentStream.ContentOutputStream out = RequestContentStream.newOutputStream();
+            objectMapper.writeValue(out, dto);
+            return out.toInputStream();
         } catch (IOException e) {
             String msg = "Error marshaling request: " + e.getMessage();
             throw new SalesforceException(msg, e);
         }
     }
 
+    @Override
+    protected QueryRecordsPage readQueryRecords(InputStream response, Class<?> queryRecordsClass)
+        throws SalesforceException {
+        // bind records one at a time, instead of the whole page
+        return new JsonQueryRecordsPage(objectMapper, response, queryRecordsClass);
+    }
+
     @Override
     protected void processResponse(Exchange exchange, InputStream responseEntity, SalesforceException ex, AsyncCallback callback) {
 
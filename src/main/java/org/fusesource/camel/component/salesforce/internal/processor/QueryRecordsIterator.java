@@ -0,0 +1,307 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.processor;
+
+import org.apache.camel.RuntimeCamelException;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.internal.client.AbstractClientBase;
+import org.fusesource.camel.component.salesforce.internal.client.RestClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lazy {@link Iterator} over the records of all pages of one or more query results.
+ * <p>
+ * The next page of a query is fetched using nextRecordsUrl as soon as it is known,
+ * so it is usually available by the time the records of the current page have been processed.
+ * Only one page is fetched ahead per query, and pages are read by the processor as records are consumed,
+ * i.e. JSON pages are parsed one record at a time. Streamed pages that are not being read, i.e. pages fetched
+ * ahead, pages of queries waiting for their turn, and pages of an iterator that is no longer consumed,
+ * are buffered by {@link org.fusesource.camel.component.salesforce.internal.client.ResponseContentStream}.
+ * </p>
+ * <p>
+ * Records of multiple queries running concurrently are either returned in query order,
+ * or in the order in which pages are received.
+ * </p>
+ * <p>
+ * Pages are queued on the HTTP client thread, since the iterator may be read on a callback executor thread,
+ * and waiting for a page fails once the exchange deadline or the HTTP client timeout is up.
+ * Queries are sent with the exchange deadline, whichever thread reads the iterator.
+ * </p>
+ */
+class QueryRecordsIterator implements Iterator<Object> {
+
+    private final RestClient restClient;
+    private final AbstractRestProcessor processor;
+    private final Class<?> queryRecordsClass;
+    private final boolean ordered;
+    // absolute deadline of the exchange, 0 if it has none
+    private final long deadline;
+    // max time to wait for a page without a deadline, 0 to wait forever
+    private final long timeout;
+
+    // received page responses of all queries, each query has at most one page in flight
+    private final BlockingQueue<PageResponse> responses = new LinkedBlockingQueue<PageResponse>();
+    // responses of queries waiting for their turn, when records are returned in query order
+    private final PageResponse[] waiting;
+    // queries with pages left to read
+    private int remaining;
+    // query being read, when records are returned in query order
+    private int current;
+
+    private QueryRecordsPage page;
+    private int pageQuery;
+    private boolean fetched;
+    // set when the iterator gave up waiting, responses received after that are discarded
+    private volatile boolean failed;
+
+    /**
+     * Creates an iterator for a single query, starting with its first page.
+     */
+    QueryRecordsIterator(RestClient restClient, AbstractRestProcessor processor,
+                         Class<?> queryRecordsClass, InputStream firstPage,
+                         long deadline, long timeout) throws SalesforceException {
+        this(restClient, processor, queryRecordsClass, 1, true, deadline, timeout);
+
+        setPage(0, processor.readQueryRecords(firstPage, queryRecordsClass));
+    }
+
+    /**
+     * Creates an iterator that runs queries concurrently.
+     */
+    QueryRecordsIterator(RestClient restClient, AbstractRestProcessor processor,
+                         Class<?> queryRecordsClass, List<String> queries, boolean ordered,
+                         long deadline, long timeout) {
+        this(restClient, processor, queryRecordsClass, queries.size(), ordered, deadline, timeout);
+
+        final long previousDeadline = AbstractClientBase.setCurrentDeadline(deadline);
+        try {
+            for (int i = 0; i < queries.size(); i++) {
+                restClient.query(queries.get(i), new PageCallback(i));
+            }
+        } finally {
+            AbstractClientBase.setCurrentDeadline(previousDeadline);
+        }
+    }
+
+    private QueryRecordsIterator(RestClient restClient, AbstractRestProcessor processor,
+                                 Class<?> queryRecordsClass, int queries, boolean ordered,
+                                 long deadline, long timeout) {
+        this.restClient = restClient;
+        this.processor = processor;
+        this.queryRecordsClass = queryRecordsClass;
+        this.ordered = ordered;
+        this.deadline = deadline;
+        this.timeout = timeout;
+        this.waiting = new PageResponse[queries];
+        this.remaining = queries;
+    }
+
+    /**
+     * Gets the records accessor required for query records classes.
+     */
+    static Method getRecordsMethod(Class<?> queryRecordsClass) throws SalesforceException {
+        try {
+            return queryRecordsClass.getMethod("getRecords");
+        } catch (NoSuchMethodException e) {
+            throw new SalesforceException(
+                String.format("Query records class %s does not have a getRecords() method",
+                    queryRecordsClass.getName()),
+                e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (page == null || !page.hasNext()) {
+                if (page != null) {
+                    page.close();
+                    // the next page URL may only be known after reading all records
+                    fetchNextPage();
+                    if (!fetched) {
+                        // no more pages for this query
+                        remaining--;
+                        current++;
+                    }
+                    page = null;
+                }
+                if (remaining == 0) {
+                    return false;
+                }
+                final PageResponse response = takeNextPage();
+                setPage(response.query, processor.readQueryRecords(response.response, queryRecordsClass));
+            }
+            return true;
+        } catch (SalesforceException e) {
+            throw new RuntimeCamelException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return page.next();
+        } catch (SalesforceException e) {
+            throw new RuntimeCamelException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    private void setPage(int query, QueryRecordsPage page) {
+        this.page = page;
+        this.pageQuery = query;
+        this.fetched = false;
+        // prefetch the next page while this one is processed
+        fetchNextPage();
+    }
+
+    private void fetchNextPage() {
+        final String nextRecordsUrl = page.getNextRecordsUrl();
+        if (!fetched && nextRecordsUrl != null) {
+            fetched = true;
+            // fetched on the thread reading the iterator, after the exchange may be done
+            final long previousDeadline = AbstractClientBase.setCurrentDeadline(deadline);
+            try {
+                restClient.queryMore(nextRecordsUrl, new PageCallback(pageQuery));
+            } finally {
+                AbstractClientBase.setCurrentDeadline(previousDeadline);
+            }
+        }
+    }
+
+    private PageResponse takeNextPage() throws SalesforceException {
+        try {
+            PageResponse response;
+            if (ordered) {
+                // later queries wait with their first page until earlier queries are done
+                while (waiting[current] == null) {
+                    response = pollNextPage();
+                    waiting[response.query] = response;
+                }
+                response = waiting[current];
+                waiting[current] = null;
+            } else {
+                response = pollNextPage();
+            }
+
+            if (response.exception != null) {
+                throw response.exception;
+            }
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SalesforceException("Interrupted waiting for next query records page", e);
+        }
+    }
+
+    private PageResponse pollNextPage() throws InterruptedException, SalesforceException {
+        long wait = timeout;
+        if (deadline > 0) {
+            final long remaining = deadline - System.currentTimeMillis();
+            wait = wait > 0 ? Math.min(wait, remaining) : remaining;
+        }
+        if (wait == 0 && deadline == 0) {
+            return responses.take();
+        }
+
+        // a page that is already there is still read after the deadline
+        final PageResponse response = responses.poll(Math.max(wait, 0), TimeUnit.MILLISECONDS);
+        if (response == null) {
+            fail();
+            throw new SalesforceException(deadline > 0 && System.currentTimeMillis() >= deadline ?
+                "Deadline exceeded waiting for next query records page" :
+                "Timeout waiting for next query records page", null);
+        }
+        return response;
+    }
+
+    // discards responses of pages that will never be read
+    private void fail() {
+        failed = true;
+        for (int i = 0; i < waiting.length; i++) {
+            if (waiting[i] != null) {
+                close(waiting[i]);
+                waiting[i] = null;
+            }
+        }
+        PageResponse response;
+        while ((response = responses.poll()) != null) {
+            close(response);
+        }
+    }
+
+    private static void close(PageResponse response) {
+        if (response.response != null) {
+            try {
+                response.response.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    // only queues the response, so it runs on the HTTP client thread, a reader waiting for it
+    // may be running on a callback executor thread
+    private final class PageCallback implements RestClient.DirectResponseCallback {
+        private final int query;
+
+        private PageCallback(int query) {
+            this.query = query;
+        }
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+            if (exception == null && response == null) {
+                exception = new SalesforceException("Missing query records in response", null);
+            }
+            final PageResponse pageResponse = new PageResponse(query, response, exception);
+            responses.offer(pageResponse);
+            // the reader gave up, and may have drained the queue already
+            if (failed && responses.remove(pageResponse)) {
+                close(pageResponse);
+            }
+        }
+    }
+
+    private static final class PageResponse {
+        private final int query;
+        private final InputStream response;
+        private final SalesforceException exception;
+
+        private PageResponse(int query, InputStream response, SalesforceException exception) {
+            this.query = query;
+            this.response = response;
+            this.exception = exception;
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.processor;
+
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+
+/**
+ * Records of a single query result page, read by {@link QueryRecordsIterator}.
+ */
+public interface QueryRecordsPage {
+
+    /**
+     * Returns true if the page has more records, may block reading the page.
+     */
+    boolean hasNext() throws SalesforceException;
+
+    Object next() throws SalesforceException;
+
+    /**
+     * Gets the URL of the next page, may be null until all records have been read.
+     */
+    String getNextRecordsUrl();
+
+    /**
+     * Releases the page response, also called when not all records were read.
+     */
+    void close();
+
+}
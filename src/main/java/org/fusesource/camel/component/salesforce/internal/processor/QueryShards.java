@@ -0,0 +1,281 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.processor;
+
+import org.fusesource.camel.component.salesforce.api.dto.AbstractSObjectBase;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a SOQL query into queries for disjoint ranges of Id, CreatedDate or SystemModstamp.
+ * <p>
+ * Range boundaries are interpolated between the lowest and highest field values.
+ * The first and last ranges are open, so together the ranges always cover every record of the query,
+ * although they may not have the same number of records.
+ * </p>
+ */
+class QueryShards {
+
+    static final String ID = "Id";
+    static final String CREATED_DATE = "CreatedDate";
+    static final String SYSTEM_MODSTAMP = "SystemModstamp";
+
+    // Salesforce Ids are base 62 numbers, the last 3 characters of 18 character Ids are a checksum
+    private static final String BASE62 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final BigInteger RADIX = BigInteger.valueOf(BASE62.length());
+    private static final int ID_LENGTH = 15;
+
+    private static final DateTimeFormatter DATE_TIME_FORMAT = ISODateTimeFormat.dateTimeNoMillis().withZoneUTC();
+
+    private final String field;
+    private final String head;
+    private final String fromClause;
+    private final String condition;
+    private final String tail;
+
+    QueryShards(String query, String field) {
+        if (ID.equalsIgnoreCase(field)) {
+            this.field = ID;
+        } else if (CREATED_DATE.equalsIgnoreCase(field)) {
+            this.field = CREATED_DATE;
+        } else if (SYSTEM_MODSTAMP.equalsIgnoreCase(field)) {
+            this.field = SYSTEM_MODSTAMP;
+        } else {
+            throw new IllegalArgumentException(String.format(
+                "Unsupported parallel query field %s, must be one of %s, %s or %s",
+                field, ID, CREATED_DATE, SYSTEM_MODSTAMP));
+        }
+
+        // find the top level FROM and WHERE clauses, and the clauses after them
+        int from = -1;
+        boolean sObjectName = false;
+        int where = -1;
+        int tailStart = query.length();
+        int depth = 0;
+        for (int i = 0; i < query.length(); i++) {
+            final char c = query.charAt(i);
+            if (c == '\'') {
+                // skip string literals
+                for (i++; i < query.length() && query.charAt(i) != '\''; i++) {
+                    if (query.charAt(i) == '\\') {
+                        i++;
+                    }
+                }
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && Character.isLetter(c) && (i == 0 || !isWordPart(query.charAt(i - 1)))) {
+
+                // relationship paths like Owner.Group.Name are a single word, so they never match a keyword
+                final int end = endOfWord(query, i);
+                final String word = query.substring(i, end).toUpperCase();
+                if (from < 0) {
+                    if ("FROM".equals(word)) {
+                        from = i;
+                        sObjectName = true;
+                    }
+                } else if (sObjectName) {
+                    // sObject names like Group or Order are not keywords
+                    sObjectName = false;
+                } else if (isClause(query, end, word, "GROUP", "BY") || "HAVING".equals(word) ||
+                    isClause(query, end, word, "LIMIT", null) || isClause(query, end, word, "OFFSET", null)) {
+                    throw new IllegalArgumentException(
+                        "Parallel query does not support GROUP BY, HAVING, LIMIT or OFFSET: " + query);
+                } else if (tailStart == query.length()) {
+                    if ("WHERE".equals(word) && where < 0) {
+                        where = i;
+                    } else if ("WITH".equals(word) || isClause(query, end, word, "ORDER", "BY") ||
+                        "FOR".equals(word)) {
+                        tailStart = i;
+                    }
+                }
+                i = end - 1;
+            }
+        }
+        if (from < 0) {
+            throw new IllegalArgumentException("Missing FROM clause in query: " + query);
+        }
+
+        final int headEnd = where >= 0 ? where : tailStart;
+        this.head = query.substring(0, headEnd).trim();
+        this.fromClause = query.substring(from, headEnd).trim();
+        this.condition = where >= 0 ? query.substring(where + "WHERE".length(), tailStart).trim() : null;
+        this.tail = query.substring(tailStart).trim();
+    }
+
+    private static boolean isWordPart(char c) {
+        return Character.isJavaIdentifierPart(c) || c == '.';
+    }
+
+    private static int endOfWord(String query, int start) {
+        int end = start;
+        while (end < query.length() && isWordPart(query.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    // matches a clause keyword followed by the next keyword, e.g. GROUP BY, or by a number or bind variable
+    private static boolean isClause(String query, int end, String word, String keyword, String nextKeyword) {
+        if (!keyword.equals(word)) {
+            return false;
+        }
+        int next = end;
+        while (next < query.length() && Character.isWhitespace(query.charAt(next))) {
+            next++;
+        }
+        if (next == query.length()) {
+            return false;
+        }
+        if (nextKeyword == null) {
+            final char c = query.charAt(next);
+            return Character.isDigit(c) || c == ':';
+        }
+        return nextKeyword.equalsIgnoreCase(query.substring(next, endOfWord(query, next)));
+    }
+
+    String getField() {
+        return field;
+    }
+
+    /**
+     * Gets a query for the lowest or highest value of the field in the query records.
+     */
+    String getBoundaryQuery(boolean lowest) {
+        return "SELECT " + field + " " + fromClause + (condition != null ? " WHERE " + condition : "") +
+            " ORDER BY " + field + (lowest ? " ASC" : " DESC") + " LIMIT 1";
+    }
+
+    /**
+     * Gets the field value of a record returned by a boundary query.
+     */
+    Object getValue(AbstractSObjectBase record) {
+        if (ID.equals(field)) {
+            return record.getId();
+        } else if (CREATED_DATE.equals(field)) {
+            return record.getCreatedDate();
+        } else {
+            return record.getSystemModstamp();
+        }
+    }
+
+    /**
+     * Gets queries for up to count disjoint ranges between the lowest and highest field values.
+     *
+     * @param lowest lowest field value, or null if the query has no records
+     * @param highest highest field value, or null if the query has no records
+     * @param count number of ranges
+     * @return queries for ranges in ascending order
+     */
+    List<String> getShardQueries(Object lowest, Object highest, int count) {
+        // literals for range boundaries in ascending order, without duplicates
+        final List<String> boundaries = new ArrayList<String>();
+        if (lowest != null && highest != null) {
+            String last = null;
+            for (int i = 1; i < count; i++) {
+                final String boundary = ID.equals(field) ?
+                    interpolateId((String) lowest, (String) highest, i, count) :
+                    interpolateDateTime((DateTime) lowest, (DateTime) highest, i, count);
+                if (!boundary.equals(last)) {
+                    boundaries.add(boundary);
+                    last = boundary;
+                }
+            }
+        }
+
+        final List<String> queries = new ArrayList<String>();
+        for (int i = 0; i <= boundaries.size(); i++) {
+            final StringBuilder range = new StringBuilder();
+            if (i > 0) {
+                range.append(field).append(" >= ").append(boundaries.get(i - 1));
+            }
+            if (i < boundaries.size()) {
+                if (i > 0) {
+                    range.append(" AND ");
+                }
+                range.append(field).append(" < ").append(boundaries.get(i));
+            }
+            queries.add(getQuery(range.toString()));
+        }
+        return queries;
+    }
+
+    private String getQuery(String range) {
+        final StringBuilder query = new StringBuilder(head);
+        if (condition != null || range.length() > 0) {
+            query.append(" WHERE ");
+            if (condition != null) {
+                query.append('(').append(condition).append(')');
+                if (range.length() > 0) {
+                    query.append(" AND ");
+                }
+            }
+            query.append(range);
+        }
+        if (tail.length() > 0) {
+            query.append(' ').append(tail);
+        }
+        return query.toString();
+    }
+
+    private static String interpolateId(String lowest, String highest, int index, int count) {
+        final BigInteger low = decodeId(lowest);
+        final BigInteger high = decodeId(highest);
+        final BigInteger value = low.add(high.subtract(low)
+            .multiply(BigInteger.valueOf(index)).divide(BigInteger.valueOf(count)));
+        return "'" + encodeId(value) + "'";
+    }
+
+    private static BigInteger decodeId(String id) {
+        if (id.length() < ID_LENGTH) {
+            throw new IllegalArgumentException("Invalid Salesforce Id " + id);
+        }
+        BigInteger value = BigInteger.ZERO;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            final int digit = BASE62.indexOf(id.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid Salesforce Id " + id);
+            }
+            value = value.multiply(RADIX).add(BigInteger.valueOf(digit));
+        }
+        return value;
+    }
+
+    private static String encodeId(BigInteger value) {
+        final char[] id = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            final BigInteger[] quotientAndRemainder = value.divideAndRemainder(RADIX);
+            id[i] = BASE62.charAt(quotientAndRemainder[1].intValue());
+            value = quotientAndRemainder[0];
+        }
+        return new String(id);
+    }
+
+    private static String interpolateDateTime(DateTime lowest, DateTime highest, int index, int count) {
+        final long low = lowest.getMillis();
+        final long value = low + (highest.getMillis() - low) / count * index;
+        // date time literals are not quoted
+        return DATE_TIME_FORMAT.print(value);
+    }
+
+}
@@ -0,0 +1,275 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.processor;
+
+import org.apache.camel.api.management.ManagedAttribute;
+import org.apache.camel.api.management.ManagedOperation;
+import org.apache.camel.api.management.ManagedResource;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of response entities, with a time to live and least recently used eviction.
+ * <p>
+ * Expired entries are kept along with their ETag and Last-Modified validators,
+ * so that they can be revalidated with a conditional request instead of being fetched again.
+ * </p>
+ * <p>
+ * Entries may also be put in groups, so that all entries for the same resource can be invalidated together.
+ * </p>
+ */
+@ManagedResource(description = "Salesforce Response Cache")
+public class ResponseCache {
+
+    private final long timeToLive;
+    private final Map<String, Entry> entries;
+    // keys of grouped entries, by group
+    private final Map<String, Set<String>> groups = new HashMap<String, Set<String>>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ResponseCache(long timeToLive, final int maxSize) {
+        if (timeToLive <= 0) {
+            throw new IllegalArgumentException("Cache time to live must be positive: " + timeToLive);
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxSize);
+        }
+        this.timeToLive = timeToLive;
+        // access ordered, so the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    removeFromGroups(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Gets a cache entry, which may have expired and need revalidation.
+     * Hits and misses are counted by the caller, using {@link #hit()} and {@link #miss()}.
+     *
+     * @param key cache key
+     * @return cached entry, or null if not found
+     */
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized void put(String key, Object value, String eTag, String lastModified) {
+        put(key, new Entry(value, eTag, lastModified, null, System.currentTimeMillis() + timeToLive));
+    }
+
+    /**
+     * Puts an entry without validators in groups,
+     * unless a group was invalidated since the caller read {@link #getInvalidations()}.
+     *
+     * @param key cache key
+     * @param value cached value
+     * @param entryGroups groups to invalidate the entry with, invalidating any one of them removes the entry
+     * @param invalidationCount number of invalidations before the value was fetched
+     * @return true if the entry was put, false if it may be stale
+     */
+    public synchronized boolean put(String key, Object value, String[] entryGroups, long invalidationCount) {
+        if (invalidations.get() != invalidationCount) {
+            return false;
+        }
+        put(key, new Entry(value, null, null, entryGroups, System.currentTimeMillis() + timeToLive));
+        return true;
+    }
+
+    private void put(String key, Entry entry) {
+        removeFromGroups(key, entries.put(key, entry));
+        if (entry.groups != null) {
+            for (String group : entry.groups) {
+                Set<String> keys = groups.get(group);
+                if (keys == null) {
+                    keys = new HashSet<String>();
+                    groups.put(group, keys);
+                }
+                keys.add(key);
+            }
+        }
+    }
+
+    private void removeFromGroups(String key, Entry entry) {
+        if (entry != null && entry.groups != null) {
+            for (String group : entry.groups) {
+                final Set<String> keys = groups.get(group);
+                if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                    groups.remove(group);
+                }
+            }
+        }
+    }
+
+    /**
+     * Extends the lifetime of an entry after the server reported it as not modified.
+     * The entry is put back if it was evicted while being revalidated.
+     *
+     * @param key cache key
+     * @param entry expired entry
+     * @return revalidated entry
+     */
+    public synchronized Entry revalidate(String key, Entry entry) {
+        revalidations.incrementAndGet();
+        final Entry revalidated = new Entry(entry.value, entry.eTag, entry.lastModified, entry.groups,
+            System.currentTimeMillis() + timeToLive);
+        put(key, revalidated);
+        return revalidated;
+    }
+
+    public synchronized void invalidate(String key) {
+        removeFromGroups(key, entries.remove(key));
+    }
+
+    /**
+     * Removes all entries in a group.
+     *
+     * @param group entry group
+     * @return number of entries removed
+     */
+    public synchronized int invalidateGroup(String group) {
+        invalidations.incrementAndGet();
+        final Set<String> keys = groups.remove(group);
+        if (keys == null) {
+            return 0;
+        }
+        for (String key : keys) {
+            // also removes the entry from its other groups
+            removeFromGroups(key, entries.remove(key));
+        }
+        return keys.size();
+    }
+
+    /**
+     * Gets the number of group invalidations so far, which a caller can compare before and after a request,
+     * to avoid caching a response that may have been invalidated while it was in flight.
+     *
+     * @return number of group invalidations
+     */
+    @ManagedAttribute(description = "Group invalidations")
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public void hit() {
+        hits.incrementAndGet();
+    }
+
+    public void miss() {
+        misses.incrementAndGet();
+    }
+
+    @ManagedOperation(description = "Remove all entries")
+    public synchronized void clear() {
+        entries.clear();
+        groups.clear();
+    }
+
+    @ManagedAttribute(description = "Entry time to live in millis")
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    @ManagedAttribute(description = "Cached entries")
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @ManagedAttribute(description = "Requests served from unexpired entries")
+    public long getHits() {
+        return hits.get();
+    }
+
+    @ManagedAttribute(description = "Requests sent to Salesforce, including revalidations")
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @ManagedAttribute(description = "Expired entries revalidated as not modified")
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+
+    @ManagedAttribute(description = "Least recently used entries evicted")
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @ManagedAttribute(description = "Ratio of hits to requests")
+    public double getHitRatio() {
+        final long hitCount = hits.get();
+        final long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        revalidations.set(0);
+        evictions.set(0);
+    }
+
+    public static final class Entry {
+        private final Object value;
+        private final String eTag;
+        private final String lastModified;
+        private final String[] groups;
+        private final long expires;
+
+        private Entry(Object value, String eTag, String lastModified, String[] groups, long expires) {
+            this.value = value;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.groups = groups;
+            this.expires = expires;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expires;
+        }
+    }
+
+}
@@ -32,6 +32,7 @@ import org.fusesource.camel.component.salesforce.SalesforceEndpoint;
 import org.fusesource.camel.component.salesforce.api.JodaTimeConverter;
 import org.fusesource.camel.component.salesforce.api.SalesforceException;
 import org.fusesource.camel.component.salesforce.api.dto.*;
+import org.fusesource.camel.component.salesforce.internal.client.RequestContentStream;
 
 import java.io.*;
 
@@ -62,6 +63,7 @@ public class XmlRestProcessor extends AbstractRestProcessor {
         };
 
     private static final String RESPONSE_ALIAS = XmlRestProcessor.class.getName() + ".responseAlias";
+    private static final String QUERY_RESULT_ALIAS = "QueryResult";
 
     public XmlRestProcessor(SalesforceEndpoint endpoint) throws SalesforceException {
         super(endpoint);
@@ -128,8 +130,7 @@ public class XmlRestProcessor extends AbstractRestProcessor {
             case QUERY:
             case QUERY_MORE:
                 // need to add alias for Salesforce XML that uses SObject name as root element
-                exchange.setProperty(RESPONSE_ALIAS,
-                    "QueryResult");
+                exchange.setProperty(RESPONSE_ALIAS, QUERY_RESULT_ALIAS);
                 break;
 
             case SEARCH:
@@ -137,6 +138,14 @@ public class XmlRestProcessor extends AbstractRestProcessor {
                 exchange.setProperty(RESPONSE_CLASS, SearchResults.class);
                 break;
 
+            case COMPOSITE_BATCH:
+            case CREATE_SOBJECT_COLLECTION:
+            case UPDATE_SOBJECT_COLLECTION:
+            case UPSERT_SOBJECT_COLLECTION:
+            case DELETE_SOBJECT_COLLECTION:
+                throw new SalesforceException(
+                    String.format("Operation %s is only supported for JSON format", operationName.value()), null);
+
         }
 
     }
@@ -150,13 +159,7 @@ public class XmlRestProcessor extends AbstractRestProcessor {
             if (request == null) {
                 AbstractSObjectBase sObject = in.getBody(AbstractSObjectBase.class);
                 if (sObject != null) {
-                    // marshall the SObject
-                    // first process annotations on the class, for things like alias, etc.
-                    localXStream.processAnnotations(sObject.getClass());
-                    ByteArrayOutputStream out = new ByteArrayOutputStream();
-                    // make sure we write the XML with the right encoding
-                    localXStream.toXML(sObject, new OutputStreamWriter(out, StringUtil.__UTF8_CHARSET));
-                    request = new ByteArrayInputStream(out.toByteArray());
+                    request = getRequestStream(sObject);
                 } else {
                     // if all else fails, get body as String
                     final String body = in.getBody(String.class);
@@ -165,7 +168,7 @@ public class XmlRestProcessor extends AbstractRestProcessor {
                             (in.getBody() == null ? null : in.getBody().getClass());
                         throw new SalesforceException(msg, null);
                     } else {
-                        request = new ByteArrayInputStream(body.getBytes(StringUtil.__UTF8_CHARSET));
+                        request = new RequestContentStream(body.getBytes(StringUtil.__UTF8_CHARSET));
                     }
                 }
             }
@@ -176,6 +179,66 @@ public class XmlRestProcessor extends AbstractRestProcessor {
         }
     }
 
+    @Override
+    protected InputStream getRequestStream(AbstractDTOBase dto) throws SalesforceException {
+        final XStream localXStream = xStream.get();
+        try {
+            // marshall the DTO
+            // first process annotations on the class, for things like alias, etc.
+            localXStream.processAnnotations(dto.getClass());
+            RequestContentStream.ContentOutputStream out = RequestContentStream.newOutputStream();
+            // make sure we write the XML with the right encoding
+            localXStream.toXML(dto, new OutputStreamWriter(out, StringUtil.__UTF8_CHARSET));
+            // the client sends the marshaled buffer as is
+            return out.toInputStream();
+        } catch (XStreamException e) {
+            String msg = "Error marshaling request: " + e.getMessage();
+            throw new SalesforceException(msg, e);
+        }
+    }
+
+    @Override
+    protected QueryRecordsPage readQueryRecords(InputStream response, Class<?> queryRecordsClass)
+        throws SalesforceException {
+        try {
+            return new BoundQueryRecordsPage(
+                (AbstractQueryRecordsBase) unmarshal(xStream.get(), response, queryRecordsClass, QUERY_RESULT_ALIAS));
+        } catch (SalesforceException e) {
+            throw e;
+        } catch (XStreamException e) {
+            String msg = "Error parsing XML response: " + e.getMessage();
+            throw new SalesforceException(msg, e);
+        } catch (Exception e) {
+            String msg = "Error creating XML response: " + e.getMessage();
+            throw new SalesforceException(msg, e);
+        } finally {
+            try {
+                response.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static Object unmarshal(XStream localXStream, InputStream responseEntity, Class<?> responseClass,
+                                    String responseAlias) throws InstantiationException, IllegalAccessException {
+        // its ok to call this multiple times, as xstream ignores duplicate calls
+        localXStream.processAnnotations(responseClass);
+        if (responseAlias != null) {
+            // extremely dirty, need to flush entire cache if its holding on to an old alias!!!
+            final CachingMapper mapper = (CachingMapper) localXStream.getMapper();
+            try {
+                if (mapper.realClass(responseAlias) != responseClass) {
+                    mapper.flushCache();
+                }
+            } catch (CannotResolveClassException ignore) {
+            }
+            localXStream.alias(responseAlias, responseClass);
+        }
+        final Object response = responseClass.newInstance();
+        localXStream.fromXML(responseEntity, response);
+        return response;
+    }
+
     @Override
     protected void processResponse(Exchange exchange, InputStream responseEntity,
                                    SalesforceException exception, AsyncCallback callback) {
@@ -186,22 +249,8 @@ public class XmlRestProcessor extends AbstractRestProcessor {
                 final Class<?> responseClass = exchange.getProperty(RESPONSE_CLASS, Class.class);
                 Object response;
                 if (responseClass != null) {
-                    // its ok to call this multiple times, as xstream ignores duplicate calls
-                    localXStream.processAnnotations(responseClass);
-                    final String responseAlias = exchange.getProperty(RESPONSE_ALIAS, String.class);
-                    if (responseAlias != null) {
-                        // extremely dirty, need to flush entire cache if its holding on to an old alias!!!
-                        final CachingMapper mapper = (CachingMapper) localXStream.getMapper();
-                        try {
-                            if (mapper.realClass(responseAlias) != responseClass) {
-                                mapper.flushCache();
-                            }
-                        } catch (CannotResolveClassException ignore) {
-                        }
-                        localXStream.alias(responseAlias, responseClass);
-                    }
-                    response = responseClass.newInstance();
-                    localXStream.fromXML(responseEntity, response);
+                    response = unmarshal(localXStream, responseEntity, responseClass,
+                        exchange.getProperty(RESPONSE_ALIAS, String.class));
                 } else {
                     // return the response as a stream, for getBlobField
                     response = responseEntity;
@@ -186,8 +186,8 @@ public class SubscriptionHelper implements Service {
     }
 
     private BayeuxClient createClient() throws Exception {
-        // use default Jetty client from SalesforceComponent, its shared by all consumers
-        final HttpClient httpClient = component.getConfig().getHttpClient();
+        // use the Streaming API lane of SalesforceComponent, its shared by all consumers
+        final HttpClient httpClient = component.getStreamingHttpClient();
 
         Map<String, Object> options = new HashMap<String, Object>();
         options.put(ClientTransport.TIMEOUT_OPTION, httpClient.getTimeout());
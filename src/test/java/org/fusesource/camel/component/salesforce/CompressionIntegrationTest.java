@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce;
+
+import org.apache.camel.builder.RouteBuilder;
+import org.fusesource.camel.component.salesforce.api.dto.CreateSObjectResult;
+import org.fusesource.camel.component.salesforce.dto.Merchandise__c;
+import org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c;
+import org.fusesource.camel.component.salesforce.internal.client.Compression;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class CompressionIntegrationTest extends AbstractSalesforceTestBase {
+
+    @Override
+    protected void createComponent() throws IllegalAccessException, IOException {
+        super.createComponent();
+        final SalesforceComponent component = context().getComponent("salesforce", SalesforceComponent.class);
+        component.setCompressResponses(true);
+        component.setCompressRequests(true);
+        // compress the small test records too
+        component.setCompressRequestMinSize(0);
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+        assertNotNull(template().requestBody("direct:query", null, QueryRecordsLine_Item__c.class));
+
+        // query results are large enough to be compressed
+        final Compression compression = context().getComponent("salesforce", SalesforceComponent.class)
+            .getCompression();
+        assertTrue("Missing compressed responses", compression.getCompressedResponses() > 0);
+        assertTrue("Responses not compressed", compression.getResponseWireBytes() < compression.getResponseBytes());
+    }
+
+    @Test
+    public void testCompressedRequest() throws Exception {
+        final Compression compression = context().getComponent("salesforce", SalesforceComponent.class)
+            .getCompression();
+        final long compressedRequests = compression.getCompressedRequests();
+
+        Merchandise__c merchandise__c = new Merchandise__c();
+        merchandise__c.setName("Wee Wee Wee Compressed Plane");
+        merchandise__c.setDescription__c("Microlite plane");
+        merchandise__c.setPrice__c(2000.0);
+        merchandise__c.setTotal_Inventory__c(50.0);
+
+        // Salesforce accepts the gzip encoded body
+        CreateSObjectResult result = template().requestBody("direct:CreateSObject",
+            merchandise__c, CreateSObjectResult.class);
+        assertNotNull(result);
+        assertTrue("Create success", result.getSuccess());
+        assertEquals(compressedRequests + 1, compression.getCompressedRequests());
+
+        assertNull(template().requestBody("direct:deleteSObject", result.getId()));
+    }
+
+    @Override
+    protected RouteBuilder doCreateRouteBuilder() throws Exception {
+        return new RouteBuilder() {
+            public void configure() {
+
+                // testCompression
+                from("direct:query")
+                    .to("salesforce:query?sObjectQuery=SELECT name from Line_Item__c&sObjectClass=org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c");
+
+                // testCompressedRequest
+                from("direct:CreateSObject")
+                    .to("salesforce:createSObject?sObjectName=Merchandise__c");
+
+                from("direct:deleteSObject")
+                    .to("salesforce:deleteSObject?sObjectName=Merchandise__c");
+            }
+        };
+    }
+
+}
@@ -0,0 +1,210 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.apache.camel.CamelExecutionException;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.test.junit4.CamelTestSupport;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.dto.Merchandise__c;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeadlineTest extends CamelTestSupport {
+
+    private static final String ID = "a01000000000001AAA";
+    private static final String RECORD = "{\"attributes\":{\"type\":\"Merchandise__c\"},\"Id\":\"" + ID + "\"}";
+
+    private static final long DEADLINE = 500;
+    // responses that arrive after this are not waited for
+    private static final long SLOW_RESPONSE = 5000;
+
+    private EmbeddedSalesforceServer server;
+
+    // token the server accepts, null for the token of the last login
+    private volatile String validToken;
+    // delay of authorized responses
+    private volatile long responseDelay;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Override
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                final String token = validToken != null ? validToken : server.getAccessToken();
+                if (!("Bearer " + token).equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    EmbeddedSalesforceServer.respond(exchange, 401,
+                        "[{\"message\":\"Session expired or invalid\",\"errorCode\":\"INVALID_SESSION_ID\"}]"
+                            .getBytes("UTF-8"));
+                    return;
+                }
+                try {
+                    Thread.sleep(responseDelay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                EmbeddedSalesforceServer.respond(exchange, 200, RECORD.getBytes("UTF-8"));
+            }
+        });
+        super.setUp();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        server.stop();
+    }
+
+    @Test
+    public void testWithoutDeadline() throws Exception {
+        final Merchandise__c merchandise = template().requestBody("direct:getSObject", ID, Merchandise__c.class);
+        assertEquals(ID, merchandise.getId());
+    }
+
+    @Test
+    public void testRequestTimeout() throws Exception {
+        responseDelay = SLOW_RESPONSE;
+        assertDeadlineExceeded("direct:getSObjectWithTimeout", null, "Deadline exceeded for");
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testDeadlineHeaderDate() throws Exception {
+        responseDelay = SLOW_RESPONSE;
+        assertDeadlineExceeded("direct:getSObject", new Date(System.currentTimeMillis() + DEADLINE),
+            "Deadline exceeded for");
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testDeadlineHeaderLong() throws Exception {
+        responseDelay = SLOW_RESPONSE;
+        assertDeadlineExceeded("direct:getSObject", System.currentTimeMillis() + DEADLINE,
+            "Deadline exceeded for");
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testDeadlineHeaderBeforeRequestTimeout() throws Exception {
+        // the earlier of the header and the endpoint timeout applies
+        responseDelay = SLOW_RESPONSE;
+        assertDeadlineExceeded("direct:getSObjectWithLongTimeout", System.currentTimeMillis() + DEADLINE,
+            "Deadline exceeded for");
+    }
+
+    @Test
+    public void testExpiredDeadline() throws Exception {
+        assertDeadlineExceeded("direct:getSObject", System.currentTimeMillis() - 1,
+            "Deadline exceeded before processing");
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void testResendAfterLogin() throws Exception {
+        // the token expires, and the resent request gets the time left until the deadline
+        validToken = "token2";
+        responseDelay = SLOW_RESPONSE;
+        assertDeadlineExceeded("direct:getSObject", System.currentTimeMillis() + DEADLINE, "Deadline exceeded");
+        assertEquals(2, server.getLogins());
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void testLoginPastDeadline() throws Exception {
+        // the request isn't resent when the login completes after the deadline
+        validToken = "token2";
+        final CountDownLatch loginGate = new CountDownLatch(1);
+        server.setLoginGate(loginGate);
+        final Thread opener = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(2 * DEADLINE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                loginGate.countDown();
+            }
+        };
+        opener.start();
+        try {
+            template().requestBodyAndHeader("direct:getSObject", ID,
+                SalesforceEndpointConfig.DEADLINE, System.currentTimeMillis() + DEADLINE, Merchandise__c.class);
+            fail("Request after deadline wasn't rejected");
+        } catch (CamelExecutionException e) {
+            assertTrue(e.getCause() instanceof SalesforceException);
+        } finally {
+            opener.join();
+        }
+        assertEquals(2, server.getLogins());
+        assertEquals(1, requests.get());
+    }
+
+    // fails well before the slow response
+    private void assertDeadlineExceeded(String endpoint, Object deadline, String message) {
+        final long start = System.currentTimeMillis();
+        try {
+            template().requestBodyAndHeader(endpoint, ID, SalesforceEndpointConfig.DEADLINE, deadline,
+                Merchandise__c.class);
+            fail("Request after deadline wasn't rejected");
+        } catch (CamelExecutionException e) {
+            assertTrue(e.getCause() instanceof SalesforceException);
+            assertTrue(e.getCause().getMessage(), e.getCause().getMessage().startsWith(message));
+        }
+        final long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Deadline exceeded after " + elapsed + " msecs", elapsed < SLOW_RESPONSE / 2);
+    }
+
+    @Override
+    protected RouteBuilder createRouteBuilder() throws Exception {
+        final SalesforceComponent component = new SalesforceComponent();
+        component.setLoginConfig(server.getLoginConfig());
+        component.setConfig(new SalesforceEndpointConfig());
+        component.setPackages(new String[] {
+            Merchandise__c.class.getPackage().getName()
+        });
+        context().addComponent("salesforce", component);
+
+        return new RouteBuilder() {
+            public void configure() {
+
+                from("direct:getSObject")
+                    .to("salesforce:getSObject?sObjectName=Merchandise__c");
+
+                // testRequestTimeout
+                from("direct:getSObjectWithTimeout")
+                    .to("salesforce:getSObject?sObjectName=Merchandise__c&requestTimeout=" + DEADLINE);
+
+                // testDeadlineHeaderBeforeRequestTimeout
+                from("direct:getSObjectWithLongTimeout")
+                    .to("salesforce:getSObject?sObjectName=Merchandise__c&requestTimeout=" + 2 * SLOW_RESPONSE);
+            }
+        };
+    }
+
+}
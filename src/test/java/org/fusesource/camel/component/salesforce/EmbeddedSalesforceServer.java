@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.eclipse.jetty.client.HttpClient;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP server that stands in for the Salesforce login and instance servers in unit tests,
+ * with a Jetty HttpClient connected to it.
+ * <p>
+ * Logins are answered with access tokens token1, token2, etc. and the server's own URL as instance URL.
+ * Tests add handlers for the API resources they use.
+ * </p>
+ */
+public class EmbeddedSalesforceServer {
+
+    public static final String TOKEN_PATH = "/services/oauth2/token";
+    public static final String REVOKE_PATH = "/services/oauth2/revoke";
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private HttpClient httpClient;
+    private String url;
+
+    private final AtomicInteger logins = new AtomicInteger();
+    private volatile CountDownLatch loginGate;
+    private volatile boolean loginFailing;
+
+    public void start() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext(TOKEN_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                login(exchange);
+            }
+        });
+        server.createContext(REVOKE_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange, 200, null);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+
+        httpClient = new HttpClient();
+        httpClient.setConnectorType(HttpClient.CONNECTOR_SELECT_CHANNEL);
+        httpClient.start();
+    }
+
+    public void stop() throws Exception {
+        final CountDownLatch gate = loginGate;
+        if (gate != null) {
+            gate.countDown();
+        }
+        if (httpClient != null) {
+            httpClient.stop();
+        }
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public void createContext(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    // connection settings like the idle timeout apply to connections opened after they are set
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public SalesforceLoginConfig getLoginConfig() {
+        return new SalesforceLoginConfig(url, "clientId", "clientSecret", "userName", "password", false);
+    }
+
+    /**
+     * Creates a session that logs in to this server, using its HttpClient.
+     */
+    public SalesforceSession createSession() {
+        return new SalesforceSession(getHttpClient(), getLoginConfig());
+    }
+
+    public int getLogins() {
+        return logins.get();
+    }
+
+    // access token of the last login
+    public String getAccessToken() {
+        return "token" + logins.get();
+    }
+
+    /**
+     * Holds login responses until the gate is opened, null to answer logins right away.
+     */
+    public void setLoginGate(CountDownLatch loginGate) {
+        this.loginGate = loginGate;
+    }
+
+    public void setLoginFailing(boolean loginFailing) {
+        this.loginFailing = loginFailing;
+    }
+
+    private void login(HttpExchange exchange) throws IOException {
+        readRequestBody(exchange);
+        final int login = logins.incrementAndGet();
+        final CountDownLatch gate = loginGate;
+        if (gate != null) {
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (loginFailing) {
+            respond(exchange, 400,
+                "{\"error\":\"invalid_grant\",\"error_description\":\"authentication failure\"}".getBytes("UTF-8"));
+        } else {
+            respond(exchange, 200, String.format(
+                "{\"access_token\":\"token%s\",\"instance_url\":\"%s\",\"id\":\"%s/id/00D/005\"," +
+                    "\"signature\":\"signature\",\"issued_at\":\"%s\"}",
+                login, url, url, System.currentTimeMillis()).getBytes("UTF-8"));
+        }
+    }
+
+    /**
+     * Sends a response, with an empty body if content is null.
+     */
+    public static void respond(HttpExchange exchange, int status, byte[] content) throws IOException {
+        try {
+            if (content != null && content.length > 0) {
+                exchange.sendResponseHeaders(status, content.length);
+                final OutputStream out = exchange.getResponseBody();
+                out.write(content);
+                out.close();
+            } else {
+                exchange.sendResponseHeaders(status, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    public static byte[] readRequestBody(HttpExchange exchange) throws IOException {
+        return read(exchange.getRequestBody());
+    }
+
+    public static byte[] read(InputStream in) throws IOException {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce;
+
+import org.apache.camel.builder.RouteBuilder;
+import org.fusesource.camel.component.salesforce.api.dto.SObjectDescription;
+import org.fusesource.camel.component.salesforce.internal.processor.ResponseCache;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+public class MetadataCacheIntegrationTest extends AbstractSalesforceTestBase {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetadataCacheIntegrationTest.class);
+    private static final long CACHE_TTL = 2000;
+
+    @Override
+    protected void createComponent() throws IllegalAccessException, IOException {
+        super.createComponent();
+        final SalesforceComponent component = context().getComponent("salesforce", SalesforceComponent.class);
+        component.setMetadataCacheTtl(CACHE_TTL);
+    }
+
+    @Test
+    public void testCachedDescription() throws Exception {
+        doTestCachedDescription("");
+        doTestCachedDescription("Xml");
+    }
+
+    private void doTestCachedDescription(String suffix) throws Exception {
+        final ResponseCache cache = context().getComponent("salesforce", SalesforceComponent.class).getMetadataCache();
+        cache.resetStatistics();
+
+        final SObjectDescription description = template().requestBody("direct:getDescription" + suffix, null,
+            SObjectDescription.class);
+        assertNotNull(description);
+        assertEquals(1, cache.getMisses());
+
+        // served from the cache, as a copy that can be modified
+        final String name = description.getName();
+        final int fields = description.getFields().size();
+        description.setName("Modified");
+        description.getFields().clear();
+        final SObjectDescription cached = template().requestBody("direct:getDescription" + suffix, null,
+            SObjectDescription.class);
+        assertNotSame(description, cached);
+        assertEquals(name, cached.getName());
+        assertEquals(fields, cached.getFields().size());
+        assertEquals(1, cache.getHits());
+
+        // expired, so it's either revalidated or fetched again
+        Thread.sleep(CACHE_TTL + 500);
+        assertNotNull(template().requestBody("direct:getDescription" + suffix, null, SObjectDescription.class));
+        assertEquals(2, cache.getMisses());
+        LOG.debug("Metadata cache revalidations: {}", cache.getRevalidations());
+    }
+
+    @Override
+    protected RouteBuilder doCreateRouteBuilder() throws Exception {
+        return new RouteBuilder() {
+            public void configure() {
+
+                // testCachedDescription
+                from("direct:getDescription")
+                    .to("salesforce:getDescription?sObjectName=Merchandise__c");
+
+                from("direct:getDescriptionXml")
+                    .to("salesforce:getDescription?format=xml&sObjectName=Merchandise__c");
+            }
+        };
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce;
+
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.component.mock.MockEndpoint;
+import org.fusesource.camel.component.salesforce.api.dto.CreateSObjectResult;
+import org.fusesource.camel.component.salesforce.dto.Merchandise__c;
+import org.fusesource.camel.component.salesforce.internal.dto.QueryRecordsPushTopic;
+import org.fusesource.camel.component.salesforce.internal.processor.ResponseCache;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class RecordCacheIntegrationTest extends AbstractSalesforceTestBase {
+
+    @Override
+    protected void createComponent() throws IllegalAccessException, IOException {
+        super.createComponent();
+        final SalesforceComponent component = context().getComponent("salesforce", SalesforceComponent.class);
+        component.setRecordCacheTtl(60000);
+    }
+
+    @Test
+    public void testRecordCache() throws Exception {
+        final ResponseCache cache = context().getComponent("salesforce", SalesforceComponent.class).getRecordCache();
+        final MockEndpoint mock = getMockEndpoint("mock:CamelRecordCacheTopic");
+        mock.expectedMessageCount(1);
+
+        Merchandise__c merchandise = new Merchandise__c();
+        merchandise.setName("TestRecordCache");
+        merchandise.setDescription__c("Merchandise for testing the record cache");
+        merchandise.setPrice__c(9.99);
+        merchandise.setTotal_Inventory__c(1000.0);
+        final CreateSObjectResult result = template().requestBody("direct:createSObject", merchandise,
+            CreateSObjectResult.class);
+        assertTrue("Merchandise test record not created", result.getSuccess());
+
+        try {
+            final Merchandise__c cached = template().requestBody("direct:getSObject", result.getId(),
+                Merchandise__c.class);
+            assertEquals(9.99, cached.getPrice__c(), 0.001);
+
+            // every hit is a copy, so modifying a record doesn't change the cached record
+            cached.setPrice__c(0.0);
+            cached.clearBaseFields();
+            final Merchandise__c hit = template().requestBody("direct:getSObject", result.getId(),
+                Merchandise__c.class);
+            assertNotSame(cached, hit);
+            assertEquals(9.99, hit.getPrice__c(), 0.001);
+            assertEquals(result.getId(), hit.getId());
+            assertEquals(1, cache.getHits());
+            assertEquals(1, cache.getMisses());
+
+            // updates through the component invalidate the record right away
+            final long invalidations = cache.getInvalidations();
+            merchandise.setId(result.getId());
+            merchandise.setPrice__c(19.99);
+            assertNull(template().requestBody("direct:updateSObject", merchandise));
+            assertEquals(19.99, template().requestBody("direct:getSObject", result.getId(),
+                Merchandise__c.class).getPrice__c(), 0.001);
+            assertEquals(2, cache.getMisses());
+
+            // and so does the streaming event for the update
+            mock.assertIsSatisfied();
+            assertEquals(invalidations + 2, cache.getInvalidations());
+            assertEquals(0, cache.getSize());
+
+        } finally {
+            // remove the test record
+            assertNull(template().requestBody("direct:deleteSObject", result.getId()));
+
+            // remove the test topic
+            final QueryRecordsPushTopic records = template().requestBody("direct:queryTopic", null,
+                QueryRecordsPushTopic.class);
+            assertEquals("Test topic not found", 1, records.getTotalSize());
+            assertNull(template().requestBody("direct:deleteTopic", records.getRecords().get(0)));
+        }
+    }
+
+    @Override
+    protected RouteBuilder doCreateRouteBuilder() throws Exception {
+        return new RouteBuilder() {
+            @Override
+            public void configure() throws Exception {
+
+                // topic for record updates
+                from("salesforce:CamelRecordCacheTopic?notifyForFields=ALL&notifyForOperations=UPDATE&" +
+                    "sObjectName=Merchandise__c&" +
+                    "updateTopic=true&sObjectQuery=SELECT Id, Name FROM Merchandise__c").
+                    to("mock:CamelRecordCacheTopic");
+
+                from("direct:createSObject")
+                    .to("salesforce:createSObject?sObjectName=Merchandise__c");
+
+                from("direct:getSObject")
+                    .to("salesforce:getSObject?sObjectName=Merchandise__c&sObjectFields=Id,Price__c");
+
+                from("direct:updateSObject")
+                    .to("salesforce:updateSObject?sObjectName=Merchandise__c");
+
+                from("direct:deleteSObject")
+                    .to("salesforce:deleteSObject?sObjectName=Merchandise__c");
+
+                // routes for removing test topic
+                from("direct:queryTopic").
+                    to("salesforce:query?sObjectQuery=SELECT Id FROM PushTopic WHERE Name = 'CamelRecordCacheTopic'&" +
+                        "sObjectClass=org.fusesource.camel.component.salesforce.internal.dto.QueryRecordsPushTopic");
+
+                from("direct:deleteTopic").
+                    to("salesforce:deleteSObject");
+            }
+        };
+    }
+
+}
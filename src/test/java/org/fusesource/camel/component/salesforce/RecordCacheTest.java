@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.test.junit4.CamelTestSupport;
+import org.fusesource.camel.component.salesforce.dto.Line_Item__c;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RecordCacheTest extends CamelTestSupport {
+
+    private static final String COLLECTIONS_API_VERSION = "42.0";
+    private static final String ID = "a02000000000001AAA";
+    private static final String NAME = "LineItem1";
+    private static final String RECORD = "{\"attributes\":{\"type\":\"Line_Item__c\"},\"Id\":\"" + ID +
+        "\",\"Name\":\"" + NAME + "\"}";
+    private static final String RESULTS = "[{\"id\":\"" + ID + "\",\"success\":true,\"errors\":[]}]";
+
+    private EmbeddedSalesforceServer server;
+    // records fetched from the server, the rest are served from the cache
+    private final AtomicInteger fetched = new AtomicInteger();
+
+    @Override
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                EmbeddedSalesforceServer.readRequestBody(exchange);
+                final String method = exchange.getRequestMethod();
+                if ("GET".equals(method)) {
+                    fetched.incrementAndGet();
+                    EmbeddedSalesforceServer.respond(exchange, 200, RECORD.getBytes("UTF-8"));
+                } else if (exchange.getRequestURI().getPath().contains("/composite/sobjects")) {
+                    EmbeddedSalesforceServer.respond(exchange, 200, RESULTS.getBytes("UTF-8"));
+                } else {
+                    // an updated or deleted record's Id isn't returned
+                    EmbeddedSalesforceServer.respond(exchange, 204, null);
+                }
+            }
+        });
+        super.setUp();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        server.stop();
+    }
+
+    @Test
+    public void testUpsertSObject() throws Exception {
+        cacheRecord();
+        final Line_Item__c lineItem = new Line_Item__c();
+        lineItem.setName(NAME);
+        lineItem.setUnits_Sold__c(10.0);
+        assertNull(template().requestBody("direct:upsertSObject", lineItem));
+        assertRecordsFetched();
+    }
+
+    @Test
+    public void testDeleteSObjectWithId() throws Exception {
+        cacheRecord();
+        assertNull(template().requestBody("direct:deleteSObjectWithId", NAME));
+        assertRecordsFetched();
+    }
+
+    @Test
+    public void testUpdateSObjectCollection() throws Exception {
+        cacheRecord();
+        final Line_Item__c lineItem = new Line_Item__c();
+        lineItem.setId(ID);
+        lineItem.setUnits_Sold__c(10.0);
+        template().requestBody("direct:updateSObjectCollection", Collections.singletonList(lineItem));
+        assertRecordsFetched();
+    }
+
+    @Test
+    public void testUpsertSObjectCollection() throws Exception {
+        cacheRecord();
+        final Line_Item__c lineItem = new Line_Item__c();
+        lineItem.setName(NAME);
+        lineItem.setUnits_Sold__c(10.0);
+        template().requestBody("direct:upsertSObjectCollection", Collections.singletonList(lineItem));
+        assertRecordsFetched();
+    }
+
+    @Test
+    public void testDeleteSObjectCollection() throws Exception {
+        cacheRecord();
+        template().requestBody("direct:deleteSObjectCollection", Arrays.asList(ID));
+        assertRecordsFetched();
+    }
+
+    // caches the record by Id and by external Id
+    private void cacheRecord() {
+        for (int i = 0; i < 2; i++) {
+            assertEquals(ID, template().requestBody("direct:getSObject", ID, Line_Item__c.class).getId());
+            assertEquals(ID, template().requestBody("direct:getSObjectWithId", NAME, Line_Item__c.class).getId());
+        }
+        assertEquals(2, fetched.get());
+    }
+
+    // the write invalidated the record, so it's fetched again by Id and by external Id
+    private void assertRecordsFetched() {
+        assertEquals(ID, template().requestBody("direct:getSObject", ID, Line_Item__c.class).getId());
+        assertEquals(ID, template().requestBody("direct:getSObjectWithId", NAME, Line_Item__c.class).getId());
+        assertEquals(4, fetched.get());
+    }
+
+    @Override
+    protected RouteBuilder createRouteBuilder() throws Exception {
+        final SalesforceComponent component = new SalesforceComponent();
+        component.setLoginConfig(server.getLoginConfig());
+        component.setConfig(new SalesforceEndpointConfig());
+        component.setPackages(new String[] {
+            Line_Item__c.class.getPackage().getName()
+        });
+        component.setRecordCacheTtl(60000);
+        context().addComponent("salesforce", component);
+
+        return new RouteBuilder() {
+            public void configure() {
+
+                from("direct:getSObject")
+                    .to("salesforce:getSObject?sObjectName=Line_Item__c&apiVersion=" + COLLECTIONS_API_VERSION);
+
+                from("direct:getSObjectWithId")
+                    .to("salesforce:getSObjectWithId?sObjectName=Line_Item__c&sObjectIdName=Name&apiVersion=" +
+                        COLLECTIONS_API_VERSION);
+
+                // testUpsertSObject
+                from("direct:upsertSObject")
+                    .to("salesforce:upsertSObject?sObjectName=Line_Item__c&sObjectIdName=Name&apiVersion=" +
+                        COLLECTIONS_API_VERSION);
+
+                // testDeleteSObjectWithId
+                from("direct:deleteSObjectWithId")
+                    .to("salesforce:deleteSObjectWithId?sObjectName=Line_Item__c&sObjectIdName=Name&apiVersion=" +
+                        COLLECTIONS_API_VERSION);
+
+                // testUpdateSObjectCollection
+                from("direct:updateSObjectCollection")
+                    .to("salesforce:updateSObjectCollection?apiVersion=" + COLLECTIONS_API_VERSION);
+
+                // testUpsertSObjectCollection
+                from("direct:upsertSObjectCollection")
+                    .to("salesforce:upsertSObjectCollection?sObjectIdName=Name&apiVersion=" +
+                        COLLECTIONS_API_VERSION);
+
+                // testDeleteSObjectCollection
+                from("direct:deleteSObjectCollection")
+                    .to("salesforce:deleteSObjectCollection?apiVersion=" + COLLECTIONS_API_VERSION);
+            }
+        };
+    }
+
+}
@@ -16,12 +16,17 @@
  */
 package org.fusesource.camel.component.salesforce;
 
+import org.apache.camel.CamelExecutionException;
 import org.apache.camel.builder.RouteBuilder;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
 import org.fusesource.camel.component.salesforce.api.dto.*;
+import org.fusesource.camel.component.salesforce.api.dto.composite.SObjectBatch;
+import org.fusesource.camel.component.salesforce.api.dto.composite.SObjectBatchResponse;
 import org.fusesource.camel.component.salesforce.dto.Document;
 import org.fusesource.camel.component.salesforce.dto.Line_Item__c;
 import org.fusesource.camel.component.salesforce.dto.Merchandise__c;
 import org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c;
+import org.fusesource.camel.component.salesforce.internal.client.ApiLimits;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,8 +36,12 @@ import java.io.InputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 public class RestApiIntegrationTest extends AbstractSalesforceTestBase {
 
@@ -40,6 +49,10 @@ public class RestApiIntegrationTest extends AbstractSalesforceTestBase {
     private static final String TEST_LINE_ITEM_ID = "1";
     private static final String NEW_LINE_ITEM_ID = "100";
     private static final String TEST_DOCUMENT_ID = "Test Document";
+    // composite resources require API version 34.0 or later
+    private static final String COMPOSITE_API_VERSION = "34.0";
+    // SObject Collections require API version 42.0 or later
+    private static final String COLLECTIONS_API_VERSION = "42.0";
 
     private static String testId;
 
@@ -92,6 +105,16 @@ public class RestApiIntegrationTest extends AbstractSalesforceTestBase {
         LOG.debug("GlobalObjects: {}", globalObjects);
     }
 
+    @Test
+    public void testApiLimits() throws Exception {
+        // every REST response reports the org's API usage
+        assertNotNull(template().requestBody("direct:getGlobalObjects", null, GlobalObjects.class));
+        final ApiLimits apiLimits = context().getComponent("salesforce", SalesforceComponent.class).getApiLimits();
+        assertTrue("Missing API limit", apiLimits.getMax() > 0);
+        assertTrue("Missing API usage", apiLimits.getUsed() > 0);
+        LOG.debug("API usage: {}/{}", apiLimits.getUsed(), apiLimits.getMax());
+    }
+
     @Test
     public void testGetBasicInfo() throws Exception {
         doTestGetBasicInfo("");
@@ -122,6 +145,19 @@ public class RestApiIntegrationTest extends AbstractSalesforceTestBase {
         LOG.debug("SObjectDescription: {}", sObjectDescription);
     }
 
+    @Test
+    public void testLimitedGetDescription() throws Exception {
+        // a burst of requests is queued and sent at the endpoint's rate, RequestLimiterTest covers the timing
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int i = 0; i < 6; i++) {
+            futures.add(template().asyncRequestBody("direct:getDescriptionLimited", null));
+        }
+        for (Future<Object> future : futures) {
+            SObjectDescription sObjectDescription = template().extractFutureBody(future, SObjectDescription.class);
+            assertNotNull(sObjectDescription);
+        }
+    }
+
     @Test
     public void testGetSObject() throws Exception {
         doTestGetSObject("");
@@ -146,6 +182,34 @@ public class RestApiIntegrationTest extends AbstractSalesforceTestBase {
         LOG.debug("SObjectById: {}", merchandise);
     }
 
+    @Test
+    public void testGetSObjectLookupBatch() throws Exception {
+        if (testId == null) {
+            // execute getBasicInfo to get test id from recent items
+            doTestGetBasicInfo("");
+        }
+
+        // concurrent lookups are sent as a single query
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(template().asyncRequestBody("direct:getSObjectBatched", testId));
+        }
+        for (Future<Object> future : futures) {
+            Merchandise__c merchandise = template().extractFutureBody(future, Merchandise__c.class);
+            assertNotNull(merchandise);
+            assertEquals(testId.substring(0, 15), merchandise.getId().substring(0, 15));
+            assertNotNull(merchandise.getPrice__c());
+        }
+
+        // missing records are not found
+        try {
+            template().requestBody("direct:getSObjectBatched", testId.substring(0, 3) + "000000000000");
+            fail("Expected not found exception");
+        } catch (CamelExecutionException e) {
+            assertEquals(404, ((SalesforceException) e.getCause()).getStatusCode());
+        }
+    }
+
     @Test
     public void testCreateUpdateDelete() throws Exception {
         doTestCreateUpdateDelete("");
@@ -267,6 +331,77 @@ public class RestApiIntegrationTest extends AbstractSalesforceTestBase {
         LOG.debug("ExecuteQuery: {}", queryRecords);
     }
 
+    @Test
+    public void testHedgedQuery() throws Exception {
+        // enough queries to start hedging slow ones, every query gets a single response
+        for (int i = 0; i < 30; i++) {
+            QueryRecordsLine_Item__c queryRecords = template().requestBody("direct:queryHedged", null,
+                QueryRecordsLine_Item__c.class);
+            assertNotNull(queryRecords);
+        }
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        QueryRecordsLine_Item__c queryRecords = template().requestBody("direct:queryDeadline", null,
+            QueryRecordsLine_Item__c.class);
+        assertNotNull(queryRecords);
+
+        // a deadline that has already passed fails without sending a request
+        try {
+            template().requestBodyAndHeader("direct:query", null,
+                SalesforceEndpointConfig.DEADLINE, System.currentTimeMillis() - 1);
+            fail("Expected deadline exceeded exception");
+        } catch (CamelExecutionException e) {
+            assertTrue(e.getCause() instanceof SalesforceException);
+            LOG.debug("Deadline exceeded: {}", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testStreamQueryResult() throws Exception {
+        doTestStreamQueryResult("");
+        doTestStreamQueryResult("Xml");
+    }
+
+    private void doTestStreamQueryResult(String suffix) throws InterruptedException {
+        QueryRecordsLine_Item__c queryRecords = template().requestBody("direct:query" + suffix, null,
+            QueryRecordsLine_Item__c.class);
+        assertNotNull(queryRecords);
+
+        // records of all pages are returned by a single iterator
+        Iterator<?> records = template().requestBody("direct:streamQuery" + suffix, null, Iterator.class);
+        int count = 0;
+        while (records.hasNext()) {
+            assertTrue(records.next() instanceof Line_Item__c);
+            count++;
+        }
+        assertEquals(queryRecords.getTotalSize(), count);
+        LOG.debug("StreamQuery: {} records", count);
+    }
+
+    @Test
+    public void testParallelQuery() throws Exception {
+        doTestParallelQuery("");
+        doTestParallelQuery("Xml");
+    }
+
+    private void doTestParallelQuery(String suffix) throws InterruptedException {
+        QueryRecordsLine_Item__c queryRecords = template().requestBody("direct:query" + suffix, null,
+            QueryRecordsLine_Item__c.class);
+        assertNotNull(queryRecords);
+
+        // records of all ranges are returned by a single iterator
+        Iterator<?> records = template().requestBody("direct:parallelQuery" + suffix, null, Iterator.class);
+        int count = 0;
+        while (records.hasNext()) {
+            assertTrue(records.next() instanceof Line_Item__c);
+            count++;
+        }
+        assertEquals(queryRecords.getTotalSize(), count);
+        LOG.debug("ParallelQuery: {} records", count);
+    }
+
 
     @Test
     public void testSearch() throws Exception {
@@ -289,6 +424,96 @@ public class RestApiIntegrationTest extends AbstractSalesforceTestBase {
         LOG.debug("ExecuteSearch: {}", searchResults);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCompositeBatch() throws Exception {
+        final SObjectBatch batch = new SObjectBatch(COMPOSITE_API_VERSION);
+
+        Merchandise__c merchandise__c = new Merchandise__c();
+        merchandise__c.setName("Wee Wee Wee Batch Plane");
+        merchandise__c.setDescription__c("Microlite plane");
+        merchandise__c.setPrice__c(2000.0);
+        merchandise__c.setTotal_Inventory__c(50.0);
+        batch.addCreate(merchandise__c);
+        batch.addQuery("SELECT Id, Name FROM Merchandise__c LIMIT 1");
+
+        SObjectBatchResponse response = template().requestBody("direct:compositeBatch", batch,
+            SObjectBatchResponse.class);
+        assertNotNull(response);
+        assertFalse("Batch errors", response.isHasErrors());
+        assertEquals(2, response.getResults().size());
+        LOG.debug("CompositeBatch: {}", response);
+
+        // delete the newly created SObject
+        final Map<String, Object> result = (Map<String, Object>) response.getResults().get(0).getResult();
+        assertNull(template().requestBody("direct:deleteSObject", result.get("id")));
+    }
+
+    @Test
+    public void testCompositeBatching() throws Exception {
+        // send concurrent creates, which are sent as a single composite batch
+        final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+        for (int i = 0; i < 5; i++) {
+            Merchandise__c merchandise__c = new Merchandise__c();
+            merchandise__c.setName("Wee Wee Wee Batched Plane " + i);
+            merchandise__c.setDescription__c("Microlite plane");
+            merchandise__c.setPrice__c(2000.0);
+            merchandise__c.setTotal_Inventory__c(50.0);
+            futures.add(template().asyncRequestBody("direct:CreateSObjectBatched", merchandise__c));
+        }
+
+        for (Future<Object> future : futures) {
+            CreateSObjectResult result = template().extractFutureBody(future, CreateSObjectResult.class);
+            assertNotNull(result);
+            assertTrue("Create success", result.getSuccess());
+            LOG.debug("Batched Create: " + result);
+
+            // delete the newly created SObject
+            assertNull(template().requestBody("direct:deleteSObjectBatched", result.getId()));
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSObjectCollections() throws Exception {
+        final List<Merchandise__c> records = new ArrayList<Merchandise__c>();
+        for (int i = 0; i < 3; i++) {
+            Merchandise__c merchandise__c = new Merchandise__c();
+            merchandise__c.setName("Wee Wee Wee Collection Plane " + i);
+            merchandise__c.setDescription__c("Microlite plane");
+            merchandise__c.setPrice__c(2000.0);
+            merchandise__c.setTotal_Inventory__c(50.0);
+            records.add(merchandise__c);
+        }
+
+        List<CreateSObjectResult> results = template().requestBody("direct:createSObjectCollection", records,
+            List.class);
+        assertEquals(records.size(), results.size());
+        for (int i = 0; i < results.size(); i++) {
+            final CreateSObjectResult result = results.get(i);
+            assertTrue("Create success", result.getSuccess());
+            records.get(i).setId(result.getId());
+        }
+        LOG.debug("Create Collection: {}", results);
+
+        // update all records
+        for (Merchandise__c merchandise__c : records) {
+            merchandise__c.setPrice__c(1500.0);
+        }
+        results = template().requestBody("direct:updateSObjectCollection", records, List.class);
+        for (CreateSObjectResult result : results) {
+            assertTrue("Update success", result.getSuccess());
+        }
+        LOG.debug("Update Collection: {}", results);
+
+        // delete all records
+        results = template().requestBody("direct:deleteSObjectCollection", records, List.class);
+        for (CreateSObjectResult result : results) {
+            assertTrue("Delete success", result.getSuccess());
+        }
+        LOG.debug("Delete Collection: {}", results);
+    }
+
     @Override
     protected RouteBuilder doCreateRouteBuilder() throws Exception {
 
@@ -332,10 +557,19 @@ public class RestApiIntegrationTest extends AbstractSalesforceTestBase {
                 from("direct:getDescriptionXml")
                     .to("salesforce:getDescription?format=xml&sObjectName=Merchandise__c");
 
+                // testLimitedGetDescription
+                from("direct:getDescriptionLimited")
+                    .to("salesforce:getDescription?sObjectName=Merchandise__c&rateLimit=2&maxInFlight=1");
+
                 // testGetSObject
                 from("direct:getSObject")
                     .to("salesforce:getSObject?sObjectName=Merchandise__c&sObjectFields=Description__c,Price__c");
 
+                // testGetSObjectLookupBatch
+                from("direct:getSObjectBatched")
+                    .to("salesforce:getSObject?sObjectName=Merchandise__c&sObjectFields=Description__c,Price__c&" +
+                        "lookupBatchLinger=50");
+
                 from("direct:getSObjectXml")
                     .to("salesforce:getSObject?format=xml&sObjectName=Merchandise__c&sObjectFields=Description__c,Total_Inventory__c");
 
@@ -392,15 +626,63 @@ public class RestApiIntegrationTest extends AbstractSalesforceTestBase {
                 from("direct:query")
                     .to("salesforce:query?sObjectQuery=SELECT name from Line_Item__c&sObjectClass=org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c");
 
+                // testHedgedQuery
+                from("direct:queryHedged")
+                    .to("salesforce:query?sObjectQuery=SELECT name from Line_Item__c&sObjectClass=org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c&" +
+                        "hedgeDelayPercentile=90");
+
+                // testDeadline
+                from("direct:queryDeadline")
+                    .to("salesforce:query?sObjectQuery=SELECT name from Line_Item__c&sObjectClass=org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c&" +
+                        "requestTimeout=30000");
+
                 from("direct:queryXml")
                     .to("salesforce:query?format=xml&sObjectQuery=SELECT name from Line_Item__c&sObjectClass=org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c");
 
+                // testStreamQueryResult
+                from("direct:streamQuery")
+                    .to("salesforce:query?streamQueryResult=true&sObjectQuery=SELECT name from Line_Item__c&sObjectClass=org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c");
+
+                from("direct:streamQueryXml")
+                    .to("salesforce:query?format=xml&streamQueryResult=true&sObjectQuery=SELECT name from Line_Item__c&sObjectClass=org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c");
+
+                // testParallelQuery
+                from("direct:parallelQuery")
+                    .to("salesforce:parallelQuery?parallelQueryShards=3&sObjectQuery=SELECT name from Line_Item__c&sObjectClass=org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c");
+
+                from("direct:parallelQueryXml")
+                    .to("salesforce:parallelQuery?format=xml&parallelQueryField=CreatedDate&parallelQueryOrdered=true&sObjectQuery=SELECT name from Line_Item__c&sObjectClass=org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c");
+
                 // testSearch
                 from("direct:search")
                     .to("salesforce:search?sObjectSearch=FIND {Wee}");
 
                 from("direct:searchXml")
                     .to("salesforce:search?format=xml&sObjectSearch=FIND {Wee}");
+
+                // testCompositeBatch
+                from("direct:compositeBatch")
+                    .to("salesforce:compositeBatch?apiVersion=" + COMPOSITE_API_VERSION);
+
+                // testSObjectCollections
+                from("direct:createSObjectCollection")
+                    .to("salesforce:createSObjectCollection?apiVersion=" + COLLECTIONS_API_VERSION +
+                        "&allOrNone=true");
+
+                from("direct:updateSObjectCollection")
+                    .to("salesforce:updateSObjectCollection?apiVersion=" + COLLECTIONS_API_VERSION);
+
+                from("direct:deleteSObjectCollection")
+                    .to("salesforce:deleteSObjectCollection?apiVersion=" + COLLECTIONS_API_VERSION);
+
+                // testCompositeBatching
+                from("direct:CreateSObjectBatched")
+                    .to("salesforce:createSObject?apiVersion=" + COMPOSITE_API_VERSION +
+                        "&sObjectName=Merchandise__c&compositeBatchLinger=100");
+
+                from("direct:deleteSObjectBatched")
+                    .to("salesforce:deleteSObject?apiVersion=" + COMPOSITE_API_VERSION +
+                        "&sObjectName=Merchandise__c&compositeBatchLinger=100");
             }
         };
     }
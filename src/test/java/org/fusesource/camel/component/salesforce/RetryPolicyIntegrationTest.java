@@ -0,0 +1,72 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce;
+
+import org.apache.camel.CamelExecutionException;
+import org.apache.camel.builder.RouteBuilder;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.api.dto.GlobalObjects;
+import org.fusesource.camel.component.salesforce.internal.client.RetryPolicy;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class RetryPolicyIntegrationTest extends AbstractSalesforceTestBase {
+
+    @Override
+    protected void createComponent() throws IllegalAccessException, IOException {
+        super.createComponent();
+        final SalesforceComponent component = context().getComponent("salesforce", SalesforceComponent.class);
+        component.setMaxRetries(2);
+    }
+
+    @Test
+    public void testRetryPolicy() throws Exception {
+        final RetryPolicy retryPolicy = context().getComponent("salesforce", SalesforceComponent.class)
+            .getRetryPolicy();
+        final long retries = retryPolicy.getRetryCount();
+
+        // successful requests are not retried
+        assertNotNull(template().requestBody("direct:getGlobalObjects", null, GlobalObjects.class));
+        assertEquals(retries, retryPolicy.getRetryCount());
+
+        // errors that aren't transient are not retried
+        try {
+            template().requestBody("direct:getSObject", "INVALID_ID");
+            fail("Expected invalid id exception");
+        } catch (CamelExecutionException e) {
+            assertTrue(e.getCause() instanceof SalesforceException);
+        }
+        assertEquals(retries, retryPolicy.getRetryCount());
+    }
+
+    @Override
+    protected RouteBuilder doCreateRouteBuilder() throws Exception {
+        return new RouteBuilder() {
+            public void configure() {
+
+                // testRetryPolicy
+                from("direct:getGlobalObjects")
+                    .to("salesforce:getGlobalObjects");
+
+                from("direct:getSObject")
+                    .to("salesforce:getSObject?sObjectName=Merchandise__c&sObjectFields=Description__c,Price__c");
+            }
+        };
+    }
+
+}
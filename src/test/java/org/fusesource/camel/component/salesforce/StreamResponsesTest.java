@@ -0,0 +1,119 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.apache.camel.builder.RouteBuilder;
+import org.apache.camel.test.junit4.CamelTestSupport;
+import org.fusesource.camel.component.salesforce.internal.client.Compression;
+import org.fusesource.camel.component.salesforce.internal.client.ResponseContentStream;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class StreamResponsesTest extends CamelTestSupport {
+
+    private static final String BLOB_PATH = "/services/data/v" + SalesforceEndpointConfig.DEFAULT_VERSION +
+        "/sobjects/Document/015000000000001/Body";
+
+    // larger than the content queued for a streamed response, so that Jetty waits for the reader
+    private static final byte[] BLOB = new byte[2 * ResponseContentStream.MAX_BUFFERED + 123];
+
+    static {
+        for (int i = 0; i < BLOB.length; i++) {
+            BLOB[i] = (byte) i;
+        }
+    }
+
+    private EmbeddedSalesforceServer server;
+
+    @Override
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext(BLOB_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                if (acceptEncoding != null && acceptEncoding.contains(Compression.GZIP)) {
+                    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    final GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+                    gzip.write(BLOB);
+                    gzip.close();
+                    exchange.getResponseHeaders().set("Content-Encoding", Compression.GZIP);
+                    EmbeddedSalesforceServer.respond(exchange, 200, bytes.toByteArray());
+                } else {
+                    EmbeddedSalesforceServer.respond(exchange, 200, BLOB);
+                }
+            }
+        });
+        super.setUp();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        super.tearDown();
+        server.stop();
+    }
+
+    @Test
+    public void testGetBlobField() throws Exception {
+        // the blob is still readable after the processor is done with the response
+        final InputStream body = template().requestBody("direct:getBlobField", "015000000000001", InputStream.class);
+        assertArrayEquals(BLOB, EmbeddedSalesforceServer.read(body));
+    }
+
+    @Test
+    public void testGetCompressedBlobField() throws Exception {
+        final InputStream body = template().requestBody("direct:getCompressedBlobField", "015000000000001",
+            InputStream.class);
+        assertArrayEquals(BLOB, EmbeddedSalesforceServer.read(body));
+    }
+
+    @Override
+    protected RouteBuilder createRouteBuilder() throws Exception {
+        context().addComponent("salesforce", createComponent(false));
+        context().addComponent("salesforceGzip", createComponent(true));
+
+        return new RouteBuilder() {
+            public void configure() {
+
+                // testGetBlobField
+                from("direct:getBlobField")
+                    .to("salesforce:getBlobField?sObjectName=Document&sObjectBlobFieldName=Body");
+
+                // testGetCompressedBlobField
+                from("direct:getCompressedBlobField")
+                    .to("salesforceGzip:getBlobField?sObjectName=Document&sObjectBlobFieldName=Body");
+            }
+        };
+    }
+
+    private SalesforceComponent createComponent(boolean compressResponses) {
+        final SalesforceComponent component = new SalesforceComponent();
+        component.setLoginConfig(server.getLoginConfig());
+        component.setConfig(new SalesforceEndpointConfig());
+        component.setStreamResponses(true);
+        component.setCompressResponses(compressResponses);
+        return component;
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce;
+
+import org.apache.camel.builder.RouteBuilder;
+import org.eclipse.jetty.client.HttpClient;
+import org.fusesource.camel.component.salesforce.api.dto.GlobalObjects;
+import org.fusesource.camel.component.salesforce.api.dto.bulk.ContentType;
+import org.fusesource.camel.component.salesforce.api.dto.bulk.JobInfo;
+import org.fusesource.camel.component.salesforce.api.dto.bulk.JobStateEnum;
+import org.fusesource.camel.component.salesforce.api.dto.bulk.OperationEnum;
+import org.fusesource.camel.component.salesforce.dto.Merchandise__c;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class TrafficLaneIntegrationTest extends AbstractSalesforceTestBase {
+
+    private static final int BULK_MAX_CONNECTIONS = 4;
+    private static final int STREAMING_MAX_CONNECTIONS = 2;
+
+    @Override
+    protected void createComponent() throws IllegalAccessException, IOException {
+        super.createComponent();
+        final SalesforceComponent component = context().getComponent("salesforce", SalesforceComponent.class);
+        component.setBulkMaxConnections(BULK_MAX_CONNECTIONS);
+        component.setStreamingMaxConnections(STREAMING_MAX_CONNECTIONS);
+    }
+
+    @Test
+    public void testBulkLane() throws Exception {
+        final SalesforceComponent component = context().getComponent("salesforce", SalesforceComponent.class);
+        final HttpClient restHttpClient = component.getConfig().getHttpClient();
+        final HttpClient bulkHttpClient = component.getBulkHttpClient();
+        assertNotNull(bulkHttpClient);
+        assertNotSame(restHttpClient, bulkHttpClient);
+        assertEquals(BULK_MAX_CONNECTIONS, bulkHttpClient.getMaxConnectionsPerAddress());
+
+        // Bulk API endpoints send requests through the lane, REST endpoints don't
+        final SalesforceEndpoint bulkEndpoint = context().getEndpoint("salesforce://createJob",
+            SalesforceEndpoint.class);
+        assertSame(bulkHttpClient, bulkEndpoint.getConfiguration().getHttpClient());
+        final SalesforceEndpoint restEndpoint = context().getEndpoint("salesforce://getGlobalObjects",
+            SalesforceEndpoint.class);
+        assertSame(restHttpClient, restEndpoint.getConfiguration().getHttpClient());
+
+        JobInfo jobInfo = new JobInfo();
+        jobInfo.setObject(Merchandise__c.class.getSimpleName());
+        jobInfo.setContentType(ContentType.CSV);
+        jobInfo.setOperation(OperationEnum.INSERT);
+        jobInfo = template().requestBody("direct:createJob", jobInfo, JobInfo.class);
+        assertNotNull("Missing JobId", jobInfo.getId());
+        jobInfo = template().requestBody("direct:abortJob", jobInfo, JobInfo.class);
+        assertSame("Job should be ABORTED", JobStateEnum.ABORTED, jobInfo.getState());
+
+        assertNotNull(template().requestBody("direct:getGlobalObjects", null, GlobalObjects.class));
+    }
+
+    @Test
+    public void testStreamingLane() throws Exception {
+        final SalesforceComponent component = context().getComponent("salesforce", SalesforceComponent.class);
+        final HttpClient streamingHttpClient = component.getStreamingHttpClient();
+        assertNotSame(component.getConfig().getHttpClient(), streamingHttpClient);
+        assertNotSame(component.getBulkHttpClient(), streamingHttpClient);
+        assertEquals(STREAMING_MAX_CONNECTIONS, streamingHttpClient.getMaxConnectionsPerAddress());
+    }
+
+    @Override
+    protected RouteBuilder doCreateRouteBuilder() throws Exception {
+        return new RouteBuilder() {
+            public void configure() {
+
+                // testBulkLane
+                from("direct:createJob")
+                    .to("salesforce://createJob");
+
+                from("direct:abortJob")
+                    .to("salesforce://abortJob");
+
+                from("direct:getGlobalObjects")
+                    .to("salesforce://getGlobalObjects");
+            }
+        };
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal;
+
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.SalesforceLoginConfig;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SalesforceSessionTest extends Assert {
+
+    private static final long SESSION_TIMEOUT = 200;
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+
+    private final AtomicInteger logins = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+
+        // renewed as soon as the session times out
+        final SalesforceLoginConfig config = server.getLoginConfig();
+        config.setSessionTimeout(SESSION_TIMEOUT);
+        config.setSessionRefreshMargin(0);
+        session = new SalesforceSession(server.getHttpClient(), config);
+        session.addListener(new SalesforceSession.SalesforceSessionListener() {
+            @Override
+            public void onLogin(String accessToken, String instanceUrl) {
+                logins.incrementAndGet();
+            }
+
+            @Override
+            public void onLogout() {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testRenewal() throws Exception {
+        session.start();
+
+        // listeners switch to every renewed token
+        for (int i = 0; i < 500 && logins.get() < 3; i++) {
+            Thread.sleep(10);
+        }
+        assertTrue("Session not renewed", logins.get() >= 3);
+        assertNotNull(session.getAccessToken());
+    }
+
+    @Test
+    public void testRenewalCompletedAfterLogout() throws Exception {
+        session.start();
+        assertEquals("token1", session.getAccessToken());
+
+        // hold the renewal until the session is stopped
+        final CountDownLatch loginGate = new CountDownLatch(1);
+        server.setLoginGate(loginGate);
+        waitForLogins(2);
+        session.stop();
+        loginGate.countDown();
+
+        // the renewal doesn't reopen the session, or renew it again
+        Thread.sleep(5 * SESSION_TIMEOUT);
+        assertNull(session.getAccessToken());
+        assertEquals(1, logins.get());
+        assertEquals(2, server.getLogins());
+    }
+
+    @Test
+    public void testLoginCompletedAfterLogout() throws Exception {
+        final CountDownLatch loginGate = new CountDownLatch(1);
+        server.setLoginGate(loginGate);
+
+        final AtomicReference<String> token = new AtomicReference<String>();
+        final AtomicReference<SalesforceException> exception = new AtomicReference<SalesforceException>();
+        final CountDownLatch done = new CountDownLatch(1);
+        session.login(null, new SalesforceSession.LoginCallback() {
+            @Override
+            public void onLoginComplete(String accessToken, SalesforceException ex) {
+                token.set(accessToken);
+                exception.set(ex);
+                done.countDown();
+            }
+        });
+        waitForLogins(1);
+        session.stop();
+        loginGate.countDown();
+
+        // the caller waiting for the login fails
+        assertTrue("Login not completed", done.await(5, TimeUnit.SECONDS));
+        assertNull(token.get());
+        assertNotNull(exception.get());
+        assertNull(session.getAccessToken());
+        assertEquals(0, logins.get());
+
+        // and the session can be started again
+        server.setLoginGate(null);
+        session.start();
+        assertEquals("token2", session.getAccessToken());
+        assertEquals(1, logins.get());
+    }
+
+    // waits for the server to receive a number of logins
+    private void waitForLogins(int count) throws InterruptedException {
+        for (int i = 0; i < 500 && server.getLogins() < count; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, server.getLogins());
+    }
+
+}
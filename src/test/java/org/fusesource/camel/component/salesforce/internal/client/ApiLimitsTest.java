@@ -0,0 +1,147 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class ApiLimitsTest extends Assert {
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testUpdate() {
+        final ApiLimits apiLimits = new ApiLimits();
+        assertEquals(-1, apiLimits.getUsed());
+        assertEquals(-1, apiLimits.getMax());
+        assertEquals(0.0, apiLimits.getUsageRatio(), 0.0);
+
+        apiLimits.update("api-usage=25/5000");
+        assertEquals(25, apiLimits.getUsed());
+        assertEquals(5000, apiLimits.getMax());
+        assertEquals(0.005, apiLimits.getUsageRatio(), 1e-9);
+        assertTrue(apiLimits.getLastUpdated() > 0);
+
+        // other limits in the header are ignored
+        apiLimits.update("per-app-api-usage=7/100(appName=test), api-usage= 30 / 5000 ");
+        assertEquals(30, apiLimits.getUsed());
+        assertEquals(5000, apiLimits.getMax());
+
+        // invalid usage doesn't change the last known usage
+        apiLimits.update("api-usage=40");
+        apiLimits.update("api-usage=x/5000");
+        assertEquals(30, apiLimits.getUsed());
+        assertEquals(5000, apiLimits.getMax());
+    }
+
+    @Test
+    public void testSlowdown() throws Exception {
+        final ApiLimits apiLimits = new ApiLimits(0.5, 0.9, 1000, scheduler);
+
+        // unknown usage is never delayed
+        assertEquals(0, apiLimits.acquire());
+
+        apiLimits.update("api-usage=40/100");
+        assertEquals(0, apiLimits.acquire());
+
+        // delay grows linearly from the slowdown threshold to the max delay at the stop threshold
+        apiLimits.update("api-usage=50/100");
+        assertEquals(1, apiLimits.acquire());
+        apiLimits.update("api-usage=70/100");
+        assertEquals(500, apiLimits.acquire(), 1);
+        apiLimits.update("api-usage=89/100");
+        assertEquals(975, apiLimits.acquire(), 1);
+
+        assertEquals(3, apiLimits.getDelayedCount());
+        assertEquals(0, apiLimits.getRejectedCount());
+    }
+
+    @Test
+    public void testSlowdownWithoutStop() throws Exception {
+        final ApiLimits apiLimits = new ApiLimits(0.5, 0, 1000, scheduler);
+
+        // delay reaches the max delay at the limit, and requests are never rejected
+        apiLimits.update("api-usage=75/100");
+        assertEquals(500, apiLimits.acquire(), 1);
+        apiLimits.update("api-usage=120/100");
+        assertEquals(1000, apiLimits.acquire());
+        assertEquals(1000, apiLimits.acquire());
+        assertEquals(0, apiLimits.getRejectedCount());
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        final ApiLimits apiLimits = new ApiLimits(0.5, 0.9, 1000, scheduler);
+        apiLimits.update("api-usage=90/100");
+
+        // one probe request refreshes usage, the rest fail until the next probe interval
+        assertEquals(0, apiLimits.acquire());
+        try {
+            apiLimits.acquire();
+            fail("Request past the stop threshold wasn't rejected");
+        } catch (SalesforceException e) {
+            assertTrue(e.getMessage().contains("90/100"));
+        }
+        assertEquals(1, apiLimits.getRejectedCount());
+
+        // requests resume once usage drops
+        apiLimits.update("api-usage=10/100");
+        assertEquals(0, apiLimits.acquire());
+
+        apiLimits.resetStatistics();
+        assertEquals(0, apiLimits.getRejectedCount());
+    }
+
+    @Test
+    public void testInvalidThresholds() {
+        assertInvalid(-0.1, 0.9, scheduler);
+        assertInvalid(0.5, 1.1, scheduler);
+        assertInvalid(0.9, 0.5, scheduler);
+        assertInvalid(0.5, 0.5, scheduler);
+        // delayed requests need a scheduler
+        assertInvalid(0.5, 0.9, null);
+        // but stopping doesn't
+        new ApiLimits(0, 0.9, 0, null);
+    }
+
+    private static void assertInvalid(double slowdownThreshold, double stopThreshold,
+                                      ScheduledExecutorService scheduler) {
+        try {
+            new ApiLimits(slowdownThreshold, stopThreshold, 1000, scheduler);
+            fail(String.format("Thresholds %s and %s weren't rejected", slowdownThreshold, stopThreshold));
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CallbackExecutorTest extends Assert {
+
+    private static final String THREAD_NAME = "callback";
+    private static final String RECORD = "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001000000000001AAA\"}";
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    private DefaultRestClient restClient;
+
+    private ThreadPoolExecutor executorService;
+    private CallbackExecutor executor;
+    // keeps the single callback thread busy until opened
+    private final CountDownLatch busy = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                EmbeddedSalesforceServer.respond(exchange, 200, RECORD.getBytes("UTF-8"));
+            }
+        });
+        session = server.createSession();
+        session.start();
+
+        // a single thread, and room for a single waiting callback
+        executorService = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(1), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                return new Thread(r, THREAD_NAME);
+            }
+        });
+        executor = new CallbackExecutor(executorService);
+
+        restClient = new DefaultRestClient(server.getHttpClient(), "34.0", "json", session);
+        restClient.setCallbackExecutor(executor);
+        restClient.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        busy.countDown();
+        executorService.shutdownNow();
+        restClient.stop();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testHandoff() throws Exception {
+        final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                thread.set(Thread.currentThread());
+                done.countDown();
+            }
+        });
+        assertTrue("Callback not run", done.await(5, TimeUnit.SECONDS));
+
+        assertNotSame(Thread.currentThread(), thread.get());
+        assertEquals(THREAD_NAME, thread.get().getName());
+        assertEquals(1, executor.getHandoffCount());
+        assertEquals(0, executor.getRejectedCount());
+    }
+
+    @Test
+    public void testHandoffLatency() throws Exception {
+        occupy();
+        final CountDownLatch done = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        });
+        assertEquals(1, executor.getQueueSize());
+
+        // the queued callback waits for the busy thread
+        Thread.sleep(200);
+        busy.countDown();
+        assertTrue("Callback not run", done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2, executor.getHandoffCount());
+        assertTrue("Max handoff latency " + executor.getMaxHandoffLatency(),
+            executor.getMaxHandoffLatency() >= 200);
+        assertTrue(executor.getMeanHandoffLatency() > 0);
+
+        executor.resetStatistics();
+        assertEquals(0, executor.getHandoffCount());
+        assertEquals(0, executor.getMaxHandoffLatency());
+    }
+
+    @Test
+    public void testRejected() throws Exception {
+        saturate();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            fail("Callback not rejected by full executor");
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        assertEquals(1, executor.getRejectedCount());
+    }
+
+    @Test
+    public void testResponseOffHttpClientThread() throws Exception {
+        final Callback callback = getSObject();
+        assertNull(callback.exception.get());
+        assertNotNull(callback.response.get());
+        assertEquals(THREAD_NAME, callback.thread.get().getName());
+        assertEquals(1, executor.getHandoffCount());
+    }
+
+    @Test
+    public void testRejectedResponseRunsOnCaller() throws Exception {
+        saturate();
+
+        // the buffered response is processed on the HTTP client thread instead
+        final Callback callback = getSObject();
+        assertNull(callback.exception.get());
+        assertNotNull(callback.response.get());
+        assertFalse(THREAD_NAME.equals(callback.thread.get().getName()));
+        assertEquals(1, executor.getRejectedCount());
+    }
+
+    @Test
+    public void testRejectedStreamedResponseFails() throws Exception {
+        restClient.setStreamResponses(true);
+        saturate();
+
+        // a streamed response can't be read on the thread that delivers its content
+        final Callback callback = getSObject();
+        assertNull(callback.response.get());
+        assertNotNull(callback.exception.get());
+        assertTrue(callback.exception.get().getMessage(),
+            callback.exception.get().getMessage().startsWith("Error processing response"));
+        assertEquals(1, executor.getRejectedCount());
+    }
+
+    // keeps the callback thread busy
+    private void occupy() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    busy.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue("Callback thread not started", started.await(5, TimeUnit.SECONDS));
+    }
+
+    // keeps the callback thread busy, and fills the queue
+    private void saturate() throws InterruptedException {
+        occupy();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        assertEquals(1, executor.getQueueSize());
+    }
+
+    private Callback getSObject() throws InterruptedException {
+        final Callback callback = new Callback();
+        restClient.getSObject("Account", "001000000000001AAA", null, callback);
+        assertTrue("No response", callback.done.await(5, TimeUnit.SECONDS));
+        return callback;
+    }
+
+    private static final class Callback implements RestClient.ResponseCallback {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicReference<Thread> thread = new AtomicReference<Thread>();
+        private final AtomicReference<InputStream> response = new AtomicReference<InputStream>();
+        private final AtomicReference<SalesforceException> exception = new AtomicReference<SalesforceException>();
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+            this.thread.set(Thread.currentThread());
+            this.response.set(response);
+            this.exception.set(exception);
+            done.countDown();
+        }
+    }
+
+}
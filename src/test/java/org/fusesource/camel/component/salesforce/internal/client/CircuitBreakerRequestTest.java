@@ -0,0 +1,143 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CircuitBreakerRequestTest extends Assert {
+
+    private static final long OPEN_DURATION = 200;
+    private static final String RECORD = "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001000000000001AAA\"}";
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    private DefaultRestClient restClient;
+    private CircuitBreaker circuitBreaker;
+
+    private volatile boolean failing;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                if (failing) {
+                    EmbeddedSalesforceServer.respond(exchange, 500,
+                        "[{\"message\":\"Internal error\",\"errorCode\":\"UNKNOWN_EXCEPTION\"}]".getBytes("UTF-8"));
+                } else {
+                    EmbeddedSalesforceServer.respond(exchange, 200, RECORD.getBytes("UTF-8"));
+                }
+            }
+        });
+
+        session = server.createSession();
+        session.start();
+        // opens when half of at least 2 requests fail
+        circuitBreaker = new CircuitBreaker(0.5, 0, 60000, 2, OPEN_DURATION);
+        restClient = new DefaultRestClient(server.getHttpClient(), "34.0", "json", session);
+        restClient.setCircuitBreaker(circuitBreaker);
+        restClient.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        restClient.stop();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testFailFastWhileOpen() throws Exception {
+        failing = true;
+        assertEquals(500, getSObject().getStatusCode());
+        assertEquals(500, getSObject().getStatusCode());
+        assertEquals("OPEN", circuitBreaker.getState());
+
+        // requests fail without reaching the server
+        final SalesforceException exception = getSObject();
+        assertEquals(503, exception.getStatusCode());
+        assertTrue(exception.getMessage(), exception.getMessage().startsWith("Circuit breaker is open"));
+        assertEquals(2, requests.get());
+        assertEquals(1, circuitBreaker.getRejectedCount());
+
+        // until a probe succeeds after the open duration
+        failing = false;
+        Thread.sleep(OPEN_DURATION);
+        assertNull(getSObject());
+        assertEquals("CLOSED", circuitBreaker.getState());
+        assertNull(getSObject());
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    public void testClientErrorsAreNotFailures() throws Exception {
+        server.createContext("/services/data/v34.0/sobjects/Account/INVALID_ID", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                EmbeddedSalesforceServer.respond(exchange, 404,
+                    "[{\"message\":\"Not found\",\"errorCode\":\"NOT_FOUND\"}]".getBytes("UTF-8"));
+            }
+        });
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(404, getSObject("INVALID_ID").getStatusCode());
+        }
+        assertEquals("CLOSED", circuitBreaker.getState());
+        assertEquals(4, circuitBreaker.getWindowRequests());
+        assertEquals(0.0, circuitBreaker.getWindowFailureRate(), 0.0);
+    }
+
+    private SalesforceException getSObject() throws InterruptedException {
+        return getSObject("001000000000001AAA");
+    }
+
+    // returns the exception the request failed with, or null if it succeeded
+    private SalesforceException getSObject(String id) throws InterruptedException {
+        final AtomicReference<SalesforceException> exception = new AtomicReference<SalesforceException>();
+        final CountDownLatch done = new CountDownLatch(1);
+        restClient.getSObject("Account", id, null, new RestClient.ResponseCallback() {
+            @Override
+            public void onResponse(InputStream response, SalesforceException ex) {
+                exception.set(ex);
+                done.countDown();
+            }
+        });
+        assertTrue("No response", done.await(5, TimeUnit.SECONDS));
+        return exception.get();
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.fusesource.camel.component.salesforce.api.CircuitBreakerEvent.State;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CircuitBreakerTest extends Assert {
+
+    private static final long WINDOW = 60000;
+    private static final long OPEN_DURATION = 50;
+
+    @Test
+    public void testOpensAtFailureRate() {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(0.5, 0, WINDOW, 4, OPEN_DURATION);
+
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, false);
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, true);
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, true);
+        // too few requests to check the failure rate
+        assertEquals("CLOSED", circuitBreaker.getState());
+        assertEquals(CircuitBreaker.NO_PROBE, circuitBreaker.allowRequest());
+        assertEquals(3, circuitBreaker.getWindowRequests());
+
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, false);
+        assertEquals("CLOSED", circuitBreaker.getState());
+        assertEquals(0.5, circuitBreaker.getWindowFailureRate(), 0.0);
+
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, true);
+        assertEquals("OPEN", circuitBreaker.getState());
+        assertEquals(1, circuitBreaker.getOpenedCount());
+        assertEquals(0, circuitBreaker.getWindowRequests());
+
+        // requests fail fast while open
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.allowRequest());
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.allowRequest());
+        assertEquals(2, circuitBreaker.getRejectedCount());
+
+        // responses to requests sent before the circuit opened are ignored
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, false);
+        assertEquals("OPEN", circuitBreaker.getState());
+    }
+
+    @Test
+    public void testSlowCalls() {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(0.5, 100, WINDOW, 2, OPEN_DURATION);
+
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 100, false);
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 100, false);
+        assertEquals("CLOSED", circuitBreaker.getState());
+
+        // slow successful responses count as failures
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 101, false);
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 500, false);
+        assertEquals("OPEN", circuitBreaker.getState());
+    }
+
+    @Test
+    public void testProbeCloses() throws Exception {
+        final CircuitBreaker circuitBreaker = openCircuitBreaker();
+
+        Thread.sleep(OPEN_DURATION + 10);
+        // a single probe is sent once the circuit has been open long enough
+        final long probe = circuitBreaker.allowRequest();
+        assertTrue(probe > CircuitBreaker.NO_PROBE);
+        assertEquals("HALF_OPEN", circuitBreaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.allowRequest());
+
+        circuitBreaker.record(probe, 10, false);
+        assertEquals("CLOSED", circuitBreaker.getState());
+        assertEquals(CircuitBreaker.NO_PROBE, circuitBreaker.allowRequest());
+        assertEquals(0, circuitBreaker.getWindowRequests());
+    }
+
+    @Test
+    public void testProbeFails() throws Exception {
+        final CircuitBreaker circuitBreaker = openCircuitBreaker();
+
+        Thread.sleep(OPEN_DURATION + 10);
+        circuitBreaker.record(circuitBreaker.allowRequest(), 10, true);
+        assertEquals("OPEN", circuitBreaker.getState());
+        assertEquals(2, circuitBreaker.getOpenedCount());
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.allowRequest());
+    }
+
+    @Test
+    public void testLostProbe() throws Exception {
+        final CircuitBreaker circuitBreaker = openCircuitBreaker();
+
+        Thread.sleep(OPEN_DURATION + 10);
+        final long probe = circuitBreaker.allowRequest();
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.allowRequest());
+
+        // another probe is allowed if the first one never completes
+        Thread.sleep(OPEN_DURATION + 10);
+        final long nextProbe = circuitBreaker.allowRequest();
+        assertTrue(nextProbe > CircuitBreaker.NO_PROBE);
+        assertTrue(nextProbe != probe);
+        assertEquals("HALF_OPEN", circuitBreaker.getState());
+
+        // and only its outcome changes the state
+        circuitBreaker.record(probe, 10, true);
+        assertEquals("HALF_OPEN", circuitBreaker.getState());
+        circuitBreaker.record(nextProbe, 10, false);
+        assertEquals("CLOSED", circuitBreaker.getState());
+    }
+
+    @Test
+    public void testReleasedProbe() throws Exception {
+        final CircuitBreaker circuitBreaker = openCircuitBreaker();
+
+        Thread.sleep(OPEN_DURATION + 10);
+        final long probe = circuitBreaker.allowRequest();
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.allowRequest());
+
+        // a probe that wasn't sent is replaced by the next request right away
+        circuitBreaker.release(probe);
+        assertEquals("HALF_OPEN", circuitBreaker.getState());
+        final long nextProbe = circuitBreaker.allowRequest();
+        assertTrue(nextProbe > probe);
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.allowRequest());
+
+        // releasing other permits doesn't allow another probe
+        circuitBreaker.release(CircuitBreaker.NO_PROBE);
+        circuitBreaker.release(probe);
+        assertEquals(CircuitBreaker.REJECTED, circuitBreaker.allowRequest());
+
+        circuitBreaker.record(nextProbe, 10, false);
+        assertEquals("CLOSED", circuitBreaker.getState());
+    }
+
+    @Test
+    public void testStaleResponses() throws Exception {
+        final CircuitBreaker circuitBreaker = openCircuitBreaker();
+
+        Thread.sleep(OPEN_DURATION + 10);
+        final long probe = circuitBreaker.allowRequest();
+
+        // responses to requests sent before the circuit opened don't close or open it
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, false);
+        assertEquals("HALF_OPEN", circuitBreaker.getState());
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, true);
+        assertEquals("HALF_OPEN", circuitBreaker.getState());
+        assertEquals(1, circuitBreaker.getOpenedCount());
+
+        circuitBreaker.record(probe, 10, true);
+        assertEquals("OPEN", circuitBreaker.getState());
+    }
+
+    @Test
+    public void testStateListener() throws Exception {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(0.5, 0, WINDOW, 1, OPEN_DURATION);
+        final List<String> changes = new ArrayList<String>();
+        circuitBreaker.setStateListener(new CircuitBreaker.StateListener() {
+            @Override
+            public void onStateChange(State previousState, State state) {
+                changes.add(previousState + "->" + state);
+            }
+        });
+
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, true);
+        Thread.sleep(OPEN_DURATION + 10);
+        circuitBreaker.record(circuitBreaker.allowRequest(), 10, false);
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, true);
+        circuitBreaker.close();
+
+        final List<String> expected = new ArrayList<String>();
+        expected.add("CLOSED->OPEN");
+        expected.add("OPEN->HALF_OPEN");
+        expected.add("HALF_OPEN->CLOSED");
+        expected.add("CLOSED->OPEN");
+        expected.add("OPEN->CLOSED");
+        assertEquals(expected, changes);
+    }
+
+    @Test
+    public void testStateListenerWithoutLock() throws Exception {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(0.5, 0, WINDOW, 1, OPEN_DURATION);
+        final List<Boolean> locked = new ArrayList<Boolean>();
+        circuitBreaker.setStateListener(new CircuitBreaker.StateListener() {
+            @Override
+            public void onStateChange(State previousState, State state) {
+                // other threads can check and record requests while listeners run
+                locked.add(Thread.holdsLock(circuitBreaker));
+            }
+        });
+
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, true);
+        Thread.sleep(OPEN_DURATION + 10);
+        circuitBreaker.allowRequest();
+        circuitBreaker.close();
+
+        assertEquals(3, locked.size());
+        assertFalse(locked.contains(Boolean.TRUE));
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        assertInvalid(0, 0, WINDOW, 1, OPEN_DURATION);
+        assertInvalid(1.1, 0, WINDOW, 1, OPEN_DURATION);
+        assertInvalid(0.5, -1, WINDOW, 1, OPEN_DURATION);
+        assertInvalid(0.5, 0, 1, 1, OPEN_DURATION);
+        assertInvalid(0.5, 0, WINDOW, 0, OPEN_DURATION);
+        assertInvalid(0.5, 0, WINDOW, 1, 0);
+    }
+
+    private static CircuitBreaker openCircuitBreaker() {
+        final CircuitBreaker circuitBreaker = new CircuitBreaker(0.5, 0, WINDOW, 2, OPEN_DURATION);
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, true);
+        circuitBreaker.record(CircuitBreaker.NO_PROBE, 10, true);
+        assertEquals("OPEN", circuitBreaker.getState());
+        return circuitBreaker;
+    }
+
+    private static void assertInvalid(double failureRate, long slowCallDuration, long window, int minRequests,
+                                      long openDuration) {
+        try {
+            new CircuitBreaker(failureRate, slowCallDuration, window, minRequests, openDuration);
+            fail("Invalid circuit breaker settings weren't rejected");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+}
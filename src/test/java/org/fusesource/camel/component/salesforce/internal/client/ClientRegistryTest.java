@@ -0,0 +1,148 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.internal.PayloadFormat;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class ClientRegistryTest extends Assert {
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    private ClientRegistry registry;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        session = server.createSession();
+        registry = new ClientRegistry(session, null, false, false, null, null, null, null);
+        registry.start();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        registry.stop();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testReferenceCounting() throws Exception {
+        session.start();
+
+        final RestClient client = acquire("34.0");
+        assertSame(client, acquire("34.0"));
+        assertNotSame(client, acquire("33.0"));
+
+        // still referenced, so it's still updated by the session
+        registry.release(client);
+        session.login("token1");
+        assertEquals("token2", ((AbstractClientBase) client).accessToken);
+
+        // stopped when the last reference is released
+        registry.release(client);
+        session.login("token2");
+        assertEquals("token2", ((AbstractClientBase) client).accessToken);
+
+        // and the next endpoint gets a new client
+        final RestClient next = acquire("34.0");
+        assertNotSame(client, next);
+        assertEquals("token3", ((AbstractClientBase) next).accessToken);
+    }
+
+    @Test
+    public void testReleaseUnknownClient() throws Exception {
+        session.start();
+        final RestClient client = acquire("34.0");
+
+        // ignored, and doesn't affect the reference count of registered clients
+        registry.release(new Object());
+        assertSame(client, acquire("34.0"));
+    }
+
+    @Test
+    public void testConcurrentAcquireWhileLoggingIn() throws Exception {
+        // the session isn't logged in yet, so starting a client logs in
+        final CountDownLatch loginGate = new CountDownLatch(1);
+        server.setLoginGate(loginGate);
+
+        final Future<RestClient> first = executor.submit(new Acquire("34.0"));
+        final Future<RestClient> second = executor.submit(new Acquire("34.0"));
+        for (int i = 0; i < 500 && server.getLogins() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, server.getLogins());
+
+        // the registry isn't locked while clients log in
+        final Future<?> release = executor.submit(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                registry.release(new Object());
+                return null;
+            }
+        });
+        release.get(1, TimeUnit.SECONDS);
+        assertFalse(first.isDone());
+
+        // both callers share the client registered first
+        loginGate.countDown();
+        final RestClient client = first.get(10, TimeUnit.SECONDS);
+        assertSame(client, second.get(10, TimeUnit.SECONDS));
+        assertEquals(1, server.getLogins());
+
+        // and both references count
+        registry.release(client);
+        assertSame(client, acquire("34.0"));
+        registry.release(client);
+        registry.release(client);
+        assertNotSame(client, acquire("34.0"));
+    }
+
+    private RestClient acquire(String apiVersion) throws Exception {
+        return registry.acquireRestClient(server.getHttpClient(), apiVersion, PayloadFormat.JSON);
+    }
+
+    private final class Acquire implements Callable<RestClient> {
+        private final String apiVersion;
+
+        private Acquire(String apiVersion) {
+            this.apiVersion = apiVersion;
+        }
+
+        @Override
+        public RestClient call() throws Exception {
+            return acquire(apiVersion);
+        }
+    }
+
+}
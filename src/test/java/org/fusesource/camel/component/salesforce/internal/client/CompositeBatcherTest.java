@@ -0,0 +1,253 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CompositeBatcherTest extends Assert {
+
+    private static final String VERSION = "34.0";
+    private static final long LINGER = 60000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private ScheduledExecutorService scheduler;
+
+    // request and callback of the last compositeBatch call
+    private InputStream batchRequest;
+    private RestClient.ResponseCallback batchCallback;
+    private long batchDeadline;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testBatchRequest() throws Exception {
+        final CompositeBatcher batcher = new CompositeBatcher(restClient(), VERSION, LINGER, 3, scheduler, null);
+        final RequestContentStream.ContentOutputStream out = RequestContentStream.newOutputStream();
+        out.write("{\"Name\":\"caf\u00e9 \\\"1\\\"\"}".getBytes("UTF-8"));
+
+        batcher.createSObject("Merchandise__c", out.toInputStream(), new NullCallback());
+        batcher.updateSObject("Merchandise__c", "a01", new ByteArrayInputStream("{\"Price__c\":1}".getBytes("UTF-8")),
+            new NullCallback());
+        batcher.deleteSObject("Merchandise__c", "a02", new NullCallback());
+
+        // full batch is sent right away
+        assertNotNull("Batch not sent", batchRequest);
+        final JsonNode requests = objectMapper.readTree(batchRequest).get("batchRequests");
+        assertEquals(3, requests.size());
+
+        assertEquals("POST", requests.get(0).get("method").getTextValue());
+        assertEquals("v34.0/sobjects/Merchandise__c", requests.get(0).get("url").getTextValue());
+        assertEquals("caf\u00e9 \"1\"", requests.get(0).get("richInput").get("Name").getTextValue());
+
+        assertEquals("PATCH", requests.get(1).get("method").getTextValue());
+        assertEquals(1, requests.get(1).get("richInput").get("Price__c").getIntValue());
+
+        assertEquals("DELETE", requests.get(2).get("method").getTextValue());
+        assertEquals("v34.0/sobjects/Merchandise__c/a02", requests.get(2).get("url").getTextValue());
+        assertNull(requests.get(2).get("richInput"));
+    }
+
+    @Test
+    public void testFailingCallback() throws Exception {
+        final CompositeBatcher batcher = new CompositeBatcher(restClient(), VERSION, LINGER, 2, scheduler, null);
+        final RecordingCallback callback = new RecordingCallback();
+
+        batcher.deleteSObject("Merchandise__c", "a01", new RestClient.ResponseCallback() {
+            @Override
+            public void onResponse(InputStream response, SalesforceException exception) {
+                throw new IllegalStateException("Failing callback");
+            }
+        });
+        batcher.deleteSObject("Merchandise__c", "a02", callback);
+
+        // a failed batch still completes every entry
+        final SalesforceException exception = new SalesforceException("Batch failed", null);
+        batchCallback.onResponse(null, exception);
+        assertSame(exception, callback.exception);
+        assertEquals(1, callback.count);
+
+        // and so does a successful one
+        batcher.deleteSObject("Merchandise__c", "a01", new RestClient.ResponseCallback() {
+            @Override
+            public void onResponse(InputStream response, SalesforceException exception) {
+                throw new IllegalStateException("Failing callback");
+            }
+        });
+        batcher.deleteSObject("Merchandise__c", "a02", callback);
+        batchCallback.onResponse(new ByteArrayInputStream(
+            "{\"results\":[{\"statusCode\":204,\"result\":null},{\"statusCode\":204,\"result\":null}]}"
+                .getBytes("UTF-8")), null);
+        assertNull(callback.exception);
+        assertEquals(2, callback.count);
+    }
+
+    @Test
+    public void testCallbacksRunInParallel() throws Exception {
+        final ExecutorService callbackExecutor = Executors.newCachedThreadPool();
+        try {
+            final CompositeBatcher batcher = new CompositeBatcher(restClient(), VERSION, LINGER, 3, scheduler,
+                callbackExecutor);
+            final ParallelCallback callback = new ParallelCallback(3);
+            batcher.deleteSObject("Merchandise__c", "a01", callback);
+            batcher.deleteSObject("Merchandise__c", "a02", callback);
+            batcher.deleteSObject("Merchandise__c", "a03", callback);
+            batchCallback.onResponse(new ByteArrayInputStream(
+                ("{\"results\":[{\"statusCode\":204,\"result\":null},{\"statusCode\":204,\"result\":null}," +
+                    "{\"statusCode\":204,\"result\":null}]}").getBytes("UTF-8")), null);
+            callback.assertParallel();
+
+            // also when the batch fails
+            final ParallelCallback failed = new ParallelCallback(3);
+            batcher.deleteSObject("Merchandise__c", "a01", failed);
+            batcher.deleteSObject("Merchandise__c", "a02", failed);
+            batcher.deleteSObject("Merchandise__c", "a03", failed);
+            batchCallback.onResponse(null, new SalesforceException("Batch failed", null));
+            failed.assertParallel();
+        } finally {
+            callbackExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        final CompositeBatcher batcher = new CompositeBatcher(restClient(), VERSION, LINGER, 3, scheduler, null);
+        final long deadline = System.currentTimeMillis() + LINGER;
+
+        // sent with the earliest deadline of its entries
+        addWithDeadline(batcher, "a01", deadline + 1000);
+        addWithDeadline(batcher, "a02", 0);
+        addWithDeadline(batcher, "a03", deadline);
+        assertEquals(deadline, batchDeadline);
+        assertEquals(0, AbstractClientBase.getCurrentDeadline());
+
+        // also when flushed by a thread without a deadline
+        addWithDeadline(batcher, "a04", deadline + 1000);
+        batcher.flush();
+        assertEquals(deadline + 1000, batchDeadline);
+
+        // and without one if none of its entries has one
+        addWithDeadline(batcher, "a05", 0);
+        AbstractClientBase.setCurrentDeadline(deadline);
+        try {
+            batcher.flush();
+        } finally {
+            AbstractClientBase.setCurrentDeadline(0);
+        }
+        assertEquals(0, batchDeadline);
+    }
+
+    private static void addWithDeadline(CompositeBatcher batcher, String id, long deadline) {
+        AbstractClientBase.setCurrentDeadline(deadline);
+        try {
+            batcher.deleteSObject("Merchandise__c", id, new NullCallback());
+        } finally {
+            AbstractClientBase.setCurrentDeadline(0);
+        }
+    }
+
+    private RestClient restClient() {
+        return (RestClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{RestClient.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (!"compositeBatch".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    batchRequest = (InputStream) args[0];
+                    batchCallback = (RestClient.ResponseCallback) args[1];
+                    batchDeadline = AbstractClientBase.getCurrentDeadline();
+                    return null;
+                }
+            });
+    }
+
+    private static class RecordingCallback implements RestClient.ResponseCallback {
+        private SalesforceException exception;
+        private int count;
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+            this.exception = exception;
+            count++;
+        }
+    }
+
+    // every call waits for all of them to start, which they can't if they run one after another
+    private static class ParallelCallback implements RestClient.ResponseCallback {
+        private final CountDownLatch started;
+        private final CountDownLatch done;
+        private final AtomicInteger serial = new AtomicInteger();
+
+        ParallelCallback(int count) {
+            started = new CountDownLatch(count);
+            done = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+            started.countDown();
+            try {
+                if (!started.await(1, TimeUnit.SECONDS)) {
+                    serial.incrementAndGet();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        void assertParallel() throws InterruptedException {
+            assertTrue("Callbacks not completed", done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, serial.get());
+        }
+    }
+
+    private static class NullCallback implements RestClient.ResponseCallback {
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+public class CompressedRequestTest extends Assert {
+
+    private static final byte[] CREATE_RESPONSE = "{\"id\":\"a01\",\"success\":true,\"errors\":[]}".getBytes();
+    private static final byte[] MERCHANDISE = "{\"Name\":\"Wee Wee Wee Plane\",\"Price__c\":2000.0}".getBytes();
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    private DefaultRestClient client;
+
+    // content encoding and uncompressed body of the last request the server accepted
+    private final AtomicReference<String> contentEncoding = new AtomicReference<String>();
+    private final AtomicReference<byte[]> body = new AtomicReference<byte[]>();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                InputStream in = exchange.getRequestBody();
+                final byte[] content;
+                try {
+                    if (Compression.GZIP.equals(encoding)) {
+                        in = new GZIPInputStream(in);
+                    }
+                    content = EmbeddedSalesforceServer.read(in);
+                } catch (IOException e) {
+                    // not a valid gzip body
+                    EmbeddedSalesforceServer.respond(exchange, 400, null);
+                    return;
+                }
+                contentEncoding.set(encoding);
+                body.set(content);
+                EmbeddedSalesforceServer.respond(exchange, 201, CREATE_RESPONSE);
+            }
+        });
+
+        session = server.createSession();
+        session.start();
+        client = new DefaultRestClient(server.getHttpClient(), "34.0", "json", session);
+        client.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.stop();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testCompressedContent() throws Exception {
+        final Compression compression = new Compression(false, true, 0);
+        client.setCompression(compression);
+
+        // content in memory is compressed in memory
+        assertCreated(new RequestContentStream(MERCHANDISE));
+        assertEquals(Compression.GZIP, contentEncoding.get());
+        assertArrayEquals(MERCHANDISE, body.get());
+
+        assertEquals(1, compression.getCompressedRequests());
+        assertEquals(MERCHANDISE.length, compression.getRequestBytes());
+    }
+
+    @Test
+    public void testCompressedStream() throws Exception {
+        final Compression compression = new Compression(false, true, 0);
+        client.setCompression(compression);
+
+        // streamed content is compressed as it's sent
+        assertCreated(new ByteArrayInputStream(MERCHANDISE));
+        assertEquals(Compression.GZIP, contentEncoding.get());
+        assertArrayEquals(MERCHANDISE, body.get());
+
+        assertEquals(1, compression.getCompressedRequests());
+        assertEquals(MERCHANDISE.length, compression.getRequestBytes());
+    }
+
+    @Test
+    public void testSmallContent() throws Exception {
+        final Compression compression = new Compression(false, true, MERCHANDISE.length + 1);
+        client.setCompression(compression);
+
+        // content smaller than the min size is sent as is
+        assertCreated(new RequestContentStream(MERCHANDISE));
+        assertNull(contentEncoding.get());
+        assertArrayEquals(MERCHANDISE, body.get());
+
+        assertEquals(0, compression.getCompressedRequests());
+    }
+
+    private void assertCreated(InputStream sObject) throws Exception {
+        final AtomicReference<byte[]> response = new AtomicReference<byte[]>();
+        final AtomicReference<SalesforceException> exception = new AtomicReference<SalesforceException>();
+        final CountDownLatch responded = new CountDownLatch(1);
+        client.createSObject("Merchandise__c", sObject, new RestClient.ResponseCallback() {
+            @Override
+            public void onResponse(InputStream in, SalesforceException ex) {
+                try {
+                    exception.set(ex);
+                    if (in != null) {
+                        response.set(EmbeddedSalesforceServer.read(in));
+                    }
+                } catch (IOException e) {
+                    exception.set(new SalesforceException(e));
+                } finally {
+                    responded.countDown();
+                }
+            }
+        });
+
+        assertTrue("No response", responded.await(5, TimeUnit.SECONDS));
+        assertNull(exception.get());
+        assertArrayEquals(CREATE_RESPONSE, response.get());
+    }
+
+}
@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.eclipse.jetty.io.Buffer;
+import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class CompressionTest extends Assert {
+
+    // larger than the compression buffer, so that it's compressed in several chunks
+    private static final byte[] CONTENT = createContent(20000);
+
+    @Test
+    public void testBufferRoundTrip() throws Exception {
+        final Compression compression = new Compression(true, true, 0);
+
+        final Buffer encoded = compression.encode(new ByteArrayBuffer(CONTENT));
+        assertTrue("Content not compressed", encoded.length() < CONTENT.length);
+        assertArrayEquals(CONTENT, read(compression.decode(new ByteArrayInputStream(encoded.asArray()))));
+
+        assertEquals(1, compression.getCompressedRequests());
+        assertEquals(CONTENT.length, compression.getRequestBytes());
+        assertEquals(encoded.length(), compression.getRequestWireBytes());
+        assertEquals(1, compression.getCompressedResponses());
+        assertEquals(CONTENT.length, compression.getResponseBytes());
+        assertEquals(encoded.length(), compression.getResponseWireBytes());
+    }
+
+    @Test
+    public void testBufferViewRoundTrip() throws Exception {
+        final Compression compression = new Compression(true, true, 0);
+
+        // only the view of the array is compressed
+        final byte[] array = new byte[CONTENT.length + 20];
+        System.arraycopy(CONTENT, 0, array, 10, CONTENT.length);
+        final Buffer encoded = compression.encode(new ByteArrayBuffer(array, 10, CONTENT.length, Buffer.READONLY));
+        assertArrayEquals(CONTENT, read(Compression.gunzip(new ByteArrayInputStream(encoded.asArray()))));
+        assertEquals(CONTENT.length, compression.getRequestBytes());
+    }
+
+    @Test
+    public void testStreamRoundTrip() throws Exception {
+        final Compression compression = new Compression(true, true, 0);
+
+        final byte[] encoded = read(compression.encode(new ByteArrayInputStream(CONTENT)));
+        assertTrue("Content not compressed", encoded.length < CONTENT.length);
+        assertArrayEquals(CONTENT, read(compression.decode(new ByteArrayInputStream(encoded))));
+
+        assertEquals(1, compression.getCompressedRequests());
+        assertEquals(CONTENT.length, compression.getRequestBytes());
+        assertEquals(encoded.length, compression.getRequestWireBytes());
+        assertEquals(CONTENT.length, compression.getResponseBytes());
+        assertEquals(encoded.length, compression.getResponseWireBytes());
+        assertEquals((double) encoded.length / CONTENT.length, compression.getRequestCompressionRatio(), 0.0001);
+    }
+
+    @Test
+    public void testSingleByteReads() throws Exception {
+        final Compression compression = new Compression(true, true, 0);
+
+        final byte[] encoded = readBytes(compression.encode(new ByteArrayInputStream(CONTENT)));
+        assertArrayEquals(CONTENT, readBytes(compression.decode(new ByteArrayInputStream(encoded))));
+    }
+
+    @Test
+    public void testEmptyContent() throws Exception {
+        final Compression compression = new Compression(true, true, 0);
+
+        // empty content is compressed to an empty gzip stream
+        final byte[] encoded = read(compression.encode(new ByteArrayInputStream(new byte[0])));
+        assertTrue(encoded.length > 0);
+        assertEquals(0, read(Compression.gunzip(new ByteArrayInputStream(encoded))).length);
+
+        // empty responses, e.g. of a 204 response, are returned as is
+        assertEquals(-1, Compression.gunzip(new ByteArrayInputStream(new byte[0])).read());
+        assertEquals(-1, compression.decode(new ByteArrayInputStream(new byte[0])).read());
+    }
+
+    @Test
+    public void testResetStatistics() throws Exception {
+        final Compression compression = new Compression(true, true, 0);
+        read(compression.decode(new ByteArrayInputStream(compression.encode(new ByteArrayBuffer(CONTENT)).asArray())));
+
+        compression.resetStatistics();
+        assertEquals(0, compression.getCompressedRequests());
+        assertEquals(0, compression.getRequestBytes());
+        assertEquals(0, compression.getRequestWireBytes());
+        assertEquals(0, compression.getCompressedResponses());
+        assertEquals(0, compression.getResponseBytes());
+        assertEquals(0, compression.getResponseWireBytes());
+        assertEquals(0, compression.getResponseCompressionRatio(), 0);
+    }
+
+    @Test
+    public void testInvalidMinRequestSize() {
+        try {
+            new Compression(true, true, -1);
+            fail("Negative minRequestSize wasn't rejected");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    private static byte[] createContent(int length) {
+        final StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; builder.length() < length; i++) {
+            builder.append("{\"Name\":\"Wee Wee Wee Plane ").append(i).append("\"},");
+        }
+        return builder.substring(0, length).getBytes();
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[1000];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] readBytes(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class ConnectionWarmerTest extends Assert {
+
+    private static final long IDLE_TIMEOUT = 500;
+    private static final int CONNECTIONS = 2;
+
+    private EmbeddedSalesforceServer server;
+    private ScheduledExecutorService scheduler;
+    private SalesforceSession session;
+
+    // client ports of the connections the server received pings on
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                clientPorts.add(exchange.getRemoteAddress().getPort());
+                EmbeddedSalesforceServer.respond(exchange, 200, "[]".getBytes("UTF-8"));
+            }
+        });
+        server.getHttpClient().setIdleTimeout(IDLE_TIMEOUT);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        // the instance is the server the session logs in to
+        session = server.createSession();
+        session.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        scheduler.shutdownNow();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testKeepAlive() throws Exception {
+        final ConnectionWarmer warmer = new ConnectionWarmer(server.getHttpClient(), session, CONNECTIONS,
+            IDLE_TIMEOUT / 5, scheduler);
+        warmer.start();
+        try {
+            // connections are opened on login, and pings keep them open past the idle timeout
+            waitForOpenConnections(warmer);
+            Thread.sleep(3 * IDLE_TIMEOUT);
+            assertEquals(CONNECTIONS, warmer.getOpenConnections());
+            assertTrue("Connections were replaced", clientPorts.size() <= CONNECTIONS);
+            assertTrue("Missing keep alive pings", warmer.getPingCount() > CONNECTIONS);
+            assertEquals(0, warmer.getFailedPingCount());
+        } finally {
+            warmer.stop();
+        }
+    }
+
+    @Test
+    public void testWithoutKeepAlive() throws Exception {
+        final ConnectionWarmer warmer = new ConnectionWarmer(server.getHttpClient(), session, CONNECTIONS, 0, null);
+        warmer.start();
+        try {
+            // connections are opened on login, and closed by the idle timeout
+            waitForOpenConnections(warmer);
+            Thread.sleep(3 * IDLE_TIMEOUT);
+            assertEquals(0, warmer.getOpenConnections());
+            assertEquals(CONNECTIONS, warmer.getPingCount());
+        } finally {
+            warmer.stop();
+        }
+    }
+
+    private void waitForOpenConnections(ConnectionWarmer warmer) throws InterruptedException {
+        // pings open connections asynchronously
+        for (int i = 0; i < 50 && warmer.getOpenConnections() < CONNECTIONS; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(CONNECTIONS, warmer.getOpenConnections());
+    }
+
+}
@@ -0,0 +1,130 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class HedgePolicyTest extends Assert {
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testDelay() {
+        final HedgePolicy hedgePolicy = new HedgePolicy(90, 0, 0.1, scheduler);
+
+        // not hedging until there are enough response times
+        for (int i = 1; i < 20; i++) {
+            hedgePolicy.onResponse(i, false);
+        }
+        assertEquals(-1, hedgePolicy.onRequest());
+
+        // 90th percentile of 1 to 20
+        hedgePolicy.onResponse(20, false);
+        assertEquals(18, hedgePolicy.onRequest());
+
+        // recomputed every 20 responses
+        for (int i = 0; i < 19; i++) {
+            hedgePolicy.onResponse(100, false);
+        }
+        assertEquals(18, hedgePolicy.getDelay());
+        hedgePolicy.onResponse(100, false);
+        assertEquals(100, hedgePolicy.getDelay());
+
+        // only the last 200 responses count
+        for (int i = 0; i < 200; i++) {
+            hedgePolicy.onResponse(5, false);
+        }
+        assertEquals(5, hedgePolicy.getDelay());
+    }
+
+    @Test
+    public void testMinDelay() {
+        final HedgePolicy hedgePolicy = new HedgePolicy(50, 50, 0.1, scheduler);
+        for (int i = 0; i < 20; i++) {
+            hedgePolicy.onResponse(10, i % 2 == 0);
+        }
+        assertEquals(50, hedgePolicy.getDelay());
+        assertEquals(10, hedgePolicy.getHedgeWinCount());
+    }
+
+    @Test
+    public void testBudget() {
+        final HedgePolicy hedgePolicy = new HedgePolicy(90, 0, 0.5, scheduler);
+
+        // starts with a budget of 10 hedges
+        for (int i = 0; i < 10; i++) {
+            assertTrue(hedgePolicy.tryHedge());
+        }
+        assertFalse(hedgePolicy.tryHedge());
+        assertEquals(10, hedgePolicy.getHedgeCount());
+        assertEquals(1, hedgePolicy.getBudgetExhaustedCount());
+
+        // every request earns half a hedge
+        hedgePolicy.onRequest();
+        assertFalse(hedgePolicy.tryHedge());
+        hedgePolicy.onRequest();
+        assertTrue(hedgePolicy.tryHedge());
+        assertFalse(hedgePolicy.tryHedge());
+
+        // up to 10 hedges
+        for (int i = 0; i < 100; i++) {
+            hedgePolicy.onRequest();
+        }
+        assertEquals(10.0, hedgePolicy.getBudget(), 0.0);
+        assertEquals(102, hedgePolicy.getRequestCount());
+
+        hedgePolicy.resetStatistics();
+        assertEquals(0, hedgePolicy.getHedgeCount());
+        assertEquals(0, hedgePolicy.getBudgetExhaustedCount());
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        assertInvalid(0, 0, 0.1, scheduler);
+        assertInvalid(100, 0, 0.1, scheduler);
+        assertInvalid(90, -1, 0.1, scheduler);
+        assertInvalid(90, 0, -0.1, scheduler);
+        assertInvalid(90, 0, 0.1, null);
+    }
+
+    private static void assertInvalid(double percentile, long minDelay, double budgetRatio,
+                                      ScheduledExecutorService scheduler) {
+        try {
+            new HedgePolicy(percentile, minDelay, budgetRatio, scheduler);
+            fail("Invalid hedge policy settings weren't rejected");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+}
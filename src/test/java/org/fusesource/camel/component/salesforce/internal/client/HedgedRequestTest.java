@@ -0,0 +1,128 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HedgedRequestTest extends Assert {
+
+    private static final byte[] QUERY_RESPONSE = "{\"totalSize\":0,\"done\":true,\"records\":[]}".getBytes();
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    private DefaultRestClient client;
+    private ScheduledExecutorService scheduler;
+
+    // requests received by the server, the first one fails without a response when released,
+    // so that it would be retried if it was still in flight
+    private final AtomicInteger requests = new AtomicInteger();
+    private final CountDownLatch releaseFirst = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if (requests.incrementAndGet() == 1) {
+                    try {
+                        releaseFirst.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        exchange.close();
+                    }
+                    return;
+                }
+                EmbeddedSalesforceServer.respond(exchange, 200, QUERY_RESPONSE);
+            }
+        });
+
+        session = server.createSession();
+        session.start();
+        client = new DefaultRestClient(server.getHttpClient(), "34.0", "json", session);
+        client.start();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        releaseFirst.countDown();
+        scheduler.shutdownNow();
+        client.stop();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testLoserIsCancelled() throws Exception {
+        final RetryPolicy retryPolicy = new RetryPolicy(2, 10, 100, 1.0, scheduler);
+        client.setRetryPolicy(retryPolicy);
+
+        // hedge after 100 msecs
+        final HedgePolicy hedgePolicy = new HedgePolicy(50, 0, 0.1, scheduler);
+        for (int i = 0; i < 20; i++) {
+            hedgePolicy.onResponse(100, false);
+        }
+
+        final AtomicInteger responses = new AtomicInteger();
+        final CountDownLatch responded = new CountDownLatch(1);
+        client.query("SELECT Id FROM Merchandise__c", new RestClient.HedgedResponseCallback() {
+            @Override
+            public HedgePolicy getHedgePolicy() {
+                return hedgePolicy;
+            }
+
+            @Override
+            public void onResponse(InputStream response, SalesforceException exception) {
+                assertNull(exception);
+                responses.incrementAndGet();
+                responded.countDown();
+            }
+        });
+
+        // the hedge responds first
+        assertTrue("No response", responded.await(5, TimeUnit.SECONDS));
+        assertEquals(2, requests.get());
+        assertEquals(1, hedgePolicy.getHedgeWinCount());
+
+        // the original request was cancelled, so it's neither reported nor retried when its connection fails
+        releaseFirst.countDown();
+        Thread.sleep(500);
+        assertEquals(1, responses.get());
+        assertEquals(2, requests.get());
+        assertEquals(0, retryPolicy.getRetryCount());
+    }
+
+}
@@ -0,0 +1,83 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.fusesource.camel.component.salesforce.api.dto.bulk.JobInfo;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+public class JAXBContextPoolTest extends Assert {
+
+    private static final String BULK_PACKAGE = JobInfo.class.getPackage().getName();
+
+    @Test
+    public void testContextIsShared() throws Exception {
+        final ClassLoader classLoader = getClass().getClassLoader();
+        final JAXBContextPool pool = JAXBContextPool.getInstance(BULK_PACKAGE, classLoader);
+        assertSame(pool, JAXBContextPool.getInstance(BULK_PACKAGE, classLoader));
+    }
+
+    @Test
+    public void testClassLoaderIsNotRetained() throws Exception {
+        // DTOs loaded by a separate classloader, like a redeployed bundle
+        final URL classes = new File(JobInfo.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            .toURI().toURL();
+        final ClassLoader classLoader = new DtoClassLoader(classes, getClass().getClassLoader());
+        assertNotSame(JobInfo.class, classLoader.loadClass(JobInfo.class.getName()));
+
+        final JAXBContextPool pool = JAXBContextPool.getInstance(BULK_PACKAGE, classLoader);
+        assertNotNull(pool.borrowUnmarshaller());
+        assertNotSame(pool, JAXBContextPool.getInstance(BULK_PACKAGE, getClass().getClassLoader()));
+
+        // the cache is keyed weakly by classloader, and only references the pool, and so the classloader, weakly
+        final WeakReference<JAXBContextPool> reference = JAXBContextPool.getCachedReference(BULK_PACKAGE, classLoader);
+        assertSame(pool, reference.get());
+
+        // once the pool is collected, the next client gets a new one
+        reference.clear();
+        assertNotSame(pool, JAXBContextPool.getInstance(BULK_PACKAGE, classLoader));
+    }
+
+    // loads the bulk DTOs itself, and everything else, including JAXB, from its parent
+    private static final class DtoClassLoader extends URLClassLoader {
+
+        private DtoClassLoader(URL classes, ClassLoader parent) {
+            super(new URL[]{classes}, parent);
+        }
+
+        @Override
+        protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith(BULK_PACKAGE + ".")) {
+                return super.loadClass(name, resolve);
+            }
+            Class<?> loaded = findLoadedClass(name);
+            if (loaded == null) {
+                loaded = findClass(name);
+            }
+            if (resolve) {
+                resolveClass(loaded);
+            }
+            return loaded;
+        }
+    }
+
+}
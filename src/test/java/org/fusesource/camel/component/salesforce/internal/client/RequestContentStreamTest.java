@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.eclipse.jetty.io.Buffer;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RequestContentStreamTest extends Assert {
+
+    private static final byte[] CREATE_RESPONSE = "{\"id\":\"a01\",\"success\":true,\"errors\":[]}".getBytes();
+    private static final byte[] MERCHANDISE = "{\"Name\":\"Wee Wee Wee Plane\",\"Price__c\":2000.0}".getBytes();
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    private DefaultRestClient restClient;
+
+    // token the server accepts, requests with any other token are unauthorized
+    private volatile String validToken;
+    // bodies of all requests the server received, authorized or not
+    private final List<byte[]> bodies = Collections.synchronizedList(new ArrayList<byte[]>());
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                bodies.add(EmbeddedSalesforceServer.readRequestBody(exchange));
+                final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                if (!("Bearer " + validToken).equals(authorization)) {
+                    EmbeddedSalesforceServer.respond(exchange, 401,
+                        "[{\"message\":\"Session expired or invalid\",\"errorCode\":\"INVALID_SESSION_ID\"}]"
+                            .getBytes("UTF-8"));
+                } else {
+                    EmbeddedSalesforceServer.respond(exchange, 201, CREATE_RESPONSE);
+                }
+            }
+        });
+
+        session = server.createSession();
+        session.start();
+        restClient = new DefaultRestClient(server.getHttpClient(), "34.0", "json", session);
+        restClient.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        restClient.stop();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testContentIsNotCopied() throws Exception {
+        final RequestContentStream in = new RequestContentStream(MERCHANDISE);
+        final Buffer content = in.getContent();
+        assertSame(MERCHANDISE, content.array());
+        assertEquals(MERCHANDISE.length, content.length());
+        assertTrue(content.isReadOnly());
+    }
+
+    @Test
+    public void testOutputStreamRoundTrip() throws Exception {
+        final RequestContentStream.ContentOutputStream out = RequestContentStream.newOutputStream();
+        out.write(MERCHANDISE);
+        final RequestContentStream in = out.toInputStream();
+        final Buffer content = in.getContent();
+        assertArrayEquals(MERCHANDISE, content.asArray());
+
+        // the stream and its content share the marshaled bytes, so rewriting them shows through
+        final byte[] rewritten = new String(MERCHANDISE).toUpperCase().getBytes();
+        out.reset();
+        out.write(rewritten);
+        assertSame(content.array(), in.getContent().array());
+        assertArrayEquals(rewritten, content.asArray());
+    }
+
+    @Test
+    public void testContentAfterWrite() throws Exception {
+        final RequestContentStream in = new RequestContentStream(MERCHANDISE);
+
+        // Jetty consumes the view it writes, like Buffer.get() does here
+        final Buffer written = in.getContent();
+        written.get(new byte[MERCHANDISE.length], 0, MERCHANDISE.length);
+        assertEquals(0, written.length());
+
+        // the stream still has all of its content for the next attempt
+        final Buffer content = in.getContent();
+        assertEquals(MERCHANDISE.length, content.length());
+        assertArrayEquals(MERCHANDISE, content.asArray());
+        assertEquals(MERCHANDISE.length, in.available());
+    }
+
+    @Test
+    public void testResendAfterLogin() throws Exception {
+        // token1 expires, and the next login's token is valid
+        validToken = "token2";
+
+        final RequestContentStream.ContentOutputStream out = RequestContentStream.newOutputStream();
+        out.write(MERCHANDISE);
+
+        final AtomicReference<SalesforceException> exception = new AtomicReference<SalesforceException>();
+        final CountDownLatch responded = new CountDownLatch(1);
+        restClient.createSObject("Merchandise__c", out.toInputStream(), new RestClient.ResponseCallback() {
+            @Override
+            public void onResponse(InputStream response, SalesforceException ex) {
+                exception.set(ex);
+                responded.countDown();
+            }
+        });
+        assertTrue("No response", responded.await(10, TimeUnit.SECONDS));
+        assertNull(exception.get());
+
+        // the resent request has the complete content of the first one
+        assertEquals(2, server.getLogins());
+        assertEquals(2, bodies.size());
+        assertArrayEquals(MERCHANDISE, bodies.get(0));
+        assertArrayEquals(MERCHANDISE, bodies.get(1));
+    }
+
+}
@@ -0,0 +1,193 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class RequestLimiterTest extends Assert {
+
+    // requests in the order they were run
+    private final List<Integer> run = new ArrayList<Integer>();
+
+    // tasks and delays in nanos passed to the stub scheduler
+    private final List<Runnable> scheduledTasks = new ArrayList<Runnable>();
+    private final List<Long> scheduledDelays = new ArrayList<Long>();
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = (ScheduledExecutorService) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { ScheduledExecutorService.class }, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if ("schedule".equals(method.getName()) && args[0] instanceof Runnable) {
+                        scheduledTasks.add((Runnable) args[0]);
+                        scheduledDelays.add(((TimeUnit) args[2]).toNanos((Long) args[1]));
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    @Test
+    public void testMaxInFlight() {
+        final RequestLimiter limiter = new RequestLimiter(0, 2, 10, null);
+
+        assertTrue(limiter.execute(request(1)));
+        assertTrue(limiter.execute(request(2)));
+        assertFalse("Request over max in flight wasn't queued", limiter.execute(request(3)));
+        assertFalse(limiter.execute(request(4)));
+        assertEquals(asList(1, 2), run);
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(2, limiter.getQueueSize());
+
+        // queued requests run in order as requests complete
+        limiter.release();
+        assertEquals(asList(1, 2, 3), run);
+        assertEquals(2, limiter.getInFlight());
+        limiter.release();
+        assertEquals(asList(1, 2, 3, 4), run);
+
+        limiter.release();
+        limiter.release();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueueSize());
+        assertEquals(2, limiter.getQueuedCount());
+
+        // requests under the limit run right away again
+        assertTrue(limiter.execute(request(5)));
+    }
+
+    @Test
+    public void testQueueOverflow() {
+        final RequestLimiter limiter = new RequestLimiter(0, 1, 2, null);
+
+        assertTrue(limiter.execute(request(1)));
+        assertFalse(limiter.execute(request(2)));
+        assertFalse(limiter.execute(request(3)));
+        try {
+            limiter.execute(request(4));
+            fail("Request over max queue size wasn't rejected");
+        } catch (RejectedExecutionException expected) {
+            // expected
+        }
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(2, limiter.getQueuedCount());
+
+        // rejected request is never run
+        limiter.release();
+        limiter.release();
+        limiter.release();
+        assertEquals(asList(1, 2, 3), run);
+        assertEquals(0, limiter.getQueueSize());
+
+        limiter.resetStatistics();
+        assertEquals(0, limiter.getRejectedCount());
+        assertEquals(0, limiter.getQueuedCount());
+    }
+
+    @Test
+    public void testRateLimit() throws Exception {
+        final RequestLimiter limiter = new RequestLimiter(10, 0, 10, scheduler);
+
+        // a second's worth of requests run in a burst
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.execute(request(i)));
+            limiter.release();
+        }
+        assertTrue(scheduledTasks.isEmpty());
+
+        // further requests wait for a token, with a single drain scheduled
+        assertFalse(limiter.execute(request(10)));
+        assertFalse(limiter.execute(request(11)));
+        assertEquals(1, scheduledTasks.size());
+        final long delay = scheduledDelays.get(0);
+        assertTrue("Unexpected drain delay " + delay, delay > 0 && delay <= TimeUnit.MILLISECONDS.toNanos(100));
+
+        // a drain run once a token is available runs the next request, and schedules another drain for the rest
+        TimeUnit.NANOSECONDS.sleep(delay);
+        scheduledTasks.get(0).run();
+        assertEquals(11, run.size());
+        assertEquals(10, (int) run.get(10));
+        assertEquals(1, limiter.getQueueSize());
+        assertEquals(2, scheduledTasks.size());
+    }
+
+    @Test
+    public void testRateLimitWaitsForInFlight() {
+        final RequestLimiter limiter = new RequestLimiter(10, 1, 10, scheduler);
+
+        assertTrue(limiter.execute(request(1)));
+        assertFalse(limiter.execute(request(2)));
+
+        // tokens are available, so the queued request waits for the release instead of the scheduler
+        assertTrue(scheduledTasks.isEmpty());
+        limiter.release();
+        assertEquals(asList(1, 2), run);
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void testInvalidLimits() {
+        assertInvalid(-1, 0, 0, scheduler);
+        assertInvalid(0, -1, 0, scheduler);
+        assertInvalid(0, 0, -1, scheduler);
+        // rate limit needs a scheduler
+        assertInvalid(1, 0, 0, null);
+    }
+
+    private Runnable request(final int id) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                run.add(id);
+            }
+        };
+    }
+
+    private static List<Integer> asList(Integer... ids) {
+        final List<Integer> list = new ArrayList<Integer>();
+        for (Integer id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static void assertInvalid(double rateLimit, int maxInFlight, int maxQueueSize,
+                                      ScheduledExecutorService scheduler) {
+        try {
+            new RequestLimiter(rateLimit, maxInFlight, maxQueueSize, scheduler);
+            fail(String.format("Limits %s, %s and %s weren't rejected", rateLimit, maxInFlight, maxQueueSize));
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.eclipse.jetty.io.ByteArrayBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ResponseContentStreamTest extends Assert {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    @Test
+    public void testWriterWaitsForReader() throws Exception {
+        final ResponseContentStream stream = new ResponseContentStream();
+        final int chunks = 2 * ResponseContentStream.MAX_BUFFERED / CHUNK_SIZE;
+        final CountDownLatch written = new CountDownLatch(1);
+
+        // the reader starts reading before the queue is full
+        stream.write(new ByteArrayBuffer(new byte[CHUNK_SIZE]));
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        assertEquals(CHUNK_SIZE, stream.read(buffer));
+
+        final Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < chunks; i++) {
+                        stream.write(new ByteArrayBuffer(new byte[CHUNK_SIZE]));
+                    }
+                    stream.complete();
+                    written.countDown();
+                } catch (IOException e) {
+                    stream.fail(e);
+                }
+            }
+        };
+        writer.start();
+
+        // writer stops when the queue is full
+        assertFalse("Writer didn't wait for reader", written.await(500, TimeUnit.MILLISECONDS));
+        assertTrue("Too much content queued", stream.available() <= ResponseContentStream.MAX_BUFFERED + CHUNK_SIZE);
+
+        // and continues as the reader consumes content
+        long total = 0;
+        int count;
+        while ((count = stream.read(buffer)) != -1) {
+            total += count;
+        }
+        assertEquals((long) chunks * CHUNK_SIZE, total);
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUnreadContentIsBuffered() throws Exception {
+        final ResponseContentStream stream = new ResponseContentStream();
+        final int chunks = 2 * ResponseContentStream.MAX_BUFFERED / CHUNK_SIZE;
+
+        // nobody is reading yet, e.g. a prefetched page, so the writer doesn't wait
+        for (int i = 0; i < chunks; i++) {
+            stream.write(new ByteArrayBuffer(new byte[CHUNK_SIZE]));
+        }
+        stream.complete();
+        assertEquals(chunks * CHUNK_SIZE, stream.available());
+        assertEquals(chunks * CHUNK_SIZE, readAll(stream));
+    }
+
+    @Test
+    public void testStoppedReaderReleasesWriter() throws Exception {
+        final ResponseContentStream stream = new ResponseContentStream();
+        final int chunks = 2 * ResponseContentStream.MAX_BUFFERED / CHUNK_SIZE;
+        final CountDownLatch written = new CountDownLatch(1);
+
+        // the reader reads one chunk, and is abandoned
+        stream.write(new ByteArrayBuffer(new byte[CHUNK_SIZE]));
+        assertEquals(CHUNK_SIZE, stream.read(new byte[CHUNK_SIZE]));
+
+        final Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < chunks; i++) {
+                        stream.write(new ByteArrayBuffer(new byte[CHUNK_SIZE]));
+                    }
+                    stream.complete();
+                    written.countDown();
+                } catch (IOException e) {
+                    stream.fail(e);
+                }
+            }
+        };
+        writer.start();
+
+        // the writer waits for a while, and then buffers the rest of the content
+        assertFalse(written.await(ResponseContentStream.MAX_WRITER_WAIT / 2, TimeUnit.MILLISECONDS));
+        assertTrue("Writer not released", written.await(ResponseContentStream.MAX_WRITER_WAIT * 2,
+            TimeUnit.MILLISECONDS));
+        assertEquals(chunks * CHUNK_SIZE, readAll(stream));
+    }
+
+    @Test
+    public void testCloseReleasesWriter() throws Exception {
+        final ResponseContentStream stream = new ResponseContentStream();
+        final CountDownLatch written = new CountDownLatch(1);
+
+        stream.write(new ByteArrayBuffer(new byte[CHUNK_SIZE]));
+        assertEquals(CHUNK_SIZE, stream.read(new byte[CHUNK_SIZE]));
+
+        final Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < ResponseContentStream.MAX_BUFFERED / CHUNK_SIZE; i++) {
+                        stream.write(new ByteArrayBuffer(new byte[CHUNK_SIZE]));
+                    }
+                    // waits until the reader closes the stream, and discards content after that
+                    stream.write(new ByteArrayBuffer(new byte[CHUNK_SIZE]));
+                    written.countDown();
+                } catch (IOException e) {
+                    stream.fail(e);
+                }
+            }
+        };
+        writer.start();
+
+        assertFalse(written.await(200, TimeUnit.MILLISECONDS));
+        stream.close();
+        assertTrue("Writer not released on close", written.await(5, TimeUnit.SECONDS));
+        assertEquals(0, stream.available());
+    }
+
+    private static long readAll(ResponseContentStream stream) throws IOException {
+        final byte[] buffer = new byte[CHUNK_SIZE];
+        long total = 0;
+        int count;
+        while ((count = stream.read(buffer)) != -1) {
+            total += count;
+        }
+        return total;
+    }
+
+}
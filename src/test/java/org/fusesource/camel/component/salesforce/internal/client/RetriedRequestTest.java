@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.eclipse.jetty.io.Buffer;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RetriedRequestTest extends Assert {
+
+    private static final byte[] CREATE_RESPONSE = "{\"id\":\"a01\",\"success\":true,\"errors\":[]}".getBytes();
+    private static final byte[] MERCHANDISE = "{\"Name\":\"Wee Wee Wee Plane\",\"Price__c\":2000.0}".getBytes();
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    private DefaultRestClient restClient;
+    private ScheduledExecutorService scheduler;
+    private RetryPolicy retryPolicy;
+
+    // number of requests the server rejects with 503 before accepting one
+    private volatile int unavailable;
+    // bodies of all requests the server received
+    private final List<byte[]> bodies = Collections.synchronizedList(new ArrayList<byte[]>());
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                bodies.add(EmbeddedSalesforceServer.readRequestBody(exchange));
+                if (bodies.size() <= unavailable) {
+                    EmbeddedSalesforceServer.respond(exchange, 503,
+                        "[{\"message\":\"Server unavailable\",\"errorCode\":\"SERVER_UNAVAILABLE\"}]"
+                            .getBytes("UTF-8"));
+                } else {
+                    EmbeddedSalesforceServer.respond(exchange, 201, CREATE_RESPONSE);
+                }
+            }
+        });
+
+        session = server.createSession();
+        session.start();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        retryPolicy = new RetryPolicy(2, 10, 100, 0.1, scheduler);
+        restClient = new DefaultRestClient(server.getHttpClient(), "34.0", "json", session);
+        restClient.setRetryPolicy(retryPolicy);
+        restClient.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        restClient.stop();
+        scheduler.shutdownNow();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testRetryUnavailable() throws Exception {
+        unavailable = 1;
+
+        final CountingContentStream in = new CountingContentStream(MERCHANDISE);
+        final Callback callback = createSObject(in);
+        assertNull(callback.exception.get());
+        assertEquals(1, callback.responses.get());
+
+        assertEquals(1, retryPolicy.getRetryCount());
+        assertEquals(1, retryPolicy.getSuccessCount());
+
+        // the retry resent the buffer marshaled for the first attempt
+        assertEquals(1, in.contentCount.get());
+        assertEquals(MERCHANDISE.length, in.available());
+        assertEquals(2, bodies.size());
+        assertArrayEquals(MERCHANDISE, bodies.get(0));
+        assertArrayEquals(MERCHANDISE, bodies.get(1));
+    }
+
+    @Test
+    public void testMaxRetries() throws Exception {
+        unavailable = 3;
+
+        final Callback callback = createSObject(new RequestContentStream(MERCHANDISE));
+        assertNotNull(callback.exception.get());
+        assertEquals(503, callback.exception.get().getStatusCode());
+
+        assertEquals(3, bodies.size());
+        assertEquals(2, retryPolicy.getRetryCount());
+        assertEquals(0, retryPolicy.getSuccessCount());
+        assertEquals(1, retryPolicy.getExhaustedCount());
+    }
+
+    @Test
+    public void testStreamNotRetried() throws Exception {
+        unavailable = 1;
+
+        // a stream Jetty copies as it sends it can't be sent again
+        final Callback callback = createSObject(new ByteArrayInputStream(MERCHANDISE));
+        assertNotNull(callback.exception.get());
+        assertEquals(503, callback.exception.get().getStatusCode());
+
+        assertEquals(1, bodies.size());
+        assertEquals(0, retryPolicy.getRetryCount());
+    }
+
+    private Callback createSObject(InputStream sObject) throws InterruptedException {
+        final Callback callback = new Callback();
+        restClient.createSObject("Merchandise__c", sObject, callback);
+        assertTrue("No response", callback.done.await(10, TimeUnit.SECONDS));
+        // and no late second response
+        Thread.sleep(200);
+        return callback;
+    }
+
+    // counts the views of its content handed to Jetty
+    private static final class CountingContentStream extends RequestContentStream {
+        private final AtomicInteger contentCount = new AtomicInteger();
+
+        private CountingContentStream(byte[] buf) {
+            super(buf);
+        }
+
+        @Override
+        public synchronized Buffer getContent() {
+            contentCount.incrementAndGet();
+            return super.getContent();
+        }
+    }
+
+    private static final class Callback implements RestClient.ResponseCallback {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final AtomicInteger responses = new AtomicInteger();
+        private final AtomicReference<SalesforceException> exception = new AtomicReference<SalesforceException>();
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+            responses.incrementAndGet();
+            this.exception.set(exception);
+            done.countDown();
+        }
+    }
+
+}
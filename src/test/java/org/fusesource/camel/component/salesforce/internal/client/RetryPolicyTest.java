@@ -0,0 +1,161 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.api.dto.RestError;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+public class RetryPolicyTest extends Assert {
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testRejected() {
+        assertTrue(RetryPolicy.isRejected(503, null));
+        assertTrue(RetryPolicy.isRejected(500, errors("SERVER_UNAVAILABLE")));
+        assertTrue(RetryPolicy.isRejected(400, errors("INVALID_FIELD", "UNABLE_TO_LOCK_ROW")));
+
+        assertFalse(RetryPolicy.isRejected(500, null));
+        assertFalse(RetryPolicy.isRejected(400, errors("INVALID_FIELD")));
+        assertFalse(RetryPolicy.isRejected(404, new SalesforceException("Not found", 404)));
+    }
+
+    @Test
+    public void testMethods() {
+        final RetryPolicy retryPolicy = new RetryPolicy(1, 100, 1000, 1, scheduler);
+
+        // requests that were rejected are retried for any method
+        assertTrue(retryPolicy.retryDelay("POST", true, 0) >= 0);
+        assertTrue(retryPolicy.retryDelay("PATCH", true, 0) >= 0);
+
+        // other failures, e.g. I/O errors or expiry, only for idempotent methods
+        assertEquals(-1, retryPolicy.retryDelay("POST", false, 0));
+        assertEquals(-1, retryPolicy.retryDelay("PATCH", false, 0));
+        assertTrue(retryPolicy.retryDelay("GET", false, 0) >= 0);
+        assertTrue(retryPolicy.retryDelay("HEAD", false, 0) >= 0);
+        assertTrue(retryPolicy.retryDelay("PUT", false, 0) >= 0);
+        assertTrue(retryPolicy.retryDelay("DELETE", false, 0) >= 0);
+        assertEquals(6, retryPolicy.getRetryCount());
+    }
+
+    @Test
+    public void testDelays() {
+        final RetryPolicy retryPolicy = new RetryPolicy(10, 100, 1000, 1, scheduler);
+
+        for (int i = 0; i < 100; i++) {
+            for (int retries = 0; retries < 10; retries++) {
+                retryPolicy.onRequest();
+                // doubled for every retry up to the max delay, with its upper half randomized
+                final long delay = Math.min(1000, 100L << retries);
+                final long actual = retryPolicy.retryDelay("GET", false, retries);
+                assertTrue(String.format("Delay %s for retry %s", actual, retries),
+                    actual >= delay / 2 && actual <= delay);
+            }
+        }
+    }
+
+    @Test
+    public void testMaxRetries() {
+        final RetryPolicy retryPolicy = new RetryPolicy(2, 100, 1000, 1, scheduler);
+
+        assertTrue(retryPolicy.retryDelay("GET", false, 0) >= 0);
+        assertTrue(retryPolicy.retryDelay("GET", false, 1) >= 0);
+        assertEquals(-1, retryPolicy.retryDelay("GET", false, 2));
+        assertEquals(-1, retryPolicy.retryDelay("POST", true, 2));
+
+        assertEquals(2, retryPolicy.getRetryCount());
+        assertEquals(2, retryPolicy.getExhaustedCount());
+    }
+
+    @Test
+    public void testNoRetries() {
+        final RetryPolicy retryPolicy = new RetryPolicy(0, 0, 0, 1, scheduler);
+        assertEquals(-1, retryPolicy.retryDelay("GET", true, 0));
+        assertEquals(0, retryPolicy.getRetryCount());
+    }
+
+    @Test
+    public void testBudget() {
+        final RetryPolicy retryPolicy = new RetryPolicy(1, 100, 1000, 0.5, scheduler);
+
+        // the budget starts with 10 retries
+        for (int i = 0; i < 10; i++) {
+            assertTrue(retryPolicy.retryDelay("GET", false, 0) >= 0);
+        }
+        assertEquals(-1, retryPolicy.retryDelay("GET", false, 0));
+        assertEquals(1, retryPolicy.getBudgetExhaustedCount());
+
+        // and earns half a retry for every request
+        retryPolicy.onRequest();
+        assertEquals(-1, retryPolicy.retryDelay("GET", false, 0));
+        retryPolicy.onRequest();
+        assertTrue(retryPolicy.retryDelay("GET", false, 0) >= 0);
+        assertEquals(11, retryPolicy.getRetryCount());
+        assertEquals(2, retryPolicy.getBudgetExhaustedCount());
+
+        // up to 10 retries
+        for (int i = 0; i < 100; i++) {
+            retryPolicy.onRequest();
+        }
+        assertEquals(10.0, retryPolicy.getBudget(), 0.0);
+    }
+
+    @Test
+    public void testInvalidSettings() {
+        assertInvalid(-1, 100, 1000, 0.1);
+        assertInvalid(1, -1, 1000, 0.1);
+        assertInvalid(1, 100, 10, 0.1);
+        assertInvalid(1, 100, 1000, -0.1);
+    }
+
+    private void assertInvalid(int maxRetries, long initialDelay, long maxDelay, double budgetRatio) {
+        try {
+            new RetryPolicy(maxRetries, initialDelay, maxDelay, budgetRatio, scheduler);
+            fail("Invalid retry policy settings weren't rejected");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    private static SalesforceException errors(String... errorCodes) {
+        final List<RestError> errors = new ArrayList<RestError>();
+        for (String errorCode : errorCodes) {
+            errors.add(new RestError(errorCode, "Error " + errorCode));
+        }
+        return new SalesforceException(errors, 400);
+    }
+
+}
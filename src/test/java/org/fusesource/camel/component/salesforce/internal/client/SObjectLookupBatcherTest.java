@@ -0,0 +1,298 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SObjectLookupBatcherTest extends Assert {
+
+    private static final long LINGER = 60000;
+    private static final String[] FIELDS = {"Name", "Price__c"};
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private ScheduledExecutorService scheduler;
+
+    // query and deadline of the last lookup query
+    private String query;
+    private long queryDeadline;
+    private int queries;
+    // page returned for lookup queries, null to not respond
+    private String queryResponse;
+    // Ids of requests sent individually
+    private final List<String> sObjectRequests = new ArrayList<String>();
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testRecordsForEveryLookup() throws Exception {
+        final SObjectLookupBatcher batcher = new SObjectLookupBatcher(restClient(), LINGER, 3, scheduler, null);
+        queryResponse = page(record("a01000000000001AAA", "Plane"), record("a01000000000002AAB", "Train"),
+            record("a01000000000003AAC", "Car"));
+
+        // records are returned in any order, and matched to 15 or 18 character Ids
+        final Lookup plane = get(batcher, "a01000000000001");
+        final Lookup car = get(batcher, "a01000000000003AAC");
+        final Lookup train = get(batcher, "a01000000000002AAB");
+        assertEquals(1, queries);
+        assertEquals("SELECT Id,Name,Price__c FROM Merchandise__c WHERE Id IN " +
+            "('a01000000000001','a01000000000003','a01000000000002')", query);
+
+        plane.assertRecord("a01000000000001AAA", "Plane");
+        train.assertRecord("a01000000000002AAB", "Train");
+        car.assertRecord("a01000000000003AAC", "Car");
+    }
+
+    @Test
+    public void testDuplicateIds() throws Exception {
+        final SObjectLookupBatcher batcher = new SObjectLookupBatcher(restClient(), LINGER, 3, scheduler, null);
+        queryResponse = page(record("a01000000000001AAA", "Plane"), record("a01000000000002AAB", "Train"));
+
+        // the same record is only queried once, but returned to every lookup
+        final Lookup first = get(batcher, "a01000000000001");
+        final Lookup second = get(batcher, "a01000000000001AAA");
+        final Lookup train = get(batcher, "a01000000000002");
+        assertEquals(1, queries);
+        assertEquals("SELECT Id,Name,Price__c FROM Merchandise__c WHERE Id IN " +
+            "('a01000000000001','a01000000000002')", query);
+
+        first.assertRecord("a01000000000001AAA", "Plane");
+        second.assertRecord("a01000000000001AAA", "Plane");
+        train.assertRecord("a01000000000002AAB", "Train");
+    }
+
+    @Test
+    public void testNotFound() throws Exception {
+        final SObjectLookupBatcher batcher = new SObjectLookupBatcher(restClient(), LINGER, 2, scheduler, null);
+        queryResponse = page(record("a01000000000001AAA", "Plane"));
+
+        final Lookup plane = get(batcher, "a01000000000001");
+        final Lookup missing = get(batcher, "a01000000000009");
+
+        // like the REST call for a missing record
+        plane.assertRecord("a01000000000001AAA", "Plane");
+        assertNull(missing.record);
+        assertNotNull(missing.exception);
+        assertEquals(404, missing.exception.getStatusCode());
+    }
+
+    @Test
+    public void testWithoutFields() throws Exception {
+        final SObjectLookupBatcher batcher = new SObjectLookupBatcher(restClient(), LINGER, 2, scheduler, null);
+
+        // SOQL can't select all fields, so these are sent as is
+        batcher.getSObject("Merchandise__c", "a01000000000001", null, new Lookup());
+        batcher.getSObject("Merchandise__c", "a01000000000002", new String[0], new Lookup());
+        assertEquals(0, queries);
+        assertEquals(2, sObjectRequests.size());
+        assertEquals("a01000000000001", sObjectRequests.get(0));
+        assertEquals("a01000000000002", sObjectRequests.get(1));
+    }
+
+    @Test
+    public void testFlushWhenFull() throws Exception {
+        final SObjectLookupBatcher batcher = new SObjectLookupBatcher(restClient(), LINGER, 2, scheduler, null);
+
+        // the linger time is never up, so batches are only sent when full or flushed
+        get(batcher, "a01000000000001");
+        assertEquals(0, queries);
+        get(batcher, "a01000000000002");
+        assertEquals(1, queries);
+
+        get(batcher, "a01000000000003");
+        assertEquals(1, queries);
+        batcher.flush();
+        assertEquals(2, queries);
+        assertEquals("SELECT Id,Name,Price__c FROM Merchandise__c WHERE Id IN ('a01000000000003')", query);
+    }
+
+    @Test
+    public void testCallbacksRunInParallel() throws Exception {
+        final ExecutorService callbackExecutor = Executors.newCachedThreadPool();
+        try {
+            final SObjectLookupBatcher batcher = new SObjectLookupBatcher(restClient(), LINGER, 3, scheduler,
+                callbackExecutor);
+            queryResponse = page(record("a01000000000001AAA", "Plane"), record("a01000000000002AAB", "Train"));
+
+            // every callback waits for all of them to start, which they can't if they run one after another
+            final CountDownLatch started = new CountDownLatch(3);
+            final CountDownLatch done = new CountDownLatch(3);
+            final AtomicInteger serial = new AtomicInteger();
+            final RestClient.ResponseCallback callback = new RestClient.ResponseCallback() {
+                @Override
+                public void onResponse(InputStream response, SalesforceException exception) {
+                    started.countDown();
+                    try {
+                        if (!started.await(1, TimeUnit.SECONDS)) {
+                            serial.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            };
+            // found and missing records
+            batcher.getSObject("Merchandise__c", "a01000000000001", FIELDS, callback);
+            batcher.getSObject("Merchandise__c", "a01000000000002", FIELDS, callback);
+            batcher.getSObject("Merchandise__c", "a01000000000009", FIELDS, callback);
+            assertEquals(1, queries);
+
+            assertTrue("Lookups not completed", done.await(10, TimeUnit.SECONDS));
+            assertEquals(0, serial.get());
+        } finally {
+            callbackExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        final SObjectLookupBatcher batcher = new SObjectLookupBatcher(restClient(), LINGER, 3, scheduler, null);
+        final long deadline = System.currentTimeMillis() + LINGER;
+
+        // sent with the earliest deadline of its lookups
+        getWithDeadline(batcher, "a01000000000001", deadline + 1000);
+        getWithDeadline(batcher, "a01000000000002", 0);
+        getWithDeadline(batcher, "a01000000000003", deadline);
+        assertEquals("SELECT Id,Name,Price__c FROM Merchandise__c WHERE Id IN " +
+            "('a01000000000001','a01000000000002','a01000000000003')", query);
+        assertEquals(deadline, queryDeadline);
+        assertEquals(0, AbstractClientBase.getCurrentDeadline());
+
+        // also when flushed by a thread without a deadline
+        getWithDeadline(batcher, "a01000000000004", deadline + 1000);
+        batcher.flush();
+        assertEquals(deadline + 1000, queryDeadline);
+
+        // and without one if none of its lookups has one
+        getWithDeadline(batcher, "a01000000000005", 0);
+        batcher.flush();
+        assertEquals(0, queryDeadline);
+    }
+
+    private static Lookup get(SObjectLookupBatcher batcher, String id) {
+        final Lookup lookup = new Lookup();
+        batcher.getSObject("Merchandise__c", id, FIELDS, lookup);
+        return lookup;
+    }
+
+    private static void getWithDeadline(SObjectLookupBatcher batcher, String id, long deadline) {
+        AbstractClientBase.setCurrentDeadline(deadline);
+        try {
+            get(batcher, id);
+        } finally {
+            AbstractClientBase.setCurrentDeadline(0);
+        }
+    }
+
+    private static String record(String id, String name) {
+        return String.format("{\"attributes\":{\"type\":\"Merchandise__c\"},\"Id\":\"%s\",\"Name\":\"%s\"," +
+            "\"Price__c\":10.0}", id, name);
+    }
+
+    private static String page(String... records) {
+        final StringBuilder page = new StringBuilder("{\"totalSize\":").append(records.length)
+            .append(",\"done\":true,\"records\":[");
+        for (int i = 0; i < records.length; i++) {
+            if (i > 0) {
+                page.append(',');
+            }
+            page.append(records[i]);
+        }
+        return page.append("]}").toString();
+    }
+
+    private RestClient restClient() {
+        return (RestClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{RestClient.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if ("getSObject".equals(method.getName())) {
+                        sObjectRequests.add((String) args[1]);
+                        return null;
+                    }
+                    if (!"query".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    query = (String) args[0];
+                    queryDeadline = AbstractClientBase.getCurrentDeadline();
+                    queries++;
+                    if (queryResponse != null) {
+                        ((RestClient.ResponseCallback) args[1]).onResponse(
+                            new ByteArrayInputStream(queryResponse.getBytes("UTF-8")), null);
+                    }
+                    return null;
+                }
+            });
+    }
+
+    // result of a single lookup
+    private static final class Lookup implements RestClient.ResponseCallback {
+        private JsonNode record;
+        private SalesforceException exception;
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+            this.exception = exception;
+            if (response != null) {
+                try {
+                    record = OBJECT_MAPPER.readTree(response);
+                } catch (IOException e) {
+                    this.exception = new SalesforceException(e);
+                }
+            }
+        }
+
+        private void assertRecord(String id, String name) {
+            assertNull(exception);
+            assertNotNull("No record for " + id, record);
+            assertEquals(id, record.get("Id").getTextValue());
+            assertEquals(name, record.get("Name").getTextValue());
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SalesforceSecurityListenerTest extends Assert {
+
+    private static final int REQUESTS = 5;
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    private DefaultRestClient restClient;
+
+    // token the server accepts, requests with any other token are unauthorized
+    private volatile String validToken;
+    private final AtomicInteger unauthorized = new AtomicInteger();
+    private final List<String> authorizedTokens = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                EmbeddedSalesforceServer.readRequestBody(exchange);
+                final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+                if (!("Bearer " + validToken).equals(authorization)) {
+                    unauthorized.incrementAndGet();
+                    EmbeddedSalesforceServer.respond(exchange, 401,
+                        "[{\"message\":\"Session expired or invalid\",\"errorCode\":\"INVALID_SESSION_ID\"}]"
+                            .getBytes("UTF-8"));
+                } else {
+                    authorizedTokens.add(validToken);
+                    EmbeddedSalesforceServer.respond(exchange, 200,
+                        "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"001000000000001AAA\"}".getBytes("UTF-8"));
+                }
+            }
+        });
+
+        session = server.createSession();
+        session.start();
+        restClient = new DefaultRestClient(server.getHttpClient(), "34.0", "json", session);
+        restClient.start();
+        assertEquals(1, server.getLogins());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        restClient.stop();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testConcurrentUnauthorizedRequests() throws Exception {
+        // token1 expires, and the next login's token is valid
+        validToken = "token2";
+        final CountDownLatch loginGate = new CountDownLatch(1);
+        server.setLoginGate(loginGate);
+
+        final Callbacks callbacks = sendRequests();
+        waitForUnauthorized();
+        loginGate.countDown();
+        callbacks.await();
+
+        // every parked request is resent with the token of the single login
+        assertEquals(2, server.getLogins());
+        assertEquals(Collections.<SalesforceException>emptyList(), callbacks.exceptions);
+        assertEquals(REQUESTS, callbacks.responses.get());
+        assertEquals(REQUESTS, authorizedTokens.size());
+        for (String token : authorizedTokens) {
+            assertEquals("token2", token);
+        }
+        assertEquals("token2", session.getAccessToken());
+    }
+
+    @Test
+    public void testConcurrentUnauthorizedRequestsWithLoginError() throws Exception {
+        validToken = "token2";
+        final CountDownLatch loginGate = new CountDownLatch(1);
+        server.setLoginGate(loginGate);
+        server.setLoginFailing(true);
+
+        final Callbacks callbacks = sendRequests();
+        waitForUnauthorized();
+        loginGate.countDown();
+        callbacks.await();
+
+        // every parked request fails with its unauthorized response, after a single login
+        assertEquals(2, server.getLogins());
+        assertEquals(0, callbacks.responses.get());
+        assertEquals(REQUESTS, callbacks.exceptions.size());
+        for (SalesforceException exception : callbacks.exceptions) {
+            assertEquals(401, exception.getStatusCode());
+        }
+        assertTrue(authorizedTokens.isEmpty());
+    }
+
+    private Callbacks sendRequests() {
+        final Callbacks callbacks = new Callbacks();
+        for (int i = 0; i < REQUESTS; i++) {
+            // different records, so that the requests aren't shared
+            restClient.getSObject("Account", "00100000000000" + i, null, callbacks);
+        }
+        return callbacks;
+    }
+
+    private void waitForUnauthorized() throws InterruptedException {
+        // the login waits for the gate, so every request gets an unauthorized response first
+        for (int i = 0; i < 500 && (unauthorized.get() < REQUESTS || server.getLogins() < 2); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(REQUESTS, unauthorized.get());
+        assertEquals(2, server.getLogins());
+    }
+
+    private static final class Callbacks implements RestClient.ResponseCallback {
+        private final CountDownLatch done = new CountDownLatch(REQUESTS);
+        private final AtomicInteger responses = new AtomicInteger();
+        private final List<SalesforceException> exceptions =
+            Collections.synchronizedList(new ArrayList<SalesforceException>());
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+            if (exception != null) {
+                exceptions.add(exception);
+            } else {
+                responses.incrementAndGet();
+            }
+            done.countDown();
+        }
+
+        public void await() throws InterruptedException {
+            assertTrue("Requests not completed", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SharedRequestTest extends Assert {
+
+    private static final String ID = "001000000000001AAA";
+    private static final String RECORD = "{\"attributes\":{\"type\":\"Account\"},\"Id\":\"" + ID + "\"}";
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    private DefaultRestClient restClient;
+
+    // GETs are held until released, so that identical GETs are in flight together
+    private final CountDownLatch releaseGets = new CountDownLatch(1);
+    private final AtomicInteger gets = new AtomicInteger();
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                EmbeddedSalesforceServer.readRequestBody(exchange);
+                if ("GET".equals(exchange.getRequestMethod())) {
+                    gets.incrementAndGet();
+                    try {
+                        releaseGets.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    EmbeddedSalesforceServer.respond(exchange, 200, RECORD.getBytes("UTF-8"));
+                } else {
+                    EmbeddedSalesforceServer.respond(exchange, 204, null);
+                }
+            }
+        });
+
+        session = server.createSession();
+        session.start();
+        restClient = new DefaultRestClient(server.getHttpClient(), "34.0", "json", session);
+        restClient.setShareInFlightRequests(true);
+        restClient.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        releaseGets.countDown();
+        restClient.stop();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testIdenticalGets() throws Exception {
+        final Callbacks callbacks = new Callbacks(3);
+        for (int i = 0; i < 3; i++) {
+            restClient.getSObject("Account", ID, null, callbacks);
+        }
+        waitForGets(1);
+        releaseGets.countDown();
+
+        // every caller gets its own copy of the single response
+        callbacks.assertResponses();
+        assertEquals(1, gets.get());
+
+        // and the next GET is sent again
+        final Callbacks next = new Callbacks(1);
+        restClient.getSObject("Account", ID, null, next);
+        next.assertResponses();
+        assertEquals(2, gets.get());
+    }
+
+    @Test
+    public void testWriteClearsInFlightGets() throws Exception {
+        final Callbacks callbacks = new Callbacks(3);
+        restClient.getSObject("Account", ID, null, callbacks);
+        waitForGets(1);
+
+        // a GET after a write doesn't attach to a GET sent before it
+        final Callbacks update = new Callbacks(1);
+        restClient.updateSObject("Account", ID, new ByteArrayInputStream("{}".getBytes("UTF-8")), update);
+        update.await();
+        assertEquals(Collections.<SalesforceException>emptyList(), update.exceptions);
+
+        restClient.getSObject("Account", ID, null, callbacks);
+        waitForGets(2);
+        // but a GET after that attaches to it
+        restClient.getSObject("Account", ID, null, callbacks);
+        releaseGets.countDown();
+
+        callbacks.assertResponses();
+        assertEquals(2, gets.get());
+    }
+
+    @Test
+    public void testGetsWithDeadlineNotShared() throws Exception {
+        final Callbacks callbacks = new Callbacks(2);
+        final long previous = AbstractClientBase.setCurrentDeadline(System.currentTimeMillis() + 10000);
+        try {
+            restClient.getSObject("Account", ID, null, callbacks);
+            restClient.getSObject("Account", ID, null, callbacks);
+        } finally {
+            AbstractClientBase.setCurrentDeadline(previous);
+        }
+        waitForGets(2);
+        releaseGets.countDown();
+
+        callbacks.assertResponses();
+        assertEquals(2, gets.get());
+    }
+
+    @Test
+    public void testDirectCallbacksNotShared() throws Exception {
+        final DirectCallbacks callbacks = new DirectCallbacks(2);
+        restClient.getSObject("Account", ID, null, callbacks);
+        restClient.getSObject("Account", ID, null, callbacks);
+        waitForGets(2);
+        releaseGets.countDown();
+
+        callbacks.assertResponses();
+        assertEquals(2, gets.get());
+    }
+
+    @Test
+    public void testSharedCallbacksRunInParallel() throws Exception {
+        final ExecutorService executorService = Executors.newCachedThreadPool();
+        restClient.setCallbackExecutor(new CallbackExecutor(executorService));
+        try {
+            // every callback waits for all of them to start, which they can't if they run one after another
+            final CountDownLatch started = new CountDownLatch(3);
+            final AtomicInteger serial = new AtomicInteger();
+            final Callbacks callbacks = new Callbacks(3) {
+                @Override
+                public void onResponse(InputStream response, SalesforceException exception) {
+                    started.countDown();
+                    try {
+                        if (!started.await(1, TimeUnit.SECONDS)) {
+                            serial.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    super.onResponse(response, exception);
+                }
+            };
+            for (int i = 0; i < 3; i++) {
+                restClient.getSObject("Account", ID, null, callbacks);
+            }
+            waitForGets(1);
+            releaseGets.countDown();
+
+            callbacks.assertResponses();
+            assertEquals(0, serial.get());
+            assertEquals(1, gets.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private void waitForGets(int expected) throws InterruptedException {
+        for (int i = 0; i < 500 && gets.get() < expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, gets.get());
+    }
+
+    private static class Callbacks implements RestClient.ResponseCallback {
+        private final int count;
+        private final CountDownLatch done;
+        private final List<String> responses = Collections.synchronizedList(new ArrayList<String>());
+        private final List<SalesforceException> exceptions =
+            Collections.synchronizedList(new ArrayList<SalesforceException>());
+
+        Callbacks(int count) {
+            this.count = count;
+            done = new CountDownLatch(count);
+        }
+
+        @Override
+        public void onResponse(InputStream response, SalesforceException exception) {
+            try {
+                if (exception != null) {
+                    exceptions.add(exception);
+                } else if (response != null) {
+                    responses.add(new String(EmbeddedSalesforceServer.read(response), "UTF-8"));
+                }
+            } catch (IOException e) {
+                exceptions.add(new SalesforceException(e));
+            } finally {
+                done.countDown();
+            }
+        }
+
+        void await() throws InterruptedException {
+            assertTrue("Requests not completed", done.await(10, TimeUnit.SECONDS));
+        }
+
+        void assertResponses() throws InterruptedException {
+            await();
+            assertEquals(Collections.<SalesforceException>emptyList(), exceptions);
+            assertEquals(count, responses.size());
+            for (String response : responses) {
+                assertEquals(RECORD, response);
+            }
+        }
+    }
+
+    private static final class DirectCallbacks extends Callbacks implements RestClient.DirectResponseCallback {
+        DirectCallbacks(int count) {
+            super(count);
+        }
+    }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.eclipse.jetty.client.ContentExchange;
+import org.eclipse.jetty.client.HttpClient;
+import org.fusesource.camel.component.salesforce.EmbeddedSalesforceServer;
+import org.fusesource.camel.component.salesforce.internal.SalesforceSession;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+public class TrafficLaneTest extends Assert {
+
+    private EmbeddedSalesforceServer server;
+    private SalesforceSession session;
+    // the lane's own client, the session logs in with the server's client
+    private HttpClient httpClient;
+    private TrafficLane lane;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new EmbeddedSalesforceServer();
+        server.start();
+        server.createContext("/services/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                EmbeddedSalesforceServer.respond(exchange, 204, null);
+            }
+        });
+        session = server.createSession();
+        session.start();
+
+        httpClient = new HttpClient();
+        httpClient.setConnectorType(HttpClient.CONNECTOR_SELECT_CHANNEL);
+        httpClient.start();
+        lane = new TrafficLane("rest", httpClient, session);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        httpClient.stop();
+        session.stop();
+        server.stop();
+    }
+
+    @Test
+    public void testConnections() throws Exception {
+        // the login's connection belongs to another client, and reading statistics doesn't create a destination
+        assertEquals(0, lane.getOpenConnections());
+        assertEquals(0, lane.getIdleConnections());
+        assertEquals(0, lane.getActiveConnections());
+        assertNull("Destination created by statistics", HttpDestinations.find(httpClient, server.getUrl()));
+
+        final ContentExchange exchange = new ContentExchange();
+        exchange.setURL(session.getInstanceUrl() + "/services/data/");
+        httpClient.send(exchange);
+        exchange.waitForDone();
+        assertEquals(204, exchange.getResponseStatus());
+
+        // the connection is kept alive, and returned to the pool after the exchange completes
+        assertEquals(1, lane.getOpenConnections());
+        for (int i = 0; i < 100 && lane.getIdleConnections() == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, lane.getIdleConnections());
+        assertEquals(0, lane.getActiveConnections());
+    }
+
+}
@@ -0,0 +1,347 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.processor;
+
+import org.apache.camel.RuntimeCamelException;
+import org.fusesource.camel.component.salesforce.SalesforceComponent;
+import org.fusesource.camel.component.salesforce.SalesforceEndpoint;
+import org.fusesource.camel.component.salesforce.SalesforceEndpointConfig;
+import org.fusesource.camel.component.salesforce.api.SalesforceException;
+import org.fusesource.camel.component.salesforce.dto.Line_Item__c;
+import org.fusesource.camel.component.salesforce.dto.QueryRecordsLine_Item__c;
+import org.fusesource.camel.component.salesforce.internal.OperationName;
+import org.fusesource.camel.component.salesforce.internal.client.AbstractClientBase;
+import org.fusesource.camel.component.salesforce.internal.client.RestClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class QueryRecordsIteratorTest extends Assert {
+
+    private static final long TIMEOUT = 200;
+
+    // callbacks of queries sent by the iterator
+    private final List<RestClient.ResponseCallback> callbacks = new ArrayList<RestClient.ResponseCallback>();
+    // deadlines they were sent with
+    private final List<Long> deadlines = new ArrayList<Long>();
+    // queries and nextRecordsUrls requested by the iterator
+    private final List<String> requests = new ArrayList<String>();
+    // pages returned right away for queries and nextRecordsUrls, others never get a response by themselves
+    private final Map<String, String> pages = new HashMap<String, String>();
+
+    @Test
+    public void testPages() throws Exception {
+        pages.put("/query/01g-2", page("/query/01g-3", "2a", "2b"));
+        pages.put("/query/01g-3", page(null, "3a"));
+
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), jsonProcessor(),
+            QueryRecordsLine_Item__c.class, stream(page("/query/01g-2", "1a", "1b")), 0, TIMEOUT);
+
+        // all records of all pages, in page order
+        assertEquals(Arrays.asList("1a", "1b", "2a", "2b", "3a"), names(iterator));
+        assertEquals(Arrays.asList("/query/01g-2", "/query/01g-3"), requests);
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), jsonProcessor(),
+            QueryRecordsLine_Item__c.class, stream(page("/query/01g-2", "1a", "1b")), 0, TIMEOUT);
+
+        // the next page is requested before the records of the first page are read
+        assertEquals(Arrays.asList("/query/01g-2"), requests);
+        assertEquals("1a", ((Line_Item__c) iterator.next()).getName());
+        assertEquals("1b", ((Line_Item__c) iterator.next()).getName());
+
+        // and only one page is fetched ahead
+        callbacks.get(0).onResponse(stream(page("/query/01g-3", "2a")), null);
+        assertEquals("2a", ((Line_Item__c) iterator.next()).getName());
+        assertEquals(Arrays.asList("/query/01g-2", "/query/01g-3"), requests);
+        callbacks.get(1).onResponse(stream(page(null)), null);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testNextRecordsUrlAfterRecords() throws Exception {
+        pages.put("/query/01g-2", page(null, "2a"));
+
+        // the next page is requested once the records before the URL have been read
+        final String firstPage = "{\"totalSize\":2,\"done\":false,\"records\":[" + record("1a") + "]," +
+            "\"nextRecordsUrl\":\"/query/01g-2\"}";
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), jsonProcessor(),
+            QueryRecordsLine_Item__c.class, stream(firstPage), 0, TIMEOUT);
+        assertTrue(requests.isEmpty());
+
+        assertEquals(Arrays.asList("1a", "2a"), names(iterator));
+    }
+
+    @Test
+    public void testOrderedQueries() throws Exception {
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), jsonProcessor(),
+            QueryRecordsLine_Item__c.class, Arrays.asList("SELECT Name FROM Line_Item__c WHERE Name < 'b'",
+                "SELECT Name FROM Line_Item__c WHERE Name >= 'b'"), true, 0, TIMEOUT);
+        assertEquals(2, callbacks.size());
+
+        // the second query responds first, with the last of its pages
+        callbacks.get(1).onResponse(stream(page(null, "b1", "b2")), null);
+        callbacks.get(0).onResponse(stream(page("/query/01g-2", "a1")), null);
+        assertEquals("a1", ((Line_Item__c) iterator.next()).getName());
+
+        // its records wait until all pages of the first query are read
+        callbacks.get(2).onResponse(stream(page(null, "a2")), null);
+        assertEquals(Arrays.asList("a2", "b1", "b2"), names(iterator));
+    }
+
+    @Test
+    public void testUnorderedQueries() throws Exception {
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), jsonProcessor(),
+            QueryRecordsLine_Item__c.class, Arrays.asList("SELECT Name FROM Line_Item__c WHERE Name < 'b'",
+                "SELECT Name FROM Line_Item__c WHERE Name >= 'b'"), false, 0, TIMEOUT);
+
+        // records are returned as pages are received
+        callbacks.get(1).onResponse(stream(page(null, "b1", "b2")), null);
+        callbacks.get(0).onResponse(stream(page("/query/01g-2", "a1")), null);
+        assertEquals(Arrays.asList("b1", "b2", "a1"), Arrays.asList(
+            ((Line_Item__c) iterator.next()).getName(), ((Line_Item__c) iterator.next()).getName(),
+            ((Line_Item__c) iterator.next()).getName()));
+
+        callbacks.get(2).onResponse(stream(page(null, "a2")), null);
+        assertEquals(Arrays.asList("a2"), names(iterator));
+    }
+
+    @Test
+    public void testEmptyPages() throws Exception {
+        pages.put("SELECT Name FROM Line_Item__c", page("/query/01g-2"));
+        pages.put("/query/01g-2", page(null, "2a"));
+
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), jsonProcessor(),
+            QueryRecordsLine_Item__c.class, Arrays.asList("SELECT Name FROM Line_Item__c"), true, 0, TIMEOUT);
+        assertEquals(Arrays.asList("2a"), names(iterator));
+    }
+
+    @Test
+    public void testPageWithinDeadline() throws Exception {
+        final long deadline = System.currentTimeMillis() + 10 * TIMEOUT;
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), jsonProcessor(),
+            QueryRecordsLine_Item__c.class, Arrays.asList("SELECT Name FROM Line_Item__c"), true, deadline, 0);
+
+        // the reader waits for a page that arrives before the deadline
+        new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(TIMEOUT / 2);
+                } catch (InterruptedException ignored) {
+                }
+                callbacks.get(0).onResponse(stream(page(null, "1a")), null);
+            }
+        }.start();
+        assertEquals(Arrays.asList("1a"), names(iterator));
+    }
+
+    @Test
+    public void testQueuedPageAfterDeadline() throws Exception {
+        final long deadline = System.currentTimeMillis() + TIMEOUT / 2;
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), jsonProcessor(),
+            QueryRecordsLine_Item__c.class, Arrays.asList("SELECT Name FROM Line_Item__c"), true, deadline, 0);
+
+        // a page that was received is still read after the deadline
+        callbacks.get(0).onResponse(stream(page(null, "1a")), null);
+        Thread.sleep(TIMEOUT);
+        assertEquals(Arrays.asList("1a"), names(iterator));
+    }
+
+    @Test
+    public void testXmlPages() throws Exception {
+        pages.put("/query/01g-2", "<QueryResult><done>true</done>" +
+            "<records><Name>2a</Name></records><totalSize>3</totalSize></QueryResult>");
+
+        // XML pages are bound as a whole
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), xmlProcessor(),
+            QueryRecordsLine_Item__c.class, stream("<QueryResult><done>false</done>" +
+                "<nextRecordsUrl>/query/01g-2</nextRecordsUrl>" +
+                "<records><Name>1a</Name></records><records><Name>1b</Name></records>" +
+                "<totalSize>3</totalSize></QueryResult>"), 0, TIMEOUT);
+        assertEquals(Arrays.asList("1a", "1b", "2a"), names(iterator));
+    }
+
+    @Test
+    public void testPagesAreQueuedDirectly() throws Exception {
+        new QueryRecordsIterator(restClient(), null, QueryRecordsLine_Item__c.class,
+            Arrays.asList("SELECT Id FROM Line_Item__c"), true, 0, TIMEOUT);
+
+        // pages must not wait for the callback executor, which may be running the reader
+        assertEquals(1, callbacks.size());
+        assertTrue(callbacks.get(0) instanceof RestClient.DirectResponseCallback);
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), null,
+            QueryRecordsLine_Item__c.class, Arrays.asList("SELECT Id FROM Line_Item__c"), true, 0, TIMEOUT);
+
+        final long start = System.currentTimeMillis();
+        try {
+            iterator.hasNext();
+            fail("Expected timeout");
+        } catch (RuntimeCamelException e) {
+            assertTrue(e.getCause() instanceof SalesforceException);
+            assertTrue(e.getMessage().startsWith("Timeout"));
+        }
+        assertTrue("Didn't wait for the page", System.currentTimeMillis() - start >= TIMEOUT);
+
+        // a page received after giving up is discarded
+        final ClosedStream page = new ClosedStream();
+        callbacks.get(0).onResponse(page, null);
+        assertTrue("Late page not closed", page.closed);
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), null,
+            QueryRecordsLine_Item__c.class, Arrays.asList("SELECT Id FROM Line_Item__c"), false, deadline, 0);
+
+        try {
+            iterator.hasNext();
+            fail("Expected deadline exceeded");
+        } catch (RuntimeCamelException e) {
+            assertTrue(e.getMessage().startsWith("Deadline exceeded"));
+        }
+        assertTrue(System.currentTimeMillis() >= deadline);
+    }
+
+    @Test
+    public void testQueriesSentWithDeadline() throws Exception {
+        final long deadline = System.currentTimeMillis() + TIMEOUT;
+        new QueryRecordsIterator(restClient(), null, QueryRecordsLine_Item__c.class,
+            Arrays.asList("SELECT Id FROM Line_Item__c WHERE Name < '5'",
+                "SELECT Id FROM Line_Item__c WHERE Name >= '5'"), true, deadline, 0);
+
+        // created on a thread without a deadline, e.g. a callback thread
+        assertEquals(Arrays.asList(deadline, deadline), deadlines);
+        assertEquals(0, AbstractClientBase.getCurrentDeadline());
+    }
+
+    @Test
+    public void testFailedPage() throws Exception {
+        final QueryRecordsIterator iterator = new QueryRecordsIterator(restClient(), null,
+            QueryRecordsLine_Item__c.class, Arrays.asList("SELECT Id FROM Line_Item__c"), true, 0, TIMEOUT);
+
+        final SalesforceException exception = new SalesforceException("Query failed", null);
+        callbacks.get(0).onResponse(null, exception);
+        try {
+            iterator.hasNext();
+            fail("Expected query exception");
+        } catch (RuntimeCamelException e) {
+            assertSame(exception, e.getCause());
+        }
+    }
+
+    private RestClient restClient() {
+        return (RestClient) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{RestClient.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if (!"query".equals(method.getName()) && !"queryMore".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    final RestClient.ResponseCallback callback = (RestClient.ResponseCallback) args[1];
+                    requests.add((String) args[0]);
+                    deadlines.add(AbstractClientBase.getCurrentDeadline());
+                    final String page = pages.get(args[0]);
+                    if (page != null) {
+                        callback.onResponse(stream(page), null);
+                    } else {
+                        callbacks.add(callback);
+                    }
+                    return null;
+                }
+            });
+    }
+
+    private static AbstractRestProcessor jsonProcessor() throws SalesforceException {
+        return new JsonRestProcessor(createEndpoint("json"));
+    }
+
+    private static AbstractRestProcessor xmlProcessor() throws SalesforceException {
+        return new XmlRestProcessor(createEndpoint("xml"));
+    }
+
+    private static SalesforceEndpoint createEndpoint(String format) {
+        final SalesforceEndpointConfig config = new SalesforceEndpointConfig();
+        config.setFormat(format);
+        return new SalesforceEndpoint("salesforce:query", new SalesforceComponent(), config,
+            OperationName.QUERY, null);
+    }
+
+    private static String page(String nextRecordsUrl, String... names) {
+        final StringBuilder page = new StringBuilder("{\"totalSize\":10,\"done\":")
+            .append(nextRecordsUrl == null);
+        if (nextRecordsUrl != null) {
+            page.append(",\"nextRecordsUrl\":\"").append(nextRecordsUrl).append('"');
+        }
+        page.append(",\"records\":[");
+        for (int i = 0; i < names.length; i++) {
+            page.append(i > 0 ? "," : "").append(record(names[i]));
+        }
+        return page.append("]}").toString();
+    }
+
+    private static String record(String name) {
+        return "{\"attributes\":{\"type\":\"Line_Item__c\"},\"Name\":\"" + name + "\",\"Units_Sold__c\":1.0}";
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        try {
+            return new ByteArrayInputStream(content.getBytes("UTF-8"));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> names(QueryRecordsIterator iterator) {
+        final List<String> names = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            names.add(((Line_Item__c) iterator.next()).getName());
+        }
+        return names;
+    }
+
+    private static class ClosedStream extends ByteArrayInputStream {
+        private boolean closed;
+
+        private ClosedStream() {
+            super(new byte[0]);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.fusesource.camel.component.salesforce.internal.processor;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class QueryShardsTest extends Assert {
+
+    @Test
+    public void testIdRanges() {
+        final QueryShards shards = new QueryShards("SELECT Id, Name FROM Account", "id");
+        assertEquals(QueryShards.ID, shards.getField());
+
+        // 15 and 18 character Ids are base 62 numbers, 10 in base 62 is 62, so ranges are 31 apart
+        final List<String> queries = shards.getShardQueries("001000000000000AAA", "001000000000010", 2);
+        assertEquals(Arrays.asList(
+            "SELECT Id, Name FROM Account WHERE Id < '00100000000000V'",
+            "SELECT Id, Name FROM Account WHERE Id >= '00100000000000V'"), queries);
+
+        // boundaries carry over between base 62 digits
+        assertEquals(Arrays.asList(
+            "SELECT Id, Name FROM Account WHERE Id < '00100000000000z'",
+            "SELECT Id, Name FROM Account WHERE Id >= '00100000000000z' AND Id < '00100000000001z'",
+            "SELECT Id, Name FROM Account WHERE Id >= '00100000000001z'"),
+            shards.getShardQueries("001000000000000", "00100000000002z", 3));
+    }
+
+    @Test
+    public void testDateTimeRanges() {
+        final QueryShards shards = new QueryShards("SELECT Id FROM Account", "createddate");
+        assertEquals(QueryShards.CREATED_DATE, shards.getField());
+
+        // date time literals are in UTC, and not quoted
+        final DateTime lowest = new DateTime(2013, 1, 1, 0, 0, DateTimeZone.UTC);
+        final DateTime highest = new DateTime(2013, 1, 4, 0, 0, DateTimeZone.forOffsetHours(2));
+        assertEquals(Arrays.asList(
+            "SELECT Id FROM Account WHERE CreatedDate < 2013-01-01T23:20:00Z",
+            "SELECT Id FROM Account WHERE CreatedDate >= 2013-01-01T23:20:00Z AND CreatedDate < 2013-01-02T22:40:00Z",
+            "SELECT Id FROM Account WHERE CreatedDate >= 2013-01-02T22:40:00Z"),
+            shards.getShardQueries(lowest, highest, 3));
+
+        assertEquals(QueryShards.SYSTEM_MODSTAMP, new QueryShards("SELECT Id FROM Account", "SystemModstamp").getField());
+    }
+
+    @Test
+    public void testOpenRanges() {
+        final QueryShards shards = new QueryShards("SELECT Id FROM Account", QueryShards.ID);
+
+        // the first and last ranges are open, so records outside the boundaries aren't lost
+        final List<String> queries = shards.getShardQueries("001000000000000", "001000000000010", 4);
+        assertEquals(4, queries.size());
+        assertFalse(queries.get(0).contains(">="));
+        assertFalse(queries.get(3).contains("<"));
+
+        // no records
+        assertEquals(Arrays.asList("SELECT Id FROM Account"), shards.getShardQueries(null, null, 4));
+
+        // duplicate boundaries are merged
+        assertEquals(Arrays.asList(
+            "SELECT Id FROM Account WHERE Id < '001000000000000'",
+            "SELECT Id FROM Account WHERE Id >= '001000000000000'"),
+            shards.getShardQueries("001000000000000", "001000000000000", 4));
+    }
+
+    @Test
+    public void testClausePlacement() {
+        // the range is added to the WHERE condition, before the clauses that follow it
+        QueryShards shards = new QueryShards(
+            "SELECT Id FROM Account WHERE Name = 'x' OR Name = 'y' ORDER BY Name", QueryShards.ID);
+        assertEquals(Arrays.asList(
+            "SELECT Id FROM Account WHERE (Name = 'x' OR Name = 'y') AND Id < '00100000000000V' ORDER BY Name",
+            "SELECT Id FROM Account WHERE (Name = 'x' OR Name = 'y') AND Id >= '00100000000000V' ORDER BY Name"),
+            shards.getShardQueries("001000000000000", "001000000000010", 2));
+        assertEquals("SELECT Id FROM Account WHERE Name = 'x' OR Name = 'y' ORDER BY Id ASC LIMIT 1",
+            shards.getBoundaryQuery(true));
+        assertEquals("SELECT Id FROM Account WHERE Name = 'x' OR Name = 'y' ORDER BY Id DESC LIMIT 1",
+            shards.getBoundaryQuery(false));
+
+        shards = new QueryShards("SELECT Id FROM Account WITH SECURITY_ENFORCED", QueryShards.ID);
+        assertEquals("SELECT Id FROM Account WHERE Id < '00100000000000V' WITH SECURITY_ENFORCED",
+            shards.getShardQueries("001000000000000", "001000000000010", 2).get(0));
+        assertEquals("SELECT Id FROM Account ORDER BY Id ASC LIMIT 1", shards.getBoundaryQuery(true));
+
+        shards = new QueryShards("SELECT Id FROM Account WHERE Name != null FOR VIEW", QueryShards.ID);
+        assertEquals("SELECT Id FROM Account WHERE (Name != null) AND Id < '00100000000000V' FOR VIEW",
+            shards.getShardQueries("001000000000000", "001000000000010", 2).get(0));
+
+        // subqueries have their own clauses
+        shards = new QueryShards(
+            "SELECT Id, (SELECT Id FROM Contacts WHERE Email != null ORDER BY Name LIMIT 5) FROM Account",
+            QueryShards.ID);
+        assertEquals("SELECT Id, (SELECT Id FROM Contacts WHERE Email != null ORDER BY Name LIMIT 5) " +
+            "FROM Account WHERE Id < '00100000000000V'",
+            shards.getShardQueries("001000000000000", "001000000000010", 2).get(0));
+    }
+
+    @Test
+    public void testKeywordsInLiterals() {
+        final QueryShards shards = new QueryShards(
+            "SELECT Id FROM Account WHERE Name = 'Group by \\'order\\' limit 10' ORDER BY Name", QueryShards.ID);
+        assertEquals("SELECT Id FROM Account WHERE (Name = 'Group by \\'order\\' limit 10') " +
+            "AND Id < '00100000000000V' ORDER BY Name",
+            shards.getShardQueries("001000000000000", "001000000000010", 2).get(0));
+    }
+
+    @Test
+    public void testKeywordsAsNames() {
+        // sObjects and relationship paths named like clause keywords
+        assertEquals("SELECT Id FROM Group WHERE Id < '00G00000000000V'",
+            new QueryShards("SELECT Id FROM Group", QueryShards.ID)
+                .getShardQueries("00G000000000000", "00G000000000010", 2).get(0));
+        assertEquals("SELECT Id FROM Order WHERE (Status = 'Draft') AND Id < '80100000000000V' ORDER BY Id",
+            new QueryShards("SELECT Id FROM Order WHERE Status = 'Draft' ORDER BY Id", QueryShards.ID)
+                .getShardQueries("801000000000000", "801000000000010", 2).get(0));
+        assertEquals("SELECT Id FROM Account WHERE (Owner.Group.Name = 'x' AND Parent.Limit.Offset = 1) " +
+            "AND Id < '00100000000000V'",
+            new QueryShards("SELECT Id FROM Account WHERE Owner.Group.Name = 'x' AND Parent.Limit.Offset = 1",
+                QueryShards.ID).getShardQueries("001000000000000", "001000000000010", 2).get(0));
+    }
+
+    @Test
+    public void testUnsupportedQueries() {
+        assertUnsupported("SELECT Name, COUNT(Id) FROM Account GROUP BY Name");
+        assertUnsupported("SELECT Name FROM Account group by Name HAVING COUNT(Id) > 1");
+        assertUnsupported("SELECT Id FROM Account LIMIT 10");
+        assertUnsupported("SELECT Id FROM Account WHERE Name = 'x' LIMIT :limit");
+        assertUnsupported("SELECT Id FROM Account ORDER BY Name OFFSET 10");
+        // no FROM clause
+        assertUnsupported("SELECT Id");
+        // only Id and dates can be split
+        try {
+            new QueryShards("SELECT Id FROM Account", "Name");
+            fail("Field Name wasn't rejected");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+    private static void assertUnsupported(String query) {
+        try {
+            new QueryShards(query, QueryShards.ID);
+            fail(String.format("Query %s wasn't rejected", query));
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+
+}